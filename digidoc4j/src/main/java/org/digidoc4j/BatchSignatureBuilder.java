@@ -0,0 +1,153 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Signs many containers with one signature token.
+ * <p>
+ * The signing certificate is read from the token once, and the data to sign of every signature is signed with the
+ * token on the calling thread, one signature after another, so a token that needs a PIN is logged in once for the
+ * whole batch. While the token signs the next signature, the signatures already signed are finalized on an executor,
+ * as by {@link BatchSignatureFinalizer}. The signatures are not added to the containers, the same as with
+ * {@link SignatureBuilder#invokeSigning()}.
+ * <p>
+ * A signature that cannot be created or finalized does not stop the others. When the token fails to sign, the token
+ * is not used for the rest of the batch and the remaining signatures fail with the same exception, so that a blocked
+ * or removed token is not asked to sign hundreds of times.
+ * <pre>
+ * List&lt;BatchSignatureFinalizer.Result&gt; results = BatchSignatureBuilder.aBatchSignature(signatureToken)
+ *     .withSignature(SignatureBuilder.aSignature(container1).withSignatureProfile(SignatureProfile.LT))
+ *     .withSignature(SignatureBuilder.aSignature(container2).withSignatureProfile(SignatureProfile.LT))
+ *     .invokeSigning();
+ * </pre>
+ */
+public final class BatchSignatureBuilder {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchSignatureBuilder.class);
+
+  private final SignatureToken signatureToken;
+  private final List<SignatureBuilder> signatureBuilders = new ArrayList<>();
+  private Executor executor;
+  private int maxConcurrentFinalizations = BatchSignatureFinalizer.DEFAULT_MAX_CONCURRENT_FINALIZATIONS;
+
+  private BatchSignatureBuilder(SignatureToken signatureToken) {
+    this.signatureToken = signatureToken;
+  }
+
+  /**
+   * @param signatureToken token all the signatures of the batch are signed with
+   * @return batch signature builder
+   */
+  public static BatchSignatureBuilder aBatchSignature(SignatureToken signatureToken) {
+    if (signatureToken == null) {
+      throw new DigiDoc4JException("Signature token must be provided for batch signing");
+    }
+    return new BatchSignatureBuilder(signatureToken);
+  }
+
+  /**
+   * Add a signature to the batch. The signing certificate of the builder is replaced with the certificate of the
+   * signature token of the batch.
+   *
+   * @param signatureBuilder builder of the signature
+   * @return batch signature builder
+   */
+  public BatchSignatureBuilder withSignature(SignatureBuilder signatureBuilder) {
+    signatureBuilders.add(signatureBuilder);
+    return this;
+  }
+
+  /**
+   * Set the executor the signatures are finalized on. By default the thread executor of the configuration of the first
+   * signature is used, see {@link Configuration#setThreadExecutor(java.util.concurrent.ExecutorService)}.
+   *
+   * @param executor executor
+   * @return batch signature builder
+   */
+  public BatchSignatureBuilder withExecutor(Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of signatures finalized at the same time. Default is
+   * {@link BatchSignatureFinalizer#DEFAULT_MAX_CONCURRENT_FINALIZATIONS}.
+   *
+   * @param maxConcurrentFinalizations maximum number of signatures finalized at the same time
+   * @return batch signature builder
+   */
+  public BatchSignatureBuilder withMaxConcurrentFinalizations(int maxConcurrentFinalizations) {
+    if (maxConcurrentFinalizations < 1) {
+      throw new DigiDoc4JException("Maximum number of concurrent finalizations must be positive");
+    }
+    this.maxConcurrentFinalizations = maxConcurrentFinalizations;
+    return this;
+  }
+
+  /**
+   * Sign and finalize all the signatures of the batch.
+   *
+   * @return results of the signatures in the order the signatures were added; the data to sign of a result is
+   * <code>null</code> if creating the data to sign failed
+   */
+  public List<BatchSignatureFinalizer.Result> invokeSigning() {
+    if (signatureBuilders.isEmpty()) {
+      return Collections.emptyList();
+    }
+    logger.debug("Signing {} signatures, finalizing at most {} at a time", signatureBuilders.size(),
+        maxConcurrentFinalizations);
+    X509Certificate signingCertificate = signatureToken.getCertificate();
+    BatchSignatureFinalizer.Pipeline pipeline = new BatchSignatureFinalizer.Pipeline(executor,
+        maxConcurrentFinalizations);
+    RuntimeException tokenException = null;
+    try {
+      for (SignatureBuilder signatureBuilder : signatureBuilders) {
+        DataToSign dataToSign;
+        try {
+          dataToSign = signatureBuilder.withSigningCertificate(signingCertificate).buildDataToSign();
+        } catch (RuntimeException e) {
+          logger.warn("Creating data to sign failed: " + e.getMessage());
+          pipeline.addFailure(null, e);
+          continue;
+        }
+        byte[] signatureValue = null;
+        if (tokenException == null) {
+          try {
+            signatureValue = signatureToken.sign(dataToSign.getDigestAlgorithm(), dataToSign.getDataToSign());
+          } catch (RuntimeException e) {
+            logger.error("Signing with the signature token failed, the token is not used for the rest of the batch: "
+                + e.getMessage());
+            tokenException = e;
+          }
+        }
+        if (tokenException == null) {
+          pipeline.finalizeSignature(dataToSign, signatureValue);
+        } else {
+          pipeline.addFailure(dataToSign, tokenException);
+        }
+      }
+      return pipeline.getResults();
+    } finally {
+      pipeline.cancel();
+    }
+  }
+
+}
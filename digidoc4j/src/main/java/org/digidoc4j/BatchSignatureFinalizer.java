@@ -0,0 +1,269 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.asic.xades.validation.ThreadPoolManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Finalizes many externally signed {@link DataToSign} objects concurrently.
+ * <p>
+ * Finalizing a signature mostly waits for the timestamp and OCSP responses, so the signatures of a batch are
+ * finalized on an executor, with at most {@link #withMaxConcurrentFinalizations(int)} finalizations in progress at a
+ * time. The calling thread takes part in finalizing, so the batch completes even when it is finalized from a task of
+ * a busy executor. Every signature is finalized as by {@link DataToSign#finalize(byte[])}; a signature that fails
+ * does not stop the others, and the result of every signature is returned in the order the signatures were added.
+ * <pre>
+ * List&lt;BatchSignatureFinalizer.Result&gt; results = BatchSignatureFinalizer.aBatchFinalizer()
+ *     .withSignature(dataToSign1, signatureValue1)
+ *     .withSignature(dataToSign2, signatureValue2)
+ *     .finalizeSignatures();
+ * </pre>
+ */
+public final class BatchSignatureFinalizer {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchSignatureFinalizer.class);
+  public static final int DEFAULT_MAX_CONCURRENT_FINALIZATIONS = 16;
+
+  private final Map<DataToSign, byte[]> signatures = new IdentityHashMap<>();
+  private final List<DataToSign> order = new ArrayList<>();
+  private Executor executor;
+  private int maxConcurrentFinalizations = DEFAULT_MAX_CONCURRENT_FINALIZATIONS;
+
+  private BatchSignatureFinalizer() {
+  }
+
+  /**
+   * @return batch finalizer
+   */
+  public static BatchSignatureFinalizer aBatchFinalizer() {
+    return new BatchSignatureFinalizer();
+  }
+
+  /**
+   * Set the executor the signatures are finalized on. By default the thread executor of the configuration of the first
+   * signature is used, see {@link Configuration#setThreadExecutor(java.util.concurrent.ExecutorService)}.
+   *
+   * @param executor executor
+   * @return batch finalizer
+   */
+  public BatchSignatureFinalizer withExecutor(Executor executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * Set the maximum number of signatures finalized at the same time. Default is
+   * {@link #DEFAULT_MAX_CONCURRENT_FINALIZATIONS}.
+   *
+   * @param maxConcurrentFinalizations maximum number of signatures finalized at the same time
+   * @return batch finalizer
+   */
+  public BatchSignatureFinalizer withMaxConcurrentFinalizations(int maxConcurrentFinalizations) {
+    if (maxConcurrentFinalizations < 1) {
+      throw new DigiDoc4JException("Maximum number of concurrent finalizations must be positive");
+    }
+    this.maxConcurrentFinalizations = maxConcurrentFinalizations;
+    return this;
+  }
+
+  /**
+   * Add a signature to the batch.
+   *
+   * @param dataToSign     data to sign the signature value was created for
+   * @param signatureValue externally created signature value bytes
+   * @return batch finalizer
+   */
+  public BatchSignatureFinalizer withSignature(DataToSign dataToSign, byte[] signatureValue) {
+    if (signatures.containsKey(dataToSign)) {
+      throw new DigiDoc4JException("Data to sign is already in the batch");
+    }
+    signatures.put(dataToSign, signatureValue);
+    order.add(dataToSign);
+    return this;
+  }
+
+  /**
+   * Finalize all the signatures of the batch.
+   *
+   * @return results of the signatures in the order the signatures were added
+   */
+  public List<Result> finalizeSignatures() {
+    if (order.isEmpty()) {
+      return Collections.emptyList();
+    }
+    logger.debug("Finalizing {} signatures, at most {} at a time", order.size(), maxConcurrentFinalizations);
+    Pipeline pipeline = new Pipeline(executor, maxConcurrentFinalizations);
+    try {
+      for (DataToSign dataToSign : order) {
+        pipeline.finalizeSignature(dataToSign, signatures.get(dataToSign));
+      }
+      return pipeline.getResults();
+    } finally {
+      pipeline.cancel();
+    }
+  }
+
+  /**
+   * Finalizes signatures on an executor as they are added, with at most the given number of finalizations in
+   * progress. When the limit is reached, adding a signature waits for the oldest finalization to complete; the calling
+   * thread finalizes the oldest signature itself if no thread of the executor has started it yet, which also covers
+   * signatures the executor has rejected. Without an executor the thread executor of the configuration of the first
+   * finalized signature is used.
+   */
+  static final class Pipeline {
+
+    private Executor executor;
+    private final int maxConcurrentFinalizations;
+    private final Deque<FutureTask<Result>> finalizingTasks = new ArrayDeque<>();
+    private final List<Result> results = new ArrayList<>();
+
+    Pipeline(Executor executor, int maxConcurrentFinalizations) {
+      this.executor = executor;
+      this.maxConcurrentFinalizations = maxConcurrentFinalizations;
+    }
+
+    void finalizeSignature(DataToSign dataToSign, byte[] signatureValue) {
+      FutureTask<Result> finalizingTask = new FutureTask<>(() -> finalize(dataToSign, signatureValue));
+      waitForFreeSlot();
+      finalizingTasks.add(finalizingTask);
+      if (executor == null) {
+        executor = new ThreadPoolManager(dataToSign.getConfiguration()).getThreadExecutor();
+      }
+      try {
+        executor.execute(finalizingTask);
+      } catch (RejectedExecutionException e) {
+        logger.debug("Executor rejected finalizing a signature, finalizing it on the calling thread");
+      }
+    }
+
+    void addFailure(DataToSign dataToSign, RuntimeException exception) {
+      FutureTask<Result> failedTask = new FutureTask<>(() -> new Result(dataToSign, null, exception));
+      failedTask.run();
+      waitForFreeSlot();
+      finalizingTasks.add(failedTask);
+    }
+
+    List<Result> getResults() {
+      while (!finalizingTasks.isEmpty()) {
+        completeOldest();
+      }
+      return results;
+    }
+
+    void cancel() {
+      for (FutureTask<Result> finalizingTask : finalizingTasks) {
+        finalizingTask.cancel(false);
+      }
+    }
+
+    private void waitForFreeSlot() {
+      while (finalizingTasks.size() >= maxConcurrentFinalizations) {
+        completeOldest();
+      }
+    }
+
+    private void completeOldest() {
+      FutureTask<Result> finalizingTask = finalizingTasks.peek();
+      finalizingTask.run();
+      results.add(getResult(finalizingTask));
+      finalizingTasks.remove();
+    }
+
+    private static Result finalize(DataToSign dataToSign, byte[] signatureValue) {
+      try {
+        return new Result(dataToSign, dataToSign.finalize(signatureValue), null);
+      } catch (RuntimeException e) {
+        logger.warn("Finalizing signature failed: " + e.getMessage());
+        return new Result(dataToSign, null, e);
+      }
+    }
+
+    private static Result getResult(FutureTask<Result> finalizingTask) {
+      try {
+        return finalizingTask.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        logger.error("Interrupted while finalizing signatures");
+        throw new TechnicalException("Interrupted while finalizing signatures", e);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        logger.error("Error finalizing signatures: " + cause.getMessage());
+        throw new TechnicalException("Error finalizing signatures: " + cause.getMessage(), cause);
+      }
+    }
+
+  }
+
+  /**
+   * Result of finalizing a signature of a batch.
+   */
+  public static final class Result {
+
+    private final DataToSign dataToSign;
+    private final Signature signature;
+    private final RuntimeException exception;
+
+    private Result(DataToSign dataToSign, Signature signature, RuntimeException exception) {
+      this.dataToSign = dataToSign;
+      this.signature = signature;
+      this.exception = exception;
+    }
+
+    /**
+     * @return data to sign the signature was finalized from or <code>null</code> if creating the data to sign failed
+     */
+    public DataToSign getDataToSign() {
+      return dataToSign;
+    }
+
+    /**
+     * @return finalized signature or <code>null</code> if finalizing failed
+     */
+    public Signature getSignature() {
+      return signature;
+    }
+
+    /**
+     * @return exception thrown when finalizing the signature or <code>null</code> if finalizing succeeded
+     */
+    public RuntimeException getException() {
+      return exception;
+    }
+
+    /**
+     * @return whether the signature was finalized
+     */
+    public boolean isSuccessful() {
+      return exception == null;
+    }
+
+  }
+
+}
@@ -17,8 +17,11 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.digidoc4j.exceptions.ConfigurationException;
 import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.impl.ConfigurationModificationCounter;
 import org.digidoc4j.impl.ConfigurationSingeltonHolder;
 import org.digidoc4j.impl.asic.tsl.TslManager;
+import org.digidoc4j.impl.storage.HeapBudget;
+import org.digidoc4j.impl.storage.TieredDataFileStorage;
 import org.digidoc4j.utils.ResourceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +40,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.LinkedHashMap;
@@ -168,7 +172,7 @@ import static java.util.Arrays.asList;
  * <li>SUPPORTED_SSL_PROTOCOLS: list of supported SSL protocols (by default uses implementation defaults)</li>
  * <li>SUPPORTED_SSL_CIPHER_SUITES: list of supported SSL cipher suites (by default uses implementation defaults)</li>
  * <li>ALLOWED_TS_AND_OCSP_RESPONSE_DELTA_IN_MINUTES: Allowed delay between timestamp and OCSP response in minutes.</li>
- * <li>TEMP_FILE_MAX_AGE: Maximum age in milliseconds till TEMP files are deleted (works only when saving container).</li>
+ * <li>TEMP_FILE_MAX_AGE: Deprecated, temporary files are deleted when the containers using them are closed.</li>
  * <li>ALLOW_UNSAFE_INTEGER: Allows to use unsafe Integer because of few applications still struggle with the
  * ASN.1 BER encoding rules for an INTEGER as described in:
  * {@link https://www.itu.int/ITU-T/studygroups/com17/languages/X.690-0207.pdf. }
@@ -179,6 +183,24 @@ import static java.util.Arrays.asList;
  * contents of a ZIP-based container allowed to consume before ZIP compression ratio check kicks in</li>
  * <li>MAX_ALLOWED_ZIP_COMPRESSION_RATIO: the maximum ratio of how much are the contents of a ZIP-based container
  * allowed to expand on unpacking before the container is considered harmful.</li>
+ * <li>LAZY_DATA_FILE_LOADING_ENABLED: whether data files larger than DIGIDOC_MAX_DATAFILE_CACHED of containers opened
+ * from a path are read directly from the container file on demand instead of being copied into temporary files
+ * (default is "false")</li>
+ * <li>MEMORY_MAPPED_CONTAINER_READING_ENABLED: whether ZIP-based containers opened from a path are memory mapped
+ * instead of being read via java.util.zip.ZipFile (default is "false")</li>
+ * <li>PRECALCULATED_DATA_FILE_DIGEST_ALGORITHMS: digest algorithms (e.g. SHA256, SHA512) of which the digests of data
+ * files are calculated while the data files are being extracted from a container (default is none)</li>
+ * <li>MAX_DATA_FILE_CACHED_OFF_HEAP_IN_BYTES: maximum size in bytes of data files that are larger than
+ * DIGIDOC_MAX_DATAFILE_CACHED but are still kept in memory, outside of the heap, instead of temporary files
+ * (default is 0, meaning that no data files are kept outside of the heap)</li>
+ * <li>DATA_FILE_SPOOL_DIRECTORY: directory of the temporary files of data files too large to be kept in memory
+ * (default is the system temporary-file directory)</li>
+ * <li>MAX_DATA_FILES_CACHED_TOTAL_IN_BYTES: maximum total size in bytes of data files kept on the heap by all the
+ * containers opened with the same configuration; data files that do not fit are stored as if they were larger than
+ * DIGIDOC_MAX_DATAFILE_CACHED (default is -1, meaning no limit)</li>
+ * <li>DATA_FILE_PARALLEL_COMPRESSION_THRESHOLD_IN_BYTES: minimum size in bytes of data files that are compressed on
+ * multiple threads when a container is saved (default is -1, meaning all data files are compressed on a single
+ * thread)</li>
  * </ul>
  */
 public class Configuration implements Serializable {
@@ -205,6 +227,8 @@ public class Configuration implements Serializable {
   private DataLoaderFactory tspDataLoaderFactory;
   private DataLoaderFactory tslDataLoaderFactory;
   private DSSFileLoaderFactory tslFileLoaderFactory;
+  private DataFileStorage dataFileStorage;
+  private DataFileCompressionPolicy dataFileCompressionPolicy;
   private TSLRefreshCallback tslRefreshCallback;
 
   /**
@@ -351,6 +375,7 @@ public class Configuration implements Serializable {
    */
   public void setOcspDataLoaderFactory(DataLoaderFactory ocspDataLoaderFactory) {
     this.ocspDataLoaderFactory = ocspDataLoaderFactory;
+    markModified();
   }
 
   /**
@@ -581,6 +606,7 @@ public class Configuration implements Serializable {
    */
   public void setTslFileLoaderFactory(DSSFileLoaderFactory tslFileLoaderFactory) {
     this.tslFileLoaderFactory = tslFileLoaderFactory;
+    markModified();
   }
 
   /**
@@ -622,6 +648,7 @@ public class Configuration implements Serializable {
   @Deprecated
   public void setTslDataLoaderFactory(DataLoaderFactory tslDataLoaderFactory) {
     this.tslDataLoaderFactory = tslDataLoaderFactory;
+    markModified();
   }
 
   /**
@@ -646,6 +673,7 @@ public class Configuration implements Serializable {
    */
   public void setAiaDataLoaderFactory(DataLoaderFactory aiaDataLoaderFactory) {
     this.aiaDataLoaderFactory = aiaDataLoaderFactory;
+    markModified();
   }
 
   /**
@@ -688,6 +716,7 @@ public class Configuration implements Serializable {
    */
   public void setTspDataLoaderFactory(DataLoaderFactory tspDataLoaderFactory) {
     this.tspDataLoaderFactory = tspDataLoaderFactory;
+    markModified();
   }
 
   /**
@@ -748,7 +777,11 @@ public class Configuration implements Serializable {
    * Set temp file max age in millis
    *
    * @param tempFileMaxAgeInMillis max age in millis
+   *
+   * @deprecated Temporary files are no longer deleted by age when saving a container, but when the containers using
+   * them are closed, see {@link Container#close()}.
    */
+  @Deprecated
   public void setTempFileMaxAge(long tempFileMaxAgeInMillis) {
     this.setConfigurationParameter(ConfigurationParameter.TempFileMaxAgeInMillis, String.valueOf(tempFileMaxAgeInMillis));
   }
@@ -757,7 +790,11 @@ public class Configuration implements Serializable {
    * Get temp file max age
    *
    * @return temp file max age in millis
+   *
+   * @deprecated Temporary files are no longer deleted by age when saving a container, but when the containers using
+   * them are closed, see {@link Container#close()}.
    */
+  @Deprecated
   public long getTempFileMaxAge() {
     return this.getConfigurationParameter(ConfigurationParameter.TempFileMaxAgeInMillis, Long.class);
   }
@@ -2056,6 +2093,272 @@ public class Configuration implements Serializable {
             .orElse(Long.MAX_VALUE);
   }
 
+  /**
+   * Set whether data files of containers opened from a path should be loaded lazily.
+   * <p/>
+   * When enabled, the data files larger than {@link #getMaxDataFileCachedInBytes()} are not copied into temporary
+   * files when the container is opened. Instead, their contents are read (and inflated) directly from the container
+   * file whenever they are needed. The container file must then not be modified or deleted for as long as the opened
+   * container is in use.
+   *
+   * @param lazyDataFileLoadingEnabled whether lazy data file loading should be enabled
+   */
+  public void setLazyDataFileLoadingEnabled(boolean lazyDataFileLoadingEnabled) {
+    setConfigurationParameter(ConfigurationParameter.LazyDataFileLoadingEnabled, String.valueOf(lazyDataFileLoadingEnabled));
+  }
+
+  /**
+   * Get whether data files of containers opened from a path are loaded lazily.
+   *
+   * @return whether lazy data file loading is enabled
+   *
+   * @see #setLazyDataFileLoadingEnabled(boolean)
+   */
+  public boolean isLazyDataFileLoadingEnabled() {
+    return Boolean.parseBoolean(getConfigurationParameter(ConfigurationParameter.LazyDataFileLoadingEnabled));
+  }
+
+  /**
+   * Set whether ZIP-based containers opened from a path should be memory mapped.
+   * <p/>
+   * When enabled, the container file is memory mapped instead of being read via {@link java.util.zip.ZipFile}.
+   * Uncompressed (STORED) entries of the container that are too large to be cached in memory (see
+   * {@link #setMaxFileSizeCachedInMemoryInMB(long)}) are then backed directly by the mapping and are not copied into
+   * temporary files. The container file must not be modified or deleted for as long as the opened container is in use.
+   * The mapping is released only after the opened container and its data files have been garbage collected; until
+   * then the container file cannot be deleted or replaced on Windows, which also prevents saving the container into
+   * the file it was opened from. Containers larger than 2 GB are always read via {@link java.util.zip.ZipFile}.
+   *
+   * @param memoryMappedContainerReadingEnabled whether memory mapped container reading should be enabled
+   */
+  public void setMemoryMappedContainerReadingEnabled(boolean memoryMappedContainerReadingEnabled) {
+    setConfigurationParameter(ConfigurationParameter.MemoryMappedContainerReadingEnabled,
+        String.valueOf(memoryMappedContainerReadingEnabled));
+  }
+
+  /**
+   * Get whether ZIP-based containers opened from a path are memory mapped.
+   *
+   * @return whether memory mapped container reading is enabled
+   *
+   * @see #setMemoryMappedContainerReadingEnabled(boolean)
+   */
+  public boolean isMemoryMappedContainerReadingEnabled() {
+    return Boolean.parseBoolean(getConfigurationParameter(ConfigurationParameter.MemoryMappedContainerReadingEnabled));
+  }
+
+  /**
+   * Set the digest algorithms of which the digests of data files are calculated while the data files are being
+   * extracted from an ASiC container.
+   * <p/>
+   * The data files of a parsed container are then passed to signature validation as {@link
+   * eu.europa.esig.dss.model.DigestDocument}s, so that the references of the signatures using any of these algorithms
+   * are validated without reading the data files again. The signature scopes of such signatures are reported as
+   * digest-based scopes in the validation reports.
+   * <p/>
+   * By default no digests are calculated in advance.
+   *
+   * @param digestAlgorithms digest algorithms, e.g. {@link DigestAlgorithm#SHA256} and {@link DigestAlgorithm#SHA512}
+   */
+  public void setPrecalculatedDataFileDigestAlgorithms(DigestAlgorithm... digestAlgorithms) {
+    String[] digestAlgorithmNames = Arrays.stream(digestAlgorithms).map(DigestAlgorithm::name).toArray(String[]::new);
+    if (digestAlgorithmNames.length == 0) {
+      this.registry.remove(ConfigurationParameter.PrecalculatedDataFileDigestAlgorithms);
+      markModified();
+    } else {
+      this.setConfigurationParameter(ConfigurationParameter.PrecalculatedDataFileDigestAlgorithms, digestAlgorithmNames);
+    }
+  }
+
+  /**
+   * Get the digest algorithms of which the digests of data files are calculated while the data files are being
+   * extracted from an ASiC container.
+   *
+   * @return list of digest algorithms, empty if no digests are calculated in advance
+   *
+   * @see #setPrecalculatedDataFileDigestAlgorithms(DigestAlgorithm...)
+   */
+  public List<DigestAlgorithm> getPrecalculatedDataFileDigestAlgorithms() {
+    List<String> digestAlgorithmNames = this.getConfigurationValues(ConfigurationParameter.PrecalculatedDataFileDigestAlgorithms);
+    if (digestAlgorithmNames == null) {
+      return Collections.emptyList();
+    }
+    return digestAlgorithmNames.stream().map(DigestAlgorithm::findByAlgorithm).collect(Collectors.toList());
+  }
+
+  /**
+   * Set the maximum size of data files kept in off-heap memory.
+   * <p/>
+   * Data files read from streams that are larger than {@link #getMaxDataFileCachedInBytes()} but not larger than this
+   * are kept in pooled direct buffers outside of the heap instead of temporary files. Larger data files are written
+   * into temporary files in {@link #getDataFileSpoolDirectory()}. Has no effect if all data files are cached in
+   * memory. Default is 0, meaning that no data files are kept outside of the heap.
+   *
+   * @param maxDataFileCachedOffHeapInBytes maximum size of data files kept in off-heap memory in bytes
+   */
+  public void setMaxDataFileCachedOffHeapInBytes(long maxDataFileCachedOffHeapInBytes) {
+    setConfigurationParameter(ConfigurationParameter.MaxDataFileCachedOffHeapInBytes,
+        String.valueOf(maxDataFileCachedOffHeapInBytes));
+  }
+
+  /**
+   * Get the maximum size of data files kept in off-heap memory.
+   *
+   * @return maximum size of data files kept in off-heap memory in bytes
+   *
+   * @see #setMaxDataFileCachedOffHeapInBytes(long)
+   */
+  public long getMaxDataFileCachedOffHeapInBytes() {
+    return Optional
+            .ofNullable(getConfigurationParameter(ConfigurationParameter.MaxDataFileCachedOffHeapInBytes, Long.class))
+            .orElse(0L);
+  }
+
+  /**
+   * Set the directory of the temporary files of data files that are too large to be kept in memory. The directory is
+   * created if it does not exist.
+   *
+   * @param dataFileSpoolDirectory directory path, {@code null} for the system temporary-file directory
+   */
+  public void setDataFileSpoolDirectory(String dataFileSpoolDirectory) {
+    if (dataFileSpoolDirectory == null) {
+      this.registry.remove(ConfigurationParameter.DataFileSpoolDirectory);
+      markModified();
+    } else {
+      setConfigurationParameter(ConfigurationParameter.DataFileSpoolDirectory, dataFileSpoolDirectory);
+    }
+  }
+
+  /**
+   * Get the directory of the temporary files of data files that are too large to be kept in memory.
+   *
+   * @return directory path or {@code null} if the system temporary-file directory is used
+   *
+   * @see #setDataFileSpoolDirectory(String)
+   */
+  public String getDataFileSpoolDirectory() {
+    return getConfigurationParameter(ConfigurationParameter.DataFileSpoolDirectory);
+  }
+
+  /**
+   * Set a custom storage for the contents of data files read from streams. Overrides the storage configured by
+   * DIGIDOC_MAX_DATAFILE_CACHED, MAX_DATA_FILE_CACHED_OFF_HEAP_IN_BYTES and DATA_FILE_SPOOL_DIRECTORY.
+   *
+   * @param dataFileStorage data file storage, {@code null} for the configured default storage
+   */
+  public void setDataFileStorage(DataFileStorage dataFileStorage) {
+    this.dataFileStorage = dataFileStorage;
+    markModified();
+  }
+
+  /**
+   * Get the storage for the contents of data files read from streams. Unless a custom storage is set, data files are
+   * kept on the heap, in off-heap memory or in temporary files depending on their size, see
+   * {@link #getMaxDataFileCachedInBytes()}, {@link #getMaxDataFileCachedOffHeapInBytes()} and
+   * {@link #getDataFileSpoolDirectory()}.
+   *
+   * @return data file storage
+   *
+   * @see #setDataFileStorage(DataFileStorage)
+   */
+  public DataFileStorage getDataFileStorage() {
+    if (this.dataFileStorage != null) {
+      return this.dataFileStorage;
+    }
+    return new TieredDataFileStorage(getMaxDataFileCachedInBytes(), getMaxDataFileCachedOffHeapInBytes(),
+        getDataFileSpoolDirectory(), HeapBudget.of(this));
+  }
+
+  /**
+   * Set the maximum total size of data files kept on the heap by all the containers opened with this configuration.
+   * <p/>
+   * Data files that would be kept on the heap according to {@link #getMaxDataFileCachedInBytes()} but do not fit into
+   * the total size are stored as if they were larger, i.e. in off-heap memory or in temporary files. The size of a
+   * data file is counted until the data file is no longer referenced. Default is -1, meaning no limit.
+   *
+   * @param maxDataFilesCachedTotalInBytes maximum total size of data files kept on the heap in bytes,
+   *                                       {@link Constant#CACHE_ALL_DATA_FILES} for no limit
+   */
+  public void setMaxDataFilesCachedTotalInBytes(long maxDataFilesCachedTotalInBytes) {
+    setConfigurationParameter(ConfigurationParameter.MaxDataFilesCachedTotalInBytes,
+        String.valueOf(maxDataFilesCachedTotalInBytes));
+  }
+
+  /**
+   * Get the maximum total size of data files kept on the heap by all the containers opened with this configuration.
+   *
+   * @return maximum total size of data files kept on the heap in bytes, {@link Constant#CACHE_ALL_DATA_FILES} if not
+   * limited
+   *
+   * @see #setMaxDataFilesCachedTotalInBytes(long)
+   */
+  public long getMaxDataFilesCachedTotalInBytes() {
+    return Optional
+            .ofNullable(getConfigurationParameter(ConfigurationParameter.MaxDataFilesCachedTotalInBytes, Long.class))
+            .orElse(Constant.CACHE_ALL_DATA_FILES);
+  }
+
+  /**
+   * Set the minimum size of data files that are compressed on multiple threads when a container is saved.
+   * <p/>
+   * Such data files are split into blocks that are compressed in parallel on the thread executor of this
+   * configuration, see {@link #setThreadExecutor(ExecutorService)}. The result is a standard ZIP file, though the
+   * compressed data files may be slightly larger than when compressed on a single thread. Disabled by default, as
+   * it shares the thread executor with other work of the library; a few megabytes is a reasonable threshold. Data
+   * files whose size is not known without reading them, e.g. those added to a container being built streaming, are
+   * always compressed on a single thread.
+   *
+   * @param dataFileParallelCompressionThresholdInBytes minimum size of data files compressed on multiple threads in
+   *                                                    bytes, -1 to compress all data files on a single thread
+   */
+  public void setDataFileParallelCompressionThresholdInBytes(long dataFileParallelCompressionThresholdInBytes) {
+    setConfigurationParameter(ConfigurationParameter.DataFileParallelCompressionThresholdInBytes,
+        String.valueOf(dataFileParallelCompressionThresholdInBytes));
+  }
+
+  /**
+   * Get the minimum size of data files that are compressed on multiple threads when a container is saved.
+   *
+   * @return minimum size of data files compressed on multiple threads in bytes, -1 if all data files are compressed
+   * on a single thread
+   *
+   * @see #setDataFileParallelCompressionThresholdInBytes(long)
+   */
+  public long getDataFileParallelCompressionThresholdInBytes() {
+    return Optional
+            .ofNullable(getConfigurationParameter(ConfigurationParameter.DataFileParallelCompressionThresholdInBytes,
+                Long.class))
+            .orElse(-1L);
+  }
+
+  /**
+   * Set the policy deciding how data files are compressed when containers are saved, e.g.
+   * {@link org.digidoc4j.impl.asic.MediaTypeCompressionPolicy#storingCompressedFormats()} to store already compressed
+   * formats uncompressed.
+   *
+   * @param dataFileCompressionPolicy data file compression policy, {@code null} to deflate all data files with
+   *                                  {@link DataFileCompressionPolicy#DEFAULT_LEVEL}
+   */
+  public void setDataFileCompressionPolicy(DataFileCompressionPolicy dataFileCompressionPolicy) {
+    this.dataFileCompressionPolicy = dataFileCompressionPolicy;
+    markModified();
+  }
+
+  /**
+   * Get the policy deciding how data files are compressed when containers are saved. Unless a policy is set, all data
+   * files are deflated with {@link DataFileCompressionPolicy#DEFAULT_LEVEL}.
+   *
+   * @return data file compression policy
+   *
+   * @see #setDataFileCompressionPolicy(DataFileCompressionPolicy)
+   */
+  public DataFileCompressionPolicy getDataFileCompressionPolicy() {
+    if (this.dataFileCompressionPolicy != null) {
+      return this.dataFileCompressionPolicy;
+    }
+    return (fileName, mediaType) -> DataFileCompressionPolicy.DEFAULT_LEVEL;
+  }
+
   /**
    * @return true when configuration is Configuration.Mode.TEST
    * @see Configuration.Mode#TEST
@@ -2122,6 +2425,12 @@ public class Configuration implements Serializable {
     this.setConfigurationParameter(ConfigurationParameter.useNonce, "true");
     this.setConfigurationParameter(ConfigurationParameter.ZipCompressionRatioCheckThreshold, "1048576");
     this.setConfigurationParameter(ConfigurationParameter.MaxAllowedZipCompressionRatio, "100");
+    this.setConfigurationParameter(ConfigurationParameter.LazyDataFileLoadingEnabled, "false");
+    this.setConfigurationParameter(ConfigurationParameter.MemoryMappedContainerReadingEnabled, "false");
+    this.setConfigurationParameter(ConfigurationParameter.MaxDataFileCachedOffHeapInBytes, "0");
+    this.setConfigurationParameter(ConfigurationParameter.MaxDataFilesCachedTotalInBytes,
+        String.valueOf(Constant.CACHE_ALL_DATA_FILES));
+    this.setConfigurationParameter(ConfigurationParameter.DataFileParallelCompressionThresholdInBytes, "-1");
     if (Mode.TEST.equals(this.mode)) {
       this.setConfigurationParameter(ConfigurationParameter.TspSource, Constant.Test.TSP_SOURCE);
       this.setConfigurationParameter(ConfigurationParameter.LotlLocation, Constant.Test.LOTL_LOCATION);
@@ -2250,6 +2559,18 @@ public class Configuration implements Serializable {
             ConfigurationParameter.ZipCompressionRatioCheckThreshold, this::isValidLongParameter);
     this.setConfigurationParameterFromFile("MAX_ALLOWED_ZIP_COMPRESSION_RATIO",
             ConfigurationParameter.MaxAllowedZipCompressionRatio, this::isValidIntegerParameter);
+    this.setConfigurationParameterFromFile("LAZY_DATA_FILE_LOADING_ENABLED",
+            ConfigurationParameter.LazyDataFileLoadingEnabled, this::isValidBooleanParameter);
+    this.setConfigurationParameterFromFile("MEMORY_MAPPED_CONTAINER_READING_ENABLED",
+            ConfigurationParameter.MemoryMappedContainerReadingEnabled, this::isValidBooleanParameter);
+    this.loadYamlPrecalculatedDataFileDigestAlgorithms();
+    this.setConfigurationParameterFromFile("MAX_DATA_FILE_CACHED_OFF_HEAP_IN_BYTES",
+            ConfigurationParameter.MaxDataFileCachedOffHeapInBytes, this::isValidLongParameter);
+    this.setConfigurationParameterFromFile("DATA_FILE_SPOOL_DIRECTORY", ConfigurationParameter.DataFileSpoolDirectory);
+    this.setConfigurationParameterFromFile("MAX_DATA_FILES_CACHED_TOTAL_IN_BYTES",
+            ConfigurationParameter.MaxDataFilesCachedTotalInBytes, this::isValidLongParameter);
+    this.setConfigurationParameterFromFile("DATA_FILE_PARALLEL_COMPRESSION_THRESHOLD_IN_BYTES",
+            ConfigurationParameter.DataFileParallelCompressionThresholdInBytes, this::isValidLongParameter);
     this.loadYamlOcspResponders();
     this.loadYamlRequiredTerritories();
     this.loadYamlTrustedTerritories();
@@ -2546,6 +2867,23 @@ public class Configuration implements Serializable {
     }
   }
 
+  private void loadYamlPrecalculatedDataFileDigestAlgorithms() {
+    String fileKey = "PRECALCULATED_DATA_FILE_DIGEST_ALGORITHMS";
+    List<String> digestAlgorithmNames = getStringListParameterFromFile(fileKey);
+    if (digestAlgorithmNames == null) {
+      return;
+    }
+    for (String digestAlgorithmName : digestAlgorithmNames) {
+      if (DigestAlgorithm.findByAlgorithm(digestAlgorithmName) == null) {
+        this.logError("Configuration parameter " + fileKey + " contains an unsupported digest algorithm: "
+            + digestAlgorithmName + ".");
+        return;
+      }
+    }
+    this.setConfigurationParameter(ConfigurationParameter.PrecalculatedDataFileDigestAlgorithms,
+        digestAlgorithmNames.toArray(new String[0]));
+  }
+
   private void loadYamlRequiredTerritories() {
     List<String> territories = getStringListParameterFromFile("REQUIRED_TERRITORIES");
     if (territories != null) {
@@ -2674,6 +3012,11 @@ public class Configuration implements Serializable {
     }
     LOGGER.debug("Setting parameter <{}> to <{}>", parameter, value);
     this.registry.put(parameter, Arrays.asList(value));
+    markModified();
+  }
+
+  private void markModified() {
+    ConfigurationModificationCounter.markModified(this);
   }
 
   private <T> T getConfigurationParameter(ConfigurationParameter parameter, Class<T> clazz) {
@@ -112,7 +112,14 @@ public enum ConfigurationParameter {
 
   TempFileMaxAgeInMillis,
   MaxAllowedZipCompressionRatio,
-  ZipCompressionRatioCheckThreshold;
+  ZipCompressionRatioCheckThreshold,
+  LazyDataFileLoadingEnabled,
+  MemoryMappedContainerReadingEnabled,
+  PrecalculatedDataFileDigestAlgorithms,
+  MaxDataFileCachedOffHeapInBytes,
+  DataFileSpoolDirectory,
+  MaxDataFilesCachedTotalInBytes,
+  DataFileParallelCompressionThresholdInBytes;
 
 
   final String fileKey;
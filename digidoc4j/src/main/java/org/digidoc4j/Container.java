@@ -14,6 +14,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 import eu.europa.esig.dss.model.MimeType;
@@ -27,8 +28,10 @@ import eu.europa.esig.dss.model.MimeType;
  * Data files can be added and removed from a container only if the container is not signed.
  * To modify the data list of a signed container by adding or removing datafiles you must first
  * remove all the signatures.
+ * </p><p>
+ * Closing a container deletes the temporary files it holds, e.g. those holding the contents of large data files.
  */
-public interface Container extends Serializable {
+public interface Container extends Serializable, AutoCloseable {
 
   /**
    * Adds a data file from the file system to the container.
@@ -81,6 +84,21 @@ public interface Container extends Serializable {
    */
   void addDataFile(DataFile dataFile);
 
+  /**
+   * Adds data files to the container.
+   * <p>
+   * Note:
+   * Data files can be added to a container only after all signatures have been removed.
+   * </p>
+   *
+   * @param dataFiles data files to be added to the container
+   */
+  default void addDataFiles(Collection<DataFile> dataFiles) {
+    for (DataFile dataFile : dataFiles) {
+      addDataFile(dataFile);
+    }
+  }
+
   /**
    * Adds a new signature to the container.
    *
@@ -142,6 +160,11 @@ public interface Container extends Serializable {
 
   /**
    * Saves the container as a stream.
+   * <p>
+   * The stream of an ASiC container is a live view of the container: the container is written while the stream is
+   * being read. The container must therefore not be modified or closed until the stream has been read to its end or
+   * closed. Errors occurring while writing the container are thrown by the read methods of the stream as
+   * {@link java.io.IOException}s.
    *
    * @return stream of the container.
    */
@@ -155,6 +178,15 @@ public interface Container extends Serializable {
    */
   void save(OutputStream out);
 
+  /**
+   * Deletes the temporary files holding the contents of the data files of the container, unless they are also used by
+   * other containers that have not been closed. Data files whose contents were held in deleted files cannot be read
+   * afterwards. The contents of the data files kept on the heap no longer count towards the data file heap budget.
+   */
+  @Override
+  default void close() {
+  }
+
   /**
    * Validate container
    *
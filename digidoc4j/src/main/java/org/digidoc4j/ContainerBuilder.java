@@ -27,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -138,6 +139,22 @@ public abstract class ContainerBuilder {
     return container;
   }
 
+  /**
+   * Builds a new container that is written into the given stream while it is being built. Every data file is written
+   * into the stream as soon as it is added to the container, and only the digests of the data files are kept in the
+   * container. The container is finished by closing it, which writes its manifest and signatures into the stream.
+   * <p>
+   * Supported for new ASiC-E containers only.
+   * </p>
+   *
+   * @param outputStream stream to write the container into, not closed when the container is closed.
+   * @return container being written into the stream.
+   * @see org.digidoc4j.impl.asic.asice.StreamingAsicEContainer
+   */
+  public Container buildStreaming(OutputStream outputStream) {
+    throw new NotSupportedException("Streaming is supported for new ASiC-E containers only");
+  }
+
   /**
    * Specify configuration for the container.
    *
@@ -0,0 +1,149 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Metadata of an ASiC container, read without opening the container.
+ *
+ * @see ContainerPeeker
+ */
+public class ContainerMetadata implements Serializable {
+
+  private final String mimeType;
+  private final List<DataFileMetadata> dataFiles;
+  private final List<SignatureMetadata> signatures;
+
+  /**
+   * @param mimeType   contents of the container mimetype file
+   * @param dataFiles  data files of the container
+   * @param signatures signatures of the container
+   */
+  public ContainerMetadata(String mimeType, List<DataFileMetadata> dataFiles, List<SignatureMetadata> signatures) {
+    this.mimeType = mimeType;
+    this.dataFiles = Collections.unmodifiableList(dataFiles);
+    this.signatures = Collections.unmodifiableList(signatures);
+  }
+
+  /**
+   * @return contents of the container mimetype file or {@code null} if the container has no mimetype file
+   */
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  /**
+   * @return data files of the container in the order they appear in the container
+   */
+  public List<DataFileMetadata> getDataFiles() {
+    return dataFiles;
+  }
+
+  /**
+   * @return signatures of the container in the order they appear in the container
+   */
+  public List<SignatureMetadata> getSignatures() {
+    return signatures;
+  }
+
+  /**
+   * Metadata of a data file.
+   */
+  public static class DataFileMetadata implements Serializable {
+
+    private final String name;
+    private final long size;
+    private final String mimeType;
+
+    /**
+     * @param name     data file name
+     * @param size     data file size in bytes
+     * @param mimeType data file mime type
+     */
+    public DataFileMetadata(String name, long size, String mimeType) {
+      this.name = name;
+      this.size = size;
+      this.mimeType = mimeType;
+    }
+
+    /**
+     * @return data file name
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * @return data file size in bytes, as recorded in the ZIP central directory
+     */
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * @return data file mime type from the manifest or, if the manifest has no entry for the file, from its name
+     */
+    public String getMimeType() {
+      return mimeType;
+    }
+
+  }
+
+  /**
+   * Metadata of a signature. Nothing is validated: the values are read from the signature XML as they are.
+   */
+  public static class SignatureMetadata implements Serializable {
+
+    private final String id;
+    private final X509Cert signingCertificate;
+    private final Date claimedSigningTime;
+
+    /**
+     * @param id                 signature id
+     * @param signingCertificate signing certificate
+     * @param claimedSigningTime signing time claimed by the signer
+     */
+    public SignatureMetadata(String id, X509Cert signingCertificate, Date claimedSigningTime) {
+      this.id = id;
+      this.signingCertificate = signingCertificate;
+      this.claimedSigningTime = claimedSigningTime;
+    }
+
+    /**
+     * @return signature id or {@code null} if the signature has no id
+     */
+    public String getId() {
+      return id;
+    }
+
+    /**
+     * @return the certificate of the signature key info whose digest matches a CertDigest of the signing certificate
+     * reference (xades:SigningCertificate or xades:SigningCertificateV2), or {@code null} if no key info certificate
+     * matches or the signature has no such reference
+     */
+    public X509Cert getSigningCertificate() {
+      return signingCertificate;
+    }
+
+    /**
+     * @return signing time claimed by the signer or {@code null} if the signature has no signing time
+     */
+    public Date getClaimedSigningTime() {
+      return claimedSigningTime;
+    }
+
+  }
+
+}
@@ -12,7 +12,7 @@ package org.digidoc4j;
 
 import eu.europa.esig.dss.model.MimeType;
 import org.digidoc4j.exceptions.DigiDoc4JException;
-import org.digidoc4j.impl.asic.AsicFileContainerParser;
+import org.digidoc4j.impl.asic.AsicContainerParser;
 import org.digidoc4j.impl.asic.AsicParseResult;
 import org.digidoc4j.impl.asic.AsicStreamContainerParser;
 import org.digidoc4j.impl.asic.asice.AsicEContainer;
@@ -123,7 +123,7 @@ public class ContainerOpener {
 
   private static Container openAsicContainer(String path, Configuration configuration) {
     configuration.loadConfiguration("digidoc4j.yaml", false);
-    AsicParseResult parseResult = new AsicFileContainerParser(path, configuration).read();
+    AsicParseResult parseResult = AsicContainerParser.forContainerFile(path, configuration).read();
     if (isAsicSContainer(parseResult)){
       return new AsicSContainer(parseResult, configuration);
     }
@@ -0,0 +1,74 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.exceptions.NotSupportedException;
+import org.digidoc4j.impl.asic.AsicContainerPeeker;
+import org.digidoc4j.utils.Helper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Helper class for reading the metadata of ASiC containers without opening them.
+ * <p>
+ * Only the ZIP central directory, the mimetype file, the manifest and the beginning of each signature file are read.
+ * Data files are not read and signatures are neither parsed by DSS nor validated, so peeking is much cheaper than
+ * {@link ContainerOpener#open(String, Configuration)}. Use it for listing or indexing containers; open the container
+ * when the signatures need to be trusted.
+ *
+ * @see ContainerOpener
+ */
+public class ContainerPeeker {
+
+  private static final Logger logger = LoggerFactory.getLogger(ContainerPeeker.class);
+
+  /**
+   * Read the metadata of an ASiC container from a file.
+   *
+   * @param path file name and path
+   * @return container metadata
+   * @throws NotSupportedException when the file is not an ASiC container
+   * @throws DigiDoc4JException    when the file cannot be read
+   */
+  public static ContainerMetadata peek(String path) throws DigiDoc4JException {
+    return peek(path, Configuration.getInstance());
+  }
+
+  /**
+   * Read the metadata of an ASiC container from a file.
+   *
+   * @param path          file name and path
+   * @param configuration configuration
+   * @return container metadata
+   * @throws NotSupportedException when the file is not an ASiC container
+   * @throws DigiDoc4JException    when the file cannot be read
+   */
+  public static ContainerMetadata peek(String path, Configuration configuration) throws DigiDoc4JException {
+    logger.debug("Peeking container from path: " + path);
+    File file = new File(path);
+    try {
+      if (!Helper.isZipFile(file)) {
+        throw new NotSupportedException("Peeking is only supported for ASiC containers");
+      }
+      return new AsicContainerPeeker(file, configuration).read();
+    } catch (EOFException eof) {
+      throw new DigiDoc4JException("File is invalid");
+    } catch (IOException e) {
+      throw new DigiDoc4JException(e);
+    }
+  }
+
+}
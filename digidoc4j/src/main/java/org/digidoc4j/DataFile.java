@@ -19,10 +19,15 @@ import eu.europa.esig.dss.model.MimeType;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.digidoc4j.exceptions.DigiDoc4JException;
 import org.digidoc4j.exceptions.InvalidDataFileException;
 import org.digidoc4j.exceptions.TechnicalException;
 import org.digidoc4j.impl.StreamDocument;
+import org.digidoc4j.impl.asic.zip.ByteBufferDocument;
+import org.digidoc4j.impl.asic.zip.ZipEntryDocument;
+import org.digidoc4j.impl.storage.DirectBufferDocument;
+import org.digidoc4j.impl.storage.SpoolFileDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,6 +37,9 @@ import java.io.OutputStream;
 import java.io.Serializable;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 
@@ -43,6 +51,7 @@ public class DataFile implements Serializable {
 
   private DSSDocument document = null;
   private String id;
+  private transient List<BiConsumer<DataFile, String>> renameListeners;
 
   /**
    * Creates container.
@@ -90,6 +99,25 @@ public class DataFile implements Serializable {
     }
   }
 
+  /**
+   * Creates a data file whose content is kept where the given storage decides.
+   *
+   * @param stream   file content from stream
+   * @param fileName file name with path
+   * @param mimeType MIME type of the stream file, for example 'text/plain' or 'application/msword'
+   * @param storage  storage of the file content
+   * @see Configuration#getDataFileStorage()
+   */
+  public DataFile(InputStream stream, String fileName, String mimeType, DataFileStorage storage) {
+    logger.debug("File name: " + fileName + ", mime type: " + mimeType);
+    try {
+      document = storage.store(stream, fileName, getMimeType(mimeType));
+    } catch (Exception e) {
+      logger.error(e.getMessage());
+      throw new InvalidDataFileException(e);
+    }
+  }
+
   protected DataFile(DSSDocument document) {
     this.document = document;
   }
@@ -158,7 +186,7 @@ public class DataFile implements Serializable {
   public String getName() {
     String documentName = document.getName();
     String name = FilenameUtils.getName(documentName);
-    logger.trace("File name: for document " + documentName + " is " + name);
+    logger.trace("File name: for document {} is {}", documentName, name);
     return name;
   }
 
@@ -215,7 +243,12 @@ public class DataFile implements Serializable {
     }
   }
 
-  private Long getFileSizeIfKnown() {
+  /**
+   * Returns the file size in bytes if it is known without reading the contents of the data file.
+   *
+   * @return file size in bytes, or {@code null} if it is not known
+   */
+  public Long getFileSizeIfKnown() {
     if (document instanceof InMemoryDocument) {
       InMemoryDocument inMemoryDocument = (InMemoryDocument) document;
       if (inMemoryDocument.getBytes() != null) {
@@ -224,6 +257,14 @@ public class DataFile implements Serializable {
     } else if (document instanceof StreamDocument) {
       StreamDocument streamDocument = (StreamDocument) document;
       return streamDocument.getStreamLengthIfKnown();
+    } else if (document instanceof ZipEntryDocument) {
+      return ((ZipEntryDocument) document).getSize();
+    } else if (document instanceof ByteBufferDocument) {
+      return ((ByteBufferDocument) document).getSize();
+    } else if (document instanceof DirectBufferDocument) {
+      return ((DirectBufferDocument) document).getSize();
+    } else if (document instanceof SpoolFileDocument) {
+      return ((SpoolFileDocument) document).getSize();
     } else if (document instanceof FileDocument) {
       FileDocument fileDocument = (FileDocument) document;
       try {
@@ -318,7 +359,41 @@ public class DataFile implements Serializable {
   }
 
   public void setDocument(DSSDocument document) {
+    if (renameListeners == null || renameListeners.isEmpty()) {
+      this.document = document;
+      return;
+    }
+    String previousName = getName();
     this.document = document;
+    if (!StringUtils.equals(previousName, getName())) {
+      for (BiConsumer<DataFile, String> renameListener : new ArrayList<>(renameListeners)) {
+        renameListener.accept(this, previousName);
+      }
+    }
+  }
+
+  /**
+   * Registers a listener to be notified with the data file and its previous name when the data file is renamed by
+   * {@link #setDocument(DSSDocument)}. A listener registered more than once is notified once per registration.
+   *
+   * @param renameListener listener to be notified
+   */
+  public void addRenameListener(BiConsumer<DataFile, String> renameListener) {
+    if (renameListeners == null) {
+      renameListeners = new ArrayList<>(1);
+    }
+    renameListeners.add(renameListener);
+  }
+
+  /**
+   * Removes one registration of a listener added with {@link #addRenameListener(BiConsumer)}.
+   *
+   * @param renameListener listener to be removed
+   */
+  public void removeRenameListener(BiConsumer<DataFile, String> renameListener) {
+    if (renameListeners != null) {
+      renameListeners.remove(renameListener);
+    }
   }
 
   private static URL getSha256DigestMethodUrl() {
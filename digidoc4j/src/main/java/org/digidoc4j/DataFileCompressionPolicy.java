@@ -0,0 +1,52 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import java.io.Serializable;
+
+/**
+ * Decides how data files are compressed when they are written into ASiC containers: stored uncompressed, deflated
+ * with a given compression level, or either of these depending on how well the beginning of the data file compresses.
+ * <p>
+ * Storing data files that do not shrink when deflated, e.g. JPEG or PNG images, ZIP archives or encrypted payloads,
+ * saves the CPU time spent on compressing them without making the container any larger.
+ *
+ * @see Configuration#setDataFileCompressionPolicy(DataFileCompressionPolicy)
+ * @see org.digidoc4j.impl.asic.MediaTypeCompressionPolicy
+ */
+@FunctionalInterface
+public interface DataFileCompressionPolicy extends Serializable {
+
+  /**
+   * Data file is stored uncompressed.
+   */
+  int STORED = 0;
+
+  /**
+   * Data file is deflated with {@link #DEFAULT_LEVEL} if a sample from its beginning compresses well, otherwise it is
+   * stored uncompressed.
+   */
+  int SAMPLED = -2;
+
+  /**
+   * Compression level that data files are deflated with by default.
+   */
+  int DEFAULT_LEVEL = 8;
+
+  /**
+   * @param fileName  data file name
+   * @param mediaType data file media type
+   * @return compression level from 1 to 9 to deflate the data file with, {@link #STORED} to store it uncompressed or
+   * {@link #SAMPLED} to choose based on a sample of its contents
+   */
+  int getCompressionLevel(String fileName, String mediaType);
+
+}
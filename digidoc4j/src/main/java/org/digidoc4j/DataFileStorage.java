@@ -0,0 +1,42 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.MimeType;
+
+import java.io.InputStream;
+import java.io.Serializable;
+
+/**
+ * Decides where the contents of data files read from streams are kept, for example on the heap, in off-heap memory or
+ * in files on disk. Used when data files are added to containers from streams and when data files are extracted from
+ * containers being opened.
+ * <p>
+ * Data files whose size is known in advance to be within {@link Configuration#getMaxDataFileCachedInBytes()} are kept
+ * on the heap without consulting the storage.
+ *
+ * @see Configuration#setDataFileStorage(DataFileStorage)
+ */
+@FunctionalInterface
+public interface DataFileStorage extends Serializable {
+
+  /**
+   * Reads the given stream to its end and stores its contents. The stream is not closed.
+   *
+   * @param stream   contents of the data file
+   * @param name     data file name
+   * @param mimeType data file mime type
+   * @return document holding the stored contents
+   */
+  DSSDocument store(InputStream stream, String name, MimeType mimeType);
+
+}
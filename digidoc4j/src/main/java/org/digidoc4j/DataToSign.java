@@ -15,6 +15,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * <p>
@@ -92,4 +94,16 @@ public class DataToSign implements Serializable {
     logger.debug("Finalizing signature");
     return signatureFinalizer.finalizeSignature(signatureValue);
   }
+
+  /**
+   * Finalize the signature asynchronously on the given executor, see {@link #finalize(byte[])}.
+   * The calling thread does not wait for the OCSP and timestamp responses.
+   *
+   * @param signatureValue externally created signature value bytes.
+   * @param executor executor to finalize the signature on.
+   * @return future of the finalized signature, completed exceptionally if finalizing fails.
+   */
+  public CompletableFuture<Signature> finalizeAsync(byte[] signatureValue, Executor executor) {
+    return CompletableFuture.supplyAsync(() -> finalize(signatureValue), executor);
+  }
 }
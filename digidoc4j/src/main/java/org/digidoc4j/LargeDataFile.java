@@ -11,6 +11,7 @@
 package org.digidoc4j;
 
 import java.io.InputStream;
+import java.util.Collections;
 
 import org.digidoc4j.exceptions.InvalidDataFileException;
 import org.digidoc4j.impl.StreamDocument;
@@ -38,11 +39,26 @@ public class LargeDataFile extends DataFile {
   public LargeDataFile(InputStream stream, String fileName, String mimeType) {
     logger.debug("Large file name: " + fileName + ", mime type: " + mimeType);
     try {
-      DSSDocument document = new StreamDocument(stream, fileName, getMimeType(mimeType));
+      DSSDocument document = new StreamDocument(stream, fileName, getMimeType(mimeType), null,
+          Collections.singleton(Constant.Default.DATAFILE_DIGEST_ALGORITHM.getDssDigestAlgorithm()));
       setDocument(document);
     } catch (Exception e) {
       logger.error(e.getMessage());
       throw new InvalidDataFileException(e);
     }
   }
+
+  /**
+   * Creates a data file from a stream that is going to be stored where the given storage decides, typically as a
+   * temporary file on the file system or, if it turns out to be small enough, in memory.
+   *
+   * @param stream   data file stream.
+   * @param fileName name of the file
+   * @param mimeType MIME type of the stream file, for example 'text/plain' or 'application/msword'
+   * @param storage  storage of the file content
+   * @see Configuration#getDataFileStorage()
+   */
+  public LargeDataFile(InputStream stream, String fileName, String mimeType, DataFileStorage storage) {
+    super(stream, fileName, mimeType, storage);
+  }
 }
@@ -28,6 +28,8 @@ import java.io.Serializable;
 import java.security.cert.X509Certificate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static java.util.Arrays.asList;
 import static org.digidoc4j.Constant.ASICE_CONTAINER_TYPE;
@@ -159,6 +161,23 @@ public abstract class SignatureBuilder implements Serializable {
     return invokeSigningProcess();
   }
 
+  /**
+   * Invokes a signing process on the container asynchronously on the given executor, see {@link #invokeSigning()}.
+   * Both signing with the signature token and finalizing the signature are done on the executor, so a signature token
+   * that must be used from a single thread needs a single-threaded executor.
+   *
+   * @param executor executor to sign on.
+   * @return future of the new signature on the container, completed exceptionally if signing fails.
+   * @throws SignatureTokenMissingException if signature token is not provided with {@link SignatureBuilder#withSignatureToken}
+   */
+  public CompletableFuture<Signature> invokeSigningAsync(Executor executor) throws SignatureTokenMissingException {
+    if (signatureToken == null) {
+      logger.error("Cannot invoke signing without signature token. Add 'withSignatureToken()' method call or call 'buildDataToSign() instead.'");
+      throw new SignatureTokenMissingException();
+    }
+    return CompletableFuture.supplyAsync(this::invokeSigningProcess, executor);
+  }
+
   /**
    * Signing process implementation that is called by {@link SignatureBuilder#invokeSigning()} method.
    * Must be implemented by the class implementing the builder.
@@ -0,0 +1,53 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl;
+
+import org.digidoc4j.Configuration;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Counts the modifications of configurations.
+ * <p>
+ * Objects created from a configuration and shared between containers, such as the data loaders used for signing, are
+ * created anew when the modification count of the configuration has changed since they were created. The counts are
+ * held weakly by configuration and are not kept when a configuration is serialized.
+ */
+public final class ConfigurationModificationCounter {
+
+  private static final Map<Configuration, Long> modificationCounts = new WeakHashMap<>();
+
+  private ConfigurationModificationCounter() {
+  }
+
+  /**
+   * Called by the configuration when its parameters or data loader factories are modified.
+   *
+   * @param configuration configuration
+   */
+  public static void markModified(Configuration configuration) {
+    synchronized (modificationCounts) {
+      modificationCounts.merge(configuration, 1L, Long::sum);
+    }
+  }
+
+  /**
+   * @param configuration configuration
+   * @return number of times the configuration has been modified
+   */
+  public static long getModificationCount(Configuration configuration) {
+    synchronized (modificationCounts) {
+      return modificationCounts.getOrDefault(configuration, 0L);
+    }
+  }
+
+}
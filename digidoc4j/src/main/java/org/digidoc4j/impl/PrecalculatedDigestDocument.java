@@ -0,0 +1,74 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.DigestDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A {@link DigestDocument} holding the digests of another document that were calculated in advance, for example while
+ * the document was being extracted from a container.
+ * <p>
+ * DSS validates the references to detached {@link DigestDocument}s by the known digests instead of reading the entire
+ * document contents into memory. Digests that were not calculated in advance, and the document contents themselves,
+ * are obtained from the underlying document.
+ */
+public class PrecalculatedDigestDocument extends DigestDocument {
+
+  private final DSSDocument document;
+
+  /**
+   * @param document document whose digests are added to this document
+   */
+  public PrecalculatedDigestDocument(DSSDocument document) {
+    this.document = document;
+    super.name = document.getName();
+    super.mimeType = document.getMimeType();
+  }
+
+  @Override
+  public String getDigest(DigestAlgorithm digestAlgorithm) {
+    String base64EncodeDigest = base64EncodeDigestMap.get(digestAlgorithm);
+    if (base64EncodeDigest == null) {
+      base64EncodeDigest = document.getDigest(digestAlgorithm);
+      base64EncodeDigestMap.put(digestAlgorithm, base64EncodeDigest);
+    }
+    return base64EncodeDigest;
+  }
+
+  @Override
+  public InputStream openStream() {
+    return document.openStream();
+  }
+
+  @Override
+  public void writeTo(OutputStream stream) throws IOException {
+    document.writeTo(stream);
+  }
+
+  @Override
+  public void save(String filePath) throws IOException {
+    document.save(filePath);
+  }
+
+  /**
+   * @return the document whose digests this document holds
+   */
+  public DSSDocument getDocument() {
+    return document;
+  }
+
+}
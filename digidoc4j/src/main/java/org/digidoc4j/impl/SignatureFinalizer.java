@@ -12,25 +12,47 @@ package org.digidoc4j.impl;
 
 import eu.europa.esig.dss.model.DSSDocument;
 import org.digidoc4j.Configuration;
+import org.digidoc4j.Constant;
 import org.digidoc4j.DataFile;
 import org.digidoc4j.DataToSign;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.DigestDataFile;
 import org.digidoc4j.Signature;
 import org.digidoc4j.SignatureBuilder;
 import org.digidoc4j.SignatureParameters;
 import org.digidoc4j.exceptions.InvalidDataFileException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Signature finalizer for datafiles signing process.
  * Used by {@link SignatureBuilder}, by {@link SignatureBuilder} generated {@link DataToSign} and for two step signing (with serialization or local storage).
+ * <p>
+ * The serialized form of a finalizer is compact and versioned: it holds the signature parameters, the name, media
+ * type and digest of each data file, calculated with the data file digest algorithm of the signature parameters, and
+ * the configuration. The default configuration ({@link Configuration#getInstance()}) is stored as a reference to the
+ * default configuration of the deserializing application, other configurations are stored as they are. A deserialized
+ * finalizer signs {@link DigestDataFile}s holding the digests of the original data files.
  */
 public abstract class SignatureFinalizer implements Serializable {
 
-  protected List<DataFile> dataFiles;
-  protected SignatureParameters signatureParameters;
-  protected Configuration configuration;
+  private static final long serialVersionUID = 2L;
+  private static final Logger logger = LoggerFactory.getLogger(SignatureFinalizer.class);
+  private static final int SERIALIZED_FORM_VERSION = 1;
+  private static final byte DEFAULT_CONFIGURATION = 0;
+  private static final byte EMBEDDED_CONFIGURATION = 1;
+
+  protected transient List<DataFile> dataFiles;
+  protected transient SignatureParameters signatureParameters;
+  protected transient Configuration configuration;
 
   public SignatureFinalizer(List<DataFile> dataFiles, SignatureParameters signatureParameters, Configuration configuration) {
     verifyDataFilesNotEmpty(dataFiles);
@@ -77,6 +99,61 @@ public abstract class SignatureFinalizer implements Serializable {
     return signatureParameters;
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(SERIALIZED_FORM_VERSION);
+    out.writeObject(signatureParameters);
+    if (ConfigurationSingeltonHolder.isInitialized() && configuration == Configuration.getInstance()) {
+      out.writeByte(DEFAULT_CONFIGURATION);
+    } else {
+      out.writeByte(EMBEDDED_CONFIGURATION);
+      out.writeObject(configuration);
+    }
+    DigestAlgorithm digestAlgorithm = getDataFileDigestAlgorithm();
+    logger.debug("Serializing {} data files as {} digests", dataFiles.size(), digestAlgorithm);
+    out.writeObject(digestAlgorithm);
+    out.writeInt(dataFiles.size());
+    for (DataFile dataFile : dataFiles) {
+      byte[] digest = dataFile.calculateDigest(digestAlgorithm);
+      out.writeUTF(dataFile.getName());
+      out.writeUTF(dataFile.getMediaType());
+      out.writeInt(digest.length);
+      out.write(digest);
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int version = in.readInt();
+    if (version != SERIALIZED_FORM_VERSION) {
+      throw new InvalidObjectException("Unsupported serialized form version of signature finalizer: " + version);
+    }
+    signatureParameters = (SignatureParameters) in.readObject();
+    byte configurationType = in.readByte();
+    if (configurationType == DEFAULT_CONFIGURATION) {
+      configuration = Configuration.getInstance();
+    } else if (configurationType == EMBEDDED_CONFIGURATION) {
+      configuration = (Configuration) in.readObject();
+    } else {
+      throw new InvalidObjectException("Unknown configuration reference of signature finalizer: " + configurationType);
+    }
+    DigestAlgorithm digestAlgorithm = (DigestAlgorithm) in.readObject();
+    int dataFileCount = in.readInt();
+    dataFiles = new ArrayList<>(dataFileCount);
+    for (int i = 0; i < dataFileCount; i++) {
+      String name = in.readUTF();
+      String mediaType = in.readUTF();
+      byte[] digest = new byte[in.readInt()];
+      in.readFully(digest);
+      dataFiles.add(new DigestDataFile(name, digestAlgorithm, digest, mediaType));
+    }
+  }
+
+  private DigestAlgorithm getDataFileDigestAlgorithm() {
+    DigestAlgorithm digestAlgorithm = signatureParameters.getDataFileDigestAlgorithm();
+    return digestAlgorithm != null ? digestAlgorithm : Constant.Default.DATAFILE_DIGEST_ALGORITHM;
+  }
+
   private static void verifyDataFilesNotEmpty(List<DataFile> dataFiles) {
     dataFiles.stream()
             .filter(DataFile::isFileEmpty)
@@ -36,6 +36,8 @@ import java.io.ByteArrayInputStream;
 import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Data loader implementation for SK ID Solutions AS
@@ -44,6 +46,10 @@ public abstract class SkDataLoader extends CommonsDataLoader {
 
   protected static final Logger LOGGER = LoggerFactory.getLogger(SkDataLoader.class);
   private String userAgent;
+  private boolean httpClientReused;
+  private transient Map<String, CloseableHttpClient> reusedHttpClients;
+  private transient int reusedHttpClientRequests;
+  private transient boolean reusedHttpClientsClosed;
 
   protected SkDataLoader() {}
 
@@ -64,6 +70,7 @@ public abstract class SkDataLoader extends CommonsDataLoader {
     HttpPost httpRequest = null;
     CloseableHttpResponse httpResponse = null;
     CloseableHttpClient client = null;
+    boolean clientReused = acquireReusedHttpClients();
     try {
       final URI uri = URI.create(url.trim());
       httpRequest = new HttpPost(uri);
@@ -75,7 +82,7 @@ public abstract class SkDataLoader extends CommonsDataLoader {
       if (StringUtils.isNotBlank(this.contentType)) {
         httpRequest.setHeader("Content-Type", this.contentType);
       }
-      client = getHttpClient(url);
+      client = clientReused ? getReusedHttpClient(url) : getHttpClient(url);
       httpResponse = this.getHttpResponse(client, httpRequest);
       validateHttpResponse(httpResponse, url);
       byte[] responseBytes = readHttpResponse(httpResponse);
@@ -102,8 +109,54 @@ public abstract class SkDataLoader extends CommonsDataLoader {
           EntityUtils.consumeQuietly(httpResponse.getEntity());
         }
       } finally {
-        Utils.closeQuietly(client);
+        if (clientReused) {
+          releaseReusedHttpClients();
+        } else {
+          Utils.closeQuietly(client);
+        }
+      }
+    }
+  }
+
+  private synchronized boolean acquireReusedHttpClients() {
+    if (!httpClientReused || reusedHttpClientsClosed) {
+      return false;
+    }
+    reusedHttpClientRequests++;
+    return true;
+  }
+
+  private synchronized CloseableHttpClient getReusedHttpClient(String url) {
+    if (reusedHttpClients == null) {
+      reusedHttpClients = new HashMap<>();
+    }
+    return reusedHttpClients.computeIfAbsent(url.trim(), u -> {
+      LOGGER.debug("Creating reused HTTP client for <{}>", u);
+      return getHttpClient(u);
+    });
+  }
+
+  private synchronized void releaseReusedHttpClients() {
+    reusedHttpClientRequests--;
+    closeReusedHttpClientsIfUnused();
+  }
+
+  /**
+   * Closes the HTTP clients kept for reuse, see {@link #setHttpClientReused(boolean)}, as soon as the requests still
+   * using them have completed. Subsequent requests create and close an HTTP client of their own.
+   */
+  public synchronized void closeReusedHttpClients() {
+    reusedHttpClientsClosed = true;
+    closeReusedHttpClientsIfUnused();
+  }
+
+  private void closeReusedHttpClientsIfUnused() {
+    if (reusedHttpClientsClosed && reusedHttpClientRequests == 0 && reusedHttpClients != null) {
+      LOGGER.debug("Closing {} reused HTTP clients", reusedHttpClients.size());
+      for (CloseableHttpClient httpClient : reusedHttpClients.values()) {
+        Utils.closeQuietly(httpClient);
       }
+      reusedHttpClients = null;
     }
   }
 
@@ -133,4 +186,20 @@ public abstract class SkDataLoader extends CommonsDataLoader {
   public String getUserAgent() {
     return userAgent;
   }
+
+  /**
+   * Keeps the HTTP client of every service URL, together with its pool of connections, for all the subsequent
+   * requests instead of creating and closing a client for every request, so that connections and TLS sessions are
+   * reused. Meant for data loaders shared by many requests; the clients are kept until
+   * {@link #closeReusedHttpClients()} is called.
+   *
+   * @param httpClientReused whether HTTP clients are reused
+   */
+  public void setHttpClientReused(boolean httpClientReused) {
+    this.httpClientReused = httpClientReused;
+  }
+
+  public boolean isHttpClientReused() {
+    return httpClientReused;
+  }
 }
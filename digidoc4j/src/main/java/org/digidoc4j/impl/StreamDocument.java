@@ -11,9 +11,14 @@
 package org.digidoc4j.impl;
 
 
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
 import eu.europa.esig.dss.model.CommonDocument;
 import eu.europa.esig.dss.model.DSSException;
 import eu.europa.esig.dss.model.MimeType;
+import eu.europa.esig.dss.utils.Utils;
+import org.apache.commons.io.input.CountingInputStream;
+import org.digidoc4j.impl.storage.TempFileRegistry;
+import org.digidoc4j.utils.DigestCalculatingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,12 +26,22 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
 /**
  * @see eu.europa.esig.dss.model.DSSDocument implementation to handle big files. It writes data to temporary
  * files.
+ * <p>
+ * The length, the CRC-32 and any requested digests of the contents are calculated while the contents are written to
+ * the temporary file, so that they do not need to be calculated later by reading the file again.
  */
 public class StreamDocument extends CommonDocument {
   private static final Logger logger = LoggerFactory.getLogger(StreamDocument.class);
@@ -34,6 +49,8 @@ public class StreamDocument extends CommonDocument {
   private static final int MAX_SIZE_IN_MEMORY = 1024 * 5;
 
   protected final File temporaryFile;
+  private final long length;
+  private final long crc32;
 
   //TODO if file is small enough you can read it into byte[] and cache it
 
@@ -45,17 +62,57 @@ public class StreamDocument extends CommonDocument {
    * @param mimeType     mime type
    */
   public StreamDocument(InputStream stream, String documentName, MimeType mimeType) {
+    this(stream, documentName, mimeType, null);
+  }
+
+  /**
+   * Creates a document whose contents are written to a temporary file in the given directory.
+   *
+   * @param stream       stream
+   * @param documentName document Name
+   * @param mimeType     mime type
+   * @param directory    directory of the temporary file, {@code null} for the default temporary-file directory
+   */
+  public StreamDocument(InputStream stream, String documentName, MimeType mimeType, File directory) {
+    this(stream, documentName, mimeType, directory, Collections.emptySet());
+  }
+
+  /**
+   * Creates a document whose contents are written to a temporary file in the given directory, calculating the given
+   * digests of the contents at the same time.
+   *
+   * @param stream           stream
+   * @param documentName     document Name
+   * @param mimeType         mime type
+   * @param directory        directory of the temporary file, {@code null} for the default temporary-file directory
+   * @param digestAlgorithms algorithms of the digests to calculate
+   */
+  public StreamDocument(InputStream stream, String documentName, MimeType mimeType, File directory,
+                        Collection<DigestAlgorithm> digestAlgorithms) {
     logger.debug("Document name: " + documentName + ", mime type: " + mimeType);
-    this.temporaryFile = createTemporaryFileOfStream(stream);
+    CheckedInputStream checkedStream = new CheckedInputStream(stream, new CRC32());
+    DigestCalculatingInputStream digestStream = new DigestCalculatingInputStream(checkedStream, digestAlgorithms);
+    CountingInputStream countingStream = new CountingInputStream(digestStream);
+    this.temporaryFile = createTemporaryFileOfStream(countingStream, directory);
+    TempFileRegistry.deleteWhenUnreachable(this, temporaryFile);
+    this.length = countingStream.getByteCount();
+    this.crc32 = checkedStream.getChecksum().getValue();
+    if (digestStream.isEndOfStreamReached()) {
+      for (Map.Entry<DigestAlgorithm, byte[]> digest : digestStream.getDigests().entrySet()) {
+        base64EncodeDigestMap.put(digest.getKey(), Utils.toBase64(digest.getValue()));
+      }
+    }
     super.name = documentName;
     super.mimeType = mimeType;
   }
 
-  private static File createTemporaryFileOfStream(InputStream stream) {
+  private static File createTemporaryFileOfStream(InputStream stream, File directory) {
+    File temporaryFile = null;
     try {
-      File temporaryFile;
-      temporaryFile = File.createTempFile("digidoc4j", ".tmp");
-      temporaryFile.deleteOnExit();
+      if (directory != null) {
+        Files.createDirectories(directory.toPath());
+      }
+      temporaryFile = File.createTempFile("digidoc4j", ".tmp", directory);
 
       try (FileOutputStream out = new FileOutputStream(temporaryFile)) {
         byte[] bytes = new byte[MAX_SIZE_IN_MEMORY];
@@ -70,6 +127,9 @@ public class StreamDocument extends CommonDocument {
       return temporaryFile;
     } catch (IOException e) {
       logger.error(e.getMessage());
+      if (temporaryFile != null && !temporaryFile.delete()) {
+        logger.warn("Unable to delete temporary file " + temporaryFile);
+      }
       throw new DSSException(e);
     }
   }
@@ -78,7 +138,7 @@ public class StreamDocument extends CommonDocument {
   @Override
   public InputStream openStream() throws DSSException {
     try {
-      return getTemporaryFileAsStream();
+      return new TemporaryFileInputStream(getTemporaryFileAsStream());
     } catch (FileNotFoundException e) {
       logger.error(e.getMessage());
       throw new DSSException(e);
@@ -102,12 +162,47 @@ public class StreamDocument extends CommonDocument {
     super.setMimeType(mimeType);
   }
 
+  /**
+   * Caches the digest of the document contents, so that it does not need to be calculated by reading the contents.
+   *
+   * @param digestAlgorithm    digest algorithm
+   * @param base64EncodeDigest base64 encoded digest of the document contents
+   */
+  public void addDigest(DigestAlgorithm digestAlgorithm, String base64EncodeDigest) {
+    base64EncodeDigestMap.put(digestAlgorithm, base64EncodeDigest);
+  }
+
   public Long getStreamLengthIfKnown() {
-    return temporaryFile.length();
+    return length;
+  }
+
+  /**
+   * @return CRC-32 checksum of the document contents
+   */
+  public long getCrc32() {
+    return crc32;
+  }
+
+  /**
+   * @return temporary file holding the document contents
+   */
+  public File getTemporaryFile() {
+    return temporaryFile;
   }
 
   protected FileInputStream getTemporaryFileAsStream() throws FileNotFoundException {
     return new FileInputStream(this.temporaryFile);
   }
 
+  /**
+   * Keeps the document, and thereby the temporary file, from being deleted for as long as the stream is in use.
+   */
+  private class TemporaryFileInputStream extends FilterInputStream {
+
+    TemporaryFileInputStream(InputStream in) {
+      super(in);
+    }
+
+  }
+
 }
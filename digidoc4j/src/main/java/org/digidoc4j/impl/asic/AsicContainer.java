@@ -12,6 +12,7 @@ package org.digidoc4j.impl.asic;
 
 import eu.europa.esig.dss.model.DSSDocument;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.Constant;
@@ -29,6 +30,8 @@ import org.digidoc4j.exceptions.SignatureNotFoundException;
 import org.digidoc4j.exceptions.TechnicalException;
 import org.digidoc4j.impl.AbstractContainerValidationResult;
 import org.digidoc4j.impl.AbstractValidationResult;
+import org.digidoc4j.impl.PrecalculatedDigestDocument;
+import org.digidoc4j.impl.StreamDocument;
 import org.digidoc4j.impl.asic.asice.AsicEContainerValidator;
 import org.digidoc4j.impl.asic.asice.AsicESignature;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocContainerValidator;
@@ -37,21 +40,41 @@ import org.digidoc4j.impl.asic.asics.AsicSContainerValidator;
 import org.digidoc4j.impl.asic.asics.AsicSSignature;
 import org.digidoc4j.impl.asic.manifest.AsicManifest;
 import org.digidoc4j.impl.asic.xades.SignatureExtender;
-import org.digidoc4j.impl.asic.xades.XadesSignature;
 import org.digidoc4j.impl.asic.xades.XadesSignatureWrapper;
+import org.digidoc4j.impl.asic.zip.ByteBufferDocument;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectory;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectoryEntry;
+import org.digidoc4j.impl.asic.zip.ZipEntryDocument;
+import org.digidoc4j.impl.storage.HeapBudget;
+import org.digidoc4j.impl.storage.SpoolFileDocument;
+import org.digidoc4j.impl.storage.TempFileRegistry;
 import org.digidoc4j.utils.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
 import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -63,13 +86,14 @@ public abstract class AsicContainer implements Container {
 
   protected Configuration configuration;
   protected DataFile timeStampToken;
-  private List<DataFile> dataFiles = new ArrayList<>();
+  private DataFileList dataFiles = new DataFileList();
   private List<Signature> newSignatures = new ArrayList<>();
   private List<Signature> signatures = new ArrayList<>();
   private List<DataFile> newDataFiles = new ArrayList<>();
   private AsicParseResult containerParseResult;
   private boolean dataFilesHaveChanged;
   private String containerType = "";
+  private transient TempFileRegistry temporaryFiles;
 
   protected abstract String createUserAgent();
 
@@ -226,7 +250,12 @@ public abstract class AsicContainer implements Container {
   public File saveAsFile(String filePath) {
     LOGGER.debug("Saving container to file: " + filePath);
     File file = new File(filePath);
-    try (OutputStream stream = Helper.bufferedOutputStream(file)) {
+    if (hasDataFilesReadFromContainerFile() && isContainerFile(file)) {
+      replaceContainerFile(file);
+      LOGGER.info("Container was saved to file " + filePath);
+      return file;
+    }
+    try (OutputStream stream = Helper.fileOutputStream(file)) {
       save(stream);
       LOGGER.info("Container was saved to file " + filePath);
       return file;
@@ -241,6 +270,98 @@ public abstract class AsicContainer implements Container {
     return configuration;
   }
 
+  /**
+   * Whether data files are read lazily from the file the container was opened from, or from a memory mapping of it,
+   * so that the file must not be overwritten while the container is being saved.
+   */
+  private boolean hasDataFilesReadFromContainerFile() {
+    File containerFile = isNewContainer() ? null : containerParseResult.getContainerFile();
+    if (containerFile == null) {
+      return false;
+    }
+    return dataFiles.stream().map(DataFile::getDocument).anyMatch(document -> document instanceof ByteBufferDocument
+        || document instanceof ZipEntryDocument && ((ZipEntryDocument) document).getZipFile().equals(containerFile));
+  }
+
+  private boolean isContainerFile(File file) {
+    File containerFile = isNewContainer() ? null : containerParseResult.getContainerFile();
+    if (containerFile == null || !file.exists() || !containerFile.exists()) {
+      return false;
+    }
+    try {
+      return Files.isSameFile(containerFile.toPath(), file.toPath());
+    } catch (IOException e) {
+      LOGGER.debug("Unable to compare {} to container file {}: {}", file, containerFile, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * The data files of the container are read from the container file while the container is being saved, so the
+   * container is saved into a temporary file in the same directory, which then replaces the container file.
+   */
+  private void replaceContainerFile(File file) {
+    Path containerPath = file.toPath().toAbsolutePath();
+    Path temporaryPath = null;
+    try {
+      temporaryPath = Files.createTempFile(containerPath.getParent(), file.getName(), ".tmp");
+      try (OutputStream stream = Files.newOutputStream(temporaryPath)) {
+        save(stream);
+      }
+      copyPermissions(containerPath, temporaryPath);
+      try {
+        Files.move(temporaryPath, containerPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporaryPath, containerPath, StandardCopyOption.REPLACE_EXISTING);
+      }
+      temporaryPath = null;
+    } catch (IOException e) {
+      LOGGER.error("Unable to save container to file " + file + ": " + e.getMessage());
+      throw new TechnicalException("Unable to save container to file " + file, e);
+    } finally {
+      if (temporaryPath != null) {
+        FileUtils.deleteQuietly(temporaryPath.toFile());
+      }
+    }
+    relocateDataFiles(file);
+  }
+
+  private static void copyPermissions(Path source, Path target) {
+    try {
+      Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+    } catch (UnsupportedOperationException | IOException e) {
+      LOGGER.debug("Unable to copy permissions of {}: {}", source, e.getMessage());
+    }
+  }
+
+  /**
+   * Points the data files read lazily from the container file to their entries in the file that has replaced it.
+   */
+  private void relocateDataFiles(File file) {
+    List<ZipEntryDocument> documents = dataFiles.stream()
+        .map(DataFile::getDocument)
+        .filter(ZipEntryDocument.class::isInstance)
+        .map(ZipEntryDocument.class::cast)
+        .filter(document -> document.getZipFile().equals(containerParseResult.getContainerFile()))
+        .collect(Collectors.toList());
+    if (documents.isEmpty()) {
+      return;
+    }
+    try {
+      ZipCentralDirectory centralDirectory = ZipCentralDirectory.read(file);
+      for (ZipEntryDocument document : documents) {
+        ZipCentralDirectoryEntry entry = centralDirectory.getEntry(document.getName());
+        if (entry == null) {
+          throw new TechnicalException("Data file " + document.getName() + " was not saved to " + file);
+        }
+        document.relocate(entry);
+      }
+    } catch (IOException e) {
+      LOGGER.error("Unable to read saved container file " + file + ": " + e.getMessage());
+      throw new TechnicalException("Unable to read saved container file " + file, e);
+    }
+  }
+
   private List<Signature> openSignatures(List<XadesSignatureWrapper> signatureWrappers) {
     List<Signature> signatures = new ArrayList<>(signatureWrappers.size());
     for (XadesSignatureWrapper signatureWrapper : signatureWrappers) {
@@ -251,14 +372,22 @@ public abstract class AsicContainer implements Container {
 
   protected abstract AsicSignatureOpener getSignatureOpener();
 
+  /**
+   * Returns a stream of the container that is written while the stream is being read, so that the container is never
+   * held in memory as a whole. The container must not be modified or closed before the stream has been read to its end
+   * or closed; the temporary files of the data files are nevertheless kept until the container has been written.
+   * Errors occurring while writing the container are thrown when reading the stream, wrapped in an
+   * {@link IOException}.
+   *
+   * @return stream of the container
+   */
   @Override
   public InputStream saveAsStream() {
     LOGGER.debug("Saving container as stream");
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-    save(outputStream);
-    InputStream inputStream = new ByteArrayInputStream(outputStream.toByteArray());
-    LOGGER.info("Container was saved to stream");
-    return inputStream;
+    return new PipedContainerInputStream(outputStream -> {
+      save(outputStream);
+      LOGGER.info("Container was saved to stream");
+    }, getTemporaryFiles().copy());
   }
 
   protected void validateIncomingSignature(Signature signature) {
@@ -293,12 +422,7 @@ public abstract class AsicContainer implements Container {
 
   private List<XadesSignatureWrapper> parseSignaturesWrappers(List<DSSDocument> signatureDocuments, List<DSSDocument> detachedContent) {
     AsicSignatureParser signatureParser = new AsicSignatureParser(detachedContent, configuration);
-    List<XadesSignatureWrapper> parsedSignatures = new ArrayList<>();
-    for (DSSDocument signatureDocument : signatureDocuments) {
-      XadesSignature signature = signatureParser.parse(signatureDocument);
-      parsedSignatures.add(new XadesSignatureWrapper(signature, signatureDocument));
-    }
-    return parsedSignatures;
+    return signatureParser.parse(signatureDocuments);
   }
 
   protected void validateDataFilesRemoval() {
@@ -317,29 +441,36 @@ public abstract class AsicContainer implements Container {
   }
 
   protected void verifyIfAllowedToAddDataFile(String fileName) {
+    verifyContainerIsNotSigned();
+    checkForDuplicateDataFiles(Collections.singleton(fileName));
+  }
+
+  private void verifyContainerIsNotSigned() {
     if (isContainerSigned()) {
       String errorMessage = "Datafiles cannot be added to an already signed container";
       LOGGER.error(errorMessage);
       throw new DigiDoc4JException(errorMessage);
     }
-    checkForDuplicateDataFile(fileName);
   }
 
   private boolean isContainerSigned() {
     return !getSignatures().isEmpty();
   }
 
-  private void checkForDuplicateDataFile(String fileName) {
-    for (DataFile dataFile : getDataFiles()) {
-      String dataFileName = dataFile.getName();
-      if (StringUtils.equals(dataFileName, fileName)) {
-        String errorMessage = "Data file " + fileName + " already exists";
-        LOGGER.error(errorMessage);
-        throw new DuplicateDataFileException(errorMessage);
+  private void checkForDuplicateDataFiles(Set<String> fileNames) {
+    for (String fileName : fileNames) {
+      if (dataFiles.getByName(fileName) != null) {
+        throwDuplicateDataFileException(fileName);
       }
     }
   }
 
+  private static void throwDuplicateDataFileException(String fileName) {
+    String errorMessage = "Data file " + fileName + " already exists";
+    LOGGER.error(errorMessage);
+    throw new DuplicateDataFileException(errorMessage);
+  }
+
   /**
    * @param containerType
    */
@@ -355,7 +486,7 @@ public abstract class AsicContainer implements Container {
 
   private void openContainer(String containerPath) {
     LOGGER.debug("Opening container from <{}>", containerPath);
-    this.populateContainerWithParseResult(new AsicFileContainerParser(containerPath, this.getConfiguration()).read());
+    this.populateContainerWithParseResult(AsicContainerParser.forContainerFile(containerPath, this.getConfiguration()).read());
   }
 
   private void openContainer(InputStream inputStream) {
@@ -366,6 +497,7 @@ public abstract class AsicContainer implements Container {
   private void populateContainerWithParseResult(AsicParseResult parseResult) {
     this.containerParseResult = parseResult;
     this.dataFiles.addAll(parseResult.getDataFiles());
+    parseResult.getDataFiles().forEach(this::registerTemporaryFile);
     this.timeStampToken = parseResult.getTimeStampToken();
     this.signatures.addAll(this.openSignatures(parseResult.getSignatures()));
   }
@@ -423,7 +555,7 @@ public abstract class AsicContainer implements Container {
 
   @Override
   public DataFile addDataFile(InputStream inputStream, String fileName, String mimeType) {
-    DataFile dataFile = new DataFile(inputStream, fileName, mimeType);
+    DataFile dataFile = new DataFile(inputStream, fileName, mimeType, configuration.getDataFileStorage());
     addDataFile(dataFile);
     return dataFile;
   }
@@ -437,18 +569,42 @@ public abstract class AsicContainer implements Container {
 
   @Override
   public void addDataFile(DataFile dataFile) {
-    verifyDataFileIsNotEmpty(dataFile);
-    String fileName = dataFile.getName();
-    verifyIfAllowedToAddDataFile(fileName);
-    if (Constant.ASICS_CONTAINER_TYPE.equals(getType())) {
-      if (dataFiles.size() > 1) {
-        throw new DigiDoc4JException("DataFile is already exists");
-      } else if (newDataFiles.size() > 1) {
-        throw new DigiDoc4JException("Not possible to add more than one datafile");
+    addDataFiles(Collections.singletonList(dataFile));
+  }
+
+  /**
+   * Adds the data files to the container. The data files are validated before any of them is added, so either all
+   * or none of them are added.
+   *
+   * @param dataFiles data files to be added to the container
+   */
+  @Override
+  public void addDataFiles(Collection<DataFile> dataFiles) {
+    Map<String, DataFile> addedDataFilesByName = new LinkedHashMap<>();
+    for (DataFile dataFile : dataFiles) {
+      verifyDataFileIsNotEmpty(dataFile);
+      String fileName = dataFile.getName();
+      verifyContainerIsNotSigned();
+      if (addedDataFilesByName.putIfAbsent(fileName, dataFile) != null) {
+        throwDuplicateDataFileException(fileName);
+      }
+      if (Constant.ASICS_CONTAINER_TYPE.equals(getType())) {
+        if (this.dataFiles.size() + addedDataFilesByName.size() - 1 > 1) {
+          throw new DigiDoc4JException("DataFile is already exists");
+        } else if (newDataFiles.size() + addedDataFilesByName.size() - 1 > 1) {
+          throw new DigiDoc4JException("Not possible to add more than one datafile");
+        }
       }
     }
-    dataFiles.add(dataFile);
-    newDataFiles.add(dataFile);
+    if (dataFiles.isEmpty()) {
+      return;
+    }
+    checkForDuplicateDataFiles(addedDataFilesByName.keySet());
+    for (DataFile dataFile : dataFiles) {
+      this.dataFiles.add(dataFile);
+      newDataFiles.add(dataFile);
+      registerTemporaryFile(dataFile);
+    }
     dataFilesHaveChanged = true;
     if (!isNewContainer()) {
       removeExistingFileFromContainer(AsicManifest.XML_PATH);
@@ -559,10 +715,66 @@ public abstract class AsicContainer implements Container {
     if (!isNewContainer()) {
       removeExistingFileFromContainer(dataFile.getName());
       containerParseResult.getDataFiles().remove(dataFile);
-      containerParseResult.getDetachedContents().remove(dataFile.getDocument());
+      DSSDocument document = dataFile.getDocument();
+      containerParseResult.getDetachedContents().removeIf(detachedContent -> detachedContent == document
+          || detachedContent instanceof PrecalculatedDigestDocument
+          && ((PrecalculatedDigestDocument) detachedContent).getDocument() == document);
     }
     newDataFiles.remove(dataFile);
-    return dataFiles.remove(dataFile);
+    if (!dataFiles.remove(dataFile)) {
+      return false;
+    }
+    unregisterTemporaryFile(dataFile);
+    HeapBudget.releaseOwnedBy(dataFile.getDocument());
+    return true;
+  }
+
+  @Override
+  public void close() {
+    LOGGER.debug("Closing container");
+    for (DataFile dataFile : dataFiles) {
+      HeapBudget.releaseOwnedBy(dataFile.getDocument());
+    }
+    if (containerParseResult != null) {
+      for (DSSDocument document : containerParseResult.getExtractedDocuments()) {
+        HeapBudget.releaseOwnedBy(document);
+      }
+    }
+    getTemporaryFiles().close();
+  }
+
+  private void registerTemporaryFile(DataFile dataFile) {
+    File file = getTemporaryFile(dataFile.getDocument());
+    if (file != null) {
+      getTemporaryFiles().add(file);
+    }
+  }
+
+  /**
+   * Stops holding the temporary file of a removed data file, unless other data files are held in the same file. The
+   * file is not deleted, since the removed data file may still be in use.
+   */
+  private void unregisterTemporaryFile(DataFile dataFile) {
+    File file = getTemporaryFile(dataFile.getDocument());
+    if (file != null && dataFiles.stream().noneMatch(d -> file.equals(getTemporaryFile(d.getDocument())))) {
+      getTemporaryFiles().remove(file);
+    }
+  }
+
+  private static File getTemporaryFile(DSSDocument document) {
+    if (document instanceof StreamDocument) {
+      return ((StreamDocument) document).getTemporaryFile();
+    } else if (document instanceof SpoolFileDocument) {
+      return ((SpoolFileDocument) document).getFile();
+    }
+    return null;
+  }
+
+  private TempFileRegistry getTemporaryFiles() {
+    if (temporaryFiles == null) {
+      temporaryFiles = new TempFileRegistry();
+    }
+    return temporaryFiles;
   }
 
   private boolean isNewContainer() {
@@ -574,6 +786,31 @@ public abstract class AsicContainer implements Container {
     return signatures;
   }
 
+  /**
+   * Adds the new signatures of the container into the file the container was opened from, without rewriting the
+   * rest of the file. Only possible if nothing but signatures has been added to the container since it was opened
+   * from the file, and the file has not been modified since.
+   *
+   * @param file file to save the container into
+   * @return {@code true} if the signatures were added to the file, {@code false} if the container must be saved
+   * as a whole
+   */
+  protected boolean appendNewSignaturesToContainerFile(File file) {
+    if (isNewContainer() || dataFilesHaveChanged || !newDataFiles.isEmpty() || newSignatures.isEmpty()) {
+      return false;
+    }
+    int nextSignatureFileIndex = determineNextSignatureFileIndex();
+    boolean appended = new AsicContainerAppender(file, getConfiguration()).append(
+        containerParseResult.getAsicEntries(), zipCreator -> {
+          zipCreator.setZipComment(createUserAgent());
+          zipCreator.writeSignatures(newSignatures, nextSignatureFileIndex);
+        });
+    if (appended) {
+      LOGGER.info("{} new signature(s) were appended to container file {}", newSignatures.size(), file);
+    }
+    return appended;
+  }
+
   protected void writeAsicContainer(AsicContainerCreator zipCreator) {
     String userAgent = createUserAgent();
     zipCreator.setZipComment(userAgent);
@@ -606,4 +843,133 @@ public abstract class AsicContainer implements Container {
   public AsicParseResult getContainerParseResult() {
     return containerParseResult;
   }
+
+  /**
+   * Data files of the container, indexed by their names. The index is kept up to date by every modification of the
+   * list, including those made directly through {@link #getDataFiles()}, and by renames of the data files through
+   * {@link DataFile#setDocument(DSSDocument)}. Of data files with the same name, one is indexed.
+   */
+  private static final class DataFileList extends AbstractList<DataFile> implements RandomAccess, Serializable {
+
+    private final List<DataFile> dataFiles = new ArrayList<>();
+    private transient Map<String, DataFile> dataFilesByName = new HashMap<>();
+    private transient Map<DataFile, String> indexedNames = new IdentityHashMap<>();
+    private transient int unindexedDataFileCount;
+    private transient BiConsumer<DataFile, String> renameListener = this::reindex;
+
+    @Override
+    public DataFile get(int index) {
+      return dataFiles.get(index);
+    }
+
+    @Override
+    public int size() {
+      return dataFiles.size();
+    }
+
+    @Override
+    public DataFile set(int index, DataFile dataFile) {
+      DataFile previousDataFile = dataFiles.set(index, dataFile);
+      unindex(previousDataFile);
+      index(dataFile);
+      return previousDataFile;
+    }
+
+    @Override
+    public void add(int index, DataFile dataFile) {
+      dataFiles.add(index, dataFile);
+      modCount++;
+      index(dataFile);
+    }
+
+    @Override
+    public DataFile remove(int index) {
+      DataFile removedDataFile = dataFiles.remove(index);
+      modCount++;
+      unindex(removedDataFile);
+      return removedDataFile;
+    }
+
+    @Override
+    public void clear() {
+      for (DataFile dataFile : dataFiles) {
+        dataFile.removeRenameListener(renameListener);
+      }
+      dataFiles.clear();
+      modCount++;
+      dataFilesByName.clear();
+      indexedNames.clear();
+      unindexedDataFileCount = 0;
+    }
+
+    /**
+     * @param name name of the data file
+     * @return the data file with the given name, or {@code null} if there is none
+     */
+    DataFile getByName(String name) {
+      DataFile dataFile = dataFilesByName.get(name);
+      if (dataFile != null && !StringUtils.equals(dataFile.getName(), name)) {
+        // Renamed in place, through the name of its document
+        return null;
+      }
+      return dataFile;
+    }
+
+    private void index(DataFile dataFile) {
+      dataFile.addRenameListener(renameListener);
+      addToIndex(dataFile);
+    }
+
+    private void unindex(DataFile dataFile) {
+      dataFile.removeRenameListener(renameListener);
+      removeFromIndex(dataFile);
+    }
+
+    private void reindex(DataFile dataFile, String previousName) {
+      removeFromIndex(dataFile);
+      addToIndex(dataFile);
+    }
+
+    private void addToIndex(DataFile dataFile) {
+      String name = dataFile.getName();
+      if (dataFilesByName.putIfAbsent(name, dataFile) == null) {
+        indexedNames.put(dataFile, name);
+      } else {
+        unindexedDataFileCount++;
+      }
+    }
+
+    private void removeFromIndex(DataFile dataFile) {
+      String name = indexedNames.remove(dataFile);
+      if (name == null) {
+        // A duplicate, not indexed
+        unindexedDataFileCount--;
+        return;
+      }
+      dataFilesByName.remove(name);
+      if (unindexedDataFileCount == 0) {
+        return;
+      }
+      // Index another data file with the same name, if any
+      for (DataFile remainingDataFile : dataFiles) {
+        if (!indexedNames.containsKey(remainingDataFile) && StringUtils.equals(remainingDataFile.getName(), name)) {
+          dataFilesByName.put(name, remainingDataFile);
+          indexedNames.put(remainingDataFile, name);
+          unindexedDataFileCount--;
+          break;
+        }
+      }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      dataFilesByName = new HashMap<>();
+      indexedNames = new IdentityHashMap<>();
+      renameListener = this::reindex;
+      for (DataFile dataFile : dataFiles) {
+        index(dataFile);
+      }
+    }
+
+  }
 }
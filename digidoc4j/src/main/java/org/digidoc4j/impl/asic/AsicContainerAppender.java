@@ -0,0 +1,225 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import org.digidoc4j.Configuration;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.asic.zip.RawZipEntry;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectory;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectoryEntry;
+import org.digidoc4j.impl.asic.zip.ZipWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Adds entries to an ASiC container file in place: the new entries are written over the central directory of the
+ * file, followed by a new central directory. The existing entries are neither read nor rewritten, so the cost of
+ * adding a signature does not depend on the size of the container.
+ * <p>
+ * Appending is only attempted if the container file still consists of exactly the given existing entries, i.e. it
+ * has not been modified since it was parsed. If writing fails, the original central directory is restored.
+ */
+class AsicContainerAppender {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsicContainerAppender.class);
+  private static final String ZIP_ENTRY_MIMETYPE = "mimetype";
+
+  private final File containerFile;
+  private final Configuration configuration;
+
+  /**
+   * @param containerFile container file to append to
+   * @param configuration configuration
+   */
+  AsicContainerAppender(File containerFile, Configuration configuration) {
+    this.containerFile = containerFile;
+    this.configuration = configuration;
+  }
+
+  /**
+   * Appends entries to the container file.
+   *
+   * @param existingEntries entries the container file is expected to consist of
+   * @param newEntryWriter  writes the new entries using the given container creator
+   * @return {@code true} if the entries were appended, {@code false} if the container file cannot be appended to and
+   * nothing was written
+   */
+  boolean append(Collection<AsicEntry> existingEntries, Consumer<AsicContainerCreator> newEntryWriter) {
+    RawZipEntry sourceEntry = findSourceEntry(existingEntries);
+    if (sourceEntry == null) {
+      return false;
+    }
+    try (FileChannel channel = FileChannel.open(containerFile.toPath(), StandardOpenOption.READ,
+        StandardOpenOption.WRITE)) {
+      FileLock lock = tryLock(channel);
+      if (lock == null) {
+        logger.debug("Container file {} is locked, not appending to it", containerFile);
+        return false;
+      }
+      try {
+        return append(channel, sourceEntry, existingEntries, newEntryWriter);
+      } finally {
+        lock.release();
+      }
+    } catch (IOException e) {
+      logger.debug("Unable to append to container file {}: {}", containerFile, e.getMessage());
+      return false;
+    }
+  }
+
+  private boolean append(FileChannel channel, RawZipEntry sourceEntry, Collection<AsicEntry> existingEntries,
+                         Consumer<AsicContainerCreator> newEntryWriter) throws IOException {
+    long originalSize = channel.size();
+    if (originalSize != sourceEntry.getZipFileSize()
+        || containerFile.lastModified() != sourceEntry.getZipFileLastModified()) {
+      logger.debug("Container file {} has changed since it was opened, not appending to it", containerFile);
+      return false;
+    }
+    ZipCentralDirectory centralDirectory = ZipCentralDirectory.read(channel);
+    if (!consistsOf(centralDirectory, existingEntries)) {
+      return false;
+    }
+    long centralDirectoryOffset = centralDirectory.getCentralDirectoryOffset();
+    if (originalSize - centralDirectoryOffset > Integer.MAX_VALUE) {
+      return false;
+    }
+    OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(channel));
+    ZipWriter zipWriter;
+    try {
+      zipWriter = ZipWriter.appendTo(stream, centralDirectory);
+    } catch (ZipException e) {
+      logger.debug("Unable to append to container file {}: {}", containerFile, e.getMessage());
+      return false;
+    }
+
+    ByteBuffer originalEnd = ByteBuffer.allocate((int) (originalSize - centralDirectoryOffset));
+    readFully(channel, originalEnd, centralDirectoryOffset);
+    logger.debug("Appending to container file {} from offset {}", containerFile, centralDirectoryOffset);
+    try {
+      channel.position(centralDirectoryOffset);
+      AsicContainerCreator creator = new AsicContainerCreator(zipWriter, configuration);
+      newEntryWriter.accept(creator);
+      creator.finalizeZipFile();
+      stream.flush();
+      channel.truncate(channel.position());
+      return true;
+    } catch (IOException | RuntimeException e) {
+      logger.error("Unable to append to container file " + containerFile + ", restoring its central directory: "
+          + e.getMessage());
+      restore(channel, originalEnd, centralDirectoryOffset, originalSize);
+      if (e instanceof RuntimeException) {
+        throw (RuntimeException) e;
+      }
+      throw new TechnicalException("Unable to append to container file", e);
+    }
+  }
+
+  /**
+   * Returns the location of one of the existing entries in the container file, provided that all of them were read
+   * from the container file in its current state.
+   */
+  private RawZipEntry findSourceEntry(Collection<AsicEntry> existingEntries) {
+    RawZipEntry sourceEntry = null;
+    for (AsicEntry asicEntry : existingEntries) {
+      RawZipEntry rawZipEntry = asicEntry.getRawZipEntry();
+      if (rawZipEntry == null || !isContainerFile(rawZipEntry.getZipFile())) {
+        return null;
+      }
+      if (sourceEntry == null) {
+        sourceEntry = rawZipEntry;
+      } else if (sourceEntry.getZipFileSize() != rawZipEntry.getZipFileSize()
+          || sourceEntry.getZipFileLastModified() != rawZipEntry.getZipFileLastModified()) {
+        return null;
+      }
+    }
+    return sourceEntry;
+  }
+
+  /**
+   * Checks that the container file consists of exactly the given entries and starts with an uncompressed mimetype
+   * entry, so that appending gives the same container as saving it as a whole would.
+   */
+  private static boolean consistsOf(ZipCentralDirectory centralDirectory, Collection<AsicEntry> existingEntries) {
+    if (centralDirectory.getEntries().size() != existingEntries.size()) {
+      return false;
+    }
+    ZipCentralDirectoryEntry firstEntry = centralDirectory.getEntries().get(0);
+    if (!ZIP_ENTRY_MIMETYPE.equals(firstEntry.getName()) || firstEntry.getMethod() != ZipEntry.STORED) {
+      return false;
+    }
+    Map<String, ZipCentralDirectoryEntry> entriesByName = new HashMap<>(existingEntries.size() * 2);
+    for (AsicEntry asicEntry : existingEntries) {
+      entriesByName.put(asicEntry.getName(), asicEntry.getRawZipEntry().getEntry());
+    }
+    for (ZipCentralDirectoryEntry entry : centralDirectory.getEntries()) {
+      ZipCentralDirectoryEntry existingEntry = entriesByName.remove(entry.getName());
+      if (existingEntry == null || existingEntry.getLocalHeaderOffset() != entry.getLocalHeaderOffset()) {
+        return false;
+      }
+    }
+    return entriesByName.isEmpty();
+  }
+
+  private boolean isContainerFile(File file) {
+    try {
+      return file.getCanonicalFile().equals(containerFile.getCanonicalFile());
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static FileLock tryLock(FileChannel channel) throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      return null;
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of container file");
+      }
+    }
+    ((Buffer) buffer).flip();
+  }
+
+  private void restore(FileChannel channel, ByteBuffer originalEnd, long centralDirectoryOffset, long originalSize) {
+    try {
+      while (originalEnd.hasRemaining()) {
+        channel.write(originalEnd, centralDirectoryOffset + originalEnd.position());
+      }
+      channel.truncate(originalSize);
+    } catch (IOException e) {
+      logger.error("Unable to restore central directory of container file " + containerFile + ": " + e.getMessage());
+    }
+  }
+
+}
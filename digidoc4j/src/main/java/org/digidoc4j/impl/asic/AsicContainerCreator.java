@@ -11,27 +11,39 @@
 package org.digidoc4j.impl.asic;
 
 import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.FileDocument;
 import eu.europa.esig.dss.model.MimeType;
 import org.apache.commons.io.IOUtils;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.Constant;
 import org.digidoc4j.DataFile;
+import org.digidoc4j.DataFileCompressionPolicy;
 import org.digidoc4j.Signature;
 import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.StreamDocument;
 import org.digidoc4j.impl.asic.manifest.AsicManifest;
-import org.digidoc4j.utils.Helper;
+import org.digidoc4j.impl.asic.xades.validation.ThreadPoolManager;
+import org.digidoc4j.impl.asic.zip.CompressionSampler;
+import org.digidoc4j.impl.asic.zip.ParallelDeflater;
+import org.digidoc4j.impl.asic.zip.RawZipEntry;
+import org.digidoc4j.impl.asic.zip.ZipWriter;
+import org.digidoc4j.impl.storage.SpoolFileDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 /**
  * ASIC container creator
@@ -43,7 +55,7 @@ public class AsicContainerCreator {
   private static final String ZIP_ENTRY_MIMETYPE = "mimetype";
   private static final Charset CHARSET = StandardCharsets.UTF_8;
 
-  private final ZipOutputStream zipOutputStream;
+  private final ZipWriter zipOutputStream;
   private final OutputStream outputStream;
   private String zipComment;
   private Configuration configuration;
@@ -55,7 +67,18 @@ public class AsicContainerCreator {
   public AsicContainerCreator(OutputStream outputStream, Configuration configuration) {
     this.configuration = configuration;
     this.outputStream = outputStream;
-    this.zipOutputStream = new ZipOutputStream(outputStream, CHARSET);
+    this.zipOutputStream = new ZipWriter(outputStream);
+  }
+
+  /**
+   * @param zipWriter writer of the ZIP file, e.g. one appending entries to an existing container file
+   * @param configuration configuration
+   * @see ZipWriter#appendTo(OutputStream, org.digidoc4j.impl.asic.zip.ZipCentralDirectory)
+   */
+  public AsicContainerCreator(ZipWriter zipWriter, Configuration configuration) {
+    this.configuration = configuration;
+    this.outputStream = zipWriter;
+    this.zipOutputStream = zipWriter;
   }
 
   public void finalizeZipFile() {
@@ -64,8 +87,6 @@ public class AsicContainerCreator {
       zipOutputStream.finish();
     } catch (IOException e) {
       handleIOException("Unable to finish creating asic ZIP container", e);
-    } finally {
-      Helper.deleteTmpFiles(configuration.getTempFileMaxAge());
     }
   }
 
@@ -105,12 +126,49 @@ public class AsicContainerCreator {
    */
   public void writeDataFiles(Collection<DataFile> dataFiles) {
     logger.debug("Adding data files to the asic zip container");
-    for (DataFile dataFile : dataFiles) {
-      String name = dataFile.getName();
-      logger.debug("Adding data file {}", name);
-      zipOutputStream.setLevel(ZipEntry.DEFLATED);
-      new StreamEntryCallback(new ZipEntry(name), dataFile.getStream()).write();
+    DataFileCompressionPolicy compressionPolicy = configuration.getDataFileCompressionPolicy();
+    zipOutputStream.setParallelDeflater(createParallelDeflater());
+    try {
+      for (DataFile dataFile : dataFiles) {
+        String name = dataFile.getName();
+        int level = getCompressionLevel(compressionPolicy, dataFile);
+        logger.debug("Adding data file {} with compression level {}", name, level);
+        if (level == DataFileCompressionPolicy.STORED) {
+          ZipEntry zipEntry = createStoredZipEntry(dataFile);
+          if (!writeStoredEntryFromFile(zipEntry, dataFile.getDocument())) {
+            new StreamEntryCallback(zipEntry, dataFile.getStream()).write();
+          }
+        } else {
+          zipOutputStream.setLevel(level);
+          new StreamEntryCallback(createDeflatedZipEntry(dataFile), dataFile.getStream()).write();
+        }
+      }
+    } finally {
+      zipOutputStream.setParallelDeflater(null);
+    }
+  }
+
+  /**
+   * Writes a data file from a stream that can be read only once. Since the size and the CRC-32 of the contents are not
+   * known before the contents have been written, the data file is always deflated: data files that the compression
+   * policy stores uncompressed are deflated without compression, and data files whose compression is chosen by
+   * sampling are sampled from a buffered beginning of the stream. The data file is compressed on the calling thread,
+   * since its size is not known in advance.
+   *
+   * @param name        name of the data file
+   * @param mediaType   media type of the data file
+   * @param inputStream contents of the data file, closed after writing
+   */
+  public void writeDataFile(String name, String mediaType, InputStream inputStream) {
+    int level = configuration.getDataFileCompressionPolicy().getCompressionLevel(name, mediaType);
+    InputStream stream = inputStream;
+    if (level == DataFileCompressionPolicy.SAMPLED) {
+      stream = new BufferedInputStream(inputStream, CompressionSampler.SAMPLE_SIZE);
+      level = sampleCompressionLevel(name, stream);
     }
+    logger.debug("Adding data file {} with compression level {}", name, level);
+    zipOutputStream.setLevel(level == DataFileCompressionPolicy.STORED ? Deflater.NO_COMPRESSION : level);
+    new StreamEntryCallback(new ZipEntry(name), stream).write();
   }
 
   /**
@@ -137,6 +195,9 @@ public class AsicContainerCreator {
   }
 
   /**
+   * Writes the entries of an existing container. Entries read from a container file that has not changed since are
+   * copied from the file as they are, without inflating and deflating their contents again.
+   *
    * @param asicEntries list of ASIC entries
    */
   public void writeExistingEntries(Collection<AsicEntry> asicEntries) {
@@ -144,8 +205,11 @@ public class AsicContainerCreator {
     asicEntries.stream()
             .sorted(AsicContainerCreator::compareAsicEntriesPrioritizeMimeType)
             .forEach(asicEntry -> {
-              DSSDocument content = asicEntry.getContent();
               ZipEntry zipEntry = asicEntry.getZipEntry();
+              if (writeRawEntry(zipEntry, asicEntry.getRawZipEntry())) {
+                return;
+              }
+              DSSDocument content = asicEntry.getContent();
               new StreamEntryCallback(zipEntry, content.openStream(), false).write();
             });
   }
@@ -165,6 +229,139 @@ public class AsicContainerCreator {
     this.zipComment = zipComment;
   }
 
+  private static int getCompressionLevel(DataFileCompressionPolicy compressionPolicy, DataFile dataFile) {
+    int level = compressionPolicy.getCompressionLevel(dataFile.getName(), dataFile.getMediaType());
+    if (level != DataFileCompressionPolicy.SAMPLED) {
+      return level;
+    }
+    try (InputStream stream = dataFile.getStream()) {
+      return CompressionSampler.isCompressible(stream)
+          ? DataFileCompressionPolicy.DEFAULT_LEVEL : DataFileCompressionPolicy.STORED;
+    } catch (IOException e) {
+      handleIOException("Unable to read data file " + dataFile.getName(), e);
+      return DataFileCompressionPolicy.DEFAULT_LEVEL;
+    }
+  }
+
+  private static int sampleCompressionLevel(String name, InputStream stream) {
+    try {
+      stream.mark(CompressionSampler.SAMPLE_SIZE);
+      boolean compressible = CompressionSampler.isCompressible(stream);
+      stream.reset();
+      return compressible ? DataFileCompressionPolicy.DEFAULT_LEVEL : DataFileCompressionPolicy.STORED;
+    } catch (IOException e) {
+      handleIOException("Unable to read data file " + name, e);
+      return DataFileCompressionPolicy.DEFAULT_LEVEL;
+    }
+  }
+
+  /**
+   * Creates an entry for storing the data file uncompressed. The size and the CRC-32 of stored entries must be known
+   * before the entry is written, so unless they were calculated when the data file was spooled, the data file is read
+   * an extra time, which is still much cheaper than deflating.
+   */
+  private static ZipEntry createStoredZipEntry(DataFile dataFile) {
+    if (dataFile.getDocument() instanceof StreamDocument) {
+      StreamDocument document = (StreamDocument) dataFile.getDocument();
+      return createStoredZipEntry(dataFile.getName(), document.getStreamLengthIfKnown(), document.getCrc32());
+    }
+    CRC32 crc = new CRC32();
+    long size = 0;
+    try (InputStream stream = dataFile.getStream()) {
+      byte[] buffer = new byte[IOUtils.DEFAULT_BUFFER_SIZE];
+      int bytesRead;
+      while ((bytesRead = stream.read(buffer)) >= 0) {
+        crc.update(buffer, 0, bytesRead);
+        size += bytesRead;
+      }
+    } catch (IOException e) {
+      handleIOException("Unable to read data file " + dataFile.getName(), e);
+    }
+    return createStoredZipEntry(dataFile.getName(), size, crc.getValue());
+  }
+
+  /**
+   * Creates an entry for deflating the data file. The size of the data file is set on the entry if it is known, so
+   * that large data files can be compressed on multiple threads.
+   */
+  private static ZipEntry createDeflatedZipEntry(DataFile dataFile) {
+    ZipEntry entry = new ZipEntry(dataFile.getName());
+    Long size = dataFile.getFileSizeIfKnown();
+    if (size != null) {
+      entry.setSize(size);
+    }
+    return entry;
+  }
+
+  private static ZipEntry createStoredZipEntry(String name, long size, long crc) {
+    ZipEntry entry = new ZipEntry(name);
+    entry.setMethod(ZipEntry.STORED);
+    entry.setSize(size);
+    entry.setCompressedSize(size);
+    entry.setCrc(crc);
+    return entry;
+  }
+
+  private ParallelDeflater createParallelDeflater() {
+    long threshold = configuration.getDataFileParallelCompressionThresholdInBytes();
+    if (threshold < 0) {
+      return null;
+    }
+    return new ParallelDeflater(new ThreadPoolManager(configuration).getThreadExecutor(), threshold);
+  }
+
+  /**
+   * Writes a stored entry directly from the file holding the contents of the data file, if there is one, so that the
+   * contents are copied by the kernel when the container is written into a file.
+   */
+  private boolean writeStoredEntryFromFile(ZipEntry zipEntry, DSSDocument document) {
+    File file;
+    long offset = 0;
+    if (document instanceof SpoolFileDocument) {
+      file = ((SpoolFileDocument) document).getFile();
+      offset = ((SpoolFileDocument) document).getOffset();
+    } else if (document instanceof StreamDocument) {
+      file = ((StreamDocument) document).getTemporaryFile();
+    } else if (document instanceof FileDocument) {
+      file = new File(((FileDocument) document).getAbsolutePath());
+    } else {
+      return false;
+    }
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    } catch (IOException | RuntimeException e) {
+      logger.debug("Unable to open {} for copying: {}", file, e.getMessage());
+      return false;
+    }
+    try (FileChannel source = channel) {
+      new FileEntryCallback(zipEntry, source, offset).write();
+    } catch (IOException e) {
+      logger.debug("Unable to close {}: {}", file, e.getMessage());
+    }
+    return true;
+  }
+
+  /**
+   * Copies the entry as it is, unless it was compressed differently from how it would be written now, e.g. a deflated
+   * mimetype entry which must be written uncompressed.
+   */
+  private boolean writeRawEntry(ZipEntry zipEntry, RawZipEntry rawZipEntry) {
+    if (rawZipEntry == null) {
+      return false;
+    }
+    boolean stored = zipEntry.getMethod() == ZipEntry.STORED;
+    if (stored != (rawZipEntry.getEntry().getMethod() == ZipEntry.STORED)) {
+      return false;
+    }
+    try {
+      return zipOutputStream.writeRawEntry(rawZipEntry);
+    } catch (IOException e) {
+      handleIOException("Unable to write Zip entry to asic container", e);
+      return false;
+    }
+  }
+
   private class StreamEntryCallback extends EntryCallback {
 
     private final InputStream inputStream;
@@ -187,6 +384,24 @@ public class AsicContainerCreator {
 
   }
 
+  private class FileEntryCallback extends EntryCallback {
+
+    private final FileChannel source;
+    private final long offset;
+
+    FileEntryCallback(ZipEntry entry, FileChannel source, long offset) {
+      super(entry);
+      this.source = source;
+      this.offset = offset;
+    }
+
+    @Override
+    void doWithEntryStream(OutputStream stream) throws IOException {
+      zipOutputStream.transferFrom(source, offset, getEntry().getSize());
+    }
+
+  }
+
   private class BytesEntryCallback extends EntryCallback {
 
     private final byte[] data;
@@ -231,6 +446,10 @@ public class AsicContainerCreator {
       }
     }
 
+    ZipEntry getEntry() {
+      return entry;
+    }
+
     abstract void doWithEntryStream(OutputStream stream) throws IOException;
 
   }
@@ -10,31 +10,43 @@
 
 package org.digidoc4j.impl.asic;
 
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
 import eu.europa.esig.dss.model.DSSDocument;
 import eu.europa.esig.dss.model.InMemoryDocument;
 import eu.europa.esig.dss.model.MimeType;
+import eu.europa.esig.dss.utils.Utils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.DataFile;
+import org.digidoc4j.DataFileStorage;
 import org.digidoc4j.exceptions.ContainerWithoutFilesException;
 import org.digidoc4j.exceptions.DigiDoc4JException;
 import org.digidoc4j.exceptions.DuplicateDataFileException;
 import org.digidoc4j.exceptions.TechnicalException;
 import org.digidoc4j.exceptions.UnsupportedFormatException;
+import org.digidoc4j.impl.PrecalculatedDigestDocument;
 import org.digidoc4j.impl.StreamDocument;
 import org.digidoc4j.impl.UncompressedAsicEntry;
 import org.digidoc4j.impl.asic.manifest.ManifestEntry;
 import org.digidoc4j.impl.asic.manifest.ManifestParser;
-import org.digidoc4j.impl.asic.xades.XadesSignature;
+import org.digidoc4j.impl.asic.zip.MappedZipFile;
+import org.digidoc4j.impl.asic.zip.RawZipEntry;
 import org.digidoc4j.impl.asic.xades.XadesSignatureWrapper;
+import org.digidoc4j.impl.storage.HeapBudget;
+import org.digidoc4j.impl.storage.SpoolFileDocument;
+import org.digidoc4j.utils.DigestCalculatingInputStream;
 import org.digidoc4j.utils.MimeTypeUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -43,6 +55,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 
 /**
@@ -55,8 +68,9 @@ public abstract class AsicContainerParser {
 
   private static final Logger logger = LoggerFactory.getLogger(AsicContainerParser.class);
   //Matches META-INF/*signatures*.xml where the last * is a number
-  private static final String SIGNATURES_FILE_REGEX = "META-INF/(.*)signatures(.*).xml";
+  static final String SIGNATURES_FILE_REGEX = "META-INF/(.*)signatures(.*).xml";
   private static final Pattern SIGNATURE_FILE_ENDING_PATTERN = Pattern.compile("(\\d+).xml");
+  private static final long MAX_HEAP_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
   private final Configuration configuration;
   private final AsicParseResult parseResult = new AsicParseResult();
@@ -67,23 +81,52 @@ public abstract class AsicContainerParser {
   private String mimeType;
   private String zipFileComment;
   private final List<AsicEntry> asicEntries = new ArrayList<>();
+  private final List<DSSDocument> extractedDocuments = new ArrayList<>();
   private Map<String, ManifestEntry> manifestFileItems = Collections.emptyMap();
   private ManifestParser manifestParser;
   private final boolean storeDataFilesOnlyInMemory;
   private boolean manifestFound = false;
   private boolean mimeTypeFound = false;
   private final long maxDataFileCachedInBytes;
+  private final DataFileStorage dataFileStorage;
+  private final HeapBudget dataFileHeapBudget;
   private DataFile timestampToken;
   private final long zipCompressionRatioCheckThreshold;
   private final long zipMaxAllowedCompressionRatio;
+  private final List<DigestAlgorithm> dataFileDigestAlgorithms;
+  private boolean calculateDataFileDigests;
+  private DigestCalculatingInputStream dataFileDigestStream;
 
 
   protected AsicContainerParser(Configuration configuration) {
     this.configuration = configuration;
     storeDataFilesOnlyInMemory = configuration.storeDataFilesOnlyInMemory();
     maxDataFileCachedInBytes = configuration.getMaxDataFileCachedInBytes();
+    dataFileStorage = configuration.getDataFileStorage();
+    dataFileHeapBudget = HeapBudget.of(configuration);
     zipCompressionRatioCheckThreshold = configuration.getZipCompressionRatioCheckThresholdInBytes();
     zipMaxAllowedCompressionRatio = configuration.getMaxAllowedZipCompressionRatio();
+    dataFileDigestAlgorithms = configuration.getPrecalculatedDataFileDigestAlgorithms().stream()
+            .map(org.digidoc4j.DigestAlgorithm::getDssDigestAlgorithm)
+            .collect(Collectors.toList());
+  }
+
+  /**
+   * Creates a parser for the ASiC container file at the given path. The container file is memory mapped if it is
+   * enabled in the configuration and the file is small enough to be mapped, otherwise it is read via
+   * {@link java.util.zip.ZipFile}.
+   *
+   * @param containerPath path
+   * @param configuration configuration
+   * @return container parser
+   * @see Configuration#setMemoryMappedContainerReadingEnabled(boolean)
+   */
+  public static AsicContainerParser forContainerFile(String containerPath, Configuration configuration) {
+    if (configuration.isMemoryMappedContainerReadingEnabled()
+        && new File(containerPath).length() <= MappedZipFile.MAX_MAPPED_FILE_SIZE) {
+      return new AsicMappedFileContainerParser(containerPath, configuration);
+    }
+    return new AsicFileContainerParser(containerPath, configuration);
   }
 
   /**
@@ -100,6 +143,13 @@ public abstract class AsicContainerParser {
 
   protected abstract void parseContainer();
 
+  /**
+   * @return file the container is parsed from or {@code null} if the container is not parsed from a file
+   */
+  protected File getContainerFile() {
+    return null;
+  }
+
   protected abstract void extractManifest(ZipEntry entry);
 
   protected abstract InputStream getZipEntryInputStream(ZipEntry entry);
@@ -166,30 +216,149 @@ public abstract class AsicContainerParser {
 
   private void extractTimeStamp(ZipEntry entry) {
     logger.debug("Extracting timestamp file");
-    InputStream zipFileInputStream = getZipEntryInputStream(entry);
-    String fileName = entry.getName();
-    timestampToken = new DataFile(zipFileInputStream, fileName, MimeType.TST.getMimeTypeString());
+    try (InputStream zipFileInputStream = getZipEntryInputStream(entry)) {
+      String fileName = entry.getName();
+      timestampToken = new DataFile(IOUtils.toByteArray(zipFileInputStream), fileName, MimeType.TST.getMimeTypeString());
+    } catch (IOException e) {
+      logger.error("Error parsing container timestamp: " + e.getMessage());
+      throw new TechnicalException("Error parsing container timestamp", e);
+    }
   }
 
   private void extractDataFile(ZipEntry entry) {
     logger.debug("Extracting data file");
     String fileName = entry.getName();
     validateDataFile(fileName);
-    DSSDocument document = extractStreamDocument(entry);
+    DSSDocument document;
+    calculateDataFileDigests = !dataFileDigestAlgorithms.isEmpty();
+    try {
+      document = extractStreamDocument(entry);
+    } finally {
+      calculateDataFileDigests = false;
+    }
     DataFile dataFile = new AsicDataFile(document);
     dataFiles.put(fileName, dataFile);
-    detachedContents.add(document);
+    detachedContents.add(toDetachedContent(document));
     extractAsicEntry(entry, document);
   }
 
+  /**
+   * If the digests of the data file were calculated while it was being extracted, caches the digests in the
+   * document where possible and returns a {@link PrecalculatedDigestDocument}, so that the data file does not need to
+   * be read again when the references of the signatures are validated.
+   */
+  private DSSDocument toDetachedContent(DSSDocument document) {
+    DigestCalculatingInputStream digestStream = dataFileDigestStream;
+    dataFileDigestStream = null;
+    if (digestStream == null || !digestStream.isEndOfStreamReached()) {
+      return document;
+    }
+    PrecalculatedDigestDocument detachedContent = new PrecalculatedDigestDocument(document);
+    for (Map.Entry<DigestAlgorithm, byte[]> digest : digestStream.getDigests().entrySet()) {
+      String base64EncodeDigest = Utils.toBase64(digest.getValue());
+      detachedContent.addDigest(digest.getKey(), base64EncodeDigest);
+      if (document instanceof StreamDocument) {
+        ((StreamDocument) document).addDigest(digest.getKey(), base64EncodeDigest);
+      } else if (document instanceof SpoolFileDocument) {
+        ((SpoolFileDocument) document).addDigest(digest.getKey(), base64EncodeDigest);
+      }
+    }
+    return detachedContent;
+  }
+
   private DSSDocument extractStreamDocument(ZipEntry entry) {
     logger.debug("Zip entry size is <{}> bytes", entry.getSize());
     MimeType mimeTypeCode = MimeTypeUtil.mimeTypeOf(this.getDataFileMimeType(entry.getName()));
-    if (this.storeDataFilesOnlyInMemory || entry.getSize() <= this.maxDataFileCachedInBytes) {
-      return new InMemoryDocument(toByteArray(this.getZipEntryInputStream(entry)), entry.getName(), mimeTypeCode);
+    DSSDocument document = extractDocument(entry, mimeTypeCode);
+    // Kept so that the bytes reserved for the document from the data file heap budget can be released on close
+    extractedDocuments.add(document);
+    return document;
+  }
+
+  /**
+   * Extracts the contents of an entry either into memory or, if the size of the entry is unknown, too large to be
+   * cached in memory or does not fit into the data file heap budget, by means of
+   * {@link #extractLargeDocument(ZipEntry, MimeType)}. If data files are stored only in memory, an entry of unknown
+   * size is still kept in memory as long as it fits into the data file heap budget.
+   *
+   * @param entry    ZIP entry
+   * @param mimeType mime type of the entry contents
+   * @return document of the entry contents
+   * @see HeapBudget#of(Configuration)
+   */
+  protected DSSDocument extractDocument(ZipEntry entry, MimeType mimeType) {
+    long size = entry.getSize();
+    if (this.storeDataFilesOnlyInMemory && !this.dataFileHeapBudget.isLimited()) {
+      return new InMemoryDocument(toByteArray(this.openDocumentStream(entry)), entry.getName(), mimeType);
+    } else if (size >= 0 && (this.storeDataFilesOnlyInMemory || size <= this.maxDataFileCachedInBytes)
+        && this.dataFileHeapBudget.tryReserve(size)) {
+      return extractDocumentIntoMemory(entry, mimeType, size);
+    } else if (size < 0 && this.storeDataFilesOnlyInMemory) {
+      return extractDocumentOfUnknownSizeIntoMemory(entry, mimeType);
     } else {
-      return new StreamDocument(this.getZipEntryInputStream(entry), entry.getName(), mimeTypeCode);
+      return extractLargeDocument(entry, mimeType);
+    }
+  }
+
+  /**
+   * Extracts an entry that may be too large to be cached in memory into the configured {@link DataFileStorage}.
+   *
+   * @param entry    ZIP entry
+   * @param mimeType mime type of the entry contents
+   * @return document of the entry contents
+   * @see Configuration#getDataFileStorage()
+   */
+  protected DSSDocument extractLargeDocument(ZipEntry entry, MimeType mimeType) {
+    return getDataFileStorage().store(this.openDocumentStream(entry), entry.getName(), mimeType);
+  }
+
+  /**
+   * @return storage of the data files that may be too large to be cached in memory
+   */
+  protected DataFileStorage getDataFileStorage() {
+    return dataFileStorage;
+  }
+
+  private DSSDocument extractDocumentIntoMemory(ZipEntry entry, MimeType mimeType, long reservedSize) {
+    InMemoryDocument document;
+    try {
+      document = new InMemoryDocument(toByteArray(this.openDocumentStream(entry)), entry.getName(), mimeType);
+    } catch (RuntimeException e) {
+      this.dataFileHeapBudget.release(reservedSize);
+      throw e;
     }
+    this.dataFileHeapBudget.releaseWhenUnreachable(document, reservedSize);
+    return document;
+  }
+
+  /**
+   * Reads an entry of unknown size, e.g. one followed by a data descriptor in a container read from a stream, into
+   * memory if it fits into the data file heap budget. Otherwise the bytes read so far and the rest of the entry are
+   * stored in the configured {@link DataFileStorage}.
+   */
+  private DSSDocument extractDocumentOfUnknownSizeIntoMemory(ZipEntry entry, MimeType mimeType) {
+    InputStream inputStream = this.openDocumentStream(entry);
+    long heapLimit = Math.min(this.dataFileHeapBudget.getAvailableSize(), MAX_HEAP_ARRAY_SIZE);
+    BoundedInputStream boundedInputStream = new BoundedInputStream(inputStream, heapLimit + 1);
+    boundedInputStream.setPropagateClose(false);
+    byte[] contents = toByteArray(boundedInputStream);
+    if (contents.length <= heapLimit && this.dataFileHeapBudget.tryReserve(contents.length)) {
+      InMemoryDocument document = new InMemoryDocument(contents, entry.getName(), mimeType);
+      this.dataFileHeapBudget.releaseWhenUnreachable(document, contents.length);
+      return document;
+    }
+    logger.debug("Entry {} does not fit into the data file heap budget", entry.getName());
+    InputStream remainingInputStream = new SequenceInputStream(new ByteArrayInputStream(contents), inputStream);
+    return getDataFileStorage().store(remainingInputStream, entry.getName(), mimeType);
+  }
+
+  private InputStream openDocumentStream(ZipEntry entry) {
+    InputStream inputStream = this.getZipEntryInputStream(entry);
+    if (calculateDataFileDigests) {
+      dataFileDigestStream = new DigestCalculatingInputStream(inputStream, dataFileDigestAlgorithms);
+      return dataFileDigestStream;
+    }
+    return inputStream;
   }
 
   private byte[] toByteArray(InputStream inputStream) {
@@ -210,14 +379,27 @@ public abstract class AsicContainerParser {
   private AsicEntry extractAsicEntry(ZipEntry zipEntry, DSSDocument document) {
     AsicEntry asicEntry = new AsicEntry(zipEntry);
     asicEntry.setContent(document);
+    asicEntry.setRawZipEntry(getRawZipEntry(zipEntry));
     asicEntries.add(asicEntry);
     return asicEntry;
   }
 
+  /**
+   * Returns the location of an entry in the container file, so that the entry can be copied as it is when the
+   * container is saved again. Containers not read from a file have no such locations.
+   *
+   * @param entry ZIP entry
+   * @return location of the entry or {@code null} if not known
+   */
+  protected RawZipEntry getRawZipEntry(ZipEntry entry) {
+    return null;
+  }
+
   private UncompressedAsicEntry extractUncompressedAsicEntry(ZipEntry zipEntry, InMemoryDocument document) {
     UncompressedAsicEntry asicEntry = new UncompressedAsicEntry(zipEntry);
     asicEntry.updateMetadataIfNotPresent(document::getBytes);
     asicEntry.setContent(document);
+    asicEntry.setRawZipEntry(getRawZipEntry(zipEntry));
     asicEntries.add(asicEntry);
     return asicEntry;
   }
@@ -267,16 +449,13 @@ public abstract class AsicContainerParser {
     parseResult.setAsicEntries(asicEntries);
     parseResult.setTimeStampToken(timestampToken);
     parseResult.setMimeType(mimeType);
+    parseResult.setContainerFile(getContainerFile());
+    parseResult.setExtractedDocuments(extractedDocuments);
   }
 
   private List<XadesSignatureWrapper> parseSignatures() {
     AsicSignatureParser signatureParser = new AsicSignatureParser(parseResult.getDetachedContents(), configuration);
-    List<XadesSignatureWrapper> parsedSignatures = new ArrayList<>();
-    for (DSSDocument signatureDocument : signatures) {
-      XadesSignature signature = signatureParser.parse(signatureDocument);
-      parsedSignatures.add(new XadesSignatureWrapper(signature, signatureDocument));
-    }
-    return parsedSignatures;
+    return signatureParser.parse(signatures);
   }
 
   private boolean isMimeType(String entryName) {
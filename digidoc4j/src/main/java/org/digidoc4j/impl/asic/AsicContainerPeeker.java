@@ -0,0 +1,141 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.model.MimeType;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.ContainerMetadata;
+import org.digidoc4j.ContainerMetadata.DataFileMetadata;
+import org.digidoc4j.ContainerMetadata.SignatureMetadata;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.asic.manifest.ManifestEntry;
+import org.digidoc4j.impl.asic.manifest.ManifestParser;
+import org.digidoc4j.impl.asic.xades.XadesSignatureHeaderReader;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectory;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectoryEntry;
+import org.digidoc4j.impl.asic.zip.ZipEntryDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the metadata of an ASiC container file without opening the container.
+ * <p>
+ * The entries of the container are located from the ZIP central directory. Only the mimetype file, the manifest and
+ * the beginning of the signature files are read; the data files are described from the central directory alone.
+ * <p>
+ * The manifest and the signature files are checked against the ZIP compression ratio limits of the configuration
+ * before they are inflated, and are never inflated beyond the size recorded in the central directory.
+ */
+public class AsicContainerPeeker {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsicContainerPeeker.class);
+  private static final int MAX_MIMETYPE_LENGTH = 1024;
+
+  private final File containerFile;
+  private final long zipCompressionRatioCheckThreshold;
+  private final long zipMaxAllowedCompressionRatio;
+
+  /**
+   * @param containerFile ASiC container file
+   * @param configuration configuration
+   */
+  public AsicContainerPeeker(File containerFile, Configuration configuration) {
+    this.containerFile = containerFile;
+    zipCompressionRatioCheckThreshold = configuration.getZipCompressionRatioCheckThresholdInBytes();
+    zipMaxAllowedCompressionRatio = configuration.getMaxAllowedZipCompressionRatio();
+  }
+
+  /**
+   * @return container metadata
+   * @throws IOException if the container file cannot be read
+   */
+  public ContainerMetadata read() throws IOException {
+    logger.debug("Reading metadata of container " + containerFile);
+    ZipCentralDirectory centralDirectory = ZipCentralDirectory.read(containerFile);
+    String mimeType = null;
+    Map<String, ManifestEntry> manifestEntries = Collections.emptyMap();
+    List<ZipCentralDirectoryEntry> dataFileEntries = new ArrayList<>();
+    List<SignatureMetadata> signatures = new ArrayList<>();
+    XadesSignatureHeaderReader signatureReader = new XadesSignatureHeaderReader();
+    for (ZipCentralDirectoryEntry entry : centralDirectory.getEntries()) {
+      String entryName = entry.getName();
+      if (StringUtils.equalsIgnoreCase("mimetype", entryName)) {
+        mimeType = readMimeType(entry);
+      } else if (StringUtils.equalsIgnoreCase(AsicContainerParser.MANIFEST, entryName)) {
+        manifestEntries = new ManifestParser(openEntry(entry, MimeType.XML)).getManifestFileItems();
+      } else if (entryName.matches(AsicContainerParser.SIGNATURES_FILE_REGEX)) {
+        signatures.add(readSignature(entry, signatureReader));
+      } else if (!entryName.startsWith("META-INF/")) {
+        dataFileEntries.add(entry);
+      }
+    }
+    List<DataFileMetadata> dataFiles = new ArrayList<>(dataFileEntries.size());
+    for (ZipCentralDirectoryEntry entry : dataFileEntries) {
+      dataFiles.add(new DataFileMetadata(entry.getName(), entry.getSize(), getMimeType(entry.getName(), manifestEntries)));
+    }
+    return new ContainerMetadata(mimeType, dataFiles, signatures);
+  }
+
+  private String readMimeType(ZipCentralDirectoryEntry entry) throws IOException {
+    if (entry.getSize() > MAX_MIMETYPE_LENGTH) {
+      logger.warn("Ignoring mimetype file of " + entry.getSize() + " bytes");
+      return null;
+    }
+    try (InputStream stream = new BOMInputStream(openEntry(entry, MimeType.TEXT).openStream())) {
+      return StringUtils.trim(IOUtils.toString(stream, StandardCharsets.UTF_8));
+    }
+  }
+
+  private SignatureMetadata readSignature(ZipCentralDirectoryEntry entry, XadesSignatureHeaderReader signatureReader)
+      throws IOException {
+    try (InputStream stream = openEntry(entry, MimeType.XML).openStream()) {
+      return signatureReader.read(stream);
+    }
+  }
+
+  private ZipEntryDocument openEntry(ZipCentralDirectoryEntry entry, MimeType mimeType) {
+    verifyEntryUnpackingIsSafeToProceed(entry);
+    try {
+      return new ZipEntryDocument(containerFile, entry, mimeType);
+    } catch (IllegalArgumentException e) {
+      logger.error("Unable to read entry " + entry.getName() + ": " + e.getMessage());
+      throw new TechnicalException("Unable to read entry " + entry.getName() + " of the container", e);
+    }
+  }
+
+  private void verifyEntryUnpackingIsSafeToProceed(ZipCentralDirectoryEntry entry) {
+    if (entry.getSize() > zipCompressionRatioCheckThreshold
+        && entry.getSize() > entry.getCompressedSize() * zipMaxAllowedCompressionRatio) {
+      throw new TechnicalException("Zip Bomb detected in the ZIP container. Validation is interrupted.");
+    }
+  }
+
+  private static String getMimeType(String fileName, Map<String, ManifestEntry> manifestEntries) {
+    ManifestEntry manifestEntry = manifestEntries.get(fileName);
+    if (manifestEntry != null) {
+      return manifestEntry.getMimeType();
+    }
+    return MimeType.fromFileName(fileName).getMimeTypeString();
+  }
+
+}
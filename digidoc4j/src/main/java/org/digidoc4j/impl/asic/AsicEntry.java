@@ -14,6 +14,7 @@ import java.io.Serializable;
 import java.util.zip.ZipEntry;
 
 import eu.europa.esig.dss.model.DSSDocument;
+import org.digidoc4j.impl.asic.zip.RawZipEntry;
 
 /**
  * ASIC entry
@@ -25,6 +26,7 @@ public class AsicEntry implements Serializable {
   private byte[] extraFieldData;
   private DSSDocument content;
   private boolean isSignature;
+  private RawZipEntry rawZipEntry;
 
   /**
    * @param zipEntry entry
@@ -66,6 +68,22 @@ public class AsicEntry implements Serializable {
     return entry;
   }
 
+  /**
+   * @return location of this entry in the container file it was read from, or {@code null} if it was not read from a
+   * file
+   */
+  public RawZipEntry getRawZipEntry() {
+    return rawZipEntry;
+  }
+
+  /**
+   * @param rawZipEntry location of this entry in the container file it was read from; allows the entry to be copied
+   *                    as it is when the container is saved
+   */
+  public void setRawZipEntry(RawZipEntry rawZipEntry) {
+    this.rawZipEntry = rawZipEntry;
+  }
+
   /**
    * @return indication whether it's a signature
    */
@@ -10,15 +10,23 @@
 
 package org.digidoc4j.impl.asic;
 
+import eu.europa.esig.dss.model.DSSDocument;
 import eu.europa.esig.dss.model.FileDocument;
 import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.model.MimeType;
 import eu.europa.esig.dss.spi.DSSUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectory;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectoryEntry;
+import org.digidoc4j.impl.asic.zip.RawZipEntry;
+import org.digidoc4j.impl.asic.zip.ZipEntryDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Enumeration;
@@ -31,10 +39,13 @@ import java.util.zip.ZipFile;
 public class AsicFileContainerParser extends AsicContainerParser {
 
   private static final Logger logger = LoggerFactory.getLogger(AsicFileContainerParser.class);
-  private static final int READ_BUFFER_SIZE = 2048;
 
   private final ZipFile zipFile;
+  private final File containerFile;
   private final long containerSize;
+  private final long containerLastModified;
+  private final boolean lazyDataFileLoadingEnabled;
+  private ZipCentralDirectory centralDirectory;
   private long totalContainerBytesUnpacked;
 
   /**
@@ -43,8 +54,11 @@ public class AsicFileContainerParser extends AsicContainerParser {
    */
   public AsicFileContainerParser(String containerPath, Configuration configuration) {
     super(configuration);
+    this.containerFile = new File(containerPath);
+    this.lazyDataFileLoadingEnabled = configuration.isLazyDataFileLoadingEnabled();
     try {
       this.containerSize = DSSUtils.getFileByteSize(new FileDocument(containerPath));
+      this.containerLastModified = containerFile.lastModified();
       zipFile = new ZipFile(containerPath);
     } catch (IOException e) {
       logger.error("Error reading container from " + containerPath + " - " + e.getMessage());
@@ -52,6 +66,11 @@ public class AsicFileContainerParser extends AsicContainerParser {
     }
   }
 
+  @Override
+  protected File getContainerFile() {
+    return containerFile;
+  }
+
   @Override
   protected void parseContainer() {
     logger.debug("Parsing zip file");
@@ -59,30 +78,39 @@ public class AsicFileContainerParser extends AsicContainerParser {
       String zipFileComment = zipFile.getComment();
       setZipFileComment(zipFileComment);
       parseZipFileManifest();
+      if (lazyDataFileLoadingEnabled) {
+        readCentralDirectory();
+      } else {
+        tryReadCentralDirectory();
+      }
       Enumeration<? extends ZipEntry> entries = zipFile.entries();
       totalContainerBytesUnpacked = 0L;
       while (entries.hasMoreElements()) {
         ZipEntry zipEntry = entries.nextElement();
-        verifyIfZipBomb(zipEntry);
         parseEntry(zipEntry);
       }
-    } catch (IOException e) {
-      logger.error("Error reading asic container file: " + e.getMessage());
-      throw new TechnicalException("Error reading asic container file", e);
     } finally {
       IOUtils.closeQuietly(zipFile);
     }
   }
 
-  private void verifyIfZipBomb(ZipEntry zipEntry) throws IOException {
-    try (InputStream inputStream = getZipEntryInputStream(zipEntry)) {
-      byte[] readBuffer = new byte[READ_BUFFER_SIZE];
-      int bytesRead;
-      while ((bytesRead = inputStream.read(readBuffer)) != -1) {
-        totalContainerBytesUnpacked += bytesRead;
-        verifyContainerUnpackingIsSafeToProceed(containerSize, totalContainerBytesUnpacked);
+  /**
+   * If lazy data file loading is enabled, returns a document that reads the entry contents from the container file
+   * on demand, instead of copying the contents into a temporary file.
+   * The declared size of the entry is accounted for in the compression ratio check; the document itself refuses to
+   * inflate beyond the declared size.
+   */
+  @Override
+  protected DSSDocument extractLargeDocument(ZipEntry entry, MimeType mimeType) {
+    if (lazyDataFileLoadingEnabled && centralDirectory != null) {
+      ZipCentralDirectoryEntry centralDirectoryEntry = centralDirectory.getEntry(entry.getName());
+      if (centralDirectoryEntry != null && centralDirectoryEntry.isSupportedMethod()) {
+        logger.debug("Loading zip entry {} lazily from the container file", entry.getName());
+        validate(centralDirectoryEntry.getSize());
+        return new ZipEntryDocument(containerFile, centralDirectoryEntry, mimeType);
       }
     }
+    return super.extractLargeDocument(entry, mimeType);
   }
 
   @Override
@@ -90,8 +118,31 @@ public class AsicFileContainerParser extends AsicContainerParser {
     extractAsicEntry(entry);
   }
 
+  /**
+   * Returns a stream of the entry contents that verifies the compression ratio of the container while the entry is
+   * being inflated, so that every entry needs to be inflated only once.
+   *
+   * @param entry ZIP entry
+   * @return entry contents stream
+   */
   @Override
   protected InputStream getZipEntryInputStream(ZipEntry entry) {
+    return new ProxyInputStream(openZipEntryInputStream(entry)) {
+      @Override
+      protected void afterRead(int bytesRead) {
+        if (bytesRead > 0) {
+          validate(bytesRead);
+        }
+      }
+    };
+  }
+
+  private void validate(long bytesRead) {
+    totalContainerBytesUnpacked += bytesRead;
+    verifyContainerUnpackingIsSafeToProceed(containerSize, totalContainerBytesUnpacked);
+  }
+
+  private InputStream openZipEntryInputStream(ZipEntry entry) {
     try {
       return zipFile.getInputStream(entry);
     } catch (IOException e) {
@@ -100,13 +151,47 @@ public class AsicFileContainerParser extends AsicContainerParser {
     }
   }
 
+  /**
+   * Returns the location of the entry in the container file if the central directory of the container file could be
+   * read.
+   */
+  @Override
+  protected RawZipEntry getRawZipEntry(ZipEntry entry) {
+    if (centralDirectory == null) {
+      return null;
+    }
+    ZipCentralDirectoryEntry centralDirectoryEntry = centralDirectory.getEntry(entry.getName());
+    if (centralDirectoryEntry == null) {
+      return null;
+    }
+    return new RawZipEntry(containerFile, containerSize, containerLastModified, centralDirectoryEntry);
+  }
+
+  private void tryReadCentralDirectory() {
+    try {
+      centralDirectory = ZipCentralDirectory.read(containerFile);
+    } catch (IOException e) {
+      logger.debug("Unable to read asic container central directory, entries will not be copied as they are: "
+          + e.getMessage());
+    }
+  }
+
+  private void readCentralDirectory() {
+    try {
+      centralDirectory = ZipCentralDirectory.read(containerFile);
+    } catch (IOException e) {
+      logger.error("Error reading asic container central directory: " + e.getMessage());
+      throw new TechnicalException("Error reading asic container central directory", e);
+    }
+  }
+
   private void parseZipFileManifest() {
     ZipEntry entry = zipFile.getEntry(MANIFEST);
     if (entry == null) {
       return;
     }
     try {
-      InputStream manifestStream = getZipEntryInputStream(entry);
+      InputStream manifestStream = openZipEntryInputStream(entry);
       InMemoryDocument manifestFile = new InMemoryDocument(IOUtils.toByteArray(manifestStream));
       parseManifestEntry(manifestFile);
     } catch (IOException e) {
@@ -0,0 +1,194 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.model.MimeType;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.ProxyInputStream;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Constant;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.asic.zip.ByteBufferDocument;
+import org.digidoc4j.impl.asic.zip.MappedZipFile;
+import org.digidoc4j.impl.asic.zip.RawZipEntry;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectory;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectoryEntry;
+import org.digidoc4j.impl.asic.zip.ZipEntryDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+
+/**
+ * ASIC container parser from a memory mapped file.
+ * <p>
+ * Uncompressed (STORED) entries too large to be cached in memory are backed directly by the mapping instead of being
+ * copied into temporary files. The container file must therefore not be modified for as long as the parsed container
+ * is in use. The mapping is released only after all the documents backed by it have been garbage collected; until
+ * then the container file cannot be deleted or replaced on Windows.
+ */
+public class AsicMappedFileContainerParser extends AsicContainerParser {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsicMappedFileContainerParser.class);
+
+  private final MappedZipFile zipFile;
+  private final ZipCentralDirectory centralDirectory;
+  private final long containerSize;
+  private final long containerLastModified;
+  private final boolean lazyDataFileLoadingEnabled;
+  private final long maxDataFileCachedInBytes;
+  private long totalContainerBytesUnpacked;
+
+  /**
+   * @param containerPath path
+   * @param configuration configuration
+   */
+  public AsicMappedFileContainerParser(String containerPath, Configuration configuration) {
+    super(configuration);
+    this.lazyDataFileLoadingEnabled = configuration.isLazyDataFileLoadingEnabled();
+    this.maxDataFileCachedInBytes = configuration.getMaxDataFileCachedInBytes();
+    try {
+      zipFile = MappedZipFile.open(new File(containerPath));
+      centralDirectory = zipFile.getCentralDirectory();
+      containerSize = zipFile.getFile().length();
+      containerLastModified = zipFile.getFile().lastModified();
+    } catch (IOException e) {
+      logger.error("Error reading container from " + containerPath + " - " + e.getMessage());
+      throw new RuntimeException("Error reading container from " + containerPath);
+    }
+  }
+
+  @Override
+  protected File getContainerFile() {
+    return zipFile.getFile();
+  }
+
+  @Override
+  protected void parseContainer() {
+    logger.debug("Parsing memory mapped zip file");
+    setZipFileComment(centralDirectory.getComment());
+    parseZipFileManifest();
+    totalContainerBytesUnpacked = 0L;
+    for (ZipCentralDirectoryEntry entry : centralDirectory.getEntries()) {
+      parseEntry(entry.toZipEntry());
+    }
+  }
+
+  /**
+   * Returns a document backed by the mapped container file for uncompressed entries too large to be cached in memory.
+   * Compressed and small entries are extracted as usual, so that they do not keep the container file mapped.
+   */
+  @Override
+  protected DSSDocument extractDocument(ZipEntry entry, MimeType mimeType) {
+    ZipCentralDirectoryEntry centralDirectoryEntry = getCentralDirectoryEntry(entry);
+    if (centralDirectoryEntry.getMethod() != ZipEntry.STORED || isCachedInMemory(centralDirectoryEntry.getSize())) {
+      return super.extractDocument(entry, mimeType);
+    }
+    try {
+      validate(centralDirectoryEntry.getSize());
+      return new ByteBufferDocument(zipFile.getStoredEntryData(centralDirectoryEntry), entry.getName(), mimeType,
+          centralDirectoryEntry.getCrc());
+    } catch (IOException e) {
+      logger.error("Error reading data file '" + entry.getName() + "' from the asic container: " + e.getMessage());
+      throw new TechnicalException("Error reading data file '" + entry.getName() + "' from the asic container", e);
+    }
+  }
+
+  /**
+   * If lazy data file loading is enabled, returns a document that reads the entry contents from the container file
+   * on demand, instead of copying the contents into a temporary file.
+   */
+  @Override
+  protected DSSDocument extractLargeDocument(ZipEntry entry, MimeType mimeType) {
+    ZipCentralDirectoryEntry centralDirectoryEntry = getCentralDirectoryEntry(entry);
+    if (lazyDataFileLoadingEnabled && centralDirectoryEntry.isSupportedMethod()) {
+      logger.debug("Loading zip entry {} lazily from the container file", entry.getName());
+      validate(centralDirectoryEntry.getSize());
+      return new ZipEntryDocument(zipFile.getFile(), centralDirectoryEntry, mimeType);
+    }
+    return super.extractLargeDocument(entry, mimeType);
+  }
+
+  @Override
+  protected void extractManifest(ZipEntry entry) {
+    extractAsicEntry(entry);
+  }
+
+  /**
+   * Returns a stream of the entry contents that verifies the compression ratio of the container while the entry is
+   * being inflated.
+   *
+   * @param entry ZIP entry
+   * @return entry contents stream
+   */
+  @Override
+  protected InputStream getZipEntryInputStream(ZipEntry entry) {
+    return new ProxyInputStream(openZipEntryInputStream(getCentralDirectoryEntry(entry))) {
+      @Override
+      protected void afterRead(int bytesRead) {
+        if (bytesRead > 0) {
+          validate(bytesRead);
+        }
+      }
+    };
+  }
+
+  @Override
+  protected RawZipEntry getRawZipEntry(ZipEntry entry) {
+    return new RawZipEntry(zipFile.getFile(), containerSize, containerLastModified, getCentralDirectoryEntry(entry));
+  }
+
+  private boolean isCachedInMemory(long size) {
+    return maxDataFileCachedInBytes == Constant.CACHE_ALL_DATA_FILES || size <= maxDataFileCachedInBytes;
+  }
+
+  private void validate(long bytesRead) {
+    totalContainerBytesUnpacked += bytesRead;
+    verifyContainerUnpackingIsSafeToProceed(containerSize, totalContainerBytesUnpacked);
+  }
+
+  private ZipCentralDirectoryEntry getCentralDirectoryEntry(ZipEntry entry) {
+    ZipCentralDirectoryEntry centralDirectoryEntry = centralDirectory.getEntry(entry.getName());
+    if (centralDirectoryEntry == null) {
+      throw new TechnicalException("Zip entry '" + entry.getName() + "' not found in the asic container");
+    }
+    return centralDirectoryEntry;
+  }
+
+  private InputStream openZipEntryInputStream(ZipCentralDirectoryEntry entry) {
+    try {
+      return zipFile.getInputStream(entry);
+    } catch (IOException e) {
+      logger.error("Error reading data file '" + entry.getName() + "' from the asic container: " + e.getMessage());
+      throw new TechnicalException("Error reading data file '" + entry.getName() + "' from the asic container", e);
+    }
+  }
+
+  private void parseZipFileManifest() {
+    ZipCentralDirectoryEntry entry = centralDirectory.getEntry(MANIFEST);
+    if (entry == null) {
+      return;
+    }
+    try (InputStream manifestStream = openZipEntryInputStream(entry)) {
+      InMemoryDocument manifestFile = new InMemoryDocument(IOUtils.toByteArray(manifestStream));
+      parseManifestEntry(manifestFile);
+    } catch (IOException e) {
+      logger.error("Error parsing manifest file: " + e.getMessage());
+      throw new TechnicalException("Error parsing manifest file", e);
+    }
+  }
+
+}
@@ -16,7 +16,9 @@ import org.digidoc4j.DataFile;
 import org.digidoc4j.impl.asic.manifest.ManifestParser;
 import org.digidoc4j.impl.asic.xades.XadesSignatureWrapper;
 
+import java.io.File;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -33,6 +35,8 @@ public class AsicParseResult implements Serializable {
   private ManifestParser manifestParser;
   private DataFile timeStampToken;
   private String mimeType;
+  private File containerFile;
+  private transient List<DSSDocument> extractedDocuments;
 
   /**
    * @return list of data files
@@ -137,4 +141,33 @@ public class AsicParseResult implements Serializable {
   public String getMimeType() {
     return mimeType;
   }
+
+  /**
+   * @return file the container was parsed from or {@code null} if the container was not parsed from a file
+   */
+  public File getContainerFile() {
+    return containerFile;
+  }
+
+  /**
+   * @param containerFile file the container was parsed from
+   */
+  public void setContainerFile(File containerFile) {
+    this.containerFile = containerFile;
+  }
+
+  /**
+   * @return documents of all the entries extracted from the container, including those holding bytes reserved from the
+   * data file heap budget while parsing, see {@link org.digidoc4j.impl.storage.HeapBudget#releaseOwnedBy(Object)}
+   */
+  public List<DSSDocument> getExtractedDocuments() {
+    return extractedDocuments == null ? Collections.emptyList() : extractedDocuments;
+  }
+
+  /**
+   * @param extractedDocuments documents of all the entries extracted from the container
+   */
+  public void setExtractedDocuments(List<DSSDocument> extractedDocuments) {
+    this.extractedDocuments = extractedDocuments;
+  }
 }
@@ -12,13 +12,10 @@ package org.digidoc4j.impl.asic;
 
 import eu.europa.esig.dss.model.DSSDocument;
 import eu.europa.esig.dss.model.SignerLocation;
-import eu.europa.esig.dss.service.tsp.OnlineTSPSource;
 import eu.europa.esig.dss.spi.DSSASN1Utils;
-import eu.europa.esig.dss.spi.client.http.DataLoader;
 import org.apache.commons.lang3.StringUtils;
 import org.bouncycastle.cert.ocsp.BasicOCSPResp;
 import org.digidoc4j.Configuration;
-import org.digidoc4j.Constant;
 import org.digidoc4j.DataFile;
 import org.digidoc4j.EncryptionAlgorithm;
 import org.digidoc4j.OCSPSourceBuilder;
@@ -31,10 +28,8 @@ import org.digidoc4j.exceptions.CertificateValidationException;
 import org.digidoc4j.exceptions.ContainerWithoutFilesException;
 import org.digidoc4j.exceptions.DigiDoc4JException;
 import org.digidoc4j.exceptions.OCSPRequestFailedException;
-import org.digidoc4j.impl.AiaDataLoaderFactory;
 import org.digidoc4j.impl.SKOnlineOCSPSource;
 import org.digidoc4j.impl.SignatureFinalizer;
-import org.digidoc4j.impl.TspDataLoaderFactory;
 import org.digidoc4j.impl.asic.asice.AsicESignatureOpener;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocSignatureOpener;
 import org.digidoc4j.impl.asic.xades.XadesSignature;
@@ -187,12 +182,13 @@ public class AsicSignatureFinalizer extends SignatureFinalizer {
 
   private void initSigningFacade() {
     if (facade == null) {
-      facade = new XadesSigningDssFacade();
-      populateFacadeParameters();
+      AsicSigningEngine engine = AsicSigningEngine.of(configuration);
+      facade = engine.createFacade();
+      populateFacadeParameters(engine);
     }
   }
 
-  private void populateFacadeParameters() {
+  private void populateFacadeParameters(AsicSigningEngine engine) {
     setSignatureDigestAlgorithm();
     setDataFileDigestAlgorithm();
     setSigningCertificate();
@@ -202,8 +198,7 @@ public class AsicSignatureFinalizer extends SignatureFinalizer {
     setSignatureId();
     setSignaturePolicy();
     setClaimedSigningDate();
-    setTimeStampProviderSource();
-    setCustomDataLoader();
+    setTimeStampProviderSource(engine);
   }
 
   private void setSignatureDigestAlgorithm() {
@@ -292,11 +287,8 @@ public class AsicSignatureFinalizer extends SignatureFinalizer {
     LOGGER.debug("Claimed signing date is going to be {}", claimedSigningDate);
   }
 
-  private void setTimeStampProviderSource() {
-    OnlineTSPSource tspSource = new OnlineTSPSource(this.getTspSource(configuration));
-    DataLoader dataLoader = new TspDataLoaderFactory(configuration, Constant.USER_AGENT_STRING).create();
-    tspSource.setDataLoader(dataLoader);
-    this.facade.setTspSource(tspSource);
+  private void setTimeStampProviderSource(AsicSigningEngine engine) {
+    this.facade.setTspSource(engine.getTspSource(this.getTspSource(configuration)));
   }
 
   private String getTspSource(Configuration configuration) {
@@ -310,8 +302,4 @@ public class AsicSignatureFinalizer extends SignatureFinalizer {
     }
     return configuration.getTspSource();
   }
-
-  private void setCustomDataLoader() {
-    this.facade.setCustomDataLoader(new AiaDataLoaderFactory(configuration, Constant.USER_AGENT_STRING).create());
-  }
 }
@@ -12,13 +12,20 @@ package org.digidoc4j.impl.asic;
 
 import eu.europa.esig.dss.model.DSSDocument;
 import org.digidoc4j.Configuration;
+import org.digidoc4j.exceptions.TechnicalException;
 import org.digidoc4j.impl.asic.xades.XadesSignature;
 import org.digidoc4j.impl.asic.xades.XadesSignatureParser;
+import org.digidoc4j.impl.asic.xades.XadesSignatureWrapper;
 import org.digidoc4j.impl.asic.xades.XadesValidationReportGenerator;
+import org.digidoc4j.impl.asic.xades.validation.ThreadPoolManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 public class AsicSignatureParser {
 
@@ -38,6 +45,75 @@ public class AsicSignatureParser {
         return createXadesSignature(xadesDocument);
     }
 
+    /**
+     * Parses the given signature documents concurrently on the executor of {@link ThreadPoolManager}.
+     * <p>
+     * The calling thread takes part in parsing: it runs every signature that has not yet been picked up by the
+     * executor itself, so parsing completes even if the executor is busy, rejects the signatures or is the one running
+     * the caller.
+     *
+     * @param xadesDocuments signature documents
+     * @return parsed signatures in the order of the given signature documents
+     */
+    public List<XadesSignatureWrapper> parse(List<DSSDocument> xadesDocuments) {
+        if (xadesDocuments.size() <= 1) {
+            List<XadesSignatureWrapper> parsedSignatures = new ArrayList<>(xadesDocuments.size());
+            for (DSSDocument xadesDocument : xadesDocuments) {
+                parsedSignatures.add(new XadesSignatureWrapper(parse(xadesDocument), xadesDocument));
+            }
+            return parsedSignatures;
+        }
+        logger.debug("Parsing {} signatures in parallel", xadesDocuments.size());
+        List<FutureTask<XadesSignatureWrapper>> parsingTasks = startParsingInParallel(xadesDocuments);
+        List<XadesSignatureWrapper> parsedSignatures = new ArrayList<>(parsingTasks.size());
+        try {
+            for (FutureTask<XadesSignatureWrapper> parsingTask : parsingTasks) {
+                parsingTask.run();
+                parsedSignatures.add(getParsedSignature(parsingTask));
+            }
+        } finally {
+            for (FutureTask<XadesSignatureWrapper> parsingTask : parsingTasks) {
+                parsingTask.cancel(false);
+            }
+        }
+        return parsedSignatures;
+    }
+
+    private List<FutureTask<XadesSignatureWrapper>> startParsingInParallel(List<DSSDocument> xadesDocuments) {
+        ThreadPoolManager threadPoolManager = new ThreadPoolManager(configuration);
+        List<FutureTask<XadesSignatureWrapper>> parsingTasks = new ArrayList<>(xadesDocuments.size());
+        for (DSSDocument xadesDocument : xadesDocuments) {
+            FutureTask<XadesSignatureWrapper> parsingTask = new FutureTask<>(
+                    () -> new XadesSignatureWrapper(parse(xadesDocument), xadesDocument));
+            parsingTasks.add(parsingTask);
+            try {
+                threadPoolManager.getThreadExecutor().execute(parsingTask);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Executor rejected parsing a signature, parsing it on the calling thread");
+            }
+        }
+        return parsingTasks;
+    }
+
+    private static XadesSignatureWrapper getParsedSignature(FutureTask<XadesSignatureWrapper> parsingTask) {
+        try {
+            return parsingTask.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while parsing signatures on multiple threads");
+            throw new TechnicalException("Interrupted while parsing signatures on multiple threads", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            logger.error("Error parsing signatures on multiple threads: " + cause.getMessage());
+            throw new TechnicalException("Error parsing signatures on multiple threads: " + cause.getMessage(), cause);
+        }
+    }
+
     private XadesSignature createXadesSignature(DSSDocument xadesDocument) {
         XadesValidationReportGenerator xadesReportGenerator = new XadesValidationReportGenerator(xadesDocument, detachedContents, configuration);
         return xadesSignatureParser.parse(xadesReportGenerator);
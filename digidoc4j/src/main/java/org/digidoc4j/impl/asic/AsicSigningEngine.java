@@ -0,0 +1,164 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.service.tsp.OnlineTSPSource;
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Constant;
+import org.digidoc4j.DataLoaderFactory;
+import org.digidoc4j.impl.AiaDataLoaderFactory;
+import org.digidoc4j.impl.ConfigurationModificationCounter;
+import org.digidoc4j.impl.SkDataLoader;
+import org.digidoc4j.impl.TspDataLoaderFactory;
+import org.digidoc4j.impl.asic.xades.XadesSigningDssFacade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signing services shared by the signature finalizers using the same configuration.
+ * <p>
+ * The default TSP and AIA data loaders are created once per engine instead of once per finalized signature, and a TSP
+ * source using the default TSP data loader is created once per TSP service. The default TSP data loader keeps one
+ * pooled HTTP client per TSP service, so that connections and TLS sessions are reused across finalized signatures;
+ * the default AIA data loader uses {@link java.net.HttpURLConnection}, whose connections the JVM keeps alive itself.
+ * Data loaders of custom data loader factories of the configuration are not assumed to be thread-safe, so they are
+ * still created for every finalized signature, as are the TSP sources using them. The engine is thread-safe; every
+ * finalization still gets its own {@link XadesSigningDssFacade} holding the signature parameters and the OCSP source
+ * of the signature. The engine of a configuration is replaced when the configuration is modified, see
+ * {@link ConfigurationModificationCounter}, and the pooled HTTP clients of the replaced engine are closed once the
+ * requests still using them have completed.
+ * <p>
+ * The engines are held softly, so that neither the engine nor data loaders referring to their configuration keep a
+ * configuration that is no longer used from being garbage collected.
+ */
+public final class AsicSigningEngine {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsicSigningEngine.class);
+
+  private static final Map<Configuration, Reference<AsicSigningEngine>> engines = new WeakHashMap<>();
+
+  private final long modificationCount;
+  private final DataLoaderFactory customTspDataLoaderFactory;
+  private final DataLoaderFactory customAiaDataLoaderFactory;
+  private final DataLoader sharedTspDataLoader;
+  private final DataLoader sharedAiaDataLoader;
+  private final Map<String, OnlineTSPSource> tspSources = new ConcurrentHashMap<>();
+
+  private AsicSigningEngine(Configuration configuration, long modificationCount) {
+    logger.debug("Creating signing engine");
+    this.modificationCount = modificationCount;
+    this.customTspDataLoaderFactory = configuration.getTspDataLoaderFactory();
+    this.customAiaDataLoaderFactory = configuration.getAiaDataLoaderFactory();
+    this.sharedTspDataLoader = customTspDataLoaderFactory != null ? null
+        : createSharedTspDataLoader(configuration);
+    this.sharedAiaDataLoader = customAiaDataLoaderFactory != null ? null
+        : new AiaDataLoaderFactory(configuration, Constant.USER_AGENT_STRING).create();
+  }
+
+  /**
+   * Get the signing engine shared by the signature finalizers using the configuration. A new engine is created when
+   * the configuration has been modified since its engine was created.
+   *
+   * @param configuration configuration
+   * @return signing engine
+   */
+  public static AsicSigningEngine of(Configuration configuration) {
+    long modificationCount = ConfigurationModificationCounter.getModificationCount(configuration);
+    synchronized (engines) {
+      Reference<AsicSigningEngine> reference = engines.get(configuration);
+      AsicSigningEngine engine = reference == null ? null : reference.get();
+      if (engine == null || engine.modificationCount != modificationCount) {
+        if (engine != null) {
+          engine.close();
+        }
+        engine = new AsicSigningEngine(configuration, modificationCount);
+        engines.put(configuration, new SoftReference<>(engine));
+      }
+      return engine;
+    }
+  }
+
+  /**
+   * Creates a signing facade for finalizing a single signature, using the AIA data loader of
+   * {@link #getAiaDataLoader()}.
+   *
+   * @return signing facade
+   */
+  public XadesSigningDssFacade createFacade() {
+    XadesSigningDssFacade facade = new XadesSigningDssFacade();
+    facade.setCustomDataLoader(getAiaDataLoader());
+    return facade;
+  }
+
+  /**
+   * Get the TSP source of the service for finalizing a single signature. The TSP source using the default TSP data
+   * loader is shared; with a custom TSP data loader factory a new TSP source is created.
+   *
+   * @param tspServer TSP service URL
+   * @return TSP source of the service, using the TSP data loader of {@link #getTspDataLoader()}
+   */
+  public OnlineTSPSource getTspSource(String tspServer) {
+    if (sharedTspDataLoader == null) {
+      return createTspSource(tspServer, getTspDataLoader());
+    }
+    return tspSources.computeIfAbsent(tspServer, url -> createTspSource(url, sharedTspDataLoader));
+  }
+
+  /**
+   * Get the TSP data loader for finalizing a single signature: a new data loader created by the TSP data loader
+   * factory of the configuration if there is one, otherwise the default data loader shared by the engine.
+   *
+   * @return TSP data loader
+   */
+  public DataLoader getTspDataLoader() {
+    return customTspDataLoaderFactory != null ? customTspDataLoaderFactory.create() : sharedTspDataLoader;
+  }
+
+  /**
+   * Get the AIA data loader for finalizing a single signature: a new data loader created by the AIA data loader
+   * factory of the configuration if there is one, otherwise the default data loader shared by the engine.
+   *
+   * @return AIA data loader
+   */
+  public DataLoader getAiaDataLoader() {
+    return customAiaDataLoaderFactory != null ? customAiaDataLoaderFactory.create() : sharedAiaDataLoader;
+  }
+
+  private void close() {
+    logger.debug("Closing replaced signing engine");
+    if (sharedTspDataLoader instanceof SkDataLoader) {
+      ((SkDataLoader) sharedTspDataLoader).closeReusedHttpClients();
+    }
+  }
+
+  private static DataLoader createSharedTspDataLoader(Configuration configuration) {
+    DataLoader dataLoader = new TspDataLoaderFactory(configuration, Constant.USER_AGENT_STRING).create();
+    if (dataLoader instanceof SkDataLoader) {
+      ((SkDataLoader) dataLoader).setHttpClientReused(true);
+    }
+    return dataLoader;
+  }
+
+  private static OnlineTSPSource createTspSource(String tspServer, DataLoader tspDataLoader) {
+    logger.debug("Creating TSP source for <{}>", tspServer);
+    OnlineTSPSource tspSource = new OnlineTSPSource(tspServer);
+    tspSource.setDataLoader(tspDataLoader);
+    return tspSource;
+  }
+
+}
@@ -14,7 +14,10 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.CountingInputStream;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.DataFile;
+import org.digidoc4j.DataFileStorage;
 import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.storage.SpoolFile;
+import org.digidoc4j.impl.storage.TieredDataFileStorage;
 import org.digidoc4j.utils.MimeTypeUtil;
 import org.digidoc4j.utils.ZipEntryInputStream;
 import org.slf4j.Logger;
@@ -34,6 +37,7 @@ public class AsicStreamContainerParser extends AsicContainerParser {
 
   private final CountingInputStream countingInputStream;
   private final ZipInputStream zipInputStream;
+  private final DataFileStorage containerDataFileStorage;
   private long totalContainerBytesUnpacked;
 
   /**
@@ -44,6 +48,7 @@ public class AsicStreamContainerParser extends AsicContainerParser {
     super(configuration);
     countingInputStream = new CountingInputStream(inputStream);
     zipInputStream = new ZipInputStream(countingInputStream);
+    containerDataFileStorage = createContainerDataFileStorage(super.getDataFileStorage());
   }
 
   @Override
@@ -82,6 +87,24 @@ public class AsicStreamContainerParser extends AsicContainerParser {
     parseManifestEntry(asicEntry.getContent());
   }
 
+  /**
+   * Data files that are too large to be cached in memory are spooled into a single temporary file shared by all the
+   * data files of the container, unless a custom data file storage is configured.
+   */
+  @Override
+  protected DataFileStorage getDataFileStorage() {
+    return containerDataFileStorage;
+  }
+
+  private static DataFileStorage createContainerDataFileStorage(DataFileStorage dataFileStorage) {
+    if (!(dataFileStorage instanceof TieredDataFileStorage)) {
+      return dataFileStorage;
+    }
+    TieredDataFileStorage tieredDataFileStorage = (TieredDataFileStorage) dataFileStorage;
+    SpoolFile spoolFile = tieredDataFileStorage.createSpoolFile();
+    return (stream, name, mimeType) -> tieredDataFileStorage.store(stream, name, mimeType, spoolFile);
+  }
+
   @Override
   protected InputStream getZipEntryInputStream(ZipEntry entry) {
     return new ZipEntryInputStream(zipInputStream, this::validate);
@@ -0,0 +1,117 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import org.apache.commons.lang3.StringUtils;
+import org.digidoc4j.DataFileCompressionPolicy;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compression policy choosing the compression level of data files by their media type or file name extension.
+ * <p>
+ * A level configured for the media type of a data file takes precedence over a level configured for its extension.
+ * Data files matching neither are compressed with the default level.
+ */
+public class MediaTypeCompressionPolicy implements DataFileCompressionPolicy {
+
+  private static final List<String> COMPRESSED_MEDIA_TYPES = Arrays.asList(
+      "image/jpeg", "image/png", "image/gif", "image/webp", "image/jp2", "image/heic",
+      "video/mp4", "video/mpeg", "video/quicktime", "video/webm", "audio/mpeg", "audio/mp4", "audio/ogg",
+      "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+      "application/x-rar-compressed", "application/x-bzip2", "application/x-xz", "application/zstd",
+      "application/vnd.etsi.asic-e+zip", "application/vnd.etsi.asic-s+zip",
+      "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+      "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+      "application/vnd.openxmlformats-officedocument.presentationml.presentation",
+      "application/vnd.oasis.opendocument.text", "application/vnd.oasis.opendocument.spreadsheet",
+      "application/vnd.oasis.opendocument.presentation", "application/pkcs7-mime", "application/x-cdoc");
+  private static final List<String> COMPRESSED_EXTENSIONS = Arrays.asList(
+      "jpg", "jpeg", "png", "gif", "webp", "jp2", "heic", "mp4", "mpeg", "mpg", "mov", "webm", "mp3", "m4a", "ogg",
+      "zip", "gz", "tgz", "7z", "rar", "bz2", "xz", "zst", "asice", "sce", "asics", "scs", "bdoc", "docx", "xlsx",
+      "pptx", "odt", "ods", "odp", "p7m", "cdoc");
+
+  private final Map<String, Integer> levelsByMediaType = new HashMap<>();
+  private final Map<String, Integer> levelsByExtension = new HashMap<>();
+  private final int defaultLevel;
+
+  /**
+   * @param defaultLevel compression level of data files not matching any configured media type or extension, see
+   *                     {@link DataFileCompressionPolicy#getCompressionLevel(String, String)}
+   */
+  public MediaTypeCompressionPolicy(int defaultLevel) {
+    this.defaultLevel = validateLevel(defaultLevel);
+  }
+
+  /**
+   * Creates a policy that stores commonly used already compressed formats, e.g. JPEG and PNG images, ZIP archives
+   * and office documents, uncompressed, chooses by sampling for data files of unknown media type, and deflates other
+   * data files with {@link DataFileCompressionPolicy#DEFAULT_LEVEL}.
+   *
+   * @return compression policy
+   */
+  public static MediaTypeCompressionPolicy storingCompressedFormats() {
+    MediaTypeCompressionPolicy policy = new MediaTypeCompressionPolicy(DEFAULT_LEVEL);
+    for (String mediaType : COMPRESSED_MEDIA_TYPES) {
+      policy.withMediaType(mediaType, STORED);
+    }
+    for (String extension : COMPRESSED_EXTENSIONS) {
+      policy.withExtension(extension, STORED);
+    }
+    policy.withMediaType("application/octet-stream", SAMPLED);
+    return policy;
+  }
+
+  /**
+   * @param mediaType media type, e.g. "image/jpeg"
+   * @param level     compression level of data files of the media type
+   * @return this policy
+   */
+  public MediaTypeCompressionPolicy withMediaType(String mediaType, int level) {
+    levelsByMediaType.put(normalize(mediaType), validateLevel(level));
+    return this;
+  }
+
+  /**
+   * @param extension file name extension without the dot, e.g. "jpg"
+   * @param level     compression level of data files with the extension
+   * @return this policy
+   */
+  public MediaTypeCompressionPolicy withExtension(String extension, int level) {
+    levelsByExtension.put(normalize(StringUtils.removeStart(extension, ".")), validateLevel(level));
+    return this;
+  }
+
+  @Override
+  public int getCompressionLevel(String fileName, String mediaType) {
+    Integer level = mediaType == null ? null : levelsByMediaType.get(normalize(mediaType));
+    if (level == null && fileName != null && fileName.lastIndexOf('.') >= 0) {
+      level = levelsByExtension.get(normalize(fileName.substring(fileName.lastIndexOf('.') + 1)));
+    }
+    return level == null ? defaultLevel : level;
+  }
+
+  private static String normalize(String value) {
+    return StringUtils.trimToEmpty(StringUtils.substringBefore(value, ";")).toLowerCase(Locale.ROOT);
+  }
+
+  private static int validateLevel(int level) {
+    if (level != SAMPLED && (level < STORED || level > 9)) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    return level;
+  }
+
+}
@@ -0,0 +1,222 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import org.digidoc4j.impl.storage.TempFileRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.util.function.Consumer;
+
+/**
+ * Input stream of a container that is written while the stream is being read, so that only a small buffer of the
+ * container is held in memory at a time.
+ * <p>
+ * The container is written on a thread of its own into a fixed-size buffer that the stream reads from; the writing
+ * thread waits while the buffer is full. Exceptions thrown while writing the container are thrown by the read methods
+ * of the stream, wrapped in an {@link IOException}, so that callers handling only I/O errors do not miss them.
+ * Writing is abandoned if the stream is closed or becomes unreachable before it is read to its end.
+ * <p>
+ * The stream holds its own references to the temporary files the container is written from, so that closing the
+ * container does not delete them while the container is still being written. The references are released when
+ * writing finishes, which happens soon after the stream has been closed.
+ */
+final class PipedContainerInputStream extends InputStream {
+
+  private static final Logger logger = LoggerFactory.getLogger(PipedContainerInputStream.class);
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long READER_CHECK_INTERVAL_IN_MILLIS = 1000;
+
+  private final Pipe pipe = new Pipe(BUFFER_SIZE);
+
+  /**
+   * @param containerWriter writes the container into the given stream
+   */
+  PipedContainerInputStream(Consumer<OutputStream> containerWriter) {
+    this(containerWriter, new TempFileRegistry());
+  }
+
+  /**
+   * @param containerWriter writes the container into the given stream
+   * @param temporaryFiles  temporary files the container is written from, closed when writing finishes
+   */
+  PipedContainerInputStream(Consumer<OutputStream> containerWriter, TempFileRegistry temporaryFiles) {
+    WeakReference<PipedContainerInputStream> reader = new WeakReference<>(this);
+    Pipe writerPipe = pipe;
+    Thread writerThread = new Thread(() -> writerPipe.write(containerWriter, temporaryFiles, reader),
+        "digidoc4j-container-writer");
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    return pipe.read(b, off, len);
+  }
+
+  @Override
+  public int available() {
+    return pipe.available();
+  }
+
+  @Override
+  public void close() {
+    pipe.closeReader();
+  }
+
+  /**
+   * Ring buffer shared by the stream and the writing thread. It does not reference the stream, so that the stream can
+   * become unreachable while the writing thread is waiting.
+   */
+  private static final class Pipe {
+
+    private final byte[] buffer;
+    private int readPosition;
+    private int count;
+    private boolean writerFinished;
+    private boolean readerClosed;
+    private Throwable writerFailure;
+
+    Pipe(int size) {
+      this.buffer = new byte[size];
+    }
+
+    void write(Consumer<OutputStream> containerWriter, TempFileRegistry temporaryFiles, WeakReference<?> reader) {
+      Throwable failure = null;
+      try {
+        containerWriter.accept(new PipeOutputStream(this, reader));
+      } catch (RuntimeException | Error e) {
+        failure = e;
+      } finally {
+        temporaryFiles.close();
+      }
+      finishWriting(failure);
+    }
+
+    synchronized int read(byte[] b, int off, int len) throws IOException {
+      if (readerClosed) {
+        throw new IOException("Stream closed");
+      }
+      while (count == 0 && !writerFinished) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for container to be written");
+        }
+      }
+      if (count == 0) {
+        rethrowWriterFailure();
+        return -1;
+      }
+      int length = Math.min(len, count);
+      int firstPart = Math.min(length, buffer.length - readPosition);
+      System.arraycopy(buffer, readPosition, b, off, firstPart);
+      System.arraycopy(buffer, 0, b, off + firstPart, length - firstPart);
+      readPosition = (readPosition + length) % buffer.length;
+      count -= length;
+      notifyAll();
+      return length;
+    }
+
+    synchronized int available() {
+      return count;
+    }
+
+    synchronized void closeReader() {
+      readerClosed = true;
+      count = 0;
+      notifyAll();
+    }
+
+    synchronized void write(byte[] b, int off, int len, WeakReference<?> reader) throws IOException {
+      while (len > 0) {
+        while (count == buffer.length && !readerClosed) {
+          try {
+            wait(READER_CHECK_INTERVAL_IN_MILLIS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing container");
+          }
+          if (reader.get() == null) {
+            logger.debug("Container stream is no longer referenced, abandoning writing the container");
+            readerClosed = true;
+          }
+        }
+        if (readerClosed) {
+          throw new IOException("Container stream closed before the container was written");
+        }
+        int writePosition = (readPosition + count) % buffer.length;
+        int length = Math.min(len, Math.min(buffer.length - count, buffer.length - writePosition));
+        System.arraycopy(b, off, buffer, writePosition, length);
+        count += length;
+        off += length;
+        len -= length;
+        notifyAll();
+      }
+    }
+
+    private synchronized void finishWriting(Throwable failure) {
+      if (failure != null && !readerClosed) {
+        logger.error("Unable to write container into stream: " + failure.getMessage());
+      }
+      writerFinished = true;
+      writerFailure = failure;
+      notifyAll();
+    }
+
+    private void rethrowWriterFailure() throws IOException {
+      if (writerFailure instanceof Error) {
+        throw (Error) writerFailure;
+      } else if (writerFailure != null) {
+        throw new IOException("Unable to write container: " + writerFailure.getMessage(), writerFailure);
+      }
+    }
+
+  }
+
+  private static final class PipeOutputStream extends OutputStream {
+
+    private final Pipe pipe;
+    private final WeakReference<?> reader;
+
+    PipeOutputStream(Pipe pipe, WeakReference<?> reader) {
+      this.pipe = pipe;
+      this.reader = reader;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      pipe.write(b, off, len, reader);
+    }
+
+  }
+
+}
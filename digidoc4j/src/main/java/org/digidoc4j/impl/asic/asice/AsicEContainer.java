@@ -26,6 +26,7 @@ import org.digidoc4j.impl.asic.AsicSignatureOpener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.InputStream;
 import java.io.OutputStream;
 
@@ -155,6 +156,22 @@ public class AsicEContainer extends AsicContainer {
     super(containerParseResult, configuration, containerType);
   }
 
+  /**
+   * Saves the container into a file. If the container was opened from the same file and only signatures have been
+   * added to it since, the new signatures are appended to the file without rewriting the existing entries.
+   *
+   * @param filePath file path
+   * @return file
+   */
+  @Override
+  public File saveAsFile(String filePath) {
+    File file = new File(filePath);
+    if (appendNewSignaturesToContainerFile(file)) {
+      return file;
+    }
+    return super.saveAsFile(filePath);
+  }
+
   @Override
   public void save(OutputStream out) {
     writeAsicContainer(new AsicContainerCreator(out, getConfiguration()));
@@ -8,6 +8,7 @@ import org.digidoc4j.impl.asic.AsicParseResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.OutputStream;
 import java.io.Serializable;
 
 /**
@@ -26,6 +27,17 @@ public class AsicEContainerBuilder extends ContainerBuilder implements Serializa
     }
   }
 
+  @Override
+  public Container buildStreaming(OutputStream outputStream) {
+    if (shouldOpenContainerFromFile() || shouldOpenContainerFromStream()) {
+      return super.buildStreaming(outputStream);
+    }
+    Container container = new StreamingAsicEContainer(
+        configuration == null ? Configuration.getInstance() : configuration, outputStream);
+    addDataFilesToContainer(container);
+    return container;
+  }
+
   @Override
   protected Container openContainerFromFile() {
     return overrideContainerIfNeeded(super.openContainerFromFile());
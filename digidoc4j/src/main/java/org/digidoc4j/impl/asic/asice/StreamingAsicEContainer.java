@@ -0,0 +1,236 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.asice;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Constant;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.DigestDataFile;
+import org.digidoc4j.Signature;
+import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.exceptions.InvalidDataFileException;
+import org.digidoc4j.exceptions.NotSupportedException;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.asic.AsicContainerCreator;
+import org.digidoc4j.utils.DigestCalculatingInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * ASiC-E container that is written into a stream while it is being built.
+ * <p>
+ * Every data file is written into the stream as soon as it is added and only its digest, calculated while writing,
+ * is kept in the container, so the contents of the data files are read only once and never held in memory or in
+ * temporary files. The data files of the container are {@link DigestDataFile}s whose digests are calculated with
+ * the data file digest algorithm of the configuration, which signatures of the container must use as well. The
+ * manifest, the signatures and the central directory are written when the container is closed.
+ * <p>
+ * Data files cannot be removed from the container and the container cannot be saved again; the stream is not closed
+ * when the container is closed. If writing a data file fails, the stream holds an incomplete entry, so no more data
+ * files or signatures can be added and closing the container throws an exception instead of finishing it.
+ */
+public class StreamingAsicEContainer extends AsicEContainer {
+
+  private static final Logger logger = LoggerFactory.getLogger(StreamingAsicEContainer.class);
+
+  private final transient AsicContainerCreator zipCreator;
+  private final DigestAlgorithm dataFileDigestAlgorithm;
+  private boolean finished;
+  private boolean failed;
+
+  /**
+   * Writes the mimetype of the container into the stream.
+   *
+   * @param configuration configuration
+   * @param outputStream  stream to write the container into
+   */
+  public StreamingAsicEContainer(Configuration configuration, OutputStream outputStream) {
+    super(configuration);
+    DigestAlgorithm digestAlgorithm = configuration.getDataFileDigestAlgorithm();
+    this.dataFileDigestAlgorithm = digestAlgorithm != null ? digestAlgorithm : Constant.Default.DATAFILE_DIGEST_ALGORITHM;
+    this.zipCreator = new AsicContainerCreator(outputStream, configuration);
+    zipCreator.setZipComment(createUserAgent());
+    zipCreator.writeAsiceMimeType(getType());
+  }
+
+  @Override
+  public DataFile addDataFile(String path, String mimeType) {
+    return addDataFile(new File(path), mimeType);
+  }
+
+  @Override
+  public DataFile addDataFile(File file, String mimeType) {
+    String name = file.getName();
+    verifyAllowedToWriteDataFile(name);
+    InputStream inputStream;
+    try {
+      inputStream = new FileInputStream(file);
+    } catch (FileNotFoundException e) {
+      logger.error(e.getMessage());
+      throw new InvalidDataFileException(e);
+    }
+    try {
+      return writeDataFile(inputStream, name, mimeType);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+  @Override
+  public void addDataFile(DataFile dataFile) {
+    String name = FilenameUtils.getName(dataFile.getName());
+    verifyAllowedToWriteDataFile(name);
+    InputStream inputStream = dataFile.getStream();
+    try {
+      writeDataFile(inputStream, name, dataFile.getMediaType());
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
+
+  /**
+   * Writes the data file into the stream of the container. The input stream is read to its end and closed.
+   *
+   * @param inputStream contents of the data file
+   * @param fileName    data file name in the container
+   * @param mimeType    MIME type of the data file
+   * @return data file holding the digest of the contents
+   */
+  @Override
+  public DataFile addDataFile(InputStream inputStream, String fileName, String mimeType) {
+    String name = FilenameUtils.getName(fileName);
+    verifyAllowedToWriteDataFile(name);
+    return writeDataFile(inputStream, name, mimeType);
+  }
+
+  private DataFile writeDataFile(InputStream inputStream, String name, String mimeType) {
+    DigestCalculatingInputStream digestStream = new DigestCalculatingInputStream(inputStream,
+        Collections.singleton(dataFileDigestAlgorithm.getDssDigestAlgorithm()));
+    PushbackInputStream stream = new PushbackInputStream(digestStream);
+    verifyNotEmpty(stream);
+    try {
+      zipCreator.writeDataFile(name, mimeType, stream);
+    } catch (RuntimeException | Error e) {
+      failed = true;
+      throw e;
+    }
+    byte[] digest = digestStream.getDigests().get(dataFileDigestAlgorithm.getDssDigestAlgorithm());
+    DataFile dataFile = new DigestDataFile(name, dataFileDigestAlgorithm, digest, mimeType);
+    super.addDataFiles(Collections.singletonList(dataFile));
+    return dataFile;
+  }
+
+  @Override
+  public void addDataFiles(Collection<DataFile> dataFiles) {
+    for (DataFile dataFile : dataFiles) {
+      addDataFile(dataFile);
+    }
+  }
+
+  @Override
+  public void removeDataFile(DataFile file) {
+    throw new NotSupportedException("Data files cannot be removed from a container that is being written");
+  }
+
+  @Override
+  public void addSignature(Signature signature) {
+    verifyNotFinished();
+    super.addSignature(signature);
+  }
+
+  @Override
+  public File saveAsFile(String filePath) {
+    throw new NotSupportedException("Container is written into the stream it was built with when it is closed");
+  }
+
+  @Override
+  public InputStream saveAsStream() {
+    throw new NotSupportedException("Container is written into the stream it was built with when it is closed");
+  }
+
+  @Override
+  public void save(OutputStream out) {
+    throw new NotSupportedException("Container is written into the stream it was built with when it is closed");
+  }
+
+  /**
+   * Writes the manifest, the signatures and the central directory of the container into the stream, unless they
+   * have already been written.
+   */
+  @Override
+  public void close() {
+    try {
+      finish();
+    } finally {
+      super.close();
+    }
+  }
+
+  private void finish() {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    if (failed) {
+      throw new TechnicalException("Container is incomplete, writing a data file into it failed");
+    }
+    logger.debug("Finishing writing container with {} data files", getDataFiles().size());
+    zipCreator.writeManifest(getDataFiles(), getType());
+    zipCreator.writeSignatures(getSignatures(), 0);
+    zipCreator.writeContainerComment(createUserAgent());
+    zipCreator.finalizeZipFile();
+  }
+
+  private void verifyAllowedToWriteDataFile(String name) {
+    verifyNotFinished();
+    verifyIfAllowedToAddDataFile(name);
+  }
+
+  private void verifyNotFinished() {
+    if (finished) {
+      throw new DigiDoc4JException("Container has already been written");
+    }
+    if (failed) {
+      throw new TechnicalException("Container is incomplete, writing a data file into it failed");
+    }
+  }
+
+  private static void verifyNotEmpty(PushbackInputStream stream) {
+    try {
+      int firstByte = stream.read();
+      if (firstByte >= 0) {
+        stream.unread(firstByte);
+        return;
+      }
+      stream.close();
+    } catch (IOException e) {
+      logger.error(e.getMessage());
+      throw new TechnicalException("Unable to read data file", e);
+    }
+    String errorMessage = "Datafiles cannot be empty";
+    logger.error(errorMessage);
+    throw new InvalidDataFileException(errorMessage);
+  }
+
+}
@@ -3,12 +3,14 @@ package org.digidoc4j.impl.asic.asice.bdoc;
 import org.digidoc4j.Configuration;
 import org.digidoc4j.Container;
 import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.exceptions.NotSupportedException;
 import org.digidoc4j.impl.asic.AsicContainer;
 import org.digidoc4j.impl.asic.AsicParseResult;
 import org.digidoc4j.impl.asic.asice.AsicEContainerBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.OutputStream;
 import java.io.Serializable;
 
 /**
@@ -27,6 +29,11 @@ public class BDocContainerBuilder extends AsicEContainerBuilder implements Seria
     }
   }
 
+  @Override
+  public Container buildStreaming(OutputStream outputStream) {
+    throw new NotSupportedException("Streaming is supported for new ASiC-E containers only");
+  }
+
   @Override
   public ContainerBuilder usingTempDirectory(String temporaryDirectoryPath) {
     logger.warn("BDoc containers don't support setting temp directories");
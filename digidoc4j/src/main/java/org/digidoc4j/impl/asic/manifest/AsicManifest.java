@@ -10,76 +10,59 @@
 
 package org.digidoc4j.impl.asic.manifest;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
+import org.apache.commons.lang3.StringUtils;
 import org.digidoc4j.Constant;
 import org.digidoc4j.DataFile;
 import org.digidoc4j.exceptions.TechnicalException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.ls.DOMImplementationLS;
-import org.w3c.dom.ls.LSOutput;
-import org.w3c.dom.ls.LSSerializer;
 
 import eu.europa.esig.dss.model.MimeType;
 
 /**
  * Represents the META-INF/manifest.xml subdocument
+ * <p>
+ * The manifest is written as a stream, entry by entry, without building a DOM tree. The output is identical to the
+ * serialization of the corresponding DOM by the JDK {@link org.w3c.dom.ls.LSSerializer}: attributes in alphabetical
+ * order, quotes, ampersands, angle brackets and control characters as well as characters outside the Basic
+ * Multilingual Plane written as references.
  */
 public class AsicManifest {
 
   private static final Logger logger = LoggerFactory.getLogger(AsicManifest.class);
   public static final String XML_PATH = "META-INF/manifest.xml";
-  private Document dom;
-  private Element rootElement;
+  private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+  private static final String NAMESPACE = "urn:oasis:names:tc:opendocument:xmlns:manifest:1.0";
+  private final String containerMediaType;
+  private final List<ManifestEntry> entries = new ArrayList<>();
 
   /**
    * creates object to create manifest files
    */
   public AsicManifest() {
-    generateAsicManifest(null);
+    this(null);
   }
 
   /**
    * @param containerType type
    */
   public AsicManifest(String containerType) {
-    generateAsicManifest(containerType);
-  }
-
-  private void generateAsicManifest(String containerType) {
     logger.debug("Creating new manifest");
-    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-    try {
-      DocumentBuilder db = dbf.newDocumentBuilder();
-
-      dom = db.newDocument();
-      rootElement = dom.createElement("manifest:manifest");
-      rootElement.setAttribute("xmlns:manifest", "urn:oasis:names:tc:opendocument:xmlns:manifest:1.0");
-
-      Element firstChild = dom.createElement("manifest:file-entry");
-      firstChild.setAttribute("manifest:full-path", "/");
-      if (Constant.ASICS_CONTAINER_TYPE.equals(containerType)){
-        firstChild.setAttribute("manifest:media-type", MimeType.ASICS.getMimeTypeString());
-      } else{
-        firstChild.setAttribute("manifest:media-type", MimeType.ASICE.getMimeTypeString());
-      }
-
-      rootElement.appendChild(firstChild);
-
-      dom.appendChild(rootElement);
-
-    } catch (ParserConfigurationException e) {
-      logger.error(e.getMessage());
-      throw new TechnicalException("Error creating manifest", e);
+    if (Constant.ASICS_CONTAINER_TYPE.equals(containerType)) {
+      containerMediaType = MimeType.ASICS.getMimeTypeString();
+    } else {
+      containerMediaType = MimeType.ASICE.getMimeTypeString();
     }
   }
 
@@ -91,11 +74,7 @@ public class AsicManifest {
   public void addFileEntry(Collection<DataFile> dataFiles) {
     for (DataFile dataFile : dataFiles) {
       logger.debug("Adding " + dataFile.getName() + " to manifest");
-      Element childElement;
-      childElement = dom.createElement("manifest:file-entry");
-      childElement.setAttribute("manifest:media-type", dataFile.getMediaType());
-      childElement.setAttribute("manifest:full-path", dataFile.getName());
-      rootElement.appendChild(childElement);
+      entries.add(new ManifestEntry(dataFile.getName(), dataFile.getMediaType()));
     }
   }
 
@@ -105,12 +84,68 @@ public class AsicManifest {
     return outputStream.toByteArray();
   }
 
+  /**
+   * Writes the manifest into the stream. The stream is flushed, but not closed.
+   *
+   * @param outputStream stream to write to
+   */
   public void writeTo(OutputStream outputStream) {
-    DOMImplementationLS implementation = (DOMImplementationLS) dom.getImplementation();
-    LSOutput lsOutput = implementation.createLSOutput();
-    lsOutput.setByteStream(outputStream);
-    LSSerializer writer = implementation.createLSSerializer();
-    writer.write(dom, lsOutput);
+    try {
+      Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+      writer.write(XML_DECLARATION);
+      writer.write("<manifest:manifest xmlns:manifest=\"" + NAMESPACE + "\">");
+      writeFileEntry(writer, "/", containerMediaType);
+      for (ManifestEntry entry : entries) {
+        writeFileEntry(writer, entry.getFileName(), entry.getMimeType());
+      }
+      writer.write("</manifest:manifest>");
+      writer.flush();
+    } catch (IOException e) {
+      logger.error(e.getMessage());
+      throw new TechnicalException("Error writing manifest", e);
+    }
+  }
+
+  private static void writeFileEntry(Writer writer, String fullPath, String mediaType) throws IOException {
+    writer.write("<manifest:file-entry");
+    writeAttribute(writer, "manifest:full-path", fullPath);
+    writeAttribute(writer, "manifest:media-type", mediaType);
+    writer.write("/>");
+  }
+
+  private static void writeAttribute(Writer writer, String name, String value) throws IOException {
+    writer.write(' ');
+    writer.write(name);
+    writer.write("=\"");
+    String text = StringUtils.defaultString(value);
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '&') {
+        writer.write("&amp;");
+      } else if (c == '<') {
+        writer.write("&lt;");
+      } else if (c == '>') {
+        writer.write("&gt;");
+      } else if (c == '"') {
+        writer.write("&quot;");
+      } else if (c < 0x20 || Character.isLowSurrogate(c)) {
+        writeCharacterReference(writer, c);
+      } else if (Character.isHighSurrogate(c)) {
+        if (i + 1 == text.length() || !Character.isLowSurrogate(text.charAt(i + 1))) {
+          throw new TechnicalException("Error writing manifest: invalid UTF-16 surrogate in " + name);
+        }
+        writeCharacterReference(writer, Character.toCodePoint(c, text.charAt(++i)));
+      } else {
+        writer.write(c);
+      }
+    }
+    writer.write('"');
+  }
+
+  private static void writeCharacterReference(Writer writer, int codePoint) throws IOException {
+    writer.write("&#");
+    writer.write(Integer.toString(codePoint));
+    writer.write(';');
   }
 
 }
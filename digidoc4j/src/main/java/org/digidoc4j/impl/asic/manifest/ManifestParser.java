@@ -10,25 +10,37 @@
 
 package org.digidoc4j.impl.asic.manifest;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.input.BOMInputStream;
 import org.digidoc4j.exceptions.DuplicateDataFileException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
 
 import eu.europa.esig.dss.model.DSSDocument;
-import eu.europa.esig.dss.DomUtils;
+import eu.europa.esig.dss.model.DSSException;
 
+/**
+ * Reads the file entries of a META-INF/manifest.xml subdocument.
+ * <p>
+ * The manifest is read as a stream without building a DOM tree. Only the direct children of the root element named
+ * file-entry are read; DTDs and external entities are not supported.
+ */
 public class ManifestParser implements Serializable {
 
   private static final Logger logger = LoggerFactory.getLogger(ManifestParser.class);
   private static final String NAMESPACE = "urn:oasis:names:tc:opendocument:xmlns:manifest:1.0";
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
   private DSSDocument manifestFile;
   private Map<String, ManifestEntry> entries;
 
@@ -40,6 +52,11 @@ public class ManifestParser implements Serializable {
     return manifestFile != null;
   }
 
+  /**
+   * @return manifest entries of the data files by their paths
+   * @throws DuplicateDataFileException if the manifest contains the same path more than once
+   * @throws DSSException               if the manifest is not well-formed XML
+   */
   public Map<String, ManifestEntry> getManifestFileItems() {
     if (!containsManifestFile()) {
       return Collections.emptyMap();
@@ -50,31 +67,49 @@ public class ManifestParser implements Serializable {
   }
 
   private void loadFileEntriesFromManifest() {
-    Element root = loadManifestXml();
-    Node firstChild = root.getFirstChild();
-    while (firstChild != null) {
-      String nodeName = firstChild.getLocalName();
-      if ("file-entry".equals(nodeName)) {
-        addFileEntry(firstChild);
-      }
-      firstChild = firstChild.getNextSibling();
+    XMLStreamReader reader = null;
+    try (InputStream stream = new BOMInputStream(manifestFile.openStream())) {
+      reader = XML_INPUT_FACTORY.createXMLStreamReader(stream);
+      readFileEntries(reader);
+    } catch (XMLStreamException | IOException e) {
+      throw new DSSException(String.format("Unable to parse content (XML expected) : %s", e.getMessage()), e);
+    } finally {
+      close(reader);
     }
   }
 
-  private Element loadManifestXml() {
-    return DomUtils.buildDOM(manifestFile).getDocumentElement();
+  private void readFileEntries(XMLStreamReader reader) throws XMLStreamException {
+    int depth = 0;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+        if (depth == 2 && "file-entry".equals(reader.getLocalName())) {
+          addFileEntry(reader);
+        }
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
   }
 
-  private void addFileEntry(Node firstChild) {
-    NamedNodeMap attributes = firstChild.getAttributes();
-    String filePath = attributes.getNamedItemNS(NAMESPACE, "full-path").getTextContent();
-    String mimeType = attributes.getNamedItemNS(NAMESPACE, "media-type").getTextContent();
+  private void addFileEntry(XMLStreamReader reader) {
+    String filePath = getAttribute(reader, "full-path");
+    String mimeType = getAttribute(reader, "media-type");
     if (!"/".equals(filePath)) {
       validateNotDuplicateFile(filePath);
       entries.put(filePath, new ManifestEntry(filePath, mimeType));
     }
   }
 
+  private static String getAttribute(XMLStreamReader reader, String localName) {
+    String value = reader.getAttributeValue(NAMESPACE, localName);
+    if (value == null) {
+      throw new DSSException("Manifest file entry is missing attribute " + localName);
+    }
+    return value;
+  }
+
   private void validateNotDuplicateFile(String filePath) {
     if (entries.containsKey(filePath)) {
       DuplicateDataFileException digiDoc4JException = new DuplicateDataFileException("duplicate entry in manifest file: " + filePath);
@@ -82,4 +117,23 @@ public class ManifestParser implements Serializable {
       throw digiDoc4JException;
     }
   }
+
+  private static void close(XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        logger.debug("Failed to close manifest reader: " + e.getMessage());
+      }
+    }
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    return factory;
+  }
+
 }
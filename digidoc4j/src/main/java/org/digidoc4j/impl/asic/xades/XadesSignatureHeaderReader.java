@@ -0,0 +1,195 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.xades;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.spi.DSSUtils;
+import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.digidoc4j.ContainerMetadata.SignatureMetadata;
+import org.digidoc4j.X509Cert;
+import org.digidoc4j.exceptions.InvalidSignatureException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reads the id, the signing certificate and the claimed signing time of the first signature in a XAdES signatures
+ * document without building a DOM tree.
+ * <p>
+ * The document is read as a stream only up to the signing certificate reference, which follows the signing time in
+ * the signed properties of a signature, so the unsigned properties holding the revocation and time-stamp data are
+ * skipped entirely. The signing certificate is the certificate of the key info whose digest matches a certificate
+ * digest of the signing certificate reference; the key info may also hold the issuers of the signing certificate.
+ * Nothing else is validated.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class XadesSignatureHeaderReader {
+
+  private static final Logger logger = LoggerFactory.getLogger(XadesSignatureHeaderReader.class);
+  private static final String XMLDSIG_NAMESPACE = "http://www.w3.org/2000/09/xmldsig#";
+  private static final String XADES_NAMESPACE_PREFIX = "http://uri.etsi.org/01903/";
+  private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+  private final DatatypeFactory datatypeFactory = createDatatypeFactory();
+  private String id;
+  private final List<byte[]> keyInfoCertificates = new ArrayList<>();
+  private X509Cert signingCertificate;
+  private Date claimedSigningTime;
+  private DigestAlgorithm certDigestAlgorithm;
+
+  /**
+   * @param signaturesDocument stream of a XAdES signatures document
+   * @return metadata of the first signature in the document; the signing certificate is <code>null</code> if no
+   * certificate of the key info is referenced by the signing certificate reference
+   * @throws InvalidSignatureException if the document is not a well-formed XAdES signatures document
+   */
+  public SignatureMetadata read(InputStream signaturesDocument) {
+    id = null;
+    keyInfoCertificates.clear();
+    signingCertificate = null;
+    claimedSigningTime = null;
+    XMLStreamReader reader = null;
+    try {
+      reader = XML_INPUT_FACTORY.createXMLStreamReader(new BOMInputStream(signaturesDocument));
+      readSignatureHeader(reader);
+    } catch (XMLStreamException | IllegalArgumentException | DSSException e) {
+      logger.error("Failed to read xades signature: " + e.getMessage());
+      throw new InvalidSignatureException();
+    } finally {
+      close(reader);
+    }
+    return new SignatureMetadata(id, signingCertificate, claimedSigningTime);
+  }
+
+  private void readSignatureHeader(XMLStreamReader reader) throws XMLStreamException {
+    boolean signatureFound = false;
+    boolean inKeyInfo = false;
+    boolean inCertDigest = false;
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        if (isXmlDsigElement(reader, "KeyInfo")) {
+          inKeyInfo = false;
+        } else if (isXadesElement(reader, "CertDigest")) {
+          inCertDigest = false;
+        } else if (isXadesElement(reader, "SigningCertificate") || isXadesElement(reader, "SigningCertificateV2")
+            || isXmlDsigElement(reader, "Signature")) {
+          // The signing time, when present, precedes the signing certificate in the signed properties
+          return;
+        }
+        continue;
+      }
+      if (event != XMLStreamConstants.START_ELEMENT) {
+        continue;
+      }
+      if (!signatureFound) {
+        if (isXmlDsigElement(reader, "Signature")) {
+          signatureFound = true;
+          id = reader.getAttributeValue(null, "Id");
+        }
+      } else if (isXmlDsigElement(reader, "KeyInfo")) {
+        inKeyInfo = true;
+      } else if (inKeyInfo && isXmlDsigElement(reader, "X509Certificate")) {
+        keyInfoCertificates.add(decodeBase64(reader.getElementText()));
+      } else if (isXadesElement(reader, "SigningTime")) {
+        claimedSigningTime = readDateTime(reader.getElementText());
+      } else if (isXadesElement(reader, "CertDigest")) {
+        inCertDigest = true;
+        certDigestAlgorithm = null;
+      } else if (inCertDigest && isXmlDsigElement(reader, "DigestMethod")) {
+        certDigestAlgorithm = readDigestAlgorithm(reader.getAttributeValue(null, "Algorithm"));
+      } else if (inCertDigest && signingCertificate == null && isXmlDsigElement(reader, "DigestValue")) {
+        signingCertificate = findKeyInfoCertificate(certDigestAlgorithm, decodeBase64(reader.getElementText()));
+      }
+    }
+  }
+
+  private X509Cert findKeyInfoCertificate(DigestAlgorithm digestAlgorithm, byte[] digest) {
+    if (digestAlgorithm == null) {
+      return null;
+    }
+    for (byte[] certificate : keyInfoCertificates) {
+      if (Arrays.equals(digest, DSSUtils.digest(digestAlgorithm, certificate))) {
+        return new X509Cert(DSSUtils.loadCertificate(certificate).getCertificate());
+      }
+    }
+    return null;
+  }
+
+  private static DigestAlgorithm readDigestAlgorithm(String algorithmUri) {
+    try {
+      return DigestAlgorithm.forXML(algorithmUri);
+    } catch (DSSException | IllegalArgumentException e) {
+      logger.debug("Unsupported certificate digest algorithm <{}>", algorithmUri);
+      return null;
+    }
+  }
+
+  private static byte[] decodeBase64(String base64) {
+    return Base64.getMimeDecoder().decode(StringUtils.trim(base64));
+  }
+
+  private Date readDateTime(String dateTime) {
+    return datatypeFactory.newXMLGregorianCalendar(StringUtils.trim(dateTime)).toGregorianCalendar().getTime();
+  }
+
+  private static boolean isXmlDsigElement(XMLStreamReader reader, String localName) {
+    return XMLDSIG_NAMESPACE.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+  }
+
+  private static boolean isXadesElement(XMLStreamReader reader, String localName) {
+    return StringUtils.startsWith(reader.getNamespaceURI(), XADES_NAMESPACE_PREFIX)
+        && localName.equals(reader.getLocalName());
+  }
+
+  private static XMLInputFactory createXmlInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    return factory;
+  }
+
+  private static DatatypeFactory createDatatypeFactory() {
+    try {
+      return DatatypeFactory.newInstance();
+    } catch (DatatypeConfigurationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void close(XMLStreamReader reader) {
+    if (reader == null) {
+      return;
+    }
+    try {
+      reader.close();
+    } catch (XMLStreamException e) {
+      logger.debug("Unable to close xml stream reader: " + e.getMessage());
+    }
+  }
+
+}
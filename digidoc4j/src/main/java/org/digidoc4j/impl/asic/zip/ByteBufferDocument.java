@@ -0,0 +1,142 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+package org.digidoc4j.impl.asic.zip;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.CommonDocument;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.model.MimeType;
+import eu.europa.esig.dss.spi.DSSUtils;
+import eu.europa.esig.dss.utils.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.security.MessageDigest;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * @see eu.europa.esig.dss.model.DSSDocument implementation backed by a {@link ByteBuffer}, typically a slice of a
+ * memory mapped ZIP file holding an uncompressed (STORED) entry. The contents are never copied into the heap when the
+ * document is read or digested.
+ * <p>
+ * When serialized, the document is replaced by an {@link InMemoryDocument} holding a copy of its contents.
+ * <p>
+ * If the expected CRC-32 of the contents is known, it is verified the first time the contents are accessed.
+ */
+public class ByteBufferDocument extends CommonDocument {
+
+  private static final Logger logger = LoggerFactory.getLogger(ByteBufferDocument.class);
+
+  private static final long CRC_UNKNOWN = -1L;
+
+  private final transient ByteBuffer buffer;
+  private final long expectedCrc;
+  private volatile boolean crcVerified;
+
+  /**
+   * @param buffer   contents of the document, from the current position to the limit of the buffer
+   * @param name     document name
+   * @param mimeType mime type
+   */
+  public ByteBufferDocument(ByteBuffer buffer, String name, MimeType mimeType) {
+    this(buffer, name, mimeType, CRC_UNKNOWN);
+  }
+
+  /**
+   * @param buffer      contents of the document, from the current position to the limit of the buffer
+   * @param name        document name
+   * @param mimeType    mime type
+   * @param expectedCrc expected CRC-32 of the contents, verified on first access
+   */
+  public ByteBufferDocument(ByteBuffer buffer, String name, MimeType mimeType, long expectedCrc) {
+    logger.debug("Document name: " + name + ", mime type: " + mimeType);
+    this.buffer = buffer.slice().asReadOnlyBuffer();
+    this.expectedCrc = expectedCrc;
+    this.crcVerified = expectedCrc == CRC_UNKNOWN;
+    super.name = name;
+    super.mimeType = mimeType;
+  }
+
+  @Override
+  public InputStream openStream() throws DSSException {
+    verifyCrcUnchecked();
+    return new ByteBufferInputStream(buffer);
+  }
+
+  @Override
+  public void writeTo(OutputStream stream) throws IOException {
+    verifyCrc();
+    Channels.newChannel(stream).write(buffer.duplicate());
+  }
+
+  @Override
+  public String getDigest(DigestAlgorithm digestAlgorithm) {
+    String base64EncodeDigest = base64EncodeDigestMap.get(digestAlgorithm);
+    if (base64EncodeDigest == null) {
+      verifyCrcUnchecked();
+      MessageDigest messageDigest = DSSUtils.getMessageDigest(digestAlgorithm);
+      messageDigest.update(buffer.duplicate());
+      base64EncodeDigest = Utils.toBase64(messageDigest.digest());
+      base64EncodeDigestMap.put(digestAlgorithm, base64EncodeDigest);
+    }
+    return base64EncodeDigest;
+  }
+
+  /**
+   * @return read-only view of the document contents
+   */
+  public ByteBuffer getBuffer() {
+    verifyCrcUnchecked();
+    return buffer.duplicate();
+  }
+
+  /**
+   * @return size of the document contents in bytes
+   */
+  public long getSize() {
+    return buffer.capacity();
+  }
+
+  private Object writeReplace() throws ObjectStreamException {
+    verifyCrcUnchecked();
+    byte[] bytes = new byte[buffer.capacity()];
+    buffer.duplicate().get(bytes);
+    return new InMemoryDocument(bytes, name, mimeType);
+  }
+
+  private void verifyCrcUnchecked() {
+    try {
+      verifyCrc();
+    } catch (ZipException e) {
+      throw new DSSException(e);
+    }
+  }
+
+  private void verifyCrc() throws ZipException {
+    if (crcVerified) {
+      return;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(buffer.duplicate());
+    if (crc.getValue() != expectedCrc) {
+      throw new ZipException("Invalid CRC-32 for entry '" + name + "'");
+    }
+    crcVerified = true;
+  }
+
+}
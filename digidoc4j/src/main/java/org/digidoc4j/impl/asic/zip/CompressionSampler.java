@@ -0,0 +1,63 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Estimates whether contents are worth deflating by compressing a sample from their beginning with the fastest
+ * compression level.
+ */
+public final class CompressionSampler {
+
+  /**
+   * Size in bytes of the sample compressed.
+   */
+  public static final int SAMPLE_SIZE = 64 * 1024;
+
+  private static final int MIN_SAMPLE_SIZE = 512;
+  private static final double MAX_COMPRESSED_RATIO = 0.9;
+
+  private CompressionSampler() {
+  }
+
+  /**
+   * Reads up to {@link #SAMPLE_SIZE} bytes from the given stream and compresses them. The stream is not closed.
+   *
+   * @param stream contents
+   * @return {@code true} if the sample shrinks by at least 10% when compressed, or is too small to tell
+   * @throws IOException if reading the stream fails
+   */
+  public static boolean isCompressible(InputStream stream) throws IOException {
+    byte[] sample = new byte[SAMPLE_SIZE];
+    int length = IOUtils.read(stream, sample);
+    if (length < MIN_SAMPLE_SIZE) {
+      return true;
+    }
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try {
+      deflater.setInput(sample, 0, length);
+      deflater.finish();
+      byte[] buffer = new byte[8192];
+      while (!deflater.finished()) {
+        deflater.deflate(buffer);
+      }
+      return deflater.getBytesWritten() <= length * MAX_COMPRESSED_RATIO;
+    } finally {
+      deflater.end();
+    }
+  }
+
+}
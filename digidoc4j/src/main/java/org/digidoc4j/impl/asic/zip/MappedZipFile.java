@@ -0,0 +1,133 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+package org.digidoc4j.impl.asic.zip;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * ZIP file that is memory mapped in its entirety. The central directory and the entries are read directly from the
+ * mapping, so the file is accessed without read system calls and without copying its contents into the heap.
+ * <p>
+ * The mapping stays valid for as long as any of the buffers obtained from this file is reachable, even after the file
+ * channel has been closed, and is released only when all of them have been garbage collected. Until then the file
+ * cannot be deleted or replaced on Windows. The ZIP file must not be modified or truncated while the buffers are in
+ * use; replacing it with another file (e.g. by renaming) is safe on other platforms.
+ * Only files of up to {@link #MAX_MAPPED_FILE_SIZE} bytes can be mapped.
+ */
+public final class MappedZipFile {
+
+  /**
+   * The maximum size of a ZIP file that can be mapped by this class.
+   */
+  public static final long MAX_MAPPED_FILE_SIZE = Integer.MAX_VALUE;
+
+  private static final Logger logger = LoggerFactory.getLogger(MappedZipFile.class);
+
+  private final File file;
+  private final ByteBuffer mapping;
+  private final ZipCentralDirectory centralDirectory;
+
+  private MappedZipFile(File file, ByteBuffer mapping, ZipCentralDirectory centralDirectory) {
+    this.file = file;
+    this.mapping = mapping;
+    this.centralDirectory = centralDirectory;
+  }
+
+  /**
+   * Maps the given ZIP file into memory and reads its central directory.
+   *
+   * @param file ZIP file
+   * @return mapped ZIP file
+   * @throws IOException if the file cannot be mapped or is not a valid ZIP file
+   */
+  public static MappedZipFile open(File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > MAX_MAPPED_FILE_SIZE) {
+        throw new ZipException("ZIP file " + file + " is too large to be memory mapped: " + size + " bytes");
+      }
+      logger.debug("Mapping ZIP file {} of {} bytes", file, size);
+      MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      mapping.order(ByteOrder.LITTLE_ENDIAN);
+      return new MappedZipFile(file, mapping, ZipCentralDirectory.read(mapping));
+    }
+  }
+
+  /**
+   * @return mapped ZIP file
+   */
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * @return central directory of the ZIP file
+   */
+  public ZipCentralDirectory getCentralDirectory() {
+    return centralDirectory;
+  }
+
+  /**
+   * Returns the raw (compressed) contents of the entry, as stored in the ZIP file.
+   *
+   * @param entry central directory entry of this file
+   * @return read-only view of the raw entry contents
+   * @throws ZipException if the entry does not point to valid data of this file
+   */
+  public ByteBuffer getRawEntryData(ZipCentralDirectoryEntry entry) throws ZipException {
+    ByteBuffer localFileHeader = ZipCentralDirectory.slice(mapping, entry.getLocalHeaderOffset(),
+        Math.min(ZipCentralDirectoryEntry.LOCAL_FILE_HEADER_LENGTH, mapping.limit() - entry.getLocalHeaderOffset()));
+    long dataOffset = entry.findDataOffset(localFileHeader);
+    return ZipCentralDirectory.slice(mapping, dataOffset, entry.getCompressedSize()).asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the contents of an uncompressed (STORED) entry without copying them.
+   *
+   * @param entry central directory entry of this file using the {@link ZipEntry#STORED} compression method
+   * @return read-only view of the entry contents
+   * @throws ZipException if the entry is not stored uncompressed or does not point to valid data of this file
+   */
+  public ByteBuffer getStoredEntryData(ZipCentralDirectoryEntry entry) throws ZipException {
+    if (entry.getMethod() != ZipEntry.STORED || entry.getCompressedSize() != entry.getSize()) {
+      throw new ZipException("Entry '" + entry.getName() + "' is not stored uncompressed");
+    }
+    return getRawEntryData(entry);
+  }
+
+  /**
+   * Opens a stream of the uncompressed entry contents. The stream verifies the size and the CRC-32 of the contents
+   * against the central directory.
+   *
+   * @param entry central directory entry of this file
+   * @return stream of the uncompressed entry contents
+   * @throws ZipException if the compression method of the entry is not supported or the entry does not point to
+   *                      valid data of this file
+   */
+  public InputStream getInputStream(ZipCentralDirectoryEntry entry) throws ZipException {
+    if (!entry.isSupportedMethod()) {
+      throw new ZipException("Unsupported compression method " + entry.getMethod() + " for " + entry.getName());
+    }
+    return ZipEntryVerifyingInputStream.forCompressedStream(new ByteBufferInputStream(getRawEntryData(entry)), entry);
+  }
+
+}
@@ -0,0 +1,239 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Compresses large contents into a raw DEFLATE stream on multiple threads, in the same way as pigz does.
+ * <p>
+ * The contents are split into blocks which are compressed independently on the given executor. Every block except the
+ * last one ends with a sync flush, so that the compressed blocks can simply be concatenated into a single standard
+ * DEFLATE stream. The last 32 KiB of each block are used as the preset dictionary of the next block, so that the
+ * compression ratio is almost the same as when compressing the contents as a whole.
+ * <p>
+ * Whether contents are compressed on multiple threads is decided up front from their size, see
+ * {@link #isUsedFor(long)}; contents smaller than the threshold or of unknown size are expected to be streamed through
+ * a {@link DeflaterOutputStream} instead, so that they are never buffered. The calling thread also compresses every
+ * block that the executor has not yet started, so compression completes even if the executor is busy.
+ *
+ * @see ZipWriter#setParallelDeflater(ParallelDeflater)
+ */
+public final class ParallelDeflater {
+
+  /**
+   * Default size in bytes of the blocks compressed independently.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+  private static final Logger logger = LoggerFactory.getLogger(ParallelDeflater.class);
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final Executor executor;
+  private final long threshold;
+  private final int blockSize;
+  private final int maxPendingBlocks;
+
+  /**
+   * @param executor  executor to compress the blocks on
+   * @param threshold minimum size in bytes of contents that are compressed on multiple threads
+   */
+  public ParallelDeflater(Executor executor, long threshold) {
+    this(executor, threshold, DEFAULT_BLOCK_SIZE, 2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param executor         executor to compress the blocks on
+   * @param threshold        minimum size in bytes of contents that are compressed on multiple threads
+   * @param blockSize        size in bytes of the blocks compressed independently, at least 32 KiB
+   * @param maxPendingBlocks maximum number of blocks being compressed at a time
+   */
+  public ParallelDeflater(Executor executor, long threshold, int blockSize, int maxPendingBlocks) {
+    if (blockSize < DICTIONARY_SIZE) {
+      throw new IllegalArgumentException("Block size must be at least " + DICTIONARY_SIZE + " bytes");
+    }
+    this.executor = executor;
+    this.threshold = threshold;
+    this.blockSize = blockSize;
+    this.maxPendingBlocks = Math.max(1, maxPendingBlocks);
+  }
+
+  /**
+   * @return minimum size in bytes of contents that are compressed on multiple threads
+   */
+  public long getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * @param size size of the contents in bytes, -1 if unknown
+   * @return true if contents of the given size are to be compressed on multiple threads
+   */
+  public boolean isUsedFor(long size) {
+    return size >= 0 && size >= threshold;
+  }
+
+  /**
+   * Creates a stream compressing everything written into it on multiple threads into the given stream. Closing the
+   * returned stream finishes the compressed stream without closing the given stream.
+   *
+   * @param out   stream to write the raw DEFLATE stream into
+   * @param level compression level
+   * @return stream to write the contents into
+   */
+  public OutputStream newOutputStream(OutputStream out, int level) {
+    return new ParallelDeflaterOutputStream(out, level);
+  }
+
+  private static byte[] deflateBlock(byte[] block, int length, byte[] dictionary, boolean last, int level) {
+    Deflater deflater = new Deflater(level, true);
+    try {
+      if (dictionary != null) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(block, 0, length);
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      if (last) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          compressed.write(buffer, 0, deflater.deflate(buffer));
+        }
+      } else {
+        int compressedLength;
+        do {
+          compressedLength = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+          compressed.write(buffer, 0, compressedLength);
+        } while (compressedLength == buffer.length);
+      }
+      return compressed.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private final class ParallelDeflaterOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final int level;
+    private final Deque<FutureTask<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private byte[] block = new byte[blockSize];
+    private int blockLength;
+    private byte[] dictionary;
+    private boolean closed;
+
+    ParallelDeflaterOutputStream(OutputStream out, int level) {
+      this.out = out;
+      this.level = level;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      while (len > 0) {
+        int length = Math.min(len, blockSize - blockLength);
+        System.arraycopy(b, off, block, blockLength, length);
+        blockLength += length;
+        off += length;
+        len -= length;
+        if (blockLength == blockSize) {
+          completeBlock();
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      try {
+        submit(block, blockLength, true);
+        while (!pendingBlocks.isEmpty()) {
+          writeNextBlock();
+        }
+      } finally {
+        for (FutureTask<byte[]> pendingBlock : pendingBlocks) {
+          pendingBlock.cancel(false);
+        }
+        pendingBlocks.clear();
+        block = null;
+      }
+    }
+
+    private void completeBlock() throws IOException {
+      byte[] completedBlock = block;
+      block = new byte[blockSize];
+      blockLength = 0;
+      submit(completedBlock, completedBlock.length, false);
+    }
+
+    private void submit(byte[] data, int length, boolean last) throws IOException {
+      byte[] presetDictionary = dictionary;
+      dictionary = Arrays.copyOfRange(data, Math.max(0, length - DICTIONARY_SIZE), length);
+      FutureTask<byte[]> task = new FutureTask<>(() -> deflateBlock(data, length, presetDictionary, last, level));
+      pendingBlocks.add(task);
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        logger.debug("Executor rejected compressing a block, compressing it on the calling thread");
+      }
+      while (pendingBlocks.size() > maxPendingBlocks) {
+        writeNextBlock();
+      }
+    }
+
+    private void writeNextBlock() throws IOException {
+      FutureTask<byte[]> task = pendingBlocks.removeFirst();
+      task.run();
+      try {
+        out.write(task.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while compressing on multiple threads");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IOException("Error compressing on multiple threads: " + cause.getMessage(), cause);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,123 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Location of an entry in a ZIP file on disk, from which the compressed entry contents can be copied into another ZIP
+ * file as they are, without inflating and deflating them again.
+ * <p>
+ * The size and the modification time of the ZIP file are recorded when the location is created, so that the entry is
+ * not copied from a ZIP file that has been modified or overwritten since.
+ *
+ * @see ZipWriter#writeRawEntry(RawZipEntry)
+ */
+public final class RawZipEntry implements Serializable {
+
+  private static final Logger logger = LoggerFactory.getLogger(RawZipEntry.class);
+
+  private final File zipFile;
+  private final long zipFileSize;
+  private final long zipFileLastModified;
+  private final ZipCentralDirectoryEntry entry;
+
+  /**
+   * @param zipFile             ZIP file containing the entry
+   * @param zipFileSize         size of the ZIP file when its central directory was read
+   * @param zipFileLastModified modification time of the ZIP file when its central directory was read
+   * @param entry               central directory entry of the entry
+   */
+  public RawZipEntry(File zipFile, long zipFileSize, long zipFileLastModified, ZipCentralDirectoryEntry entry) {
+    this.zipFile = zipFile;
+    this.zipFileSize = zipFileSize;
+    this.zipFileLastModified = zipFileLastModified;
+    this.entry = entry;
+  }
+
+  /**
+   * @return ZIP file containing the entry
+   */
+  public File getZipFile() {
+    return zipFile;
+  }
+
+  /**
+   * @return size of the ZIP file when its central directory was read
+   */
+  public long getZipFileSize() {
+    return zipFileSize;
+  }
+
+  /**
+   * @return modification time of the ZIP file when its central directory was read
+   */
+  public long getZipFileLastModified() {
+    return zipFileLastModified;
+  }
+
+  /**
+   * @return central directory entry of the entry
+   */
+  public ZipCentralDirectoryEntry getEntry() {
+    return entry;
+  }
+
+  /**
+   * Opens the ZIP file for copying the compressed entry contents, provided that the ZIP file has not changed since the
+   * location was created and the entry can be copied as it is.
+   *
+   * @return channel positioned at the beginning of {@link ZipCentralDirectoryEntry#getCompressedSize()} bytes of
+   * compressed contents, or {@code null} if the entry cannot be copied
+   */
+  FileChannel openCompressedContents() {
+    if (!entry.isSupportedMethod() || entry.isEncrypted()) {
+      return null;
+    }
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ);
+      if (channel.size() != zipFileSize || zipFile.lastModified() != zipFileLastModified) {
+        logger.debug("{} has changed, not copying entry {} as it is", zipFile, entry.getName());
+        channel.close();
+        return null;
+      }
+      long dataOffset = entry.findDataOffset(channel);
+      if (dataOffset + entry.getCompressedSize() > zipFileSize) {
+        channel.close();
+        return null;
+      }
+      return channel.position(dataOffset);
+    } catch (IOException e) {
+      logger.debug("Unable to copy entry {} of {} as it is: {}", entry.getName(), zipFile, e.getMessage());
+      closeQuietly(channel);
+      return null;
+    }
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.debug("Unable to close channel: " + e.getMessage());
+      }
+    }
+  }
+
+}
@@ -0,0 +1,292 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * Index of the entries of a ZIP file, read from the central directory at the end of the file.
+ * <p>
+ * Unlike {@link java.util.zip.ZipFile}, the index exposes the offsets of the entries in the file, so that the contents
+ * of an entry can later be read directly from the ZIP file without parsing it again.
+ * ZIP64 extensions are supported.
+ */
+public final class ZipCentralDirectory {
+
+  private static final Logger logger = LoggerFactory.getLogger(ZipCentralDirectory.class);
+
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH = 56;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH = 20;
+  private static final int CENTRAL_FILE_HEADER_SIGNATURE = 0x02014b50;
+  private static final int CENTRAL_FILE_HEADER_LENGTH = 46;
+  private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+  private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+  private static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+
+  private final List<ZipCentralDirectoryEntry> entries;
+  private final Map<String, ZipCentralDirectoryEntry> entriesByName;
+  private final long centralDirectoryOffset;
+  private final String comment;
+
+  private ZipCentralDirectory(List<ZipCentralDirectoryEntry> entries, long centralDirectoryOffset, String comment) {
+    this.entries = Collections.unmodifiableList(entries);
+    this.entriesByName = new HashMap<>(entries.size() * 2);
+    for (ZipCentralDirectoryEntry entry : entries) {
+      entriesByName.putIfAbsent(entry.getName(), entry);
+    }
+    this.centralDirectoryOffset = centralDirectoryOffset;
+    this.comment = comment;
+  }
+
+  /**
+   * Reads the central directory of the given ZIP file.
+   *
+   * @param zipFile ZIP file
+   * @return central directory of the file
+   * @throws IOException if the file cannot be read or is not a valid ZIP file
+   */
+  public static ZipCentralDirectory read(File zipFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ)) {
+      return read(channel);
+    }
+  }
+
+  /**
+   * Reads the central directory of a ZIP file from the given channel. The end of the file and the central directory
+   * are memory mapped rather than copied into the heap.
+   *
+   * @param channel channel of the ZIP file
+   * @return central directory of the file
+   * @throws IOException if the channel cannot be read or does not contain a valid ZIP file
+   */
+  public static ZipCentralDirectory read(FileChannel channel) throws IOException {
+    return read(channel.size(), (offset, length) -> map(channel, offset, length));
+  }
+
+  /**
+   * Reads the central directory of a ZIP file that is entirely contained in the given buffer, for example a memory
+   * mapped ZIP file. The buffer is not modified.
+   *
+   * @param zipFile contents of the ZIP file, from index 0 to the limit of the buffer
+   * @return central directory of the file
+   * @throws IOException if the buffer does not contain a valid ZIP file
+   */
+  public static ZipCentralDirectory read(ByteBuffer zipFile) throws IOException {
+    return read(zipFile.limit(), (offset, length) -> slice(zipFile, offset, length));
+  }
+
+  private static ZipCentralDirectory read(long fileSize, RegionReader reader) throws IOException {
+    long endOfCentralDirectoryOffset = findEndOfCentralDirectory(reader, fileSize);
+    ByteBuffer endOfCentralDirectory = reader.read(endOfCentralDirectoryOffset, END_OF_CENTRAL_DIRECTORY_LENGTH);
+    long entryCount = Short.toUnsignedLong(endOfCentralDirectory.getShort(10));
+    long centralDirectorySize = Integer.toUnsignedLong(endOfCentralDirectory.getInt(12));
+    long centralDirectoryOffset = Integer.toUnsignedLong(endOfCentralDirectory.getInt(16));
+    int commentLength = Short.toUnsignedInt(endOfCentralDirectory.getShort(20));
+    String comment = null;
+    if (commentLength > 0) {
+      ByteBuffer commentBuffer = reader.read(endOfCentralDirectoryOffset + END_OF_CENTRAL_DIRECTORY_LENGTH, commentLength);
+      comment = readString(commentBuffer, 0, commentLength);
+    }
+
+    long locatorOffset = endOfCentralDirectoryOffset - ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH;
+    if (locatorOffset >= 0) {
+      ByteBuffer locator = reader.read(locatorOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_LENGTH);
+      if (locator.getInt(0) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE) {
+        long zip64EndOfCentralDirectoryOffset = locator.getLong(8);
+        if (zip64EndOfCentralDirectoryOffset < 0
+            || zip64EndOfCentralDirectoryOffset + ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH > fileSize) {
+          throw new ZipException("Invalid ZIP64 end of central directory location");
+        }
+        ByteBuffer zip64EndOfCentralDirectory = reader.read(zip64EndOfCentralDirectoryOffset, ZIP64_END_OF_CENTRAL_DIRECTORY_LENGTH);
+        if (zip64EndOfCentralDirectory.getInt(0) != ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+          throw new ZipException("Invalid ZIP64 end of central directory record");
+        }
+        entryCount = zip64EndOfCentralDirectory.getLong(32);
+        centralDirectorySize = zip64EndOfCentralDirectory.getLong(40);
+        centralDirectoryOffset = zip64EndOfCentralDirectory.getLong(48);
+      }
+    }
+    if (centralDirectoryOffset < 0 || centralDirectorySize < 0 || centralDirectorySize > Integer.MAX_VALUE
+        || centralDirectoryOffset + centralDirectorySize > fileSize) {
+      throw new ZipException("Invalid ZIP central directory location");
+    }
+    logger.debug("Reading ZIP central directory of {} entries at offset {}", entryCount, centralDirectoryOffset);
+    ByteBuffer centralDirectory = reader.read(centralDirectoryOffset, (int) centralDirectorySize);
+    return new ZipCentralDirectory(parseEntries(centralDirectory, entryCount), centralDirectoryOffset, comment);
+  }
+
+  /**
+   * @return entries in the order they appear in the central directory
+   */
+  public List<ZipCentralDirectoryEntry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * @param name entry name
+   * @return entry with the given name or {@code null} if there is no such entry
+   */
+  public ZipCentralDirectoryEntry getEntry(String name) {
+    return entriesByName.get(name);
+  }
+
+  /**
+   * @return offset of the central directory in the ZIP file, which is also the end of the last local entry
+   */
+  public long getCentralDirectoryOffset() {
+    return centralDirectoryOffset;
+  }
+
+  /**
+   * @return ZIP file comment or {@code null} if the file has no comment
+   */
+  public String getComment() {
+    return comment;
+  }
+
+  private static List<ZipCentralDirectoryEntry> parseEntries(ByteBuffer centralDirectory, long entryCount) throws ZipException {
+    List<ZipCentralDirectoryEntry> entries = new ArrayList<>((int) Math.min(entryCount, 0xFFFF));
+    int position = 0;
+    for (long i = 0; i < entryCount; i++) {
+      if (centralDirectory.limit() - position < CENTRAL_FILE_HEADER_LENGTH
+          || centralDirectory.getInt(position) != CENTRAL_FILE_HEADER_SIGNATURE) {
+        throw new ZipException("Invalid ZIP central directory file header");
+      }
+      int flag = Short.toUnsignedInt(centralDirectory.getShort(position + 8));
+      int method = Short.toUnsignedInt(centralDirectory.getShort(position + 10));
+      long dosTime = Integer.toUnsignedLong(centralDirectory.getInt(position + 12));
+      long crc = Integer.toUnsignedLong(centralDirectory.getInt(position + 16));
+      long compressedSize = Integer.toUnsignedLong(centralDirectory.getInt(position + 20));
+      long size = Integer.toUnsignedLong(centralDirectory.getInt(position + 24));
+      int nameLength = Short.toUnsignedInt(centralDirectory.getShort(position + 28));
+      int extraLength = Short.toUnsignedInt(centralDirectory.getShort(position + 30));
+      int commentLength = Short.toUnsignedInt(centralDirectory.getShort(position + 32));
+      long localHeaderOffset = Integer.toUnsignedLong(centralDirectory.getInt(position + 42));
+      int namePosition = position + CENTRAL_FILE_HEADER_LENGTH;
+      int extraPosition = namePosition + nameLength;
+      int nextPosition = extraPosition + extraLength + commentLength;
+      if (nextPosition > centralDirectory.limit()) {
+        throw new ZipException("Invalid ZIP central directory file header");
+      }
+      String name = readString(centralDirectory, namePosition, nameLength);
+      byte[] extra = extraLength > 0 ? readBytes(centralDirectory, extraPosition, extraLength) : null;
+      String comment = commentLength > 0 ? readString(centralDirectory, extraPosition + extraLength, commentLength) : null;
+
+      if (size == ZIP64_MAGIC_VALUE || compressedSize == ZIP64_MAGIC_VALUE || localHeaderOffset == ZIP64_MAGIC_VALUE) {
+        int zip64Position = findExtraField(centralDirectory, extraPosition, extraLength, ZIP64_EXTRA_FIELD_ID);
+        if (zip64Position < 0) {
+          throw new ZipException("Missing ZIP64 extra field for " + name);
+        }
+        if (size == ZIP64_MAGIC_VALUE) {
+          size = centralDirectory.getLong(zip64Position);
+          zip64Position += 8;
+        }
+        if (compressedSize == ZIP64_MAGIC_VALUE) {
+          compressedSize = centralDirectory.getLong(zip64Position);
+          zip64Position += 8;
+        }
+        if (localHeaderOffset == ZIP64_MAGIC_VALUE) {
+          localHeaderOffset = centralDirectory.getLong(zip64Position);
+        }
+      }
+      entries.add(new ZipCentralDirectoryEntry(name, flag, method, dosTime, crc, compressedSize, size,
+          localHeaderOffset, extra, comment));
+      position = nextPosition;
+    }
+    return entries;
+  }
+
+  private static int findExtraField(ByteBuffer buffer, int extraPosition, int extraLength, int headerId) {
+    int position = extraPosition;
+    int end = extraPosition + extraLength;
+    while (position + 4 <= end) {
+      int id = Short.toUnsignedInt(buffer.getShort(position));
+      int length = Short.toUnsignedInt(buffer.getShort(position + 2));
+      if (id == headerId) {
+        return position + 4;
+      }
+      position += 4 + length;
+    }
+    return -1;
+  }
+
+  private static String readString(ByteBuffer buffer, int position, int length) {
+    return new String(readBytes(buffer, position, length), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer, int position, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(position + i);
+    }
+    return bytes;
+  }
+
+  private static long findEndOfCentralDirectory(RegionReader reader, long fileSize) throws IOException {
+    if (fileSize < END_OF_CENTRAL_DIRECTORY_LENGTH) {
+      throw new ZipException("File is too small to be a ZIP file");
+    }
+    int tailLength = (int) Math.min(fileSize, END_OF_CENTRAL_DIRECTORY_LENGTH + MAX_COMMENT_LENGTH);
+    long tailOffset = fileSize - tailLength;
+    ByteBuffer tail = reader.read(tailOffset, tailLength);
+    for (int position = tailLength - END_OF_CENTRAL_DIRECTORY_LENGTH; position >= 0; position--) {
+      if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+        int commentLength = Short.toUnsignedInt(tail.getShort(position + 20));
+        if (position + END_OF_CENTRAL_DIRECTORY_LENGTH + commentLength <= tailLength) {
+          return tailOffset + position;
+        }
+      }
+    }
+    throw new ZipException("End of central directory record not found");
+  }
+
+  private static ByteBuffer map(FileChannel channel, long offset, int length) throws IOException {
+    return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  static ByteBuffer slice(ByteBuffer buffer, long offset, long length) throws ZipException {
+    if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+      throw new ZipException("Unexpected end of ZIP file");
+    }
+    ByteBuffer duplicate = buffer.duplicate();
+    ((Buffer) duplicate).position((int) offset);
+    ((Buffer) duplicate).limit((int) (offset + length));
+    return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  @FunctionalInterface
+  private interface RegionReader {
+
+    ByteBuffer read(long offset, int length) throws IOException;
+
+  }
+
+}
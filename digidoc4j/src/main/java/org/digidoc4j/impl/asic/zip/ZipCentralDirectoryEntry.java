@@ -0,0 +1,195 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * An entry of a ZIP central directory, holding the location and the metadata of the entry contents in the ZIP file.
+ */
+public final class ZipCentralDirectoryEntry implements Serializable {
+
+  static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+  static final int LOCAL_FILE_HEADER_LENGTH = 30;
+  private static final int ENCRYPTED_FLAG = 0x0001;
+
+  private final String name;
+  private final int flag;
+  private final int method;
+  private final long dosTime;
+  private final long crc;
+  private final long compressedSize;
+  private final long size;
+  private final long localHeaderOffset;
+  private final byte[] extra;
+  private final String comment;
+
+  ZipCentralDirectoryEntry(String name, int flag, int method, long dosTime, long crc, long compressedSize, long size,
+                           long localHeaderOffset, byte[] extra, String comment) {
+    this.name = name;
+    this.flag = flag;
+    this.method = method;
+    this.dosTime = dosTime;
+    this.crc = crc;
+    this.compressedSize = compressedSize;
+    this.size = size;
+    this.localHeaderOffset = localHeaderOffset;
+    this.extra = extra;
+    this.comment = comment;
+  }
+
+  /**
+   * @return entry name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return compression method, either {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}
+   */
+  public int getMethod() {
+    return method;
+  }
+
+  /**
+   * @return general purpose bit flag of this entry
+   */
+  public int getFlag() {
+    return flag;
+  }
+
+  /**
+   * @return last modification time of this entry in MS-DOS date and time format
+   */
+  public long getDosTime() {
+    return dosTime;
+  }
+
+  /**
+   * @return whether the entry contents are encrypted
+   */
+  public boolean isEncrypted() {
+    return (flag & ENCRYPTED_FLAG) != 0;
+  }
+
+  /**
+   * @return CRC-32 of the uncompressed entry contents
+   */
+  public long getCrc() {
+    return crc;
+  }
+
+  /**
+   * @return size of the compressed entry contents in bytes
+   */
+  public long getCompressedSize() {
+    return compressedSize;
+  }
+
+  /**
+   * @return size of the uncompressed entry contents in bytes
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return offset of the local file header of this entry in the ZIP file
+   */
+  public long getLocalHeaderOffset() {
+    return localHeaderOffset;
+  }
+
+  /**
+   * @return extra field data of this entry in the central directory or {@code null} if there is none
+   */
+  public byte[] getExtra() {
+    return extra == null ? null : extra.clone();
+  }
+
+  /**
+   * @return entry comment or {@code null} if there is none
+   */
+  public String getComment() {
+    return comment;
+  }
+
+  /**
+   * Creates a {@link ZipEntry} with the same metadata as {@link java.util.zip.ZipFile} would create for this entry.
+   *
+   * @return ZIP entry
+   */
+  public ZipEntry toZipEntry() {
+    ZipEntry zipEntry = new ZipEntry(name);
+    if (isSupportedMethod()) {
+      zipEntry.setMethod(method);
+    }
+    zipEntry.setCrc(crc);
+    zipEntry.setSize(size);
+    zipEntry.setCompressedSize(compressedSize);
+    if (extra != null) {
+      zipEntry.setExtra(extra.clone());
+    }
+    zipEntry.setComment(comment);
+    return zipEntry;
+  }
+
+  /**
+   * @return whether the contents of this entry can be read by this implementation
+   */
+  public boolean isSupportedMethod() {
+    return method == ZipEntry.STORED || method == ZipEntry.DEFLATED;
+  }
+
+  /**
+   * Finds the offset of the (compressed) entry contents by reading the local file header of this entry.
+   *
+   * @param channel channel of the ZIP file
+   * @return offset of the entry contents in the ZIP file
+   * @throws IOException if the local file header cannot be read
+   */
+  public long findDataOffset(FileChannel channel) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(LOCAL_FILE_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    long position = localHeaderOffset;
+    while (header.hasRemaining()) {
+      int bytesRead = channel.read(header, position);
+      if (bytesRead < 0) {
+        throw new ZipException("Unexpected end of ZIP file while reading local header of " + name);
+      }
+      position += bytesRead;
+    }
+    return findDataOffset(header);
+  }
+
+  /**
+   * Finds the offset of the (compressed) entry contents from the local file header of this entry.
+   *
+   * @param localFileHeader little-endian buffer holding at least the fixed size part of the local file header
+   * @return offset of the entry contents in the ZIP file
+   * @throws ZipException if the buffer does not hold a local file header
+   */
+  long findDataOffset(ByteBuffer localFileHeader) throws ZipException {
+    if (localFileHeader.limit() < LOCAL_FILE_HEADER_LENGTH || localFileHeader.getInt(0) != LOCAL_FILE_HEADER_SIGNATURE) {
+      throw new ZipException("Invalid local file header signature for " + name);
+    }
+    int nameLength = Short.toUnsignedInt(localFileHeader.getShort(26));
+    int extraLength = Short.toUnsignedInt(localFileHeader.getShort(28));
+    return localHeaderOffset + LOCAL_FILE_HEADER_LENGTH + nameLength + extraLength;
+  }
+
+}
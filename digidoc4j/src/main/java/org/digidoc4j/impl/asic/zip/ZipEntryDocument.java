@@ -0,0 +1,122 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import eu.europa.esig.dss.model.CommonDocument;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.MimeType;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * @see eu.europa.esig.dss.model.DSSDocument implementation backed by an entry of a ZIP file on disk. Nothing is copied
+ * when the document is created; the contents of the entry are read (and inflated if needed) from the ZIP file every
+ * time the document is opened.
+ * <p>
+ * The ZIP file must not be modified for as long as the document is in use, except by replacing it with a file that
+ * contains the same entry and calling {@link #relocate(ZipCentralDirectoryEntry)}.
+ */
+public class ZipEntryDocument extends CommonDocument {
+
+  private static final Logger logger = LoggerFactory.getLogger(ZipEntryDocument.class);
+  private static final int BUFFER_SIZE = 8192;
+
+  private final File zipFile;
+  private volatile ZipCentralDirectoryEntry entry;
+
+  /**
+   * @param zipFile  ZIP file containing the entry
+   * @param entry    central directory entry of the document contents
+   * @param mimeType mime type
+   */
+  public ZipEntryDocument(File zipFile, ZipCentralDirectoryEntry entry, MimeType mimeType) {
+    if (!entry.isSupportedMethod()) {
+      throw new IllegalArgumentException("Unsupported compression method " + entry.getMethod() + " for " + entry.getName());
+    }
+    logger.debug("Document name: " + entry.getName() + ", mime type: " + mimeType);
+    this.zipFile = zipFile;
+    this.entry = entry;
+    super.name = entry.getName();
+    super.mimeType = mimeType;
+  }
+
+  @Override
+  public InputStream openStream() throws DSSException {
+    ZipCentralDirectoryEntry entry = this.entry;
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(zipFile.toPath(), StandardOpenOption.READ);
+      channel.position(entry.findDataOffset(channel));
+      InputStream compressedStream = new BoundedInputStream(
+          new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), entry.getCompressedSize());
+      return ZipEntryVerifyingInputStream.forCompressedStream(compressedStream, entry);
+    } catch (IOException e) {
+      closeQuietly(channel);
+      logger.error("Unable to read entry '" + entry.getName() + "' from " + zipFile + ": " + e.getMessage());
+      throw new DSSException(e);
+    }
+  }
+
+  /**
+   * @return size of the uncompressed document contents in bytes, as recorded in the ZIP central directory
+   */
+  public long getSize() {
+    return entry.getSize();
+  }
+
+  /**
+   * @return ZIP file containing the document contents
+   */
+  public File getZipFile() {
+    return zipFile;
+  }
+
+  /**
+   * @return central directory entry of the document contents
+   */
+  public ZipCentralDirectoryEntry getEntry() {
+    return entry;
+  }
+
+  /**
+   * Points the document to the entry of the same contents in the ZIP file that has replaced the original ZIP file.
+   *
+   * @param entry central directory entry of the document contents in the new ZIP file
+   */
+  public void relocate(ZipCentralDirectoryEntry entry) {
+    if (!entry.isSupportedMethod() || !entry.getName().equals(this.entry.getName())) {
+      throw new IllegalArgumentException("Unable to relocate " + this.entry.getName() + " to " + entry.getName());
+    }
+    logger.debug("Relocating document {} in {}", entry.getName(), zipFile);
+    this.entry = entry;
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel == null) {
+      return;
+    }
+    try {
+      channel.close();
+    } catch (IOException e) {
+      logger.debug("Unable to close ZIP file channel: " + e.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,38 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Inflates the raw DEFLATE data of a ZIP entry and releases the native inflater resources on close.
+ */
+class ZipEntryInflaterInputStream extends InflaterInputStream {
+
+  private static final int BUFFER_SIZE = 8192;
+
+  ZipEntryInflaterInputStream(InputStream in) {
+    super(in, new Inflater(true), BUFFER_SIZE);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      inf.end();
+    }
+  }
+
+}
@@ -0,0 +1,107 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Verifies that the entry contents match the size and the CRC-32 recorded in the central directory, which also
+ * prevents an entry from inflating beyond its declared size.
+ */
+class ZipEntryVerifyingInputStream extends FilterInputStream {
+
+  private static final int SKIP_BUFFER_SIZE = 8192;
+
+  private final ZipCentralDirectoryEntry entry;
+  private final CRC32 crc = new CRC32();
+  private long bytesRead;
+
+  ZipEntryVerifyingInputStream(InputStream in, ZipCentralDirectoryEntry entry) {
+    super(in);
+    this.entry = entry;
+  }
+
+  /**
+   * @param compressedStream stream of the compressed entry contents
+   * @param entry            central directory entry
+   * @return stream of the uncompressed and verified entry contents
+   */
+  static InputStream forCompressedStream(InputStream compressedStream, ZipCentralDirectoryEntry entry) {
+    if (entry.getMethod() == ZipEntry.STORED) {
+      return new ZipEntryVerifyingInputStream(compressedStream, entry);
+    }
+    return new ZipEntryVerifyingInputStream(new ZipEntryInflaterInputStream(compressedStream), entry);
+  }
+
+  @Override
+  public int read() throws IOException {
+    int value = super.read();
+    if (value < 0) {
+      verifyEndOfEntry();
+    } else {
+      update(new byte[]{(byte) value}, 0, 1);
+    }
+    return value;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int count = super.read(b, off, len);
+    if (count < 0) {
+      verifyEndOfEntry();
+    } else {
+      update(b, off, count);
+    }
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    byte[] buffer = new byte[(int) Math.min(n, SKIP_BUFFER_SIZE)];
+    long skipped = 0;
+    while (skipped < n) {
+      int count = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+      if (count < 0) {
+        break;
+      }
+      skipped += count;
+    }
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void update(byte[] b, int off, int count) throws IOException {
+    bytesRead += count;
+    if (bytesRead > entry.getSize()) {
+      throw new ZipException("Entry '" + entry.getName() + "' is larger than its declared size");
+    }
+    crc.update(b, off, count);
+  }
+
+  private void verifyEndOfEntry() throws IOException {
+    if (bytesRead != entry.getSize()) {
+      throw new ZipException("Entry '" + entry.getName() + "' is smaller than its declared size");
+    }
+    if (crc.getValue() != entry.getCrc()) {
+      throw new ZipException("Invalid CRC-32 for entry '" + entry.getName() + "'");
+    }
+  }
+
+}
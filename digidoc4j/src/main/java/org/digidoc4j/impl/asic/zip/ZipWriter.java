@@ -0,0 +1,644 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic.zip;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes ZIP files like {@link java.util.zip.ZipOutputStream} with UTF-8 entry names, but can additionally copy
+ * entries of other ZIP files as they are, see {@link #writeRawEntry(RawZipEntry)}. Copying the compressed contents of
+ * an entry is much cheaper than inflating and deflating them again.
+ * <p>
+ * Like with {@link java.util.zip.ZipOutputStream}, the contents of an entry are written between
+ * {@link #putNextEntry(ZipEntry)} and {@link #closeEntry()}. ZIP64 extensions are used where needed.
+ * <p>
+ * When writing into a {@link FileOutputStream}, entries copied as they are and uncompressed contents written with
+ * {@link #transferFrom(FileChannel, long, long)} are copied from file to file by the kernel, without passing through
+ * user-space buffers.
+ */
+public final class ZipWriter extends OutputStream {
+
+  private static final Logger logger = LoggerFactory.getLogger(ZipWriter.class);
+
+  private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+  private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+  private static final int CENTRAL_FILE_HEADER_SIGNATURE = 0x02014b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+  private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+  private static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+  private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+  private static final int UTF8_FLAG = 0x0800;
+  private static final int DEFLATE_OPTION_FLAGS = 0x0006;
+  private static final int VERSION_STORED = 10;
+  private static final int VERSION_DEFLATED = 20;
+  private static final int VERSION_ZIP64 = 45;
+  private static final int BUFFER_SIZE = 8192;
+
+  private final CountingOutputStream out;
+  private final FileChannel channel;
+  private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+  private final List<EntryRecord> entries = new ArrayList<>();
+  private final Set<String> names = new HashSet<>();
+  private ParallelDeflater parallelDeflater;
+  private int level = Deflater.DEFAULT_COMPRESSION;
+  private byte[] comment;
+  private EntryRecord current;
+  private OutputStream currentStream;
+  private CRC32 currentCrc;
+  private long currentSize;
+  private long currentDataOffset;
+  private boolean currentCrcUnknown;
+  private boolean finished;
+
+  /**
+   * @param out stream to write the ZIP file into; a {@link FileOutputStream} is buffered by the writer itself
+   */
+  public ZipWriter(OutputStream out) {
+    this(out, 0);
+  }
+
+  private ZipWriter(OutputStream out, long offset) {
+    if (out instanceof FileOutputStream) {
+      this.channel = ((FileOutputStream) out).getChannel();
+      this.out = new CountingOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), offset);
+    } else {
+      this.channel = null;
+      this.out = new CountingOutputStream(out, offset);
+    }
+  }
+
+  /**
+   * Creates a writer for adding entries to an existing ZIP file. The given stream must write into the ZIP file
+   * starting from the offset of its central directory, so that the new entries overwrite the old central directory
+   * and are followed by a new central directory listing both the existing and the new entries. The contents of the
+   * existing entries are left as they are.
+   *
+   * @param out              stream writing into the ZIP file from the offset of its central directory
+   * @param centralDirectory current central directory of the ZIP file
+   * @return writer
+   * @throws ZipException if the central directory cannot be rewritten as it is
+   */
+  public static ZipWriter appendTo(OutputStream out, ZipCentralDirectory centralDirectory) throws ZipException {
+    ZipWriter writer = new ZipWriter(out, centralDirectory.getCentralDirectoryOffset());
+    for (ZipCentralDirectoryEntry entry : centralDirectory.getEntries()) {
+      if ((entry.getFlag() & UTF8_FLAG) == 0 && !StandardCharsets.US_ASCII.newEncoder().canEncode(entry.getName())) {
+        throw new ZipException("Unable to rewrite central directory entry " + entry.getName()
+            + " without UTF-8 flag");
+      }
+      EntryRecord record = new EntryRecord(entry.getName(), entry.getMethod(), entry.getDosTime(), entry.getExtra(),
+          entry.getComment());
+      record.flag = entry.getFlag();
+      record.crc = entry.getCrc();
+      record.size = entry.getSize();
+      record.compressedSize = entry.getCompressedSize();
+      record.localHeaderOffset = entry.getLocalHeaderOffset();
+      if (!writer.names.add(record.name)) {
+        throw new ZipException("duplicate entry: " + record.name);
+      }
+      writer.entries.add(record);
+    }
+    writer.setComment(centralDirectory.getComment());
+    return writer;
+  }
+
+  /**
+   * @param comment comment of the ZIP file
+   */
+  public void setComment(String comment) {
+    this.comment = comment == null ? null : comment.getBytes(StandardCharsets.UTF_8);
+    if (this.comment != null && this.comment.length > ZIP64_MAGIC_COUNT) {
+      throw new IllegalArgumentException("ZIP file comment too long");
+    }
+  }
+
+  /**
+   * @param level compression level of subsequent {@link ZipEntry#DEFLATED} entries
+   * @see Deflater#setLevel(int)
+   */
+  public void setLevel(int level) {
+    this.level = level;
+    deflater.setLevel(level);
+  }
+
+  /**
+   * @param parallelDeflater compressor of the contents of subsequent {@link ZipEntry#DEFLATED} entries on multiple
+   *                         threads, or {@code null} to compress them on the calling thread. Only entries whose size
+   *                         is set in advance and reaches the threshold of the compressor are compressed on multiple
+   *                         threads
+   */
+  public void setParallelDeflater(ParallelDeflater parallelDeflater) {
+    this.parallelDeflater = parallelDeflater;
+  }
+
+  /**
+   * Begins writing a new entry. Entries without a compression method are deflated; the CRC-32 and the size of
+   * {@link ZipEntry#STORED} entries must be set in advance.
+   *
+   * @param entry entry
+   * @throws IOException if writing fails
+   */
+  public void putNextEntry(ZipEntry entry) throws IOException {
+    ensureOpen();
+    closeEntry();
+    int method = entry.getMethod() == -1 ? ZipEntry.DEFLATED : entry.getMethod();
+    EntryRecord record = new EntryRecord(entry.getName(), method, toDosTime(entry.getTime()), entry.getExtra(),
+        entry.getComment());
+    if (method == ZipEntry.STORED) {
+      if (entry.getSize() == -1 || entry.getCrc() == -1) {
+        throw new ZipException("STORED entry missing size or CRC-32: " + entry.getName());
+      }
+      if (entry.getCompressedSize() != -1 && entry.getCompressedSize() != entry.getSize()) {
+        throw new ZipException("STORED entry where compressed != uncompressed size: " + entry.getName());
+      }
+      record.flag = UTF8_FLAG;
+      record.crc = entry.getCrc();
+      record.size = entry.getSize();
+      record.compressedSize = entry.getSize();
+      currentStream = out;
+    } else if (method == ZipEntry.DEFLATED) {
+      record.flag = UTF8_FLAG | DATA_DESCRIPTOR_FLAG;
+      if (parallelDeflater != null && parallelDeflater.isUsedFor(entry.getSize())) {
+        logger.debug("Compressing {} of {} bytes on multiple threads", entry.getName(), entry.getSize());
+        currentStream = parallelDeflater.newOutputStream(new NonClosingOutputStream(out), level);
+      } else {
+        deflater.reset();
+        currentStream = new DeflaterOutputStream(new NonClosingOutputStream(out), deflater, 8192);
+      }
+    } else {
+      throw new ZipException("Unsupported compression method " + method + " for " + entry.getName());
+    }
+    writeLocalFileHeader(record);
+    current = record;
+    currentDataOffset = out.getCount();
+    currentCrc = new CRC32();
+    currentSize = 0;
+    currentCrcUnknown = false;
+  }
+
+  /**
+   * Copies an entry of another ZIP file into this ZIP file as it is, keeping its compression method, CRC-32, sizes,
+   * modification time, extra field data and comment.
+   *
+   * @param rawEntry location of the entry in the other ZIP file
+   * @return {@code true} if the entry was copied, {@code false} if it cannot be copied as it is and nothing was written
+   * @throws IOException if writing fails
+   */
+  public boolean writeRawEntry(RawZipEntry rawEntry) throws IOException {
+    ensureOpen();
+    closeEntry();
+    ZipCentralDirectoryEntry sourceEntry = rawEntry.getEntry();
+    try (FileChannel source = rawEntry.openCompressedContents()) {
+      if (source == null) {
+        return false;
+      }
+      logger.debug("Copying compressed entry {} as it is", sourceEntry.getName());
+      EntryRecord record = new EntryRecord(sourceEntry.getName(), sourceEntry.getMethod(), sourceEntry.getDosTime(),
+          sourceEntry.getExtra(), sourceEntry.getComment());
+      record.flag = UTF8_FLAG | (sourceEntry.getFlag() & DEFLATE_OPTION_FLAGS);
+      record.crc = sourceEntry.getCrc();
+      record.size = sourceEntry.getSize();
+      record.compressedSize = sourceEntry.getCompressedSize();
+      writeLocalFileHeader(record);
+      if (channel != null) {
+        transfer(source, source.position(), record.compressedSize);
+      } else if (IOUtils.copyLarge(Channels.newInputStream(source), out, 0, record.compressedSize)
+          != record.compressedSize) {
+        throw new ZipException("Unexpected end of compressed contents of " + sourceEntry.getName());
+      }
+      entries.add(record);
+      return true;
+    }
+  }
+
+  /**
+   * Writes contents of the current entry from a region of a file. Contents of a {@link ZipEntry#STORED} entry are
+   * copied by the kernel when writing into a {@link FileOutputStream}, in which case their CRC-32 is not verified
+   * against the one given in {@link #putNextEntry(ZipEntry)}; otherwise this is the same as writing the contents.
+   *
+   * @param source   file to copy the contents from
+   * @param position position of the contents in the file
+   * @param count    size of the contents in bytes
+   * @throws IOException if reading or writing fails
+   */
+  public void transferFrom(FileChannel source, long position, long count) throws IOException {
+    ensureOpen();
+    if (current == null) {
+      throw new ZipException("No current ZIP entry");
+    }
+    if (channel != null && current.method == ZipEntry.STORED) {
+      transfer(source, position, count);
+      currentSize += count;
+      currentCrcUnknown = true;
+    } else if (IOUtils.copyLarge(Channels.newInputStream(source.position(position)), this, 0, count) != count) {
+      throw new ZipException("Unexpected end of file while writing " + current.name);
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[]{(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    ensureOpen();
+    if (current == null) {
+      throw new ZipException("No current ZIP entry");
+    }
+    currentStream.write(b, off, len);
+    currentCrc.update(b, off, len);
+    currentSize += len;
+  }
+
+  /**
+   * Finishes writing the current entry, if any.
+   *
+   * @throws IOException if writing fails
+   */
+  public void closeEntry() throws IOException {
+    ensureOpen();
+    if (current == null) {
+      return;
+    }
+    EntryRecord record = current;
+    current = null;
+    if (record.method == ZipEntry.DEFLATED) {
+      currentStream.close();
+      record.crc = currentCrc.getValue();
+      record.size = currentSize;
+      record.compressedSize = out.getCount() - currentDataOffset;
+      writeDataDescriptor(record);
+    } else if (record.size != currentSize) {
+      throw new ZipException("Invalid size of STORED entry " + record.name + ": expected " + record.size
+          + " but got " + currentSize + " bytes");
+    } else if (!currentCrcUnknown && record.crc != currentCrc.getValue()) {
+      throw new ZipException("Invalid CRC-32 of STORED entry " + record.name);
+    }
+    entries.add(record);
+  }
+
+  /**
+   * Finishes writing the ZIP file without closing the underlying stream.
+   *
+   * @throws IOException if writing fails
+   */
+  public void finish() throws IOException {
+    if (finished) {
+      return;
+    }
+    closeEntry();
+    long centralDirectoryOffset = out.getCount();
+    for (EntryRecord record : entries) {
+      writeCentralFileHeader(record);
+    }
+    long centralDirectorySize = out.getCount() - centralDirectoryOffset;
+    writeEndOfCentralDirectory(centralDirectoryOffset, centralDirectorySize);
+    out.flush();
+    deflater.end();
+    finished = true;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      finish();
+    } finally {
+      out.close();
+    }
+  }
+
+  private void writeLocalFileHeader(EntryRecord record) throws IOException {
+    if (!names.add(record.name)) {
+      throw new ZipException("duplicate entry: " + record.name);
+    }
+    record.localHeaderOffset = out.getCount();
+    boolean dataDescriptor = (record.flag & DATA_DESCRIPTOR_FLAG) != 0;
+    boolean zip64 = !dataDescriptor && (record.size >= ZIP64_MAGIC_VALUE || record.compressedSize >= ZIP64_MAGIC_VALUE);
+    ByteArrayOutputStream extra = new ByteArrayOutputStream();
+    if (zip64) {
+      writeShort(extra, ZIP64_EXTRA_FIELD_ID);
+      writeShort(extra, 16);
+      writeLong(extra, record.size);
+      writeLong(extra, record.compressedSize);
+    }
+    extra.write(record.extra);
+    writeInt(out, LOCAL_FILE_HEADER_SIGNATURE);
+    writeShort(out, zip64 ? VERSION_ZIP64 : record.getVersion());
+    writeShort(out, record.flag);
+    writeShort(out, record.method);
+    writeInt(out, record.dosTime);
+    if (dataDescriptor) {
+      writeInt(out, 0);
+      writeInt(out, 0);
+      writeInt(out, 0);
+    } else {
+      writeInt(out, record.crc);
+      writeInt(out, zip64 ? ZIP64_MAGIC_VALUE : record.compressedSize);
+      writeInt(out, zip64 ? ZIP64_MAGIC_VALUE : record.size);
+    }
+    writeShort(out, record.nameBytes.length);
+    writeShort(out, extra.size());
+    out.write(record.nameBytes);
+    extra.writeTo(out);
+  }
+
+  private void writeDataDescriptor(EntryRecord record) throws IOException {
+    writeInt(out, DATA_DESCRIPTOR_SIGNATURE);
+    writeInt(out, record.crc);
+    if (record.size >= ZIP64_MAGIC_VALUE || record.compressedSize >= ZIP64_MAGIC_VALUE) {
+      writeLong(out, record.compressedSize);
+      writeLong(out, record.size);
+    } else {
+      writeInt(out, record.compressedSize);
+      writeInt(out, record.size);
+    }
+  }
+
+  private void writeCentralFileHeader(EntryRecord record) throws IOException {
+    ByteArrayOutputStream zip64Extra = new ByteArrayOutputStream();
+    if (record.size >= ZIP64_MAGIC_VALUE) {
+      writeLong(zip64Extra, record.size);
+    }
+    if (record.compressedSize >= ZIP64_MAGIC_VALUE) {
+      writeLong(zip64Extra, record.compressedSize);
+    }
+    if (record.localHeaderOffset >= ZIP64_MAGIC_VALUE) {
+      writeLong(zip64Extra, record.localHeaderOffset);
+    }
+    boolean zip64 = zip64Extra.size() > 0;
+    int version = zip64 ? VERSION_ZIP64 : record.getVersion();
+    int extraLength = record.extra.length + (zip64 ? 4 + zip64Extra.size() : 0);
+    writeInt(out, CENTRAL_FILE_HEADER_SIGNATURE);
+    writeShort(out, version);
+    writeShort(out, version);
+    writeShort(out, record.flag);
+    writeShort(out, record.method);
+    writeInt(out, record.dosTime);
+    writeInt(out, record.crc);
+    writeInt(out, Math.min(record.compressedSize, ZIP64_MAGIC_VALUE));
+    writeInt(out, Math.min(record.size, ZIP64_MAGIC_VALUE));
+    writeShort(out, record.nameBytes.length);
+    writeShort(out, extraLength);
+    writeShort(out, record.comment.length);
+    writeShort(out, 0);
+    writeShort(out, 0);
+    writeInt(out, 0);
+    writeInt(out, Math.min(record.localHeaderOffset, ZIP64_MAGIC_VALUE));
+    out.write(record.nameBytes);
+    if (zip64) {
+      writeShort(out, ZIP64_EXTRA_FIELD_ID);
+      writeShort(out, zip64Extra.size());
+      zip64Extra.writeTo(out);
+    }
+    out.write(record.extra);
+    out.write(record.comment);
+  }
+
+  private void writeEndOfCentralDirectory(long centralDirectoryOffset, long centralDirectorySize) throws IOException {
+    int count = entries.size();
+    if (count >= ZIP64_MAGIC_COUNT || centralDirectoryOffset >= ZIP64_MAGIC_VALUE
+        || centralDirectorySize >= ZIP64_MAGIC_VALUE) {
+      long zip64EndOffset = out.getCount();
+      writeInt(out, ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+      writeLong(out, 44);
+      writeShort(out, VERSION_ZIP64);
+      writeShort(out, VERSION_ZIP64);
+      writeInt(out, 0);
+      writeInt(out, 0);
+      writeLong(out, count);
+      writeLong(out, count);
+      writeLong(out, centralDirectorySize);
+      writeLong(out, centralDirectoryOffset);
+      writeInt(out, ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE);
+      writeInt(out, 0);
+      writeLong(out, zip64EndOffset);
+      writeInt(out, 1);
+    }
+    writeInt(out, END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+    writeShort(out, 0);
+    writeShort(out, 0);
+    writeShort(out, Math.min(count, ZIP64_MAGIC_COUNT));
+    writeShort(out, Math.min(count, ZIP64_MAGIC_COUNT));
+    writeInt(out, Math.min(centralDirectorySize, ZIP64_MAGIC_VALUE));
+    writeInt(out, Math.min(centralDirectoryOffset, ZIP64_MAGIC_VALUE));
+    if (comment == null) {
+      writeShort(out, 0);
+    } else {
+      writeShort(out, comment.length);
+      out.write(comment);
+    }
+  }
+
+  private void transfer(FileChannel source, long position, long count) throws IOException {
+    if (position + count > source.size()) {
+      throw new ZipException("Unexpected end of file while copying " + count + " bytes");
+    }
+    out.flush();
+    long transferred = 0;
+    while (transferred < count) {
+      long bytesTransferred = source.transferTo(position + transferred, count - transferred, channel);
+      if (bytesTransferred <= 0) {
+        throw new ZipException("Unable to copy " + count + " bytes from file");
+      }
+      transferred += bytesTransferred;
+    }
+    out.skip(count);
+  }
+
+  private void ensureOpen() throws IOException {
+    if (finished) {
+      throw new IOException("ZIP file already finished");
+    }
+  }
+
+  /**
+   * Converts a Java time into MS-DOS date and time format like {@link java.util.zip.ZipOutputStream} does.
+   */
+  private static long toDosTime(long time) {
+    LocalDateTime dateTime = LocalDateTime.ofInstant(
+        Instant.ofEpochMilli(time == -1 ? System.currentTimeMillis() : time), ZoneId.systemDefault());
+    int year = dateTime.getYear() - 1980;
+    if (year < 0) {
+      return (1 << 21) | (1 << 16);
+    }
+    return (long) year << 25 | dateTime.getMonthValue() << 21 | dateTime.getDayOfMonth() << 16
+        | dateTime.getHour() << 11 | dateTime.getMinute() << 5 | dateTime.getSecond() >> 1;
+  }
+
+  /**
+   * Removes the ZIP64 extended information from extra field data, since it is written by this writer where needed.
+   */
+  private static byte[] removeZip64ExtraField(byte[] extra) {
+    if (extra == null) {
+      return new byte[0];
+    }
+    ByteArrayOutputStream result = new ByteArrayOutputStream(extra.length);
+    int position = 0;
+    while (position + 4 <= extra.length) {
+      int id = (extra[position] & 0xFF) | (extra[position + 1] & 0xFF) << 8;
+      int length = (extra[position + 2] & 0xFF) | (extra[position + 3] & 0xFF) << 8;
+      if (position + 4 + length > extra.length) {
+        break;
+      }
+      if (id != ZIP64_EXTRA_FIELD_ID) {
+        result.write(extra, position, 4 + length);
+      }
+      position += 4 + length;
+    }
+    result.write(extra, position, extra.length - position);
+    return result.toByteArray();
+  }
+
+  private static void writeShort(OutputStream stream, int value) throws IOException {
+    stream.write(value & 0xFF);
+    stream.write((value >>> 8) & 0xFF);
+  }
+
+  private static void writeInt(OutputStream stream, long value) throws IOException {
+    writeShort(stream, (int) (value & 0xFFFF));
+    writeShort(stream, (int) ((value >>> 16) & 0xFFFF));
+  }
+
+  private static void writeLong(OutputStream stream, long value) throws IOException {
+    writeInt(stream, value & 0xFFFFFFFFL);
+    writeInt(stream, value >>> 32);
+  }
+
+  private static final class EntryRecord {
+
+    private final String name;
+    private final byte[] nameBytes;
+    private final int method;
+    private final long dosTime;
+    private final byte[] extra;
+    private final byte[] comment;
+    private int flag;
+    private long crc;
+    private long size;
+    private long compressedSize;
+    private long localHeaderOffset;
+
+    EntryRecord(String name, int method, long dosTime, byte[] extra, String comment) throws ZipException {
+      this.name = name;
+      this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+      this.method = method;
+      this.dosTime = dosTime;
+      this.extra = removeZip64ExtraField(extra);
+      this.comment = comment == null ? new byte[0] : comment.getBytes(StandardCharsets.UTF_8);
+      if (this.nameBytes.length > ZIP64_MAGIC_COUNT || this.extra.length > ZIP64_MAGIC_COUNT - 28
+          || this.comment.length > ZIP64_MAGIC_COUNT) {
+        throw new ZipException("Too long name, extra field data or comment of entry " + name);
+      }
+    }
+
+    int getVersion() {
+      return method == ZipEntry.STORED ? VERSION_STORED : VERSION_DEFLATED;
+    }
+
+  }
+
+  private static final class CountingOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private long count;
+
+    CountingOutputStream(OutputStream out, long count) {
+      this.out = out;
+      this.count = count;
+    }
+
+    long getCount() {
+      return count;
+    }
+
+    /**
+     * Counts bytes written past this stream directly into the underlying file.
+     */
+    void skip(long length) {
+      count += length;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+
+  }
+
+  private static final class NonClosingOutputStream extends OutputStream {
+
+    private final OutputStream out;
+
+    NonClosingOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+  }
+
+}
@@ -0,0 +1,129 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.CommonDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.model.MimeType;
+import eu.europa.esig.dss.spi.DSSUtils;
+import eu.europa.esig.dss.utils.Utils;
+import org.digidoc4j.impl.asic.zip.ByteBufferInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * @see eu.europa.esig.dss.model.DSSDocument implementation holding its contents in direct (off-heap) buffers acquired
+ * from a {@link DirectBufferPool}. The buffers are returned to the pool once the document and all the streams opened
+ * from it have become unreachable.
+ * <p>
+ * When serialized, the document is replaced by an {@link InMemoryDocument} holding a copy of its contents.
+ */
+public class DirectBufferDocument extends CommonDocument {
+
+  private static final Logger logger = LoggerFactory.getLogger(DirectBufferDocument.class);
+
+  private final transient List<ByteBuffer> buffers;
+  private final long size;
+
+  /**
+   * @param buffers  contents of the document, each buffer from its position to its limit; the buffers are owned by the
+   *                 document from now on
+   * @param pool     pool the buffers were acquired from
+   * @param name     document name
+   * @param mimeType mime type
+   */
+  public DirectBufferDocument(List<ByteBuffer> buffers, DirectBufferPool pool, String name, MimeType mimeType) {
+    logger.debug("Document name: " + name + ", mime type: " + mimeType);
+    this.buffers = Collections.unmodifiableList(buffers);
+    this.size = buffers.stream().mapToLong(ByteBuffer::remaining).sum();
+    super.name = name;
+    super.mimeType = mimeType;
+    pool.releaseWhenUnreachable(this, buffers);
+  }
+
+  @Override
+  public InputStream openStream() {
+    return new DocumentInputStream();
+  }
+
+  @Override
+  public void writeTo(OutputStream stream) throws IOException {
+    WritableByteChannel channel = Channels.newChannel(stream);
+    // Holding the lock keeps the document, and thereby its buffers, reachable until all the buffers have been read
+    synchronized (this) {
+      for (ByteBuffer buffer : buffers) {
+        ByteBuffer contents = buffer.duplicate();
+        while (contents.hasRemaining()) {
+          channel.write(contents);
+        }
+      }
+    }
+  }
+
+  @Override
+  public String getDigest(DigestAlgorithm digestAlgorithm) {
+    String base64EncodeDigest = base64EncodeDigestMap.get(digestAlgorithm);
+    if (base64EncodeDigest == null) {
+      MessageDigest messageDigest = DSSUtils.getMessageDigest(digestAlgorithm);
+      synchronized (this) {
+        for (ByteBuffer buffer : buffers) {
+          messageDigest.update(buffer.duplicate());
+        }
+      }
+      base64EncodeDigest = Utils.toBase64(messageDigest.digest());
+      base64EncodeDigestMap.put(digestAlgorithm, base64EncodeDigest);
+    }
+    return base64EncodeDigest;
+  }
+
+  /**
+   * @return size of the document contents in bytes
+   */
+  public long getSize() {
+    return size;
+  }
+
+  private Object writeReplace() throws ObjectStreamException {
+    return new InMemoryDocument(DSSUtils.toByteArray(openStream()), name, mimeType);
+  }
+
+  /**
+   * Keeps the document, and thereby its buffers, reachable for as long as the stream is in use.
+   */
+  private class DocumentInputStream extends SequenceInputStream {
+
+    DocumentInputStream() {
+      super(Collections.enumeration(createBufferStreams()));
+    }
+
+  }
+
+  private List<InputStream> createBufferStreams() {
+    return buffers.stream()
+        .map(buffer -> new ByteBufferInputStream(buffer.asReadOnlyBuffer()))
+        .collect(Collectors.toList());
+  }
+
+}
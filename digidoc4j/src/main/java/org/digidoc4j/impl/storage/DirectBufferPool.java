@@ -0,0 +1,160 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of fixed size direct (off-heap) buffers.
+ * <p>
+ * Allocating direct buffers is expensive and their memory is only freed when the buffers are garbage collected, so
+ * the buffers are recycled instead. The buffers held by an object are returned to the pool once the object has become
+ * unreachable, see {@link #releaseWhenUnreachable(Object, List)}. Up to a limited number of idle buffers are kept in
+ * the pool; the rest are left to the garbage collector.
+ */
+public final class DirectBufferPool {
+
+  private static final Logger logger = LoggerFactory.getLogger(DirectBufferPool.class);
+
+  /**
+   * Size of the buffers of the default pool in bytes
+   */
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+  private static final int DEFAULT_MAX_IDLE_BUFFERS = 256;
+  private static final DirectBufferPool DEFAULT = new DirectBufferPool(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_IDLE_BUFFERS);
+
+  private final int bufferSize;
+  private final int maxIdleBuffers;
+  private final Deque<ByteBuffer> idleBuffers = new ArrayDeque<>();
+  private final ReferenceQueue<Object> unreachableOwners = new ReferenceQueue<>();
+  private final Set<OwnerReference> ownerReferences = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  /**
+   * @param bufferSize     size of the buffers in bytes
+   * @param maxIdleBuffers maximum number of idle buffers kept in the pool
+   */
+  public DirectBufferPool(int bufferSize, int maxIdleBuffers) {
+    this.bufferSize = bufferSize;
+    this.maxIdleBuffers = maxIdleBuffers;
+  }
+
+  /**
+   * @return pool of {@link #DEFAULT_BUFFER_SIZE} byte buffers shared by the whole application
+   */
+  public static DirectBufferPool getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * @return an empty buffer of {@link #getBufferSize()} bytes
+   */
+  public ByteBuffer acquire() {
+    reclaimBuffersOfUnreachableOwners();
+    ByteBuffer buffer;
+    synchronized (idleBuffers) {
+      buffer = idleBuffers.poll();
+    }
+    if (buffer == null) {
+      return ByteBuffer.allocateDirect(bufferSize);
+    }
+    ((Buffer) buffer).clear();
+    return buffer;
+  }
+
+  /**
+   * Returns buffers to the pool. The buffers must not be used after they have been released.
+   *
+   * @param buffers buffers acquired from this pool
+   */
+  public void release(List<ByteBuffer> buffers) {
+    synchronized (idleBuffers) {
+      for (ByteBuffer buffer : buffers) {
+        if (idleBuffers.size() >= maxIdleBuffers) {
+          return;
+        }
+        idleBuffers.push(buffer);
+      }
+    }
+  }
+
+  /**
+   * Returns buffers to the pool once their owner has become unreachable. The owner must be the only means of
+   * accessing the buffers.
+   *
+   * @param owner   object holding the buffers
+   * @param buffers buffers acquired from this pool
+   */
+  public void releaseWhenUnreachable(Object owner, List<ByteBuffer> buffers) {
+    ownerReferences.add(new OwnerReference(owner, buffers, unreachableOwners));
+  }
+
+  /**
+   * @return size of the buffers of this pool in bytes
+   */
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  /**
+   * @return number of idle buffers in the pool
+   */
+  public int getIdleBufferCount() {
+    reclaimBuffersOfUnreachableOwners();
+    synchronized (idleBuffers) {
+      return idleBuffers.size();
+    }
+  }
+
+  /**
+   * Enqueues the references to all the owners of buffers of this pool, as the garbage collector does once the owners
+   * have become unreachable, so that their buffers are reclaimed the next time the pool is used.
+   */
+  void enqueueOwnerReferences() {
+    for (OwnerReference ownerReference : ownerReferences) {
+      ownerReference.enqueue();
+    }
+  }
+
+  private void reclaimBuffersOfUnreachableOwners() {
+    Reference<?> reference;
+    while ((reference = unreachableOwners.poll()) != null) {
+      OwnerReference ownerReference = (OwnerReference) reference;
+      ownerReferences.remove(ownerReference);
+      logger.trace("Reclaiming {} buffers of an unreachable owner", ownerReference.buffers.size());
+      release(ownerReference.buffers);
+    }
+  }
+
+  private static final class OwnerReference extends PhantomReference<Object> {
+
+    private final List<ByteBuffer> buffers;
+
+    OwnerReference(Object owner, List<ByteBuffer> buffers, ReferenceQueue<Object> queue) {
+      super(owner, queue);
+      this.buffers = buffers;
+    }
+
+  }
+
+}
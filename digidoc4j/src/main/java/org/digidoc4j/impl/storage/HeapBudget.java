@@ -0,0 +1,265 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Constant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the total number of bytes of data file contents kept on the heap by all the containers sharing the budget.
+ * <p>
+ * Contents are kept on the heap only if their size can be reserved from the budget. The reserved bytes are returned to
+ * the budget when the container holding the document is done with it, see {@link #releaseOwnedBy(Object)}, or at the
+ * latest once the document has become unreachable, see {@link #releaseWhenUnreachable(Object, long)}. Contents that do
+ * not fit into the budget are expected to be stored elsewhere, for example in temporary files.
+ * <p>
+ * All the containers opened with the same configuration share the budget of the configuration, see
+ * {@link #of(Configuration)}.
+ */
+public final class HeapBudget {
+
+  private static final Logger logger = LoggerFactory.getLogger(HeapBudget.class);
+  private static final Map<Configuration, HeapBudget> budgets = new WeakHashMap<>();
+  private static final ReferenceQueue<Object> unreachableOwners = new ReferenceQueue<>();
+  /**
+   * Owners holding reserved bytes of any budget, by the identity hash codes of the owners
+   */
+  private static final Map<Integer, List<OwnerReference>> ownerReferences = new HashMap<>();
+
+  private volatile long maxSize;
+  private final AtomicLong reservedSize = new AtomicLong();
+
+  /**
+   * @param maxSize maximum total size of contents kept on the heap in bytes, {@link Constant#CACHE_ALL_DATA_FILES}
+   *                for no limit
+   */
+  public HeapBudget(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Get the budget shared by all the containers opened with the configuration. The maximum size of the budget follows
+   * {@link Configuration#getMaxDataFilesCachedTotalInBytes()}; a new budget is created when the limit is switched on
+   * or off.
+   *
+   * @param configuration configuration
+   * @return data file heap budget of the configuration
+   */
+  public static HeapBudget of(Configuration configuration) {
+    long maxSize = configuration.getMaxDataFilesCachedTotalInBytes();
+    boolean limited = maxSize != Constant.CACHE_ALL_DATA_FILES;
+    HeapBudget budget;
+    synchronized (budgets) {
+      budget = budgets.get(configuration);
+      if (budget == null || budget.isLimited() != limited) {
+        budget = new HeapBudget(maxSize);
+        budgets.put(configuration, budget);
+      }
+    }
+    budget.setMaxSize(maxSize);
+    return budget;
+  }
+
+  /**
+   * Reserves bytes from the budget. Reserved bytes must be either released by {@link #release(long)} or handed over
+   * to their owner by {@link #releaseWhenUnreachable(Object, long)}.
+   *
+   * @param size number of bytes
+   * @return true if the bytes were reserved, false if there are not enough bytes left in the budget
+   */
+  public boolean tryReserve(long size) {
+    if (!isLimited()) {
+      return true;
+    }
+    reclaimBytesOfUnreachableOwners();
+    long limit = maxSize;
+    long reserved;
+    do {
+      reserved = reservedSize.get();
+      if (size > limit - reserved) {
+        logger.debug("Unable to reserve {} bytes, {} of {} bytes already reserved", size, reserved, limit);
+        return false;
+      }
+    } while (!reservedSize.compareAndSet(reserved, reserved + size));
+    return true;
+  }
+
+  /**
+   * Returns reserved bytes to the budget.
+   *
+   * @param size number of bytes reserved by {@link #tryReserve(long)}
+   */
+  public void release(long size) {
+    if (isLimited()) {
+      reservedSize.addAndGet(-size);
+    }
+  }
+
+  /**
+   * Returns reserved bytes to the budget once their owner has become unreachable, unless they are released earlier by
+   * {@link #releaseOwnedBy(Object)}.
+   *
+   * @param owner object holding the contents
+   * @param size  number of bytes reserved by {@link #tryReserve(long)}
+   */
+  public void releaseWhenUnreachable(Object owner, long size) {
+    if (isLimited()) {
+      OwnerReference ownerReference = new OwnerReference(owner, this, size);
+      synchronized (ownerReferences) {
+        ownerReferences.computeIfAbsent(ownerReference.ownerHashCode, h -> new ArrayList<>(1)).add(ownerReference);
+      }
+    }
+  }
+
+  /**
+   * Returns the bytes reserved for the owner to the budget they were reserved from right away, e.g. when the data file
+   * holding the document has been removed from its container or the container has been closed. Has no effect if no
+   * bytes are reserved for the owner.
+   *
+   * @param owner object holding the contents, see {@link #releaseWhenUnreachable(Object, long)}
+   */
+  public static void releaseOwnedBy(Object owner) {
+    OwnerReference released = null;
+    synchronized (ownerReferences) {
+      List<OwnerReference> references = ownerReferences.get(System.identityHashCode(owner));
+      if (references != null) {
+        for (OwnerReference reference : references) {
+          if (reference.get() == owner) {
+            released = reference;
+            break;
+          }
+        }
+        if (released != null) {
+          removeOwnerReference(released);
+          released.clear();
+        }
+      }
+    }
+    if (released != null) {
+      logger.trace("Releasing {} bytes of a document no longer in use", released.size);
+      released.budget.reservedSize.addAndGet(-released.size);
+    }
+  }
+
+  /**
+   * @return number of bytes that can still be reserved, {@link Long#MAX_VALUE} if the budget is not limited
+   */
+  public long getAvailableSize() {
+    if (!isLimited()) {
+      return Long.MAX_VALUE;
+    }
+    reclaimBytesOfUnreachableOwners();
+    return Math.max(0, maxSize - reservedSize.get());
+  }
+
+  /**
+   * @return number of reserved bytes
+   */
+  public long getReservedSize() {
+    reclaimBytesOfUnreachableOwners();
+    return reservedSize.get();
+  }
+
+  /**
+   * @return maximum total size of contents kept on the heap in bytes, {@link Constant#CACHE_ALL_DATA_FILES} if not
+   * limited
+   */
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Changes the limit of the budget. Bytes reserved before the change stay reserved.
+   *
+   * @param maxSize maximum total size of contents kept on the heap in bytes, {@link Constant#CACHE_ALL_DATA_FILES}
+   *                for no limit
+   */
+  public void setMaxSize(long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * @return true if the total size of contents kept on the heap is limited
+   */
+  public boolean isLimited() {
+    return maxSize != Constant.CACHE_ALL_DATA_FILES;
+  }
+
+  /**
+   * Enqueues the references to all the owners of bytes reserved from this budget, as the garbage collector does once
+   * the owners have become unreachable, so that their bytes are reclaimed the next time the budget is used.
+   */
+  void enqueueOwnerReferences() {
+    synchronized (ownerReferences) {
+      for (List<OwnerReference> references : ownerReferences.values()) {
+        for (OwnerReference reference : references) {
+          if (reference.budget == this) {
+            reference.enqueue();
+          }
+        }
+      }
+    }
+  }
+
+  private static void reclaimBytesOfUnreachableOwners() {
+    Reference<?> reference;
+    while ((reference = unreachableOwners.poll()) != null) {
+      OwnerReference ownerReference = (OwnerReference) reference;
+      boolean removed;
+      synchronized (ownerReferences) {
+        removed = removeOwnerReference(ownerReference);
+      }
+      if (removed) {
+        logger.trace("Reclaiming {} bytes of an unreachable owner", ownerReference.size);
+        ownerReference.budget.reservedSize.addAndGet(-ownerReference.size);
+      }
+    }
+  }
+
+  private static boolean removeOwnerReference(OwnerReference ownerReference) {
+    List<OwnerReference> references = ownerReferences.get(ownerReference.ownerHashCode);
+    if (references == null || !references.remove(ownerReference)) {
+      return false;
+    }
+    if (references.isEmpty()) {
+      ownerReferences.remove(ownerReference.ownerHashCode);
+    }
+    return true;
+  }
+
+  private static final class OwnerReference extends WeakReference<Object> {
+
+    private final int ownerHashCode;
+    private final HeapBudget budget;
+    private final long size;
+
+    OwnerReference(Object owner, HeapBudget budget, long size) {
+      super(owner, unreachableOwners);
+      this.ownerHashCode = System.identityHashCode(owner);
+      this.budget = budget;
+      this.size = size;
+    }
+
+  }
+
+}
@@ -0,0 +1,189 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.MimeType;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single temporary file holding the contents of several documents one after another, so that a container with many
+ * large data files needs only one temporary file instead of one per data file.
+ * <p>
+ * The file is created when the first document is appended. Once the spool file and all the documents and streams
+ * using it have become unreachable, the file is deleted the next time a spool file is created, or at the latest when
+ * the JVM exits. Unlike with {@link File#deleteOnExit()}, deleted spool files are not remembered until the JVM exits.
+ */
+public final class SpoolFile {
+
+  private static final Logger logger = LoggerFactory.getLogger(SpoolFile.class);
+  private static final int BUFFER_SIZE = 8192;
+  private static final ReferenceQueue<SpoolFile> unreachableSpoolFiles = new ReferenceQueue<>();
+  private static final Set<FileReference> fileReferences = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(SpoolFile::deleteAllFiles, "digidoc4j-spool-file-cleanup"));
+  }
+
+  private final File directory;
+  private File file;
+  private long size;
+
+  /**
+   * @param directory directory of the temporary file, {@code null} for the default temporary-file directory
+   */
+  public SpoolFile(File directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Reads the given stream to its end and appends its contents to the spool file. The stream is not closed.
+   *
+   * @param stream   document contents
+   * @param name     document name
+   * @param mimeType document mime type
+   * @return document backed by the appended contents
+   */
+  public synchronized SpoolFileDocument append(InputStream stream, String name, MimeType mimeType) {
+    try {
+      long offset = size;
+      try (OutputStream out = new FileOutputStream(getOrCreateFile(), true)) {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int bytesRead;
+        while ((bytesRead = stream.read(buffer)) >= 0) {
+          out.write(buffer, 0, bytesRead);
+          size += bytesRead;
+        }
+      }
+      logger.debug("Appended {} bytes of {} to spool file {}", size - offset, name, file);
+      return new SpoolFileDocument(this, offset, size - offset, name, mimeType);
+    } catch (IOException e) {
+      logger.error("Unable to write " + name + " into spool file: " + e.getMessage());
+      throw new DSSException(e);
+    }
+  }
+
+  /**
+   * @return the temporary file, {@code null} if nothing has been appended yet
+   */
+  public synchronized File getFile() {
+    return file;
+  }
+
+  /**
+   * @return directory of the temporary file, {@code null} for the default temporary-file directory
+   */
+  public File getDirectory() {
+    return directory;
+  }
+
+  InputStream openStream(long offset, long length) {
+    File spooledFile = getFile();
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(spooledFile.toPath(), StandardOpenOption.READ);
+      channel.position(offset);
+      return new SpoolFileInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE), length);
+    } catch (IOException e) {
+      closeQuietly(channel);
+      logger.error("Unable to read spool file " + spooledFile + ": " + e.getMessage());
+      throw new DSSException(e);
+    }
+  }
+
+  private File getOrCreateFile() throws IOException {
+    if (file == null) {
+      deleteFilesOfUnreachableSpoolFiles();
+      if (directory != null) {
+        Files.createDirectories(directory.toPath());
+      }
+      file = File.createTempFile("digidoc4j-spool", ".tmp", directory);
+      fileReferences.add(new FileReference(this, file));
+    }
+    return file;
+  }
+
+  private static void deleteFilesOfUnreachableSpoolFiles() {
+    Reference<? extends SpoolFile> reference;
+    while ((reference = unreachableSpoolFiles.poll()) != null) {
+      FileReference fileReference = (FileReference) reference;
+      fileReferences.remove(fileReference);
+      delete(fileReference.file);
+    }
+  }
+
+  private static void deleteAllFiles() {
+    for (FileReference fileReference : fileReferences) {
+      delete(fileReference.file);
+    }
+  }
+
+  private static void delete(File file) {
+    try {
+      Files.deleteIfExists(file.toPath());
+      logger.trace("Deleted spool file {}", file);
+    } catch (IOException e) {
+      logger.warn("Unable to delete spool file " + file + ": " + e.getMessage());
+    }
+  }
+
+  private static void closeQuietly(FileChannel channel) {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.debug("Unable to close channel: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Keeps the spool file, and thereby the temporary file, from being deleted for as long as the stream is in use.
+   */
+  private class SpoolFileInputStream extends BoundedInputStream {
+
+    SpoolFileInputStream(InputStream in, long size) {
+      super(in, size);
+    }
+
+  }
+
+  private static final class FileReference extends PhantomReference<SpoolFile> {
+
+    private final File file;
+
+    FileReference(SpoolFile spoolFile, File file) {
+      super(spoolFile, unreachableSpoolFiles);
+      this.file = file;
+    }
+
+  }
+
+}
@@ -0,0 +1,88 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.CommonDocument;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.MimeType;
+import org.digidoc4j.impl.StreamDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+
+/**
+ * @see eu.europa.esig.dss.model.DSSDocument implementation backed by a region of a {@link SpoolFile}.
+ * <p>
+ * When serialized, the document is replaced by a {@link StreamDocument} holding a copy of its contents in a temporary
+ * file of its own, since the spool file is deleted once it is no longer used in this JVM.
+ */
+public class SpoolFileDocument extends CommonDocument {
+
+  private static final Logger logger = LoggerFactory.getLogger(SpoolFileDocument.class);
+
+  private final transient SpoolFile spoolFile;
+  private final long offset;
+  private final long size;
+
+  SpoolFileDocument(SpoolFile spoolFile, long offset, long size, String name, MimeType mimeType) {
+    logger.debug("Document name: " + name + ", mime type: " + mimeType);
+    this.spoolFile = spoolFile;
+    this.offset = offset;
+    this.size = size;
+    super.name = name;
+    super.mimeType = mimeType;
+  }
+
+  @Override
+  public InputStream openStream() throws DSSException {
+    return spoolFile.openStream(offset, size);
+  }
+
+  /**
+   * Caches the digest of the document contents, so that it does not need to be calculated by reading the contents.
+   *
+   * @param digestAlgorithm    digest algorithm
+   * @param base64EncodeDigest base64 encoded digest of the document contents
+   */
+  public void addDigest(DigestAlgorithm digestAlgorithm, String base64EncodeDigest) {
+    base64EncodeDigestMap.put(digestAlgorithm, base64EncodeDigest);
+  }
+
+  /**
+   * @return spool file holding the document contents
+   */
+  public File getFile() {
+    return spoolFile.getFile();
+  }
+
+  /**
+   * @return position of the document contents in the spool file
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return size of the document contents in bytes
+   */
+  public long getSize() {
+    return size;
+  }
+
+  private Object writeReplace() throws ObjectStreamException {
+    return new StreamDocument(openStream(), name, mimeType, spoolFile.getDirectory());
+  }
+
+}
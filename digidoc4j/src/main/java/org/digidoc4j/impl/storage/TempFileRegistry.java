@@ -0,0 +1,201 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Temporary files used by a container, deleted when the container is closed.
+ * <p>
+ * A temporary file can be used by several containers at a time, e.g. when a data file is added to more than one
+ * container. Every registry holding a file counts as one reference to it, and the file is deleted when the last
+ * registry holding it is closed. Only the registered files are deleted, the temporary-file directory is never
+ * scanned.
+ * <p>
+ * Containers that are never closed do not keep their temporary files until the JVM exits: a temporary file can be
+ * tied to the object using it, see {@link #deleteWhenUnreachable(Object, File)}, and is then deleted once that object
+ * has become unreachable, the next time another file is tied to an object.
+ */
+public final class TempFileRegistry implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(TempFileRegistry.class);
+  private static final Map<File, Integer> referenceCounts = new HashMap<>();
+  private static final ReferenceQueue<Object> unreachableOwners = new ReferenceQueue<>();
+  private static final Map<File, FileReference> fileReferences = new ConcurrentHashMap<>();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(TempFileRegistry::deleteAllFiles,
+        "digidoc4j-temporary-file-cleanup"));
+  }
+
+  private final Set<File> files = new HashSet<>();
+
+  /**
+   * Deletes the temporary file once the given object using it has become unreachable, or at the latest when the JVM
+   * exits, unless the file has been deleted by closing the registries holding it before that. Unlike with
+   * {@link File#deleteOnExit()}, deleted files are not remembered until the JVM exits.
+   *
+   * @param owner object using the temporary file, e.g. the document whose contents are held in the file
+   * @param file  temporary file
+   */
+  public static void deleteWhenUnreachable(Object owner, File file) {
+    deleteFilesOfUnreachableOwners();
+    fileReferences.put(file, new FileReference(owner, file));
+  }
+
+  /**
+   * Registers a temporary file as used by the container. Registering the same file again has no effect.
+   *
+   * @param file temporary file
+   */
+  public void add(File file) {
+    synchronized (referenceCounts) {
+      if (files.add(file)) {
+        referenceCounts.merge(file, 1, Integer::sum);
+      }
+    }
+  }
+
+  /**
+   * Stops holding a temporary file that is no longer used by the container, without deleting it.
+   *
+   * @param file temporary file
+   */
+  public void remove(File file) {
+    synchronized (referenceCounts) {
+      if (files.remove(file)) {
+        release(file);
+      }
+    }
+  }
+
+  /**
+   * Creates a registry holding the same temporary files as this registry, so that the files are not deleted before
+   * both registries have been closed.
+   *
+   * @return new registry holding the temporary files of this registry
+   */
+  public TempFileRegistry copy() {
+    TempFileRegistry copy = new TempFileRegistry();
+    synchronized (referenceCounts) {
+      for (File file : files) {
+        copy.add(file);
+      }
+    }
+    return copy;
+  }
+
+  /**
+   * @param file temporary file
+   * @return whether the file is held by this registry
+   */
+  public boolean contains(File file) {
+    synchronized (referenceCounts) {
+      return files.contains(file);
+    }
+  }
+
+  /**
+   * Releases all the temporary files held by this registry and deletes those that are not held by any other registry.
+   * The registry can be used again afterwards.
+   */
+  @Override
+  public void close() {
+    List<File> unusedFiles = new ArrayList<>();
+    synchronized (referenceCounts) {
+      for (File file : files) {
+        if (release(file) == 0) {
+          unusedFiles.add(file);
+        }
+      }
+      files.clear();
+    }
+    for (File file : unusedFiles) {
+      delete(file);
+    }
+  }
+
+  private static int release(File file) {
+    Integer count = referenceCounts.get(file);
+    if (count == null || count <= 1) {
+      referenceCounts.remove(file);
+      return 0;
+    }
+    referenceCounts.put(file, count - 1);
+    return count - 1;
+  }
+
+  /**
+   * Enqueues the reference to the owner of the file, as the garbage collector does once the owner has become
+   * unreachable, so that the file is deleted the next time a file is tied to an object.
+   *
+   * @param file temporary file tied to an object by {@link #deleteWhenUnreachable(Object, File)}
+   */
+  static void enqueueOwnerReference(File file) {
+    FileReference fileReference = fileReferences.get(file);
+    if (fileReference != null) {
+      fileReference.enqueue();
+    }
+  }
+
+  private static void deleteFilesOfUnreachableOwners() {
+    Reference<?> reference;
+    while ((reference = unreachableOwners.poll()) != null) {
+      FileReference fileReference = (FileReference) reference;
+      if (fileReferences.remove(fileReference.file, fileReference)) {
+        delete(fileReference.file);
+      }
+    }
+  }
+
+  private static void deleteAllFiles() {
+    for (File file : fileReferences.keySet()) {
+      delete(file);
+    }
+  }
+
+  private static void delete(File file) {
+    fileReferences.remove(file);
+    try {
+      Files.deleteIfExists(file.toPath());
+      logger.trace("Deleted temporary file {}", file);
+    } catch (IOException e) {
+      logger.warn("Unable to delete temporary file " + file + ": " + e.getMessage());
+    }
+  }
+
+  private static final class FileReference extends PhantomReference<Object> {
+
+    private final File file;
+
+    FileReference(Object owner, File file) {
+      super(owner, unreachableOwners);
+      this.file = file;
+    }
+
+  }
+
+}
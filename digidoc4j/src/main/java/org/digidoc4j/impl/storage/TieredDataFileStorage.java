@@ -0,0 +1,236 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.model.MimeType;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.digidoc4j.Constant;
+import org.digidoc4j.DataFileStorage;
+import org.digidoc4j.impl.StreamDocument;
+import org.digidoc4j.impl.asic.zip.ByteBufferInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Default {@link DataFileStorage} keeping the contents of data files in one of three tiers depending on their size:
+ * <ul>
+ * <li>contents of up to {@code maxHeapSize} bytes are kept on the heap as long as their size fits into the
+ * {@link HeapBudget},</li>
+ * <li>contents of up to {@code maxOffHeapSize} bytes are kept in pooled direct buffers,</li>
+ * <li>larger contents are spooled into temporary files in the spool directory.</li>
+ * </ul>
+ * The size of the contents is found out by reading them, so contents are read only once whichever tier they end up in.
+ * Contents that do not fit into the heap budget are stored in the next tier even if they are small enough to be kept
+ * on the heap.
+ */
+public class TieredDataFileStorage implements DataFileStorage {
+
+  private static final Logger logger = LoggerFactory.getLogger(TieredDataFileStorage.class);
+  private static final long MAX_HEAP_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+  private final long maxHeapSize;
+  private final long maxOffHeapSize;
+  private final String spoolDirectory;
+  private final transient HeapBudget heapBudget;
+
+  /**
+   * @param maxHeapSize    maximum size of contents kept on the heap in bytes, {@link Constant#CACHE_ALL_DATA_FILES}
+   *                       to keep all contents on the heap
+   * @param maxOffHeapSize maximum size of contents kept in direct buffers in bytes; direct buffers are not used if it
+   *                       is not greater than {@code maxHeapSize}
+   * @param spoolDirectory directory of the temporary files, {@code null} for the default temporary-file directory
+   */
+  public TieredDataFileStorage(long maxHeapSize, long maxOffHeapSize, String spoolDirectory) {
+    this(maxHeapSize, maxOffHeapSize, spoolDirectory, new HeapBudget(Constant.CACHE_ALL_DATA_FILES));
+  }
+
+  /**
+   * @param maxHeapSize    maximum size of contents kept on the heap in bytes, {@link Constant#CACHE_ALL_DATA_FILES}
+   *                       to keep all contents on the heap
+   * @param maxOffHeapSize maximum size of contents kept in direct buffers in bytes; direct buffers are not used if it
+   *                       is not greater than {@code maxHeapSize}
+   * @param spoolDirectory directory of the temporary files, {@code null} for the default temporary-file directory
+   * @param heapBudget     budget of the total size of contents kept on the heap, shared with other storages
+   */
+  public TieredDataFileStorage(long maxHeapSize, long maxOffHeapSize, String spoolDirectory, HeapBudget heapBudget) {
+    this.maxHeapSize = maxHeapSize;
+    this.maxOffHeapSize = maxOffHeapSize;
+    this.spoolDirectory = spoolDirectory;
+    this.heapBudget = heapBudget;
+  }
+
+  @Override
+  public DSSDocument store(InputStream stream, String name, MimeType mimeType) {
+    return store(stream, name, mimeType, null);
+  }
+
+  /**
+   * Stores the contents like {@link #store(InputStream, String, MimeType)}, except that contents too large to be kept
+   * in memory are appended to the given spool file instead of a temporary file of their own.
+   *
+   * @param stream    contents of the data file
+   * @param name      data file name
+   * @param mimeType  data file mime type
+   * @param spoolFile spool file shared by the data files of a container, {@code null} for a temporary file per data file
+   * @return document holding the stored contents
+   * @see #createSpoolFile()
+   */
+  public DSSDocument store(InputStream stream, String name, MimeType mimeType, SpoolFile spoolFile) {
+    try {
+      HeapBudget budget = getHeapBudget();
+      if (maxHeapSize == Constant.CACHE_ALL_DATA_FILES && !budget.isLimited()) {
+        return new InMemoryDocument(IOUtils.toByteArray(stream), name, mimeType);
+      }
+      long heapLimit = maxHeapSize == Constant.CACHE_ALL_DATA_FILES ? MAX_HEAP_ARRAY_SIZE
+          : Math.min(maxHeapSize, MAX_HEAP_ARRAY_SIZE);
+      heapLimit = Math.min(heapLimit, budget.getAvailableSize());
+      byte[] heapContents = readUpTo(stream, heapLimit + 1);
+      if (heapContents.length <= heapLimit && budget.tryReserve(heapContents.length)) {
+        logger.debug("Keeping {} bytes of {} on the heap", heapContents.length, name);
+        InMemoryDocument document = new InMemoryDocument(heapContents, name, mimeType);
+        budget.releaseWhenUnreachable(document, heapContents.length);
+        return document;
+      }
+      InputStream contents = new SequenceInputStream(new ByteArrayInputStream(heapContents), stream);
+      if (isOffHeapTierEnabled()) {
+        return storeOffHeapOrSpool(contents, name, mimeType, DirectBufferPool.getDefault(), spoolFile);
+      }
+      return spool(contents, name, mimeType, spoolFile);
+    } catch (IOException e) {
+      logger.error("Unable to store data file " + name + ": " + e.getMessage());
+      throw new DSSException(e);
+    }
+  }
+
+  /**
+   * @return maximum size of contents kept on the heap in bytes
+   */
+  public long getMaxHeapSize() {
+    return maxHeapSize;
+  }
+
+  /**
+   * @return maximum size of contents kept in direct buffers in bytes
+   */
+  public long getMaxOffHeapSize() {
+    return maxOffHeapSize;
+  }
+
+  /**
+   * @return directory of the temporary files or {@code null} if the default temporary-file directory is used
+   */
+  public String getSpoolDirectory() {
+    return spoolDirectory;
+  }
+
+  /**
+   * @return budget of the total size of contents kept on the heap
+   */
+  public HeapBudget getHeapBudget() {
+    // The budget is not serialized, a deserialized storage is not limited by any budget
+    return heapBudget == null ? new HeapBudget(Constant.CACHE_ALL_DATA_FILES) : heapBudget;
+  }
+
+  /**
+   * @return new spool file in the spool directory of this storage; the temporary file is created only when contents
+   * are spooled into it
+   */
+  public SpoolFile createSpoolFile() {
+    return new SpoolFile(getSpoolDirectoryFile());
+  }
+
+  private boolean isOffHeapTierEnabled() {
+    return maxOffHeapSize > 0 && (maxHeapSize == Constant.CACHE_ALL_DATA_FILES || maxOffHeapSize > maxHeapSize);
+  }
+
+  private DSSDocument storeOffHeapOrSpool(InputStream contents, String name, MimeType mimeType, DirectBufferPool pool,
+                                         SpoolFile spoolFile) throws IOException {
+    ReadableByteChannel channel = Channels.newChannel(contents);
+    List<ByteBuffer> buffers = new ArrayList<>();
+    long size = 0;
+    boolean endOfStream = false;
+    try {
+      while (!endOfStream && size <= maxOffHeapSize) {
+        ByteBuffer buffer = pool.acquire();
+        endOfStream = fill(channel, buffer);
+        size += buffer.position();
+        ((Buffer) buffer).flip();
+        if (buffer.hasRemaining()) {
+          buffers.add(buffer);
+        } else {
+          pool.release(Collections.singletonList(buffer));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      pool.release(buffers);
+      throw e;
+    }
+    if (endOfStream && size <= maxOffHeapSize) {
+      logger.debug("Keeping {} bytes of {} in {} direct buffers", size, name, buffers.size());
+      return new DirectBufferDocument(buffers, pool, name, mimeType);
+    }
+    try {
+      List<InputStream> streams = new ArrayList<>(buffers.size() + 1);
+      for (ByteBuffer buffer : buffers) {
+        streams.add(new ByteBufferInputStream(buffer));
+      }
+      streams.add(contents);
+      return spool(new SequenceInputStream(Collections.enumeration(streams)), name, mimeType, spoolFile);
+    } finally {
+      pool.release(buffers);
+    }
+  }
+
+  private DSSDocument spool(InputStream contents, String name, MimeType mimeType, SpoolFile spoolFile) {
+    if (spoolFile != null) {
+      return spoolFile.append(contents, name, mimeType);
+    }
+    logger.debug("Spooling {} into a temporary file", name);
+    return new StreamDocument(contents, name, mimeType, getSpoolDirectoryFile());
+  }
+
+  private File getSpoolDirectoryFile() {
+    return spoolDirectory == null ? null : new File(spoolDirectory);
+  }
+
+  private static boolean fill(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static byte[] readUpTo(InputStream stream, long maxSize) throws IOException {
+    BoundedInputStream boundedStream = new BoundedInputStream(stream, maxSize);
+    boundedStream.setPropagateClose(false);
+    return IOUtils.toByteArray(boundedStream);
+  }
+
+}
@@ -0,0 +1,113 @@
+package org.digidoc4j.utils;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.spi.DSSUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Calculates digests of all the bytes read through this stream.
+ * The digests are available once the end of the underlying stream has been reached.
+ */
+public class DigestCalculatingInputStream extends FilterInputStream {
+
+  private static final int SKIP_BUFFER_SIZE = 8192;
+
+  private final Map<DigestAlgorithm, MessageDigest> messageDigests = new EnumMap<>(DigestAlgorithm.class);
+  private Map<DigestAlgorithm, byte[]> digests;
+  private boolean endOfStreamReached;
+
+  public DigestCalculatingInputStream(InputStream inputStream, Collection<DigestAlgorithm> digestAlgorithms) {
+    super(inputStream);
+    for (DigestAlgorithm digestAlgorithm : digestAlgorithms) {
+      messageDigests.put(digestAlgorithm, DSSUtils.getMessageDigest(digestAlgorithm));
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    int valueRead = super.read();
+    if (valueRead < 0) {
+      endOfStreamReached = true;
+    } else {
+      for (MessageDigest messageDigest : messageDigests.values()) {
+        messageDigest.update((byte) valueRead);
+      }
+    }
+    return valueRead;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int bytesRead = super.read(b, off, len);
+    if (bytesRead < 0) {
+      endOfStreamReached = true;
+    } else {
+      for (MessageDigest messageDigest : messageDigests.values()) {
+        messageDigest.update(b, off, bytesRead);
+      }
+    }
+    return bytesRead;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), SKIP_BUFFER_SIZE)];
+    long bytesSkipped = 0;
+    while (bytesSkipped < n) {
+      int bytesRead = read(buffer, 0, (int) Math.min(n - bytesSkipped, buffer.length));
+      if (bytesRead < 0) {
+        break;
+      }
+      bytesSkipped += bytesRead;
+    }
+    return bytesSkipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public synchronized void mark(int readlimit) {
+  }
+
+  @Override
+  public synchronized void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+
+  /**
+   * @return whether all the bytes of the underlying stream have been read through this stream
+   */
+  public boolean isEndOfStreamReached() {
+    return endOfStreamReached;
+  }
+
+  /**
+   * @return digests of all the bytes of the underlying stream
+   * @throws IllegalStateException if the end of the underlying stream has not been reached yet
+   */
+  public Map<DigestAlgorithm, byte[]> getDigests() {
+    if (!endOfStreamReached) {
+      throw new IllegalStateException("Digests are not available before the end of the stream has been reached");
+    }
+    if (digests == null) {
+      Map<DigestAlgorithm, byte[]> calculatedDigests = new EnumMap<>(DigestAlgorithm.class);
+      for (Map.Entry<DigestAlgorithm, MessageDigest> entry : messageDigests.entrySet()) {
+        calculatedDigests.put(entry.getKey(), entry.getValue().digest());
+      }
+      digests = Collections.unmodifiableMap(calculatedDigests);
+    }
+    return digests;
+  }
+
+}
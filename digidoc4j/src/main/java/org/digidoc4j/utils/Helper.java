@@ -293,6 +293,21 @@ public final class Helper {
     }
   }
 
+  /**
+   * Creates an unbuffered output stream for a given file, for writers that buffer their output themselves and can
+   * write into the file channel of the stream directly.
+   *
+   * @param file target file.
+   * @return stream
+   */
+  public static FileOutputStream fileOutputStream(File file) {
+    try {
+      return new FileOutputStream(file);
+    } catch (FileNotFoundException e) {
+      throw new DigiDoc4JException(e);
+    }
+  }
+
   /**
    * Loads X509Certificate from the specified location
    * /**
@@ -400,7 +415,11 @@ public final class Helper {
 
   /**
    * delete tmp files from temp folder created by StreamDocument
+   *
+   * @deprecated Scans the whole temporary-file directory and may delete files still in use. Temporary files are
+   * deleted when the containers using them are closed, see {@link Container#close()}.
    */
+  @Deprecated
   public static void deleteTmpFiles(long allowedAge) {
     File dir = new File(System.getProperty("java.io.tmpdir"));
     FilenameFilter filenameFilter = (dir1, name) -> name.toLowerCase().startsWith("digidoc4j")
@@ -0,0 +1,200 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import org.digidoc4j.exceptions.ContainerWithoutFilesException;
+import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.exceptions.OCSPRequestFailedException;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class BatchSignatureBuilderTest extends AbstractTest {
+
+  private final X509Certificate certificate = pkcs12SignatureToken.getCertificate();
+
+  @Test
+  public void invokeSigning_tokenSignsEveryDataToSignOnCallingThread_resultsInOrder() {
+    Thread callingThread = Thread.currentThread();
+    SignatureToken signatureToken = mockSignatureToken();
+    Mockito.doAnswer(invocation -> {
+      Assert.assertSame(callingThread, Thread.currentThread());
+      byte[] dataToSign = invocation.getArgument(1);
+      return new byte[]{dataToSign[0], 0};
+    }).when(signatureToken).sign(Mockito.eq(DigestAlgorithm.SHA256), Mockito.any(byte[].class));
+    Signature signature1 = Mockito.mock(Signature.class);
+    Signature signature2 = Mockito.mock(Signature.class);
+    DataToSign dataToSign1 = mockDataToSign(new byte[]{1}, signature1);
+    DataToSign dataToSign2 = mockDataToSign(new byte[]{2}, signature2);
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    List<BatchSignatureFinalizer.Result> results;
+    try {
+      results = BatchSignatureBuilder.aBatchSignature(signatureToken).withExecutor(executor)
+          .withSignature(mockSignatureBuilder(dataToSign1))
+          .withSignature(mockSignatureBuilder(dataToSign2))
+          .invokeSigning();
+    } finally {
+      executor.shutdown();
+    }
+
+    Assert.assertEquals(2, results.size());
+    Assert.assertSame(dataToSign1, results.get(0).getDataToSign());
+    Assert.assertSame(signature1, results.get(0).getSignature());
+    Assert.assertSame(dataToSign2, results.get(1).getDataToSign());
+    Assert.assertSame(signature2, results.get(1).getSignature());
+    Mockito.verify(signatureToken, Mockito.times(1)).getCertificate();
+  }
+
+  @Test
+  public void invokeSigning_signingCertificateOfTokenIsSetOnEveryBuilder() {
+    SignatureToken signatureToken = mockSignatureToken();
+    Mockito.doReturn(new byte[]{1}).when(signatureToken).sign(Mockito.any(DigestAlgorithm.class),
+        Mockito.any(byte[].class));
+    SignatureBuilder signatureBuilder1 = mockSignatureBuilder(mockDataToSign(new byte[]{1}, null));
+    SignatureBuilder signatureBuilder2 = mockSignatureBuilder(mockDataToSign(new byte[]{1}, null));
+
+    BatchSignatureBuilder.aBatchSignature(signatureToken).withSignature(signatureBuilder1)
+        .withSignature(signatureBuilder2).invokeSigning();
+
+    Mockito.verify(signatureBuilder1).withSigningCertificate(certificate);
+    Mockito.verify(signatureBuilder2).withSigningCertificate(certificate);
+  }
+
+  @Test
+  public void invokeSigning_creatingDataToSignAndFinalizingFail_otherSignaturesAreSigned() {
+    SignatureToken signatureToken = mockSignatureToken();
+    Mockito.doReturn(new byte[]{1}).when(signatureToken).sign(Mockito.any(DigestAlgorithm.class),
+        Mockito.any(byte[].class));
+    ContainerWithoutFilesException buildException = new ContainerWithoutFilesException();
+    SignatureBuilder failingBuilder = Mockito.mock(SignatureBuilder.class, Mockito.RETURNS_SELF);
+    Mockito.doThrow(buildException).when(failingBuilder).buildDataToSign();
+    OCSPRequestFailedException finalizeException = new OCSPRequestFailedException("S-2");
+    DataToSign failingDataToSign = mockDataToSign(new byte[]{1}, null);
+    Mockito.doThrow(finalizeException).when(failingDataToSign).finalize(new byte[]{1});
+    Signature signature = Mockito.mock(Signature.class);
+
+    List<BatchSignatureFinalizer.Result> results = BatchSignatureBuilder.aBatchSignature(signatureToken)
+        .withSignature(failingBuilder)
+        .withSignature(mockSignatureBuilder(failingDataToSign))
+        .withSignature(mockSignatureBuilder(mockDataToSign(new byte[]{1}, signature)))
+        .invokeSigning();
+
+    Assert.assertEquals(3, results.size());
+    Assert.assertNull(results.get(0).getDataToSign());
+    Assert.assertSame(buildException, results.get(0).getException());
+    Assert.assertSame(failingDataToSign, results.get(1).getDataToSign());
+    Assert.assertSame(finalizeException, results.get(1).getException());
+    Assert.assertSame(signature, results.get(2).getSignature());
+    Assert.assertTrue(results.get(2).isSuccessful());
+    Mockito.verify(signatureToken, Mockito.times(2)).sign(Mockito.any(DigestAlgorithm.class),
+        Mockito.any(byte[].class));
+  }
+
+  @Test
+  public void invokeSigning_tokenFails_tokenIsNotUsedForRestOfBatch() {
+    SignatureToken signatureToken = mockSignatureToken();
+    TechnicalException tokenException = new TechnicalException("PIN blocked");
+    Mockito.doReturn(new byte[]{1}).doThrow(tokenException).when(signatureToken)
+        .sign(Mockito.any(DigestAlgorithm.class), Mockito.any(byte[].class));
+    Signature signature = Mockito.mock(Signature.class);
+    DataToSign dataToSign3 = mockDataToSign(new byte[]{1}, null);
+
+    List<BatchSignatureFinalizer.Result> results = BatchSignatureBuilder.aBatchSignature(signatureToken)
+        .withSignature(mockSignatureBuilder(mockDataToSign(new byte[]{1}, signature)))
+        .withSignature(mockSignatureBuilder(mockDataToSign(new byte[]{1}, null)))
+        .withSignature(mockSignatureBuilder(dataToSign3))
+        .invokeSigning();
+
+    Assert.assertEquals(3, results.size());
+    Assert.assertSame(signature, results.get(0).getSignature());
+    Assert.assertSame(tokenException, results.get(1).getException());
+    Assert.assertSame(dataToSign3, results.get(2).getDataToSign());
+    Assert.assertSame(tokenException, results.get(2).getException());
+    Mockito.verify(signatureToken, Mockito.times(2)).sign(Mockito.any(DigestAlgorithm.class),
+        Mockito.any(byte[].class));
+    Mockito.verify(dataToSign3, Mockito.never()).finalize(Mockito.any(byte[].class));
+  }
+
+  @Test
+  public void invokeSigning_realContainers_tokenSignsDataToSignOfEveryContainer() {
+    SignatureToken signatureToken = mockSignatureToken();
+    Container container1 = createNonEmptyContainerBy(Container.DocumentType.ASICE);
+    Container container2 = createNonEmptyContainerBy(Container.DocumentType.BDOC);
+    SignatureBuilder signatureBuilder1 = SignatureBuilder.aSignature(container1).withSignatureId("S1");
+    SignatureBuilder signatureBuilder2 = SignatureBuilder.aSignature(container2).withSignatureId("S2");
+    Mockito.doThrow(new TechnicalException("Token removed")).when(signatureToken)
+        .sign(Mockito.any(DigestAlgorithm.class), Mockito.any(byte[].class));
+
+    List<BatchSignatureFinalizer.Result> results = BatchSignatureBuilder.aBatchSignature(signatureToken)
+        .withSignature(signatureBuilder1)
+        .withSignature(signatureBuilder2)
+        .invokeSigning();
+
+    Assert.assertEquals("S1", results.get(0).getDataToSign().getSignatureParameters().getSignatureId());
+    Assert.assertEquals("S2", results.get(1).getDataToSign().getSignatureParameters().getSignatureId());
+    Assert.assertSame(certificate,
+        results.get(0).getDataToSign().getSignatureParameters().getSigningCertificate());
+    Mockito.verify(signatureToken).sign(results.get(0).getDataToSign().getDigestAlgorithm(),
+        results.get(0).getDataToSign().getDataToSign());
+    Assert.assertTrue(container1.getSignatures().isEmpty());
+  }
+
+  @Test
+  public void invokeSigning_emptyBatch_tokenIsNotUsed() {
+    SignatureToken signatureToken = Mockito.mock(SignatureToken.class);
+    Assert.assertTrue(BatchSignatureBuilder.aBatchSignature(signatureToken).invokeSigning().isEmpty());
+    Mockito.verifyNoInteractions(signatureToken);
+  }
+
+  @Test(expected = DigiDoc4JException.class)
+  public void aBatchSignature_withoutSignatureToken_throwsException() {
+    BatchSignatureBuilder.aBatchSignature(null);
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private SignatureToken mockSignatureToken() {
+    SignatureToken signatureToken = Mockito.mock(SignatureToken.class);
+    Mockito.doReturn(certificate).when(signatureToken).getCertificate();
+    return signatureToken;
+  }
+
+  private SignatureBuilder mockSignatureBuilder(DataToSign dataToSign) {
+    SignatureBuilder signatureBuilder = Mockito.mock(SignatureBuilder.class, Mockito.RETURNS_SELF);
+    Mockito.doReturn(dataToSign).when(signatureBuilder).buildDataToSign();
+    return signatureBuilder;
+  }
+
+  private DataToSign mockDataToSign(byte[] dataToBeSigned, Signature signature) {
+    DataToSign dataToSign = Mockito.mock(DataToSign.class);
+    Mockito.doReturn(dataToBeSigned).when(dataToSign).getDataToSign();
+    Mockito.doReturn(DigestAlgorithm.SHA256).when(dataToSign).getDigestAlgorithm();
+    Mockito.doReturn(configuration).when(dataToSign).getConfiguration();
+    Mockito.doReturn(signature).when(dataToSign).finalize(new byte[]{dataToBeSigned[0], 0});
+    Mockito.doReturn(signature).when(dataToSign).finalize(new byte[]{1});
+    return dataToSign;
+  }
+
+  @Override
+  protected void before() {
+    this.configuration = Configuration.of(Configuration.Mode.TEST);
+  }
+
+}
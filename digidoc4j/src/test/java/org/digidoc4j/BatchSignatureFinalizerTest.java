@@ -0,0 +1,171 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.exceptions.OCSPRequestFailedException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchSignatureFinalizerTest extends AbstractTest {
+
+  @Test
+  public void finalizeSignatures_someSignaturesFail_resultsInOrderWithSignaturesAndExceptions() {
+    Signature signature1 = Mockito.mock(Signature.class);
+    Signature signature3 = Mockito.mock(Signature.class);
+    OCSPRequestFailedException exception = new OCSPRequestFailedException("S-2");
+    DataToSign dataToSign1 = mockDataToSign(new byte[]{1}, signature1);
+    DataToSign dataToSign2 = Mockito.mock(DataToSign.class);
+    Mockito.doReturn(configuration).when(dataToSign2).getConfiguration();
+    Mockito.doThrow(exception).when(dataToSign2).finalize(new byte[]{2});
+    DataToSign dataToSign3 = mockDataToSign(new byte[]{3}, signature3);
+
+    List<BatchSignatureFinalizer.Result> results = BatchSignatureFinalizer.aBatchFinalizer()
+        .withSignature(dataToSign1, new byte[]{1})
+        .withSignature(dataToSign2, new byte[]{2})
+        .withSignature(dataToSign3, new byte[]{3})
+        .finalizeSignatures();
+
+    Assert.assertEquals(3, results.size());
+    Assert.assertSame(dataToSign1, results.get(0).getDataToSign());
+    Assert.assertSame(signature1, results.get(0).getSignature());
+    Assert.assertTrue(results.get(0).isSuccessful());
+    Assert.assertSame(dataToSign2, results.get(1).getDataToSign());
+    Assert.assertNull(results.get(1).getSignature());
+    Assert.assertSame(exception, results.get(1).getException());
+    Assert.assertFalse(results.get(1).isSuccessful());
+    Assert.assertSame(signature3, results.get(2).getSignature());
+  }
+
+  @Test
+  public void finalizeSignatures_finalizationsOverlap() {
+    int signatureCount = 4;
+    CountDownLatch allStarted = new CountDownLatch(signatureCount);
+    ExecutorService executor = Executors.newFixedThreadPool(signatureCount);
+    try {
+      BatchSignatureFinalizer batchFinalizer = BatchSignatureFinalizer.aBatchFinalizer().withExecutor(executor);
+      for (int i = 0; i < signatureCount; i++) {
+        DataToSign dataToSign = Mockito.mock(DataToSign.class);
+        Mockito.doAnswer(invocation -> {
+          allStarted.countDown();
+          Assert.assertTrue(allStarted.await(10, TimeUnit.SECONDS));
+          return Mockito.mock(Signature.class);
+        }).when(dataToSign).finalize(Mockito.any(byte[].class));
+        batchFinalizer.withSignature(dataToSign, new byte[]{(byte) i});
+      }
+      for (BatchSignatureFinalizer.Result result : batchFinalizer.finalizeSignatures()) {
+        Assert.assertTrue(result.isSuccessful());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void finalizeSignatures_maxConcurrentFinalizations_isNotExceeded() {
+    AtomicInteger inProgress = new AtomicInteger();
+    AtomicInteger maxInProgress = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      BatchSignatureFinalizer batchFinalizer = BatchSignatureFinalizer.aBatchFinalizer().withExecutor(executor)
+          .withMaxConcurrentFinalizations(3);
+      for (int i = 0; i < 20; i++) {
+        DataToSign dataToSign = Mockito.mock(DataToSign.class);
+        Mockito.doAnswer(invocation -> {
+          maxInProgress.accumulateAndGet(inProgress.incrementAndGet(), Math::max);
+          Thread.sleep(5);
+          inProgress.decrementAndGet();
+          return Mockito.mock(Signature.class);
+        }).when(dataToSign).finalize(Mockito.any(byte[].class));
+        batchFinalizer.withSignature(dataToSign, new byte[]{(byte) i});
+      }
+      Assert.assertEquals(20, batchFinalizer.finalizeSignatures().size());
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertTrue(maxInProgress.get() <= 3);
+  }
+
+  @Test
+  public void finalizeSignatures_fromTaskOfSingleThreadedExecutorOfConfiguration_finalizationCompletes() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      configuration.setThreadExecutor(executor);
+      List<DataToSign> dataToSigns = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        dataToSigns.add(mockDataToSign(new byte[]{(byte) i}, Mockito.mock(Signature.class)));
+      }
+      Future<List<BatchSignatureFinalizer.Result>> results = executor.submit(() -> {
+        BatchSignatureFinalizer batchFinalizer = BatchSignatureFinalizer.aBatchFinalizer();
+        for (int i = 0; i < dataToSigns.size(); i++) {
+          batchFinalizer.withSignature(dataToSigns.get(i), new byte[]{(byte) i});
+        }
+        return batchFinalizer.finalizeSignatures();
+      });
+      Assert.assertEquals(3, results.get(10, TimeUnit.SECONDS).size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void finalizeSignatures_executorIsShutDown_signaturesAreFinalizedOnCallingThread() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+    BatchSignatureFinalizer batchFinalizer = BatchSignatureFinalizer.aBatchFinalizer().withExecutor(executor);
+    List<Signature> signatures = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Signature signature = Mockito.mock(Signature.class);
+      signatures.add(signature);
+      batchFinalizer.withSignature(mockDataToSign(new byte[]{(byte) i}, signature), new byte[]{(byte) i});
+    }
+    List<BatchSignatureFinalizer.Result> results = batchFinalizer.finalizeSignatures();
+    Assert.assertEquals(3, results.size());
+    for (int i = 0; i < results.size(); i++) {
+      Assert.assertSame(signatures.get(i), results.get(i).getSignature());
+    }
+  }
+
+  @Test
+  public void finalizeSignatures_emptyBatch_noResults() {
+    Assert.assertTrue(BatchSignatureFinalizer.aBatchFinalizer().finalizeSignatures().isEmpty());
+  }
+
+  @Test(expected = DigiDoc4JException.class)
+  public void withSignature_sameDataToSignTwice_throwsException() {
+    DataToSign dataToSign = Mockito.mock(DataToSign.class);
+    BatchSignatureFinalizer.aBatchFinalizer().withSignature(dataToSign, new byte[]{1})
+        .withSignature(dataToSign, new byte[]{2});
+  }
+
+  private DataToSign mockDataToSign(byte[] signatureValue, Signature signature) {
+    DataToSign dataToSign = Mockito.mock(DataToSign.class);
+    Mockito.doReturn(configuration).when(dataToSign).getConfiguration();
+    Mockito.doReturn(signature).when(dataToSign).finalize(signatureValue);
+    return dataToSign;
+  }
+
+  @Override
+  protected void before() {
+    this.configuration = Configuration.of(Configuration.Mode.TEST);
+  }
+
+}
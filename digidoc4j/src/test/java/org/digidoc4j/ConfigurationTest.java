@@ -21,9 +21,12 @@ import org.digidoc4j.exceptions.ConfigurationException;
 import org.digidoc4j.exceptions.LotlTrustStoreNotFoundException;
 import org.digidoc4j.exceptions.TslCertificateSourceInitializationException;
 import org.digidoc4j.exceptions.TslRefreshException;
+import org.digidoc4j.impl.ConfigurationModificationCounter;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocContainer;
 import org.digidoc4j.impl.asic.tsl.TSLCertificateSourceImpl;
 import org.digidoc4j.impl.asic.tsl.TslLoader;
+import org.digidoc4j.impl.storage.HeapBudget;
+import org.digidoc4j.impl.storage.TieredDataFileStorage;
 import org.digidoc4j.test.MockTSLRefreshCallback;
 import org.digidoc4j.test.TestAssert;
 import org.digidoc4j.test.util.TestCommonUtil;
@@ -546,6 +549,60 @@ public class ConfigurationTest extends AbstractTest {
     Assert.assertEquals(Constant.CACHE_ALL_DATA_FILES, this.configuration.getMaxDataFileCachedInBytes());
   }
 
+  @Test
+  public void dataFileStorageDefaults() {
+    Assert.assertEquals(0, this.configuration.getMaxDataFileCachedOffHeapInBytes());
+    Assert.assertNull(this.configuration.getDataFileSpoolDirectory());
+    Assert.assertTrue(this.configuration.getDataFileStorage() instanceof TieredDataFileStorage);
+    Assert.assertEquals(Constant.CACHE_ALL_DATA_FILES, this.configuration.getMaxDataFilesCachedTotalInBytes());
+    Assert.assertFalse(HeapBudget.of(this.configuration).isLimited());
+    Assert.assertEquals(-1, this.configuration.getDataFileParallelCompressionThresholdInBytes());
+    Assert.assertEquals(DataFileCompressionPolicy.DEFAULT_LEVEL,
+        this.configuration.getDataFileCompressionPolicy().getCompressionLevel("scan.jpg", "image/jpeg"));
+  }
+
+  @Test
+  public void modificationCount_parameterOrDataLoaderFactoryChanged_countIsIncreased() {
+    long modificationCount = ConfigurationModificationCounter.getModificationCount(this.configuration);
+    this.configuration.setConnectionTimeout(12345);
+    Assert.assertTrue(ConfigurationModificationCounter.getModificationCount(this.configuration) > modificationCount);
+    modificationCount = ConfigurationModificationCounter.getModificationCount(this.configuration);
+    this.configuration.setTspDataLoaderFactory(null);
+    Assert.assertTrue(ConfigurationModificationCounter.getModificationCount(this.configuration) > modificationCount);
+    modificationCount = ConfigurationModificationCounter.getModificationCount(this.configuration);
+    this.configuration.setDataFileSpoolDirectory(null);
+    Assert.assertTrue(ConfigurationModificationCounter.getModificationCount(this.configuration) > modificationCount);
+  }
+
+  @Test
+  public void setMaxDataFilesCachedTotal_heapBudgetIsSharedByDataFileStorages() {
+    this.configuration.setMaxDataFilesCachedTotalInBytes(1000);
+    HeapBudget budget = HeapBudget.of(this.configuration);
+    Assert.assertEquals(1000, budget.getMaxSize());
+    Assert.assertSame(budget, ((TieredDataFileStorage) this.configuration.getDataFileStorage()).getHeapBudget());
+    this.configuration.setMaxDataFilesCachedTotalInBytes(2000);
+    Assert.assertSame(budget, HeapBudget.of(this.configuration));
+    Assert.assertEquals(2000, budget.getMaxSize());
+  }
+
+  @Test
+  public void setDataFileStorageParameters() {
+    this.configuration.setMaxFileSizeCachedInMemoryInMB(1);
+    this.configuration.setMaxDataFileCachedOffHeapInBytes(5 * Constant.ONE_MB_IN_BYTES);
+    this.configuration.setDataFileSpoolDirectory("target/spool");
+    TieredDataFileStorage storage = (TieredDataFileStorage) this.configuration.getDataFileStorage();
+    Assert.assertEquals(Constant.ONE_MB_IN_BYTES, storage.getMaxHeapSize());
+    Assert.assertEquals(5 * Constant.ONE_MB_IN_BYTES, storage.getMaxOffHeapSize());
+    Assert.assertEquals("target/spool", storage.getSpoolDirectory());
+  }
+
+  @Test
+  public void setCustomDataFileStorage() {
+    DataFileStorage storage = (stream, name, mimeType) -> null;
+    this.configuration.setDataFileStorage(storage);
+    Assert.assertSame(storage, this.configuration.getDataFileStorage());
+  }
+
   @Test
   public void maxDataFileCachedNotAllowedValue() {
     long oldValue = 4096;
@@ -1186,6 +1243,27 @@ public class ConfigurationTest extends AbstractTest {
     Assert.assertEquals(2345, this.configuration.getMaxAllowedZipCompressionRatio());
   }
 
+  @Test
+  public void testDefaultPrecalculatedDataFileDigestAlgorithms() {
+    Assert.assertEquals(Collections.emptyList(), this.configuration.getPrecalculatedDataFileDigestAlgorithms());
+  }
+
+  @Test
+  public void setPrecalculatedDataFileDigestAlgorithms() {
+    this.configuration.setPrecalculatedDataFileDigestAlgorithms(DigestAlgorithm.SHA256, DigestAlgorithm.SHA512);
+    Assert.assertEquals(Arrays.asList(DigestAlgorithm.SHA256, DigestAlgorithm.SHA512),
+        this.configuration.getPrecalculatedDataFileDigestAlgorithms());
+    this.configuration.setPrecalculatedDataFileDigestAlgorithms();
+    Assert.assertEquals(Collections.emptyList(), this.configuration.getPrecalculatedDataFileDigestAlgorithms());
+  }
+
+  @Test
+  public void getInvalidPrecalculatedDataFileDigestAlgorithms() {
+    this.expectedException.expect(ConfigurationException.class);
+    this.expectedException.expectMessage("Configuration parameter PRECALCULATED_DATA_FILE_DIGEST_ALGORITHMS contains an unsupported digest algorithm: MD5.");
+    this.configuration.loadConfiguration("src/test/resources/testFiles/yaml-configurations/digidoc_test_conf_invalid_precalculated_digest_algorithms.yaml");
+  }
+
   @Test
   public void loadMultipleCAsFromConfigurationFile() {
     Hashtable<String, String> ddoc4jConf = this.configuration.loadConfiguration("src/test/resources/testFiles/yaml-configurations/digidoc_test_conf_two_cas.yaml");
@@ -1281,18 +1359,22 @@ public class ConfigurationTest extends AbstractTest {
     Assert.assertEquals("Set validation policy", this.configuration.getValidationPolicy());
   }
 
+  // Cover the deprecated temp file max age, which is kept for existing configurations
   @Test
+  @SuppressWarnings("deprecation")
   public void getDefaultTempFileMaxAge() {
     Assert.assertEquals(86400000, this.configuration.getTempFileMaxAge());
   }
 
   @Test
+  @SuppressWarnings("deprecation")
   public void loadTempFileMaxAgeFromFile() {
     this.configuration.loadConfiguration("src/test/resources/testFiles/yaml-configurations/digidoc_test_conf_temp_file_max_age.yaml");
     Assert.assertEquals(60, this.configuration.getTempFileMaxAge());
   }
 
   @Test
+  @SuppressWarnings("deprecation")
   public void setTempFileMaxAgeFromCode(){
     this.configuration.loadConfiguration("src/test/resources/testFiles/yaml-configurations/digidoc_test_conf_temp_file_max_age.yaml");
     this.configuration.setTempFileMaxAge(1000);
@@ -0,0 +1,157 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j;
+
+import eu.europa.esig.dss.model.MimeType;
+import org.digidoc4j.ContainerMetadata.DataFileMetadata;
+import org.digidoc4j.ContainerMetadata.SignatureMetadata;
+import org.digidoc4j.exceptions.NotSupportedException;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ContainerPeekerTest extends AbstractTest {
+
+  @Test
+  public void peekAsicEContainer() {
+    ContainerMetadata metadata = ContainerPeeker.peek(ASICE_WITH_TS_SIG, this.configuration);
+    Assert.assertEquals(MimeType.ASICE.getMimeTypeString(), metadata.getMimeType());
+    assertDataFile(metadata.getDataFiles(), "test.txt", 15, "text/plain");
+    Assert.assertEquals(1, metadata.getSignatures().size());
+    SignatureMetadata signature = metadata.getSignatures().get(0);
+    Assert.assertEquals("id-8c2a30729f251c6cb8336844b97f0657", signature.getId());
+    Assert.assertEquals("11404176865", signature.getSigningCertificate().getSubjectName(X509Cert.SubjectName.SERIALNUMBER));
+    Assert.assertEquals(new Date(1542975844000L), signature.getClaimedSigningTime());
+  }
+
+  @Test
+  public void peekContainerWithMultipleSignatures_signaturesAreInContainerOrder() {
+    ContainerMetadata metadata = ContainerPeeker.peek(
+        "src/test/resources/testFiles/valid-containers/asics_testing_two_signatures.bdoc", this.configuration);
+    assertDataFile(metadata.getDataFiles(), "test.txt", 16, "text/plain");
+    List<SignatureMetadata> signatures = metadata.getSignatures();
+    Assert.assertEquals(2, signatures.size());
+    Assert.assertEquals("S0", signatures.get(0).getId());
+    Assert.assertEquals("S1", signatures.get(1).getId());
+  }
+
+  @Test
+  public void peekContainerWithoutSignatures() {
+    ContainerMetadata metadata = ContainerPeeker.peek(ASIC_WITH_NO_SIG, this.configuration);
+    Assert.assertEquals(1, metadata.getDataFiles().size());
+    Assert.assertTrue(metadata.getSignatures().isEmpty());
+  }
+
+  @Test
+  public void peekContainer_returnsSameMetadataAsOpenedContainer() {
+    Container container = ContainerOpener.open(ASIC_WITH_NO_SIG, this.configuration);
+    ContainerMetadata metadata = ContainerPeeker.peek(ASIC_WITH_NO_SIG, this.configuration);
+    DataFile dataFile = container.getDataFiles().get(0);
+    assertDataFile(metadata.getDataFiles(), dataFile.getName(), dataFile.getFileSize(), dataFile.getMediaType());
+  }
+
+  @Test
+  public void peekContainerWithZipBombManifest_throwsException() throws IOException {
+    File containerFile = testFolder.newFile("zip-bomb-manifest.asice");
+    try (ZipOutputStream zipStream = new ZipOutputStream(new FileOutputStream(containerFile))) {
+      writeMimeType(zipStream);
+      zipStream.putNextEntry(new ZipEntry("META-INF/manifest.xml"));
+      byte[] whitespace = new byte[1024 * 1024];
+      Arrays.fill(whitespace, (byte) ' ');
+      for (int i = 0; i < 4; i++) {
+        zipStream.write(whitespace);
+      }
+    }
+    this.expectedException.expect(TechnicalException.class);
+    this.expectedException.expectMessage("Zip Bomb detected in the ZIP container. Validation is interrupted.");
+    ContainerPeeker.peek(containerFile.getPath(), this.configuration);
+  }
+
+  @Test
+  public void peekContainerWithManifestOfUnsupportedCompressionMethod_throwsException() throws IOException {
+    File containerFile = testFolder.newFile("unsupported-method-manifest.asice");
+    try (ZipOutputStream zipStream = new ZipOutputStream(new FileOutputStream(containerFile))) {
+      writeMimeType(zipStream);
+      zipStream.putNextEntry(new ZipEntry("META-INF/manifest.xml"));
+      zipStream.write("<manifest:manifest/>".getBytes(StandardCharsets.UTF_8));
+    }
+    setCompressionMethodInCentralDirectory(containerFile, "META-INF/manifest.xml", 12);
+    try {
+      ContainerPeeker.peek(containerFile.getPath(), this.configuration);
+      Assert.fail("Expected TechnicalException");
+    } catch (TechnicalException e) {
+      Assert.assertEquals("Unable to read entry META-INF/manifest.xml of the container", e.getMessage());
+      Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+  }
+
+  @Test(expected = NotSupportedException.class)
+  public void peekDDocContainer_throwsException() {
+    ContainerPeeker.peek(DDOC_TEST_FILE);
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static void writeMimeType(ZipOutputStream zipStream) throws IOException {
+    byte[] mimeType = MimeType.ASICE.getMimeTypeString().getBytes(StandardCharsets.UTF_8);
+    ZipEntry mimeTypeEntry = new ZipEntry("mimetype");
+    mimeTypeEntry.setMethod(ZipEntry.STORED);
+    mimeTypeEntry.setSize(mimeType.length);
+    CRC32 crc = new CRC32();
+    crc.update(mimeType);
+    mimeTypeEntry.setCrc(crc.getValue());
+    zipStream.putNextEntry(mimeTypeEntry);
+    zipStream.write(mimeType);
+  }
+
+  private static void setCompressionMethodInCentralDirectory(File zipFile, String entryName, int method)
+      throws IOException {
+    byte[] zip = Files.readAllBytes(zipFile.toPath());
+    ByteBuffer buffer = ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN);
+    byte[] name = entryName.getBytes(StandardCharsets.UTF_8);
+    for (int offset = 0; offset + 46 + name.length <= zip.length; offset++) {
+      if (buffer.getInt(offset) == 0x02014b50 && buffer.getShort(offset + 28) == name.length
+          && Arrays.equals(name, Arrays.copyOfRange(zip, offset + 46, offset + 46 + name.length))) {
+        buffer.putShort(offset + 10, (short) method);
+      }
+    }
+    Files.write(zipFile.toPath(), zip);
+  }
+
+  private static void assertDataFile(List<DataFileMetadata> dataFiles, String name, long size, String mimeType) {
+    Assert.assertEquals(1, dataFiles.size());
+    Assert.assertEquals(name, dataFiles.get(0).getName());
+    Assert.assertEquals(size, dataFiles.get(0).getSize());
+    Assert.assertEquals(mimeType, dataFiles.get(0).getMimeType());
+  }
+
+  @Override
+  protected void before() {
+    this.configuration = new Configuration(Configuration.Mode.TEST);
+  }
+
+}
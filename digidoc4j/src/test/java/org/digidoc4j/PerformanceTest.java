@@ -16,6 +16,12 @@ import ch.qos.logback.core.joran.spi.JoranException;
 import ch.qos.logback.core.util.StatusPrinter;
 import com.github.javatlacati.contiperf.PerfTest;
 import com.github.javatlacati.contiperf.junit.ContiPerfRule;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.digidoc4j.impl.asic.AsicFileContainerParser;
+import org.digidoc4j.impl.asic.AsicMappedFileContainerParser;
+import org.digidoc4j.impl.asic.AsicParseResult;
+import org.digidoc4j.impl.asic.zip.ByteBufferDocument;
 import org.digidoc4j.impl.ddoc.ConfigManagerInitializer;
 import org.digidoc4j.test.TestAssert;
 import org.junit.Assert;
@@ -26,6 +32,9 @@ import org.junit.Test;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 
 @Ignore
@@ -34,6 +43,10 @@ public class PerformanceTest extends AbstractTest {
   private static final ConfigManagerInitializer configManagerInitializer = new ConfigManagerInitializer();
   private static final int INVOCATIONS = 1000;
   private static final int MULTIPLE_THREADS = 20;
+  private static final int LARGE_CONTAINER_INVOCATIONS = 20;
+  private static final long LARGE_DATA_FILE_SIZE_IN_BYTES = 256L * 1024L * 1024L;
+  private static final String LARGE_CONTAINER_PATH = "target/performance/large-unsigned-container.asice";
+  private static final String LARGE_STORED_CONTAINER_PATH = "target/performance/large-unsigned-stored-container.asice";
   @Rule
   public ContiPerfRule performanceTestRule = new ContiPerfRule();
 
@@ -49,7 +62,6 @@ public class PerformanceTest extends AbstractTest {
       // StatusPrinter will handle this
     }
     StatusPrinter.printInCaseOfErrorsOrWarnings(context);
-
   }
 
   @Test
@@ -220,6 +232,47 @@ public class PerformanceTest extends AbstractTest {
     this.createSignatureBy(container, SignatureProfile.LT, DigestAlgorithm.SHA256, this.pkcs12SignatureToken);
   }
 
+  @Test
+  @PerfTest(invocations = LARGE_CONTAINER_INVOCATIONS)
+  public void parseLargeContainerFromPath() {
+    createLargeUnsignedContainerIfMissing();
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(1);
+    AsicParseResult parseResult = new AsicFileContainerParser(LARGE_CONTAINER_PATH, configuration).read();
+    Assert.assertEquals(1, parseResult.getDataFiles().size());
+  }
+
+  @Test
+  @PerfTest(invocations = LARGE_CONTAINER_INVOCATIONS)
+  public void parseLargeContainerFromMemoryMappedPath() {
+    createLargeUnsignedContainerIfMissing();
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(1);
+    AsicParseResult parseResult = new AsicMappedFileContainerParser(LARGE_CONTAINER_PATH, configuration).read();
+    Assert.assertEquals(1, parseResult.getDataFiles().size());
+  }
+
+  @Test
+  @PerfTest(invocations = LARGE_CONTAINER_INVOCATIONS)
+  public void parseLargeStoredContainerFromPath() {
+    createLargeStoredUnsignedContainerIfMissing();
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(1);
+    AsicParseResult parseResult = new AsicFileContainerParser(LARGE_STORED_CONTAINER_PATH, configuration).read();
+    Assert.assertEquals(1, parseResult.getDataFiles().size());
+  }
+
+  @Test
+  @PerfTest(invocations = LARGE_CONTAINER_INVOCATIONS)
+  public void parseLargeStoredContainerFromMemoryMappedPath() {
+    createLargeStoredUnsignedContainerIfMissing();
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(1);
+    AsicParseResult parseResult = new AsicMappedFileContainerParser(LARGE_STORED_CONTAINER_PATH, configuration).read();
+    Assert.assertEquals(1, parseResult.getDataFiles().size());
+    Assert.assertTrue(parseResult.getDataFiles().get(0).getDocument() instanceof ByteBufferDocument);
+  }
+
   /*
    * RESTRICTED METHODS
    */
@@ -231,4 +284,37 @@ public class PerformanceTest extends AbstractTest {
     this.configManagerInitializer.initConfigManager(this.configuration);
   }
 
+  private static void createLargeUnsignedContainerIfMissing() {
+    createLargeUnsignedContainerIfMissing(LARGE_CONTAINER_PATH, Configuration.of(Configuration.Mode.TEST));
+  }
+
+  private static void createLargeStoredUnsignedContainerIfMissing() {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setDataFileCompressionPolicy((fileName, mediaType) -> DataFileCompressionPolicy.STORED);
+    createLargeUnsignedContainerIfMissing(LARGE_STORED_CONTAINER_PATH, configuration);
+  }
+
+  private static void createLargeUnsignedContainerIfMissing(String containerPath, Configuration configuration) {
+    File containerFile = new File(containerPath);
+    if (containerFile.exists()) {
+      return;
+    }
+    containerFile.getParentFile().mkdirs();
+    File dataFile = new File(containerFile.getParentFile(), "large-data-file.txt");
+    if (!dataFile.exists()) {
+      try (CountingOutputStream out = new CountingOutputStream(new FileOutputStream(dataFile))) {
+        while (out.getByteCount() < LARGE_DATA_FILE_SIZE_IN_BYTES) {
+          out.write(RandomStringUtils.randomAlphanumeric(8192).getBytes(StandardCharsets.US_ASCII));
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    ContainerBuilder.aContainer(Container.DocumentType.ASICE)
+        .withConfiguration(configuration)
+        .withDataFile(dataFile.getPath(), "text/plain")
+        .build()
+        .saveAsFile(containerFile.getPath());
+  }
+
 }
@@ -18,7 +18,10 @@ import org.digidoc4j.exceptions.IllegalSignatureProfileException;
 import org.digidoc4j.exceptions.ServiceUnreachableException;
 import org.digidoc4j.exceptions.InvalidSignatureException;
 import org.digidoc4j.exceptions.NotSupportedException;
+import org.digidoc4j.exceptions.OCSPRequestFailedException;
 import org.digidoc4j.exceptions.SignatureTokenMissingException;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.digidoc4j.impl.SignatureFinalizer;
 import org.digidoc4j.impl.asic.asice.AsicESignature;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocContainerBuilder;
 import org.digidoc4j.impl.asic.asice.bdoc.BDocSignature;
@@ -31,6 +34,7 @@ import org.digidoc4j.test.util.TestSigningUtil;
 import org.digidoc4j.utils.TokenAlgorithmSupport;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -41,6 +45,13 @@ import java.nio.file.Paths;
 import java.security.Security;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.digidoc4j.Configuration.Mode.TEST;
 import static org.digidoc4j.Container.DocumentType.ASICE;
@@ -135,6 +146,71 @@ public class SignatureBuilderTest extends AbstractTest {
     SignatureBuilder.aSignature(container).invokeSigning();
   }
 
+  @Test(expected = SignatureTokenMissingException.class)
+  public void signContainerAsyncWithMissingSignatureToken_shouldThrowException() throws Exception {
+    Container container = this.createNonEmptyContainer();
+    SignatureBuilder.aSignature(container).invokeSigningAsync(Runnable::run);
+  }
+
+  @Test
+  public void signContainerAsync_signingFails_futureCompletesExceptionallyOnExecutorThread() throws Exception {
+    TechnicalException exception = new TechnicalException("Token failure");
+    AtomicReference<String> signingThread = new AtomicReference<>();
+    SignatureToken signatureToken = Mockito.mock(SignatureToken.class);
+    Mockito.doReturn(pkcs12SignatureToken.getCertificate()).when(signatureToken).getCertificate();
+    Mockito.doAnswer(invocation -> {
+      signingThread.set(Thread.currentThread().getName());
+      throw exception;
+    }).when(signatureToken).sign(Mockito.any(DigestAlgorithm.class), Mockito.any(byte[].class));
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "signing-thread"));
+    try {
+      CompletableFuture<Signature> future = SignatureBuilder.aSignature(this.createNonEmptyContainer())
+          .withSignatureToken(signatureToken).invokeSigningAsync(executor);
+      future.get(10, TimeUnit.SECONDS);
+      fail("Expected exception not thrown");
+    } catch (ExecutionException e) {
+      Assert.assertSame(exception, e.getCause());
+      Assert.assertEquals("signing-thread", signingThread.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void finalizeDataToSignAsync_signatureIsFinalizedOnExecutorThread() throws Exception {
+    Signature signature = Mockito.mock(Signature.class);
+    AtomicReference<String> finalizingThread = new AtomicReference<>();
+    SignatureFinalizer signatureFinalizer = Mockito.mock(SignatureFinalizer.class);
+    Mockito.doAnswer(invocation -> {
+      finalizingThread.set(Thread.currentThread().getName());
+      return signature;
+    }).when(signatureFinalizer).finalizeSignature(new byte[]{1, 2, 3});
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "finalizing-thread"));
+    try {
+      DataToSign dataToSign = new DataToSign(new byte[]{0}, signatureFinalizer);
+      Assert.assertSame(signature, dataToSign.finalizeAsync(new byte[]{1, 2, 3}, executor).get(10, TimeUnit.SECONDS));
+      Assert.assertEquals("finalizing-thread", finalizingThread.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void finalizeDataToSignAsync_finalizingFails_futureCompletesExceptionally() {
+    OCSPRequestFailedException exception = new OCSPRequestFailedException("S0");
+    SignatureFinalizer signatureFinalizer = Mockito.mock(SignatureFinalizer.class);
+    Mockito.doThrow(exception).when(signatureFinalizer).finalizeSignature(Mockito.any(byte[].class));
+    CompletableFuture<Signature> future = new DataToSign(new byte[]{0}, signatureFinalizer)
+        .finalizeAsync(new byte[]{1}, Runnable::run);
+    Assert.assertTrue(future.isCompletedExceptionally());
+    try {
+      future.join();
+      fail("Expected exception not thrown");
+    } catch (CompletionException e) {
+      Assert.assertSame(exception, e.getCause());
+    }
+  }
+
   @Test
   public void signatureProfileShouldBeSetProperlyForBDoc() throws Exception {
     Signature signature = createBDocSignatureWithProfile(SignatureProfile.B_BES);
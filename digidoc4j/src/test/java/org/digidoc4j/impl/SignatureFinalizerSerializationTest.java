@@ -0,0 +1,124 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.DataToSign;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.SignatureBuilder;
+import org.digidoc4j.SignatureFinalizerBuilder;
+import org.digidoc4j.SignatureProfile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+public class SignatureFinalizerSerializationTest extends AbstractTest {
+
+  private static final int DATA_FILE_SIZE = 1024 * 1024;
+
+  @Test
+  public void serializeDataToSign_largeDataFilesWithDefaultConfiguration_onlyDigestsAndConfigurationReferenceAreStored() {
+    Container container = createContainer(Container.DocumentType.ASICE, Configuration.getInstance());
+    DataToSign dataToSign = buildDataToSign(container, SignatureProfile.LT);
+
+    byte[] serializedDataToSign = SerializationUtils.serialize(dataToSign);
+    Assert.assertTrue("Serialized size " + serializedDataToSign.length, serializedDataToSign.length < 10000);
+
+    DataToSign deserializedDataToSign = SerializationUtils.deserialize(serializedDataToSign);
+    Assert.assertSame(Configuration.getInstance(), deserializedDataToSign.getConfiguration());
+    Assert.assertArrayEquals(dataToSign.getDataToSign(), deserializedDataToSign.getDataToSign());
+    Assert.assertEquals(dataToSign.getSignatureParameters().getSignatureId(),
+        deserializedDataToSign.getSignatureParameters().getSignatureId());
+    Assert.assertEquals(dataToSign.getSignatureParameters().getClaimedSigningDate(),
+        deserializedDataToSign.getSignatureParameters().getClaimedSigningDate());
+  }
+
+  @Test
+  public void serializeDataToSign_customConfiguration_configurationIsEmbedded() {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setTspSource("http://custom.tsp.example.com");
+    Container container = createContainer(Container.DocumentType.ASICE, configuration);
+    DataToSign dataToSign = buildDataToSign(container, SignatureProfile.LT);
+
+    byte[] serializedDataToSign = SerializationUtils.serialize(dataToSign);
+    Assert.assertTrue("Serialized size " + serializedDataToSign.length, serializedDataToSign.length < 50000);
+
+    DataToSign deserializedDataToSign = SerializationUtils.deserialize(serializedDataToSign);
+    Assert.assertNotSame(configuration, deserializedDataToSign.getConfiguration());
+    Assert.assertEquals("http://custom.tsp.example.com", deserializedDataToSign.getConfiguration().getTspSource());
+  }
+
+  @Test
+  public void deserializedFinalizer_asicEContainer_sameDataToSignIsCalculatedFromDigests() {
+    assertSameDataToSignAfterDeserialization(Container.DocumentType.ASICE, SignatureProfile.LT);
+  }
+
+  @Test
+  public void deserializedFinalizer_bDocContainerWithTimemarkProfile_sameDataToSignIsCalculatedFromDigests() {
+    assertSameDataToSignAfterDeserialization(Container.DocumentType.BDOC, SignatureProfile.LT_TM);
+  }
+
+  @Test
+  public void deserializedFinalizer_asicSContainer_sameDataToSignIsCalculatedFromDigests() {
+    assertSameDataToSignAfterDeserialization(Container.DocumentType.ASICS, SignatureProfile.LT);
+  }
+
+  @Test
+  public void deserializedFinalizer_sha512DataFileDigests_sameDataToSignIsCalculatedFromDigests() {
+    Container container = createContainer(Container.DocumentType.ASICE, Configuration.getInstance());
+    DataToSign dataToSign = SignatureBuilder.aSignature(container)
+        .withSigningCertificate(pkcs12SignatureToken.getCertificate())
+        .withDataFileDigestAlgorithm(DigestAlgorithm.SHA512)
+        .buildDataToSign();
+    SignatureFinalizer finalizer = SerializationUtils.deserialize(
+        SerializationUtils.serialize(SignatureFinalizerBuilder.aFinalizer(container, dataToSign.getSignatureParameters())));
+    Assert.assertArrayEquals(dataToSign.getDataToSign(), finalizer.getDataToBeSigned());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private void assertSameDataToSignAfterDeserialization(Container.DocumentType documentType, SignatureProfile profile) {
+    Container container = createContainer(documentType, Configuration.getInstance());
+    DataToSign dataToSign = buildDataToSign(container, profile);
+    SignatureFinalizer finalizer = SerializationUtils.deserialize(
+        SerializationUtils.serialize(SignatureFinalizerBuilder.aFinalizer(container, dataToSign.getSignatureParameters())));
+    Assert.assertArrayEquals(dataToSign.getDataToSign(), finalizer.getDataToBeSigned());
+  }
+
+  private DataToSign buildDataToSign(Container container, SignatureProfile profile) {
+    return SignatureBuilder.aSignature(container)
+        .withSigningCertificate(pkcs12SignatureToken.getCertificate())
+        .withSignatureProfile(profile)
+        .buildDataToSign();
+  }
+
+  private static Container createContainer(Container.DocumentType documentType, Configuration configuration) {
+    byte[] data = new byte[DATA_FILE_SIZE];
+    new Random(1).nextBytes(data);
+    ContainerBuilder containerBuilder = ContainerBuilder.aContainer(documentType).withConfiguration(configuration)
+        .withDataFile(new ByteArrayInputStream(data), "large.bin", "application/octet-stream");
+    if (documentType != Container.DocumentType.ASICS) {
+      containerBuilder.withDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)), "test.txt",
+          "text/plain");
+    }
+    return containerBuilder.build();
+  }
+
+}
@@ -14,6 +14,7 @@ import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.Options;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 import eu.europa.esig.dss.service.http.commons.TimestampDataLoader;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.bouncycastle.tsp.TimeStampRequest;
 import org.bouncycastle.tsp.TimeStampResponse;
 import org.digidoc4j.AbstractTest;
@@ -28,6 +29,8 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static com.github.tomakehurst.wiremock.client.WireMock.containing;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
@@ -153,6 +156,54 @@ public class SkTimestampDataLoaderTest extends AbstractTest {
           .withHeader("User-Agent", containing(USER_AGENT_STRING)));
   }
 
+  @Test
+  public void httpClientReused_successiveRequestsUseOneHttpClient() {
+    instanceRule.stubFor(post("/").withHeader("User-Agent", equalTo(USER_AGENT_STRING))
+            .willReturn(WireMock.aResponse().withStatus(200).withBody(new byte[] {0, 1, 2, 3})));
+    AtomicInteger createdHttpClients = new AtomicInteger();
+    SkTimestampDataLoader dataLoader = new SkTimestampDataLoader(Configuration.of(TEST)) {
+      @Override
+      protected synchronized CloseableHttpClient getHttpClient(String url) {
+        createdHttpClients.incrementAndGet();
+        return super.getHttpClient(url);
+      }
+    };
+    dataLoader.setUserAgent(USER_AGENT_STRING);
+    dataLoader.setHttpClientReused(true);
+    String serviceUrl = MOCK_PROXY_URL + instanceRule.port() + "/";
+
+    for (int i = 0; i < 3; i++) {
+      assertArrayEquals(new byte[] {0, 1, 2, 3}, dataLoader.post(serviceUrl, new byte[] {1}));
+    }
+    assertEquals(1, createdHttpClients.get());
+    WireMock.verify(3, postRequestedFor(urlMatching("/")));
+  }
+
+  @Test
+  public void closeReusedHttpClients_subsequentRequestsUseHttpClientOfTheirOwn() {
+    instanceRule.stubFor(post("/").withHeader("User-Agent", equalTo(USER_AGENT_STRING))
+            .willReturn(WireMock.aResponse().withStatus(200).withBody(new byte[] {0, 1, 2, 3})));
+    AtomicInteger createdHttpClients = new AtomicInteger();
+    SkTimestampDataLoader dataLoader = new SkTimestampDataLoader(Configuration.of(TEST)) {
+      @Override
+      protected synchronized CloseableHttpClient getHttpClient(String url) {
+        createdHttpClients.incrementAndGet();
+        return super.getHttpClient(url);
+      }
+    };
+    dataLoader.setUserAgent(USER_AGENT_STRING);
+    dataLoader.setHttpClientReused(true);
+    String serviceUrl = MOCK_PROXY_URL + instanceRule.port() + "/";
+
+    assertArrayEquals(new byte[] {0, 1, 2, 3}, dataLoader.post(serviceUrl, new byte[] {1}));
+    dataLoader.closeReusedHttpClients();
+    for (int i = 0; i < 2; i++) {
+      assertArrayEquals(new byte[] {0, 1, 2, 3}, dataLoader.post(serviceUrl, new byte[] {1}));
+    }
+    assertEquals(3, createdHttpClients.get());
+    WireMock.verify(3, postRequestedFor(urlMatching("/")));
+  }
+
   private static ServiceAccessEvent verifyAndCaptureServiceAccessEvent(ServiceAccessListener mockedListener) {
     ArgumentCaptor<ServiceAccessEvent> argumentCaptor = ArgumentCaptor.forClass(ServiceAccessEvent.class);
     Mockito.verify(mockedListener, Mockito.times(1)).accept(argumentCaptor.capture());
@@ -36,8 +36,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.zip.CRC32;
 
 public class StreamDocumentTest extends AbstractTest {
 
@@ -148,7 +150,9 @@ public class StreamDocumentTest extends AbstractTest {
     }
   }
 
+  // Covers the deprecated Helper.deleteTmpFiles, which is kept for existing callers
   @Test
+  @SuppressWarnings("deprecation")
   public void documentManualDeletion() {
     File dir = new File(System.getProperty("java.io.tmpdir"));
     FilenameFilter filenameFilter = (dir1, name) -> name.toLowerCase().startsWith("digidoc4j")
@@ -166,6 +170,13 @@ public class StreamDocumentTest extends AbstractTest {
     Assert.assertEquals("VZrq0IJk1XldOQlxjN0Fq9SVcuhP5VWQ7vMaiKCP3/0=", document.getDigest(DigestAlgorithm.SHA256));
   }
 
+  @Test
+  public void getDigest_addedDigestIsReturnedWithoutReadingContents() throws Exception {
+    this.document.addDigest(DigestAlgorithm.SHA256, "VZrq0IJk1XldOQlxjN0Fq9SVcuhP5VWQ7vMaiKCP3/0=");
+    Assert.assertTrue(this.document.temporaryFile.delete());
+    Assert.assertEquals("VZrq0IJk1XldOQlxjN0Fq9SVcuhP5VWQ7vMaiKCP3/0=", document.getDigest(DigestAlgorithm.SHA256));
+  }
+
   /*
     NB! If this test fails then ensure that directory testFiles/tmp/readonly is read-only!
    */
@@ -192,6 +203,27 @@ public class StreamDocumentTest extends AbstractTest {
     this.document.openStream();
   }
 
+  @Test
+  public void lengthAndCrcAreCalculatedWhileSpooling() {
+    CRC32 crc = new CRC32();
+    crc.update(0x041);
+    Assert.assertEquals(Long.valueOf(1), this.document.getStreamLengthIfKnown());
+    Assert.assertEquals(crc.getValue(), this.document.getCrc32());
+    Assert.assertTrue(this.document.temporaryFile.delete());
+    Assert.assertEquals(Long.valueOf(1), this.document.getStreamLengthIfKnown());
+  }
+
+  @Test
+  public void getDigest_requestedDigestsAreCalculatedWhileSpooling() throws Exception {
+    try (ByteArrayInputStream stream = new ByteArrayInputStream(new byte[]{0x041})) {
+      this.document = new StreamDocument(stream, "suur_a.txt", MimeType.TEXT, null,
+          Arrays.asList(DigestAlgorithm.SHA256, DigestAlgorithm.SHA512));
+    }
+    Assert.assertTrue(this.document.temporaryFile.delete());
+    Assert.assertEquals("VZrq0IJk1XldOQlxjN0Fq9SVcuhP5VWQ7vMaiKCP3/0=", document.getDigest(DigestAlgorithm.SHA256));
+    Assert.assertNotNull(document.getDigest(DigestAlgorithm.SHA512));
+  }
+
   @Test(expected = DSSException.class)
   public void testGetBytesThrowsException() throws Exception {
     new MockStreamDocument().openStream();
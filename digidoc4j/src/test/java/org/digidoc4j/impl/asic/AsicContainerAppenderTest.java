@@ -0,0 +1,122 @@
+package org.digidoc4j.impl.asic;
+
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.SignatureProfile;
+import org.digidoc4j.impl.asic.zip.ZipCentralDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class AsicContainerAppenderTest extends AbstractTest {
+
+  private File containerFile;
+
+  @Test
+  public void signatureAddedToOpenedContainer_appendedToContainerFile_existingEntriesAreNotRewritten() throws IOException {
+    byte[] originalBytes = Files.readAllBytes(containerFile.toPath());
+    long centralDirectoryOffset = ZipCentralDirectory.read(containerFile).getCentralDirectoryOffset();
+
+    Container container = ContainerOpener.open(containerFile.getPath(), configuration);
+    createSignatureBy(container, SignatureProfile.B_BES, pkcs12SignatureToken);
+    Assert.assertTrue(((AsicContainer) container).appendNewSignaturesToContainerFile(containerFile));
+
+    byte[] savedBytes = Files.readAllBytes(containerFile.toPath());
+    Assert.assertArrayEquals(Arrays.copyOf(originalBytes, (int) centralDirectoryOffset),
+        Arrays.copyOf(savedBytes, (int) centralDirectoryOffset));
+    Assert.assertEquals(
+        Arrays.asList("mimetype", "META-INF/manifest.xml", "test.txt", "META-INF/signatures0.xml"),
+        getEntryNames(containerFile));
+    Assert.assertEquals(1, ContainerOpener.open(containerFile.getPath(), configuration).getSignatures().size());
+  }
+
+  @Test
+  public void signaturesAddedRepeatedly_savedIntoSameFile_allSignaturesAreAppended() throws IOException {
+    for (int i = 0; i < 2; i++) {
+      Container container = ContainerOpener.open(containerFile.getPath(), configuration);
+      createSignatureBy(container, SignatureProfile.B_BES, pkcs12SignatureToken);
+      container.saveAsFile(containerFile.getPath());
+    }
+
+    Assert.assertEquals(
+        Arrays.asList("mimetype", "META-INF/manifest.xml", "test.txt", "META-INF/signatures0.xml",
+            "META-INF/signatures1.xml"),
+        getEntryNames(containerFile));
+    Container savedContainer = ContainerOpener.open(containerFile.getPath(), configuration);
+    Assert.assertEquals(2, savedContainer.getSignatures().size());
+    Assert.assertArrayEquals("test".getBytes(StandardCharsets.UTF_8), savedContainer.getDataFiles().get(0).getBytes());
+  }
+
+  @Test
+  public void dataFileAddedToOpenedContainer_containerIsSavedAsWhole() throws IOException {
+    Container container = ContainerOpener.open(containerFile.getPath(), configuration);
+    container.addDataFile(new DataFile("other".getBytes(StandardCharsets.UTF_8), "other.txt", "text/plain"));
+    Assert.assertFalse(((AsicContainer) container).appendNewSignaturesToContainerFile(containerFile));
+
+    container.saveAsFile(containerFile.getPath());
+    Assert.assertEquals(2, ContainerOpener.open(containerFile.getPath(), configuration).getDataFiles().size());
+  }
+
+  @Test
+  public void containerFileModifiedAfterOpening_containerIsSavedAsWhole() throws IOException {
+    Container container = ContainerOpener.open(containerFile.getPath(), configuration);
+    createSignatureBy(container, SignatureProfile.B_BES, pkcs12SignatureToken);
+    try (OutputStream stream = Files.newOutputStream(containerFile.toPath(), StandardOpenOption.APPEND)) {
+      stream.write(0);
+    }
+    Assert.assertFalse(((AsicContainer) container).appendNewSignaturesToContainerFile(containerFile));
+
+    container.saveAsFile(containerFile.getPath());
+    Assert.assertEquals(1, ContainerOpener.open(containerFile.getPath(), configuration).getSignatures().size());
+  }
+
+  @Test
+  public void signatureAddedToOpenedContainer_savedIntoOtherFile_sourceFileIsNotModified() throws IOException {
+    byte[] originalBytes = Files.readAllBytes(containerFile.toPath());
+    Container container = ContainerOpener.open(containerFile.getPath(), configuration);
+    createSignatureBy(container, SignatureProfile.B_BES, pkcs12SignatureToken);
+    String path = getFileBy("asice");
+    container.saveAsFile(path);
+
+    Assert.assertArrayEquals(originalBytes, Files.readAllBytes(containerFile.toPath()));
+    Assert.assertEquals(1, ContainerOpener.open(path, configuration).getSignatures().size());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static List<String> getEntryNames(File file) throws IOException {
+    try (ZipFile zipFile = new ZipFile(file)) {
+      return Collections.list(zipFile.entries()).stream().map(ZipEntry::getName).collect(Collectors.toList());
+    }
+  }
+
+  @Override
+  protected void before() {
+    configuration = Configuration.of(Configuration.Mode.TEST);
+    containerFile = new File(getFileBy("asice"));
+    ContainerBuilder.aContainer(Container.DocumentType.ASICE)
+        .withConfiguration(configuration)
+        .withDataFile(new DataFile("test".getBytes(StandardCharsets.UTF_8), "test.txt", "text/plain"))
+        .build()
+        .saveAsFile(containerFile.getPath());
+  }
+
+}
@@ -0,0 +1,191 @@
+package org.digidoc4j.impl.asic;
+
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DataFileCompressionPolicy;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+public class AsicContainerRawEntryCopyTest extends AbstractTest {
+
+  private String containerPath;
+
+  @Test
+  public void openedFromFile_unchangedEntriesAreCopiedAsTheyAre() throws IOException {
+    String path = this.getFileBy("asice");
+    ContainerOpener.open(containerPath, this.configuration).saveAsFile(path);
+    assertEntriesEqual(new File(containerPath), new File(path));
+  }
+
+  @Test
+  public void openedFromFileWithLazyLoading_unchangedEntriesAreCopiedAsTheyAre() throws IOException {
+    this.configuration.setLazyDataFileLoadingEnabled(true);
+    String path = this.getFileBy("asice");
+    ContainerOpener.open(containerPath, this.configuration).saveAsFile(path);
+    assertEntriesEqual(new File(containerPath), new File(path));
+  }
+
+  @Test
+  public void openedFromFile_savedOverSourceFile_containerRemainsValid() throws IOException {
+    File source = new File(this.getFileBy("asice"));
+    Files.copy(new File(containerPath).toPath(), source.toPath());
+    Container container = ContainerOpener.open(source.getPath(), this.configuration);
+    List<DataFile> dataFiles = container.getDataFiles();
+    container.saveAsFile(source.getPath());
+
+    Container savedContainer = ContainerOpener.open(source.getPath(), this.configuration);
+    Assert.assertEquals(dataFiles.size(), savedContainer.getDataFiles().size());
+    for (int i = 0; i < dataFiles.size(); i++) {
+      Assert.assertArrayEquals(dataFiles.get(i).getBytes(), savedContainer.getDataFiles().get(i).getBytes());
+    }
+  }
+
+  @Test
+  public void openedFromFile_savedOverSourceFile_fileIsOverwrittenInPlace() throws IOException {
+    File source = new File(this.getFileBy("asice"));
+    Files.copy(new File(containerPath).toPath(), source.toPath());
+    Object fileKey = Files.readAttributes(source.toPath(), BasicFileAttributes.class).fileKey();
+    Assume.assumeNotNull(fileKey);
+
+    ContainerOpener.open(source.getPath(), this.configuration).saveAsFile(source.getPath());
+
+    Assert.assertEquals(fileKey, Files.readAttributes(source.toPath(), BasicFileAttributes.class).fileKey());
+    Assert.assertEquals(3, ContainerOpener.open(source.getPath(), this.configuration).getDataFiles().size());
+  }
+
+  @Test
+  public void openedFromStream_entriesAreStillWritten() throws IOException {
+    String path = this.getFileBy("asice");
+    try (InputStream stream = new FileInputStream(containerPath)) {
+      ContainerOpener.open(stream, this.configuration).saveAsFile(path);
+    }
+    try (ZipFile expectedZipFile = new ZipFile(containerPath); ZipFile zipFile = new ZipFile(path)) {
+      for (ZipEntry expected : Collections.list(expectedZipFile.entries())) {
+        ZipEntry actual = zipFile.getEntry(expected.getName());
+        Assert.assertEquals(expected.getCrc(), actual.getCrc());
+        Assert.assertArrayEquals(IOUtils.toByteArray(expectedZipFile.getInputStream(expected)),
+            IOUtils.toByteArray(zipFile.getInputStream(actual)));
+      }
+    }
+  }
+
+  @Test
+  public void storedDataFilesBackedByFiles_contentsAreTransferredFromFiles() throws IOException {
+    this.configuration.setDataFileCompressionPolicy((fileName, mediaType) -> DataFileCompressionPolicy.STORED);
+    byte[] fileContents = new byte[100_000];
+    new Random(42).nextBytes(fileContents);
+    String dataFilePath = this.getFileBy("bin");
+    Files.write(Paths.get(dataFilePath), fileContents);
+    byte[] streamContents = "Hello, world!".getBytes(StandardCharsets.UTF_8);
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE)
+        .withConfiguration(this.configuration)
+        .withDataFile(dataFilePath, "application/octet-stream")
+        .withDataFile(new ByteArrayInputStream(streamContents), "letter.txt", "text/plain")
+        .build();
+    String path = this.getFileBy("asice");
+    container.saveAsFile(path);
+
+    try (ZipFile zipFile = new ZipFile(path)) {
+      ZipEntry dataFileEntry = zipFile.getEntry(new File(dataFilePath).getName());
+      Assert.assertEquals(ZipEntry.STORED, dataFileEntry.getMethod());
+      Assert.assertArrayEquals(fileContents, IOUtils.toByteArray(zipFile.getInputStream(dataFileEntry)));
+      ZipEntry streamEntry = zipFile.getEntry("letter.txt");
+      Assert.assertEquals(ZipEntry.STORED, streamEntry.getMethod());
+      Assert.assertArrayEquals(streamContents, IOUtils.toByteArray(zipFile.getInputStream(streamEntry)));
+    }
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static void assertEntriesEqual(File expectedFile, File actualFile) throws IOException {
+    try (ZipFile expectedZipFile = new ZipFile(expectedFile); ZipFile zipFile = new ZipFile(actualFile)) {
+      List<? extends ZipEntry> expectedEntries = Collections.list(expectedZipFile.entries());
+      Assert.assertEquals(expectedEntries.size(), zipFile.size());
+      for (ZipEntry expected : expectedEntries) {
+        ZipEntry actual = zipFile.getEntry(expected.getName());
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected.getMethod(), actual.getMethod());
+        Assert.assertEquals(expected.getCrc(), actual.getCrc());
+        Assert.assertEquals(expected.getSize(), actual.getSize());
+        Assert.assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+        Assert.assertEquals(expected.getTime(), actual.getTime());
+        Assert.assertArrayEquals(IOUtils.toByteArray(expectedZipFile.getInputStream(expected)),
+            IOUtils.toByteArray(zipFile.getInputStream(actual)));
+      }
+    }
+  }
+
+  /**
+   * Creates a container compressed with a different compression level than the one used when saving containers, so
+   * that the compressed sizes of the entries change if they are compressed again.
+   */
+  private String createContainerWithFastCompression() throws IOException {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE)
+        .withConfiguration(this.configuration)
+        .build();
+    for (int i = 0; i < 3; i++) {
+      StringBuilder contents = new StringBuilder();
+      for (int j = 0; j < 1000; j++) {
+        contents.append("data file ").append(i).append(" line ").append(j).append('\n');
+      }
+      container.addDataFile(new DataFile(contents.toString().getBytes(StandardCharsets.UTF_8), "file" + i + ".txt", "text/plain"));
+    }
+    String path = this.getFileBy("asice");
+    try (ZipInputStream in = new ZipInputStream(container.saveAsStream());
+         ZipOutputStream out = new ZipOutputStream(new FileOutputStream(path))) {
+      out.setLevel(Deflater.BEST_SPEED);
+      ZipEntry entry;
+      while ((entry = in.getNextEntry()) != null) {
+        ZipEntry copy = new ZipEntry(entry.getName());
+        copy.setComment(entry.getComment());
+        if (entry.getMethod() == ZipEntry.STORED) {
+          copy.setMethod(ZipEntry.STORED);
+          copy.setSize(entry.getSize());
+          copy.setCrc(entry.getCrc());
+        }
+        out.putNextEntry(copy);
+        IOUtils.copy(in, out);
+        out.closeEntry();
+      }
+    }
+    return path;
+  }
+
+  @Override
+  protected void before() {
+    this.configuration = Configuration.of(Configuration.Mode.TEST);
+    try {
+      this.containerPath = createContainerWithFastCompression();
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
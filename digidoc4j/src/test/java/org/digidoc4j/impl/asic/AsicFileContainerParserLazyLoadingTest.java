@@ -0,0 +1,97 @@
+package org.digidoc4j.impl.asic;
+
+import org.apache.commons.io.FileUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.impl.StreamDocument;
+import org.digidoc4j.impl.asic.zip.ZipEntryDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+public class AsicFileContainerParserLazyLoadingTest extends AbstractTest {
+
+  private static final String CONTAINER_PATH = "src/test/resources/testFiles/valid-containers/container_without_signatures.asice";
+  private static final String COMPRESSED_CONTAINER_PATH = "src/test/resources/testFiles/valid-containers/compression-ratio-46.55-with-8-datafiles.asice";
+  private static final byte[] TEST_FILE_CONTENTS = "see on testfail".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void lazyLoadingDisabledByDefault_dataFilesAreCopiedIntoTemporaryFiles() {
+    Configuration configuration = createConfigurationWithoutDataFileCaching();
+    List<DataFile> dataFiles = new AsicFileContainerParser(CONTAINER_PATH, configuration).read().getDataFiles();
+    Assert.assertEquals(1, dataFiles.size());
+    for (DataFile dataFile : dataFiles) {
+      Assert.assertTrue(dataFile.getDocument() instanceof StreamDocument);
+    }
+  }
+
+  @Test
+  public void lazyLoadingEnabled_dataFilesAreReadFromContainerFile() {
+    Configuration configuration = createConfigurationWithoutDataFileCaching();
+    List<DataFile> expectedDataFiles = new AsicFileContainerParser(CONTAINER_PATH, configuration).read().getDataFiles();
+    configuration.setLazyDataFileLoadingEnabled(true);
+    List<DataFile> dataFiles = new AsicFileContainerParser(CONTAINER_PATH, configuration).read().getDataFiles();
+
+    Assert.assertEquals(expectedDataFiles.size(), dataFiles.size());
+    for (int i = 0; i < dataFiles.size(); i++) {
+      DataFile expected = expectedDataFiles.get(i);
+      DataFile actual = dataFiles.get(i);
+      Assert.assertTrue(actual.getDocument() instanceof ZipEntryDocument);
+      Assert.assertEquals(expected.getName(), actual.getName());
+      Assert.assertEquals(expected.getMediaType(), actual.getMediaType());
+      Assert.assertEquals(expected.getFileSize(), actual.getFileSize());
+      Assert.assertArrayEquals(expected.getBytes(), actual.getBytes());
+      Assert.assertArrayEquals(expected.calculateDigest(DigestAlgorithm.SHA256),
+          actual.calculateDigest(DigestAlgorithm.SHA256));
+    }
+  }
+
+  @Test
+  public void lazyLoadingEnabled_compressionRatioIsCheckedUsingDeclaredSizes() {
+    Configuration configuration = createConfigurationWithoutDataFileCaching();
+    configuration.setLazyDataFileLoadingEnabled(true);
+    configuration.setZipCompressionRatioCheckThresholdInBytes(1024L);
+    configuration.setMaxAllowedZipCompressionRatio(46);
+    AsicContainerParserZipBombingTest.assertReadThrowsZipBombingException(
+        new AsicFileContainerParser(COMPRESSED_CONTAINER_PATH, configuration));
+  }
+
+  @Test
+  public void lazyLoadingEnabled_containerSavedIntoFileItWasOpenedFrom_containerFileIsReplaced() throws Exception {
+    Configuration configuration = createConfigurationWithoutDataFileCaching();
+    configuration.setLazyDataFileLoadingEnabled(true);
+    File containerFile = testFolder.newFile("container.asice");
+    FileUtils.copyFile(new File(CONTAINER_PATH), containerFile);
+    byte[] bigData = new byte[100000];
+    new Random(1).nextBytes(bigData);
+
+    Container container = ContainerOpener.open(containerFile.getPath(), configuration);
+    container.addDataFile(new ByteArrayInputStream(bigData), "big.bin", "application/octet-stream");
+    container.saveAsFile(containerFile.getPath());
+    Assert.assertArrayEquals(TEST_FILE_CONTENTS, container.getDataFiles().get(0).getBytes());
+    container.addDataFile(new ByteArrayInputStream(new byte[]{1}), "small.bin", "application/octet-stream");
+    container.saveAsFile(containerFile.getPath());
+
+    Container savedContainer = ContainerOpener.open(containerFile.getPath(), configuration);
+    Assert.assertEquals(3, savedContainer.getDataFiles().size());
+    Assert.assertArrayEquals(TEST_FILE_CONTENTS, savedContainer.getDataFiles().get(0).getBytes());
+    Assert.assertArrayEquals(bigData, savedContainer.getDataFiles().get(1).getBytes());
+    Assert.assertEquals(1, containerFile.getParentFile().list().length);
+  }
+
+  private static Configuration createConfigurationWithoutDataFileCaching() {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(0);
+    return configuration;
+  }
+
+}
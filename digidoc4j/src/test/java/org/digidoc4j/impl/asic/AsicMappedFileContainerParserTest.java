@@ -0,0 +1,159 @@
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.model.DSSException;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.model.MimeType;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.impl.asic.zip.ByteBufferDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class AsicMappedFileContainerParserTest extends AbstractTest {
+
+  private static final String CONTAINER_PATH = "src/test/resources/testFiles/valid-containers/container_without_signatures.asice";
+  private static final byte[] STORED_DATA_FILE_CONTENT = "stored data file content".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void readContainerWithCompressedDataFile_resultMatchesZipFileParser() {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    AsicParseResult expected = new AsicFileContainerParser(CONTAINER_PATH, configuration).read();
+    AsicParseResult actual = new AsicMappedFileContainerParser(CONTAINER_PATH, configuration).read();
+
+    Assert.assertEquals(expected.getMimeType(), actual.getMimeType());
+    Assert.assertEquals(expected.getZipFileComment(), actual.getZipFileComment());
+    Assert.assertEquals(expected.getAsicEntries().size(), actual.getAsicEntries().size());
+    assertDataFilesEqual(expected.getDataFiles(), actual.getDataFiles());
+  }
+
+  @Test
+  public void readContainerWithStoredDataFile_dataFileIsBackedByMapping() throws IOException {
+    File container = createContainerWithStoredDataFile();
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(0);
+    AsicParseResult expected = new AsicFileContainerParser(container.getPath(), configuration).read();
+    AsicParseResult actual = new AsicMappedFileContainerParser(container.getPath(), configuration).read();
+
+    assertDataFilesEqual(expected.getDataFiles(), actual.getDataFiles());
+    DataFile dataFile = actual.getDataFiles().get(0);
+    Assert.assertTrue(dataFile.getDocument() instanceof ByteBufferDocument);
+    Assert.assertArrayEquals(STORED_DATA_FILE_CONTENT, dataFile.getBytes());
+    Assert.assertEquals(MimeType.TEXT.getMimeTypeString(), dataFile.getMediaType());
+  }
+
+  @Test
+  public void readContainerWithCorruptedStoredDataFile_readingDataFileFailsWithInvalidCrc() throws IOException {
+    File container = createContainerWithStoredDataFile();
+    corruptStoredDataFileContent(container);
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(0);
+    DataFile dataFile = new AsicMappedFileContainerParser(container.getPath(), configuration).read().getDataFiles().get(0);
+    Assert.assertTrue(dataFile.getDocument() instanceof ByteBufferDocument);
+
+    expectedException.expect(DSSException.class);
+    expectedException.expectMessage("Invalid CRC-32 for entry 'test.txt'");
+    dataFile.getBytes();
+  }
+
+  @Test
+  public void readContainerWithSmallStoredDataFile_dataFileIsCachedInMemory() throws IOException {
+    File container = createContainerWithStoredDataFile();
+    DataFile dataFile = new AsicMappedFileContainerParser(container.getPath(), Configuration.of(Configuration.Mode.TEST))
+        .read().getDataFiles().get(0);
+    Assert.assertTrue(dataFile.getDocument() instanceof InMemoryDocument);
+    Assert.assertArrayEquals(STORED_DATA_FILE_CONTENT, dataFile.getBytes());
+  }
+
+  @Test
+  public void containerWithMappedDataFileSavedIntoFileItWasOpenedFrom_containerFileIsReplaced() throws IOException {
+    File containerFile = createContainerWithStoredDataFile();
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMemoryMappedContainerReadingEnabled(true);
+    configuration.setMaxFileSizeCachedInMemoryInMB(0);
+
+    Container container = ContainerOpener.open(containerFile.getPath(), configuration);
+    Assert.assertTrue(container.getDataFiles().get(0).getDocument() instanceof ByteBufferDocument);
+    container.addDataFile(new ByteArrayInputStream(new byte[]{1, 2, 3}), "added.bin", "application/octet-stream");
+    container.saveAsFile(containerFile.getPath());
+    Assert.assertArrayEquals(STORED_DATA_FILE_CONTENT, container.getDataFiles().get(0).getBytes());
+
+    Container savedContainer = ContainerOpener.open(containerFile.getPath(), configuration);
+    Assert.assertEquals(2, savedContainer.getDataFiles().size());
+    Assert.assertArrayEquals(STORED_DATA_FILE_CONTENT, savedContainer.getDataFiles().get(0).getBytes());
+    Assert.assertArrayEquals(new byte[]{1, 2, 3}, savedContainer.getDataFiles().get(1).getBytes());
+  }
+
+  @Test
+  public void forContainerFile_memoryMappingEnabled_createsMappedParser() {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    Assert.assertTrue(AsicContainerParser.forContainerFile(CONTAINER_PATH, configuration) instanceof AsicFileContainerParser);
+    configuration.setMemoryMappedContainerReadingEnabled(true);
+    Assert.assertTrue(AsicContainerParser.forContainerFile(CONTAINER_PATH, configuration) instanceof AsicMappedFileContainerParser);
+  }
+
+  private static void assertDataFilesEqual(List<DataFile> expected, List<DataFile> actual) {
+    Assert.assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Assert.assertEquals(expected.get(i).getName(), actual.get(i).getName());
+      Assert.assertEquals(expected.get(i).getMediaType(), actual.get(i).getMediaType());
+      Assert.assertEquals(expected.get(i).getFileSize(), actual.get(i).getFileSize());
+      Assert.assertArrayEquals(expected.get(i).getBytes(), actual.get(i).getBytes());
+      Assert.assertArrayEquals(expected.get(i).calculateDigest(DigestAlgorithm.SHA256),
+          actual.get(i).calculateDigest(DigestAlgorithm.SHA256));
+    }
+  }
+
+  private File createContainerWithStoredDataFile() throws IOException {
+    File container = testFolder.newFile("stored-data-file.asice");
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(container))) {
+      writeStoredEntry(zipOutputStream, "mimetype", MimeType.ASICE.getMimeTypeString().getBytes(StandardCharsets.UTF_8));
+      zipOutputStream.putNextEntry(new ZipEntry("META-INF/manifest.xml"));
+      zipOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\" ?>"
+          + "<manifest:manifest xmlns:manifest=\"urn:oasis:names:tc:opendocument:xmlns:manifest:1.0\" manifest:version=\"1.2\">"
+          + "<manifest:file-entry manifest:full-path=\"/\" manifest:media-type=\"application/vnd.etsi.asic-e+zip\"/>"
+          + "<manifest:file-entry manifest:full-path=\"test.txt\" manifest:media-type=\"text/plain\"/>"
+          + "</manifest:manifest>").getBytes(StandardCharsets.UTF_8));
+      zipOutputStream.closeEntry();
+      writeStoredEntry(zipOutputStream, "test.txt", STORED_DATA_FILE_CONTENT);
+    }
+    return container;
+  }
+
+  private static void corruptStoredDataFileContent(File container) throws IOException {
+    byte[] bytes = Files.readAllBytes(container.toPath());
+    int contentOffset = new String(bytes, StandardCharsets.ISO_8859_1)
+        .indexOf(new String(STORED_DATA_FILE_CONTENT, StandardCharsets.ISO_8859_1));
+    Assert.assertTrue(contentOffset > 0);
+    bytes[contentOffset] ^= 1;
+    Files.write(container.toPath(), bytes);
+  }
+
+  private static void writeStoredEntry(ZipOutputStream zipOutputStream, String name, byte[] content) throws IOException {
+    ZipEntry entry = new ZipEntry(name);
+    entry.setMethod(ZipEntry.STORED);
+    entry.setSize(content.length);
+    entry.setCompressedSize(content.length);
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    entry.setCrc(crc.getValue());
+    zipOutputStream.putNextEntry(entry);
+    zipOutputStream.write(content);
+    zipOutputStream.closeEntry();
+  }
+
+}
@@ -0,0 +1,12 @@
+package org.digidoc4j.impl.asic;
+
+import org.digidoc4j.Configuration;
+
+public class AsicMappedFileContainerParserZipBombingTest extends AsicContainerParserZipBombingTest {
+
+    @Override
+    protected AsicContainerParser createAsicContainerParserFromPath(String path, Configuration configuration) {
+        return new AsicMappedFileContainerParser(path, configuration);
+    }
+
+}
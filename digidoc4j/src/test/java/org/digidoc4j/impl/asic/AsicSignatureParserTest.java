@@ -0,0 +1,111 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import org.apache.commons.io.FileUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.exceptions.SignatureNotFoundException;
+import org.digidoc4j.impl.asic.xades.XadesSignatureWrapper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class AsicSignatureParserTest extends AbstractTest {
+
+  private static final String BES_SIGNATURE = "src/test/resources/testFiles/xades/test-bes-signature.xml";
+
+  @Test
+  public void parseMultipleSignatures_signaturesAreReturnedInOriginalOrder() throws Exception {
+    List<DSSDocument> signatureDocuments = createSignatureDocuments(8);
+    List<XadesSignatureWrapper> signatures = createSignatureParser().parse(signatureDocuments);
+    Assert.assertEquals(signatureDocuments.size(), signatures.size());
+    for (int i = 0; i < signatureDocuments.size(); i++) {
+      Assert.assertSame(signatureDocuments.get(i), signatures.get(i).getSignatureDocument());
+      Assert.assertEquals("id-693869a500c60f0dc262f7287f033d5d", signatures.get(i).getSignature().getId());
+    }
+  }
+
+  @Test
+  public void parseMultipleSignatures_whenOneSignatureIsInvalid_parsingErrorIsThrown() throws Exception {
+    List<DSSDocument> signatureDocuments = createSignatureDocuments(4);
+    signatureDocuments.add(2, new InMemoryDocument("<invalid/>".getBytes(), "signatures2.xml"));
+    try {
+      createSignatureParser().parse(signatureDocuments);
+      Assert.fail("Expected SignatureNotFoundException");
+    } catch (SignatureNotFoundException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void parseMultipleSignatures_fromTaskOfSingleThreadedExecutorOfConfiguration_parsingCompletes() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      this.configuration.setThreadExecutor(executor);
+      List<DSSDocument> signatureDocuments = createSignatureDocuments(4);
+      Future<List<XadesSignatureWrapper>> result = executor.submit(() -> createSignatureParser().parse(signatureDocuments));
+      Assert.assertEquals(signatureDocuments.size(), result.get(1, TimeUnit.MINUTES).size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void parseMultipleSignatures_executorOfConfigurationIsShutDown_signaturesAreParsedOnCallingThread()
+      throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    executor.shutdown();
+    this.configuration.setThreadExecutor(executor);
+    List<DSSDocument> signatureDocuments = createSignatureDocuments(4);
+    Assert.assertEquals(signatureDocuments.size(), createSignatureParser().parse(signatureDocuments).size());
+  }
+
+  @Test
+  public void parseNoSignatures_emptyListIsReturned() {
+    Assert.assertTrue(createSignatureParser().parse(Collections.<DSSDocument>emptyList()).isEmpty());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  @Override
+  protected void before() {
+    this.configuration = Configuration.of(Configuration.Mode.TEST);
+  }
+
+  private AsicSignatureParser createSignatureParser() {
+    return new AsicSignatureParser(Collections.singletonList(
+            new FileDocument("src/test/resources/testFiles/helper-files/test.txt")), this.configuration);
+  }
+
+  private static List<DSSDocument> createSignatureDocuments(int count) throws Exception {
+    byte[] signatureBytes = FileUtils.readFileToByteArray(new File(BES_SIGNATURE));
+    List<DSSDocument> signatureDocuments = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      signatureDocuments.add(new InMemoryDocument(signatureBytes, "signatures" + i + ".xml"));
+    }
+    return signatureDocuments;
+  }
+
+}
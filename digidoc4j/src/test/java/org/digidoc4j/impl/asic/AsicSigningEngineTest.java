@@ -0,0 +1,141 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.service.tsp.OnlineTSPSource;
+import eu.europa.esig.dss.spi.client.http.DataLoader;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.DataLoaderFactory;
+import org.digidoc4j.SignatureBuilder;
+import org.digidoc4j.SignatureProfile;
+import org.digidoc4j.impl.SkTimestampDataLoader;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class AsicSigningEngineTest extends AbstractTest {
+
+  @Test
+  public void of_settingsNotChanged_sameEngineIsReturned() {
+    AsicSigningEngine engine = AsicSigningEngine.of(configuration);
+    Assert.assertSame(engine, AsicSigningEngine.of(configuration));
+    Assert.assertTrue(engine.getTspDataLoader() instanceof SkTimestampDataLoader);
+    Assert.assertTrue(((SkTimestampDataLoader) engine.getTspDataLoader()).isHttpClientReused());
+  }
+
+  @Test
+  public void of_settingChanged_newEngineIsCreated() {
+    AsicSigningEngine engine = AsicSigningEngine.of(configuration);
+    configuration.setConnectionTimeout(12345);
+    AsicSigningEngine newEngine = AsicSigningEngine.of(configuration);
+    Assert.assertNotSame(engine, newEngine);
+    Assert.assertSame(newEngine, AsicSigningEngine.of(configuration));
+  }
+
+  @Test
+  public void of_dataLoaderFactoryChanged_newEngineUsesNewFactory() {
+    AsicSigningEngine engine = AsicSigningEngine.of(configuration);
+    DataLoader dataLoader = Mockito.mock(DataLoader.class);
+    configuration.setTspDataLoaderFactory(() -> dataLoader);
+    AsicSigningEngine newEngine = AsicSigningEngine.of(configuration);
+    Assert.assertNotSame(engine, newEngine);
+    Assert.assertSame(dataLoader, newEngine.getTspDataLoader());
+  }
+
+  @Test
+  public void of_calledConcurrently_singleEngineIsCreated() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Callable<AsicSigningEngine>> tasks = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        tasks.add(() -> AsicSigningEngine.of(configuration));
+      }
+      List<Future<AsicSigningEngine>> engines = executor.invokeAll(tasks);
+      for (Future<AsicSigningEngine> engine : engines) {
+        Assert.assertSame(engines.get(0).get(), engine.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void of_differentConfigurations_differentEnginesAreReturned() {
+    AsicSigningEngine engine = AsicSigningEngine.of(configuration);
+    Assert.assertNotSame(engine, AsicSigningEngine.of(Configuration.of(Configuration.Mode.TEST)));
+    Assert.assertSame(engine, AsicSigningEngine.of(configuration));
+  }
+
+  @Test
+  public void getTspSource_sameUrl_tspSourceIsReusedWithSharedDataLoader() {
+    AsicSigningEngine engine = AsicSigningEngine.of(configuration);
+    OnlineTSPSource tspSource = engine.getTspSource("http://tsp.example.com");
+    Assert.assertSame(tspSource, engine.getTspSource("http://tsp.example.com"));
+    Assert.assertNotSame(tspSource, engine.getTspSource("http://other-tsp.example.com"));
+  }
+
+  @Test
+  public void getDataLoaders_defaultDataLoaderFactories_dataLoadersAreShared() {
+    AsicSigningEngine engine = AsicSigningEngine.of(configuration);
+    Assert.assertSame(engine.getTspDataLoader(), engine.getTspDataLoader());
+    Assert.assertSame(engine.getAiaDataLoader(), engine.getAiaDataLoader());
+  }
+
+  @Test
+  public void getDataLoaders_customDataLoaderFactories_dataLoadersAreCreatedForEveryCall() {
+    configuration.setTspDataLoaderFactory(() -> Mockito.mock(DataLoader.class));
+    configuration.setAiaDataLoaderFactory(() -> Mockito.mock(DataLoader.class));
+    AsicSigningEngine engine = AsicSigningEngine.of(configuration);
+    Assert.assertNotSame(engine.getTspDataLoader(), engine.getTspDataLoader());
+    Assert.assertNotSame(engine.getAiaDataLoader(), engine.getAiaDataLoader());
+    Assert.assertNotSame(engine.getTspSource("http://tsp.example.com"), engine.getTspSource("http://tsp.example.com"));
+  }
+
+  @Test
+  public void buildDataToSign_customDataLoaderFactories_dataLoadersAreCreatedForEverySignature() {
+    DataLoaderFactory tspDataLoaderFactory = Mockito.mock(DataLoaderFactory.class);
+    Mockito.doReturn(Mockito.mock(DataLoader.class)).when(tspDataLoaderFactory).create();
+    DataLoaderFactory aiaDataLoaderFactory = Mockito.mock(DataLoaderFactory.class);
+    Mockito.doReturn(Mockito.mock(DataLoader.class)).when(aiaDataLoaderFactory).create();
+    configuration.setTspDataLoaderFactory(tspDataLoaderFactory);
+    configuration.setAiaDataLoaderFactory(aiaDataLoaderFactory);
+
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(configuration)
+        .withDataFile(new ByteArrayInputStream("something".getBytes(StandardCharsets.UTF_8)), "test.txt", "text/plain")
+        .build();
+    for (int i = 0; i < 3; i++) {
+      SignatureBuilder.aSignature(container)
+          .withSigningCertificate(pkcs12SignatureToken.getCertificate())
+          .withSignatureProfile(SignatureProfile.LT)
+          .buildDataToSign();
+    }
+    Mockito.verify(tspDataLoaderFactory, Mockito.times(3)).create();
+    Mockito.verify(aiaDataLoaderFactory, Mockito.times(3)).create();
+  }
+
+  @Override
+  protected void before() {
+    this.configuration = Configuration.of(Configuration.Mode.TEST);
+  }
+
+}
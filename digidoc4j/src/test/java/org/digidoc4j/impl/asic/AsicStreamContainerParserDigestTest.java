@@ -0,0 +1,66 @@
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.spi.DSSUtils;
+import eu.europa.esig.dss.utils.Utils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.impl.PrecalculatedDigestDocument;
+import org.digidoc4j.impl.StreamDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class AsicStreamContainerParserDigestTest extends AbstractTest {
+
+  private static final String CONTAINER_PATH = "src/test/resources/testFiles/valid-containers/container_without_signatures.asice";
+
+  @Test
+  public void noPrecalculatedDigestAlgorithms_detachedContentsAreDataFileDocuments() throws IOException {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    AsicParseResult parseResult = parse(configuration);
+    Assert.assertSame(parseResult.getDataFiles().get(0).getDocument(), parseResult.getDetachedContents().get(0));
+  }
+
+  @Test
+  public void precalculatedDigestAlgorithms_digestsAreCalculatedDuringExtraction() throws IOException {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setPrecalculatedDataFileDigestAlgorithms(DigestAlgorithm.SHA256, DigestAlgorithm.SHA512);
+    AsicParseResult parseResult = parse(configuration);
+
+    DataFile dataFile = parseResult.getDataFiles().get(0);
+    DSSDocument detachedContent = parseResult.getDetachedContents().get(0);
+    Assert.assertTrue(detachedContent instanceof PrecalculatedDigestDocument);
+    Assert.assertSame(dataFile.getDocument(), ((PrecalculatedDigestDocument) detachedContent).getDocument());
+    Assert.assertEquals(dataFile.getName(), detachedContent.getName());
+    for (DigestAlgorithm digestAlgorithm : DigestAlgorithm.values()) {
+      String expectedDigest = Utils.toBase64(DSSUtils.digest(digestAlgorithm.getDssDigestAlgorithm(), dataFile.getBytes()));
+      Assert.assertEquals(expectedDigest, detachedContent.getDigest(digestAlgorithm.getDssDigestAlgorithm()));
+    }
+  }
+
+  @Test
+  public void precalculatedDigestAlgorithms_largeDataFileFromPath_digestsAreCachedInStreamDocument() throws IOException {
+    Configuration configuration = Configuration.of(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(0);
+    configuration.setPrecalculatedDataFileDigestAlgorithms(DigestAlgorithm.SHA256);
+    AsicParseResult parseResult = new AsicFileContainerParser(CONTAINER_PATH, configuration).read();
+
+    DataFile dataFile = parseResult.getDataFiles().get(0);
+    Assert.assertTrue(dataFile.getDocument() instanceof StreamDocument);
+    String expectedDigest = Utils.toBase64(DSSUtils.digest(eu.europa.esig.dss.enumerations.DigestAlgorithm.SHA256, dataFile.getBytes()));
+    Assert.assertEquals(expectedDigest, dataFile.getDocument().getDigest(eu.europa.esig.dss.enumerations.DigestAlgorithm.SHA256));
+  }
+
+  private static AsicParseResult parse(Configuration configuration) throws IOException {
+    try (InputStream inputStream = new FileInputStream(CONTAINER_PATH)) {
+      return new AsicStreamContainerParser(inputStream, configuration).read();
+    }
+  }
+
+}
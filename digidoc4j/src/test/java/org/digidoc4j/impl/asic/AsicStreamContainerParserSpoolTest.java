@@ -0,0 +1,123 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.asic;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.spi.DSSUtils;
+import eu.europa.esig.dss.utils.Utils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Constant;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.impl.StreamDocument;
+import org.digidoc4j.impl.storage.SpoolFileDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class AsicStreamContainerParserSpoolTest extends AbstractTest {
+
+  @Test
+  public void largeDataFiles_areSpooledIntoSingleFileOfSpoolDirectory() throws IOException {
+    File spoolDirectory = new File(this.testFolder.getRoot(), "spool");
+    this.configuration.setMaxFileSizeCachedInMemoryInMB(Constant.CACHE_NO_DATA_FILES);
+    this.configuration.setDataFileSpoolDirectory(spoolDirectory.getPath());
+
+    List<DataFile> dataFiles = parse(createContainer(5)).getDataFiles();
+
+    Assert.assertEquals(5, dataFiles.size());
+    for (int i = 0; i < dataFiles.size(); i++) {
+      DataFile dataFile = dataFiles.get(i);
+      Assert.assertTrue(dataFile.getDocument() instanceof SpoolFileDocument);
+      Assert.assertEquals("file" + i + ".txt", dataFile.getName());
+      Assert.assertArrayEquals(createDataFileContents(i), dataFile.getBytes());
+      Assert.assertEquals(createDataFileContents(i).length, dataFile.getFileSize());
+    }
+    Assert.assertEquals(1, spoolDirectory.listFiles().length);
+  }
+
+  @Test
+  public void largeDataFiles_precalculatedDigestsAreCachedInSpoolFileDocuments() throws IOException {
+    this.configuration.setMaxFileSizeCachedInMemoryInMB(Constant.CACHE_NO_DATA_FILES);
+    this.configuration.setPrecalculatedDataFileDigestAlgorithms(org.digidoc4j.DigestAlgorithm.SHA256);
+
+    DataFile dataFile = parse(createContainer(2)).getDataFiles().get(1);
+
+    String expectedDigest = Utils.toBase64(DSSUtils.digest(DigestAlgorithm.SHA256, createDataFileContents(1)));
+    Assert.assertEquals(expectedDigest, dataFile.getDocument().getDigest(DigestAlgorithm.SHA256));
+  }
+
+  @Test
+  public void spoolFileDocument_serializedAsStreamDocument() throws IOException {
+    this.configuration.setMaxFileSizeCachedInMemoryInMB(Constant.CACHE_NO_DATA_FILES);
+    DSSDocument document = parse(createContainer(1)).getDataFiles().get(0).getDocument();
+
+    String fileName = this.getFileBy("bin");
+    this.serialize(document, fileName);
+    DSSDocument deserializedDocument = this.deserializer(fileName);
+
+    Assert.assertTrue(deserializedDocument instanceof StreamDocument);
+    Assert.assertEquals("file0.txt", deserializedDocument.getName());
+    Assert.assertArrayEquals(createDataFileContents(0), DSSUtils.toByteArray(deserializedDocument));
+  }
+
+  @Test
+  public void customDataFileStorage_isUsedInsteadOfSpoolFile() throws IOException {
+    this.configuration.setMaxFileSizeCachedInMemoryInMB(Constant.CACHE_NO_DATA_FILES);
+    this.configuration.setDataFileStorage((stream, name, mimeType) -> new StreamDocument(stream, name, mimeType));
+
+    DataFile dataFile = parse(createContainer(1)).getDataFiles().get(0);
+
+    Assert.assertTrue(dataFile.getDocument() instanceof StreamDocument);
+    Assert.assertArrayEquals(createDataFileContents(0), dataFile.getBytes());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private Container createContainer(int dataFileCount) {
+    ContainerBuilder builder = ContainerBuilder.aContainer(Container.DocumentType.ASICE)
+        .withConfiguration(Configuration.of(Configuration.Mode.TEST));
+    for (int i = 0; i < dataFileCount; i++) {
+      builder.withDataFile(new DataFile(createDataFileContents(i), "file" + i + ".txt", "text/plain"));
+    }
+    return builder.build();
+  }
+
+  private AsicParseResult parse(Container container) throws IOException {
+    try (InputStream inputStream = container.saveAsStream()) {
+      return new AsicStreamContainerParser(inputStream, this.configuration).read();
+    }
+  }
+
+  private static byte[] createDataFileContents(int index) {
+    StringBuilder contents = new StringBuilder();
+    for (int i = 0; i <= index * 100; i++) {
+      contents.append("data file ").append(index).append(" line ").append(i).append('\n');
+    }
+    return contents.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected void before() {
+    this.configuration = Configuration.of(Configuration.Mode.TEST);
+  }
+
+}
@@ -0,0 +1,122 @@
+package org.digidoc4j.impl.asic;
+
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DataFileCompressionPolicy;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class MediaTypeCompressionPolicyTest extends AbstractTest {
+
+  @Test
+  public void mediaTypeTakesPrecedenceOverExtension() {
+    MediaTypeCompressionPolicy policy = new MediaTypeCompressionPolicy(5)
+        .withMediaType("image/jpeg", DataFileCompressionPolicy.STORED)
+        .withExtension(".JPG", 1);
+    Assert.assertEquals(DataFileCompressionPolicy.STORED, policy.getCompressionLevel("photo.jpg", "image/jpeg"));
+    Assert.assertEquals(DataFileCompressionPolicy.STORED, policy.getCompressionLevel("photo", "IMAGE/JPEG; q=1"));
+    Assert.assertEquals(1, policy.getCompressionLevel("photo.Jpg", "application/octet-stream"));
+    Assert.assertEquals(5, policy.getCompressionLevel("document.txt", "text/plain"));
+    Assert.assertEquals(5, policy.getCompressionLevel(null, null));
+  }
+
+  @Test
+  public void storingCompressedFormats_compressedFormatsAreStored() {
+    MediaTypeCompressionPolicy policy = MediaTypeCompressionPolicy.storingCompressedFormats();
+    Assert.assertEquals(DataFileCompressionPolicy.STORED, policy.getCompressionLevel("scan.png", "image/png"));
+    Assert.assertEquals(DataFileCompressionPolicy.STORED, policy.getCompressionLevel("archive.zip", "application/x-unknown"));
+    Assert.assertEquals(DataFileCompressionPolicy.SAMPLED, policy.getCompressionLevel("file.bin", "application/octet-stream"));
+    Assert.assertEquals(DataFileCompressionPolicy.DEFAULT_LEVEL, policy.getCompressionLevel("letter.txt", "text/plain"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidLevel_throwsException() {
+    new MediaTypeCompressionPolicy(DataFileCompressionPolicy.DEFAULT_LEVEL).withExtension("txt", 10);
+  }
+
+  @Test
+  public void defaultPolicy_allDataFilesAreDeflated() throws IOException {
+    String path = saveContainer();
+    try (ZipFile zipFile = new ZipFile(path)) {
+      Assert.assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("scan.jpg").getMethod());
+      Assert.assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("random.bin").getMethod());
+      Assert.assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("letter.txt").getMethod());
+    }
+  }
+
+  @Test
+  public void storingCompressedFormats_containerSavedWithCompressedFormatsStored() throws IOException {
+    configuration.setDataFileCompressionPolicy(MediaTypeCompressionPolicy.storingCompressedFormats());
+    String path = saveContainer();
+
+    try (ZipFile zipFile = new ZipFile(path)) {
+      Assert.assertEquals(ZipEntry.STORED, zipFile.getEntry("scan.jpg").getMethod());
+      Assert.assertEquals(ZipEntry.STORED, zipFile.getEntry("random.bin").getMethod());
+      Assert.assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("letter.txt").getMethod());
+      Assert.assertArrayEquals(createRandomContents(), IOUtils.toByteArray(zipFile.getInputStream(zipFile.getEntry("scan.jpg"))));
+    }
+    Container container = ContainerOpener.open(path, configuration);
+    Assert.assertEquals(3, container.getDataFiles().size());
+    Assert.assertArrayEquals(createRandomContents(), container.getDataFiles().get(1).getBytes());
+    Assert.assertArrayEquals(createTextContents(), container.getDataFiles().get(2).getBytes());
+  }
+
+  @Test
+  public void sampledPolicy_compressibleDataFilesAreDeflated() throws IOException {
+    configuration.setDataFileCompressionPolicy((fileName, mediaType) -> DataFileCompressionPolicy.SAMPLED);
+    String path = saveContainer();
+
+    try (ZipFile zipFile = new ZipFile(path)) {
+      Assert.assertEquals(ZipEntry.STORED, zipFile.getEntry("scan.jpg").getMethod());
+      Assert.assertEquals(ZipEntry.STORED, zipFile.getEntry("random.bin").getMethod());
+      Assert.assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("letter.txt").getMethod());
+    }
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private String saveContainer() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE)
+        .withConfiguration(configuration)
+        .withDataFile(new DataFile(createRandomContents(), "scan.jpg", "image/jpeg"))
+        .withDataFile(new DataFile(createRandomContents(), "random.bin", "application/octet-stream"))
+        .withDataFile(new DataFile(createTextContents(), "letter.txt", "text/plain"))
+        .build();
+    String path = getFileBy("asice");
+    container.saveAsFile(path);
+    return path;
+  }
+
+  private static byte[] createRandomContents() {
+    byte[] contents = new byte[100_000];
+    new Random(42).nextBytes(contents);
+    return contents;
+  }
+
+  private static byte[] createTextContents() {
+    StringBuilder contents = new StringBuilder();
+    for (int i = 0; i < 5000; i++) {
+      contents.append("line ").append(i).append('\n');
+    }
+    return contents.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected void before() {
+    configuration = Configuration.of(Configuration.Mode.TEST);
+  }
+
+}
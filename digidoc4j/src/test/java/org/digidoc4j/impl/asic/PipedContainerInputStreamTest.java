@@ -0,0 +1,97 @@
+package org.digidoc4j.impl.asic;
+
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class PipedContainerInputStreamTest extends AbstractTest {
+
+  @Test
+  public void saveAsStream_containerLargerThanBuffer_isReadCompletely() throws IOException {
+    byte[] data = new byte[1024 * 1024];
+    new Random(1).nextBytes(data);
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .withDataFile(new ByteArrayInputStream(data), "data.bin", "application/octet-stream")
+        .withDataFile(new ByteArrayInputStream("text".getBytes()), "test.txt", "text/plain").build();
+
+    Container savedContainer;
+    try (InputStream stream = container.saveAsStream()) {
+      savedContainer = ContainerOpener.open(stream, this.configuration);
+    }
+    Assert.assertEquals(2, savedContainer.getDataFiles().size());
+    DataFile dataFile = savedContainer.getDataFiles().get(0);
+    Assert.assertEquals("data.bin", dataFile.getName());
+    Assert.assertArrayEquals(data, dataFile.getBytes());
+    Assert.assertArrayEquals("text".getBytes(), savedContainer.getDataFiles().get(1).getBytes());
+  }
+
+  @Test
+  public void read_writerFails_exceptionIsThrownByReadAsIOException() {
+    TechnicalException failure = new TechnicalException("Unable to write");
+    try (InputStream stream = new PipedContainerInputStream(out -> {
+      try {
+        out.write(new byte[100]);
+      } catch (IOException e) {
+        throw new TechnicalException("Unexpected", e);
+      }
+      throw failure;
+    })) {
+      Assert.assertEquals(100, IOUtils.read(stream, new byte[200]));
+      Assert.fail("Expected exception not thrown");
+    } catch (IOException e) {
+      Assert.assertSame(failure, e.getCause());
+    }
+  }
+
+  @Test
+  public void close_beforeEndOfStream_writerIsStopped() throws Exception {
+    CountDownLatch writerFinished = new CountDownLatch(1);
+    AtomicReference<IOException> writerException = new AtomicReference<>();
+    InputStream stream = new PipedContainerInputStream(out -> {
+      try {
+        byte[] chunk = new byte[8192];
+        for (int i = 0; i < 1024; i++) {
+          out.write(chunk);
+        }
+      } catch (IOException e) {
+        writerException.set(e);
+      } finally {
+        writerFinished.countDown();
+      }
+    });
+    Assert.assertEquals(8192, IOUtils.read(stream, new byte[8192]));
+    stream.close();
+
+    Assert.assertTrue(writerFinished.await(10, TimeUnit.SECONDS));
+    Assert.assertNotNull(writerException.get());
+  }
+
+  @Test
+  public void read_writerWritesNothing_endOfStreamIsReturned() throws IOException {
+    try (InputStream stream = new PipedContainerInputStream(out -> {
+    })) {
+      Assert.assertEquals(-1, stream.read());
+    }
+  }
+
+  @Override
+  protected void before() {
+    this.configuration = Configuration.of(Configuration.Mode.TEST);
+  }
+
+}
@@ -0,0 +1,210 @@
+package org.digidoc4j.impl.asic.asice;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Constant;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DataToSign;
+import org.digidoc4j.DigestAlgorithm;
+import org.digidoc4j.DigestDataFile;
+import org.digidoc4j.SignatureBuilder;
+import org.digidoc4j.SignatureProfile;
+import org.digidoc4j.exceptions.DigiDoc4JException;
+import org.digidoc4j.exceptions.DuplicateDataFileException;
+import org.digidoc4j.exceptions.InvalidDataFileException;
+import org.digidoc4j.exceptions.NotSupportedException;
+import org.digidoc4j.exceptions.TechnicalException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StreamingAsicEContainerTest extends AbstractTest {
+
+  @Test
+  public void buildStreaming_dataFilesAreWrittenWhenAdded() {
+    byte[] data = new byte[512 * 1024];
+    new Random(1).nextBytes(data);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .withDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)), "test.txt", "text/plain")
+        .buildStreaming(out);
+    int sizeAfterFirstDataFile = out.size();
+    container.addDataFile(new ByteArrayInputStream(data), "data.bin", "application/octet-stream");
+    Assert.assertTrue(out.size() > sizeAfterFirstDataFile + data.length);
+    container.close();
+
+    Container savedContainer = ContainerOpener.open(new ByteArrayInputStream(out.toByteArray()), this.configuration);
+    Assert.assertEquals(Constant.ASICE_CONTAINER_TYPE, savedContainer.getType());
+    Assert.assertEquals(2, savedContainer.getDataFiles().size());
+    Assert.assertEquals("test.txt", savedContainer.getDataFiles().get(0).getName());
+    Assert.assertEquals("text/plain", savedContainer.getDataFiles().get(0).getMediaType());
+    Assert.assertArrayEquals("text".getBytes(StandardCharsets.UTF_8), savedContainer.getDataFiles().get(0).getBytes());
+    Assert.assertEquals("application/octet-stream", savedContainer.getDataFiles().get(1).getMediaType());
+    Assert.assertArrayEquals(data, savedContainer.getDataFiles().get(1).getBytes());
+  }
+
+  @Test
+  public void addDataFile_digestOfContentsIsKept() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .buildStreaming(new ByteArrayOutputStream());
+    DataFile dataFile = container.addDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)),
+        "test.txt", "text/plain");
+    Assert.assertTrue(dataFile instanceof DigestDataFile);
+    DataFile expectedDataFile = new DataFile("text".getBytes(StandardCharsets.UTF_8), "test.txt", "text/plain");
+    Assert.assertArrayEquals(expectedDataFile.calculateDigest(DigestAlgorithm.SHA256),
+        dataFile.calculateDigest(DigestAlgorithm.SHA256));
+  }
+
+  @Test
+  public void buildDataToSign_signatureReferencesDigestOfStreamedDataFile() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .withDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)), "test.txt", "text/plain")
+        .buildStreaming(new ByteArrayOutputStream());
+    DataToSign dataToSign = SignatureBuilder.aSignature(container)
+        .withSigningCertificate(pkcs12SignatureToken.getCertificate()).withSignatureProfile(SignatureProfile.LT)
+        .buildDataToSign();
+    String signedInfo = new String(dataToSign.getDataToSign(), StandardCharsets.UTF_8);
+    String digest = Base64.getEncoder().encodeToString(DigestUtils.sha256("text".getBytes(StandardCharsets.UTF_8)));
+    Assert.assertTrue(signedInfo.contains("URI=\"test.txt\""));
+    Assert.assertTrue(signedInfo.contains(digest));
+  }
+
+  @Test(expected = DuplicateDataFileException.class)
+  public void addDataFile_duplicateName_throwsException() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .withDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)), "test.txt", "text/plain")
+        .buildStreaming(new ByteArrayOutputStream());
+    container.addDataFile(new ByteArrayInputStream("other".getBytes(StandardCharsets.UTF_8)), "test.txt", "text/plain");
+  }
+
+  @Test(expected = DuplicateDataFileException.class)
+  public void addDataFileFromFile_duplicateName_throwsExceptionBeforeFileIsOpened() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .withDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)), "test.txt", "text/plain")
+        .buildStreaming(new ByteArrayOutputStream());
+    container.addDataFile(new File(this.testFolder.getRoot(), "test.txt"), "text/plain");
+  }
+
+  @Test
+  public void addDataFileObject_duplicateName_throwsExceptionBeforeStreamIsOpened() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .withDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)), "test.txt", "text/plain")
+        .buildStreaming(new ByteArrayOutputStream());
+    DataFile dataFile = Mockito.mock(DataFile.class);
+    Mockito.doReturn("test.txt").when(dataFile).getName();
+    try {
+      container.addDataFile(dataFile);
+      Assert.fail("Expected DuplicateDataFileException");
+    } catch (DuplicateDataFileException e) {
+      Mockito.verify(dataFile, Mockito.never()).getStream();
+    }
+  }
+
+  @Test
+  public void addDataFileObject_streamOfDataFileIsClosed() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .buildStreaming(new ByteArrayOutputStream());
+    AtomicBoolean closed = new AtomicBoolean();
+    DataFile dataFile = Mockito.mock(DataFile.class);
+    Mockito.doReturn("test.txt").when(dataFile).getName();
+    Mockito.doReturn("text/plain").when(dataFile).getMediaType();
+    Mockito.doReturn(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)) {
+      @Override
+      public void close() {
+        closed.set(true);
+      }
+    }).when(dataFile).getStream();
+    container.addDataFile(dataFile);
+    Assert.assertTrue(closed.get());
+    Assert.assertEquals("test.txt", container.getDataFiles().get(0).getName());
+  }
+
+  @Test
+  public void addDataFileFromFile_containerClosed_throwsExceptionBeforeFileIsOpened() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .withDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)), "test.txt", "text/plain")
+        .buildStreaming(new ByteArrayOutputStream());
+    container.close();
+    this.expectedException.expect(DigiDoc4JException.class);
+    this.expectedException.expectMessage("Container has already been written");
+    container.addDataFile(new File(this.testFolder.getRoot(), "other.txt"), "text/plain");
+  }
+
+  @Test
+  public void addDataFile_streamFailsPartway_furtherDataFilesAndClosingAreRejected() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .buildStreaming(out);
+    InputStream failingStream = new SequenceInputStream(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)),
+        new InputStream() {
+          @Override
+          public int read() throws IOException {
+            throw new IOException("Connection reset");
+          }
+        });
+    try {
+      container.addDataFile(failingStream, "test.txt", "text/plain");
+      Assert.fail("Expected TechnicalException");
+    } catch (TechnicalException e) {
+      // expected
+    }
+    int sizeAfterFailure = out.size();
+    try {
+      container.addDataFile(new ByteArrayInputStream("other".getBytes(StandardCharsets.UTF_8)), "other.txt",
+          "text/plain");
+      Assert.fail("Expected TechnicalException");
+    } catch (TechnicalException e) {
+      Assert.assertEquals("Container is incomplete, writing a data file into it failed", e.getMessage());
+    }
+    this.expectedException.expect(TechnicalException.class);
+    this.expectedException.expectMessage("Container is incomplete, writing a data file into it failed");
+    try {
+      container.close();
+    } finally {
+      Assert.assertEquals(sizeAfterFailure, out.size());
+    }
+  }
+
+  @Test(expected = InvalidDataFileException.class)
+  public void addDataFile_emptyStream_throwsException() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .buildStreaming(new ByteArrayOutputStream());
+    container.addDataFile(new ByteArrayInputStream(new byte[0]), "empty.txt", "text/plain");
+  }
+
+  @Test(expected = NotSupportedException.class)
+  public void removeDataFile_throwsException() {
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withConfiguration(this.configuration)
+        .buildStreaming(new ByteArrayOutputStream());
+    DataFile dataFile = container.addDataFile(new ByteArrayInputStream("text".getBytes(StandardCharsets.UTF_8)),
+        "test.txt", "text/plain");
+    container.removeDataFile(dataFile);
+  }
+
+  @Test(expected = NotSupportedException.class)
+  public void buildStreaming_bdocContainer_throwsException() {
+    ContainerBuilder.aContainer(Container.DocumentType.BDOC).withConfiguration(this.configuration)
+        .buildStreaming(new ByteArrayOutputStream());
+  }
+
+  @Override
+  protected void before() {
+    this.configuration = Configuration.of(Configuration.Mode.TEST);
+  }
+
+}
@@ -0,0 +1,148 @@
+package org.digidoc4j.impl.asic.zip;
+
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.AbstractTest;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+public class ParallelDeflaterTest extends AbstractTest {
+
+  private static final int BLOCK_SIZE = 32 * 1024;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+  @Test
+  public void contentsAboveThreshold_compressedInBlocks_inflateToOriginalContents() throws IOException {
+    byte[] contents = createContents(1_000_000);
+    ParallelDeflater parallelDeflater = new ParallelDeflater(executor, 0, BLOCK_SIZE, 4);
+
+    byte[] compressed = deflate(parallelDeflater, contents);
+
+    Assert.assertArrayEquals(contents, inflate(compressed));
+    Assert.assertTrue(compressed.length < contents.length / 2);
+  }
+
+  @Test
+  public void isUsedFor_onlyKnownSizesReachingThreshold() {
+    ParallelDeflater parallelDeflater = new ParallelDeflater(executor, 1000, BLOCK_SIZE, 4);
+    Assert.assertTrue(parallelDeflater.isUsedFor(1000));
+    Assert.assertFalse(parallelDeflater.isUsedFor(999));
+    Assert.assertFalse(parallelDeflater.isUsedFor(-1));
+  }
+
+  @Test
+  public void zipWriterWithParallelDeflater_entrySizeUnknown_compressedAsWholeSameAsDeflaterOutputStream()
+      throws IOException {
+    byte[] contents = createContents(200_000);
+    ZipEntry entry = new ZipEntry("large.txt");
+    entry.setTime(System.currentTimeMillis());
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    try (ZipWriter writer = new ZipWriter(expected)) {
+      writer.putNextEntry(entry);
+      writer.write(contents);
+    }
+
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipWriter writer = new ZipWriter(zip)) {
+      writer.setParallelDeflater(new ParallelDeflater(executor, 0, BLOCK_SIZE, 4));
+      writer.putNextEntry(entry);
+      writer.write(contents);
+    }
+
+    Assert.assertArrayEquals(expected.toByteArray(), zip.toByteArray());
+  }
+
+  @Test
+  public void emptyContents_inflateToEmptyContents() throws IOException {
+    ParallelDeflater parallelDeflater = new ParallelDeflater(executor, 0, BLOCK_SIZE, 4);
+    Assert.assertEquals(0, inflate(deflate(parallelDeflater, new byte[0])).length);
+  }
+
+  @Test
+  public void executorRejectsBlocks_blocksCompressedOnCallingThread() throws IOException {
+    byte[] contents = createContents(300_000);
+    ParallelDeflater parallelDeflater = new ParallelDeflater(command -> {
+      throw new RejectedExecutionException();
+    }, 0, BLOCK_SIZE, 2);
+
+    Assert.assertArrayEquals(contents, inflate(deflate(parallelDeflater, contents)));
+  }
+
+  @Test
+  public void zipWriterWithParallelDeflater_entriesReadableByZipInputStream() throws IOException {
+    byte[] contents = createContents(500_000);
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipWriter writer = new ZipWriter(zip)) {
+      writer.setParallelDeflater(new ParallelDeflater(executor, BLOCK_SIZE, BLOCK_SIZE, 4));
+      ZipEntry largeEntry = new ZipEntry("large.txt");
+      largeEntry.setSize(contents.length);
+      writer.putNextEntry(largeEntry);
+      writer.write(contents);
+      writer.putNextEntry(new ZipEntry("small.txt"));
+      writer.write(contents, 0, 100);
+      writer.closeEntry();
+    }
+
+    try (ZipInputStream stream = new ZipInputStream(new ByteArrayInputStream(zip.toByteArray()))) {
+      Assert.assertEquals("large.txt", stream.getNextEntry().getName());
+      Assert.assertArrayEquals(contents, IOUtils.toByteArray(stream));
+      Assert.assertEquals("small.txt", stream.getNextEntry().getName());
+      Assert.assertEquals(100, IOUtils.toByteArray(stream).length);
+      Assert.assertNull(stream.getNextEntry());
+    }
+  }
+
+  @After
+  public void shutDownExecutor() {
+    executor.shutdownNow();
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static byte[] deflate(ParallelDeflater parallelDeflater, byte[] contents) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream stream = parallelDeflater.newOutputStream(compressed, Deflater.DEFAULT_COMPRESSION)) {
+      for (int offset = 0; offset < contents.length; offset += 10_000) {
+        stream.write(contents, offset, Math.min(10_000, contents.length - offset));
+      }
+    }
+    return compressed.toByteArray();
+  }
+
+  private static byte[] inflate(byte[] compressed) throws IOException {
+    Inflater inflater = new Inflater(true);
+    try (InflaterInputStream stream = new InflaterInputStream(new ByteArrayInputStream(compressed), inflater)) {
+      byte[] contents = IOUtils.toByteArray(stream);
+      Assert.assertTrue(inflater.finished());
+      return contents;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  private static byte[] createContents(int length) {
+    StringBuilder contents = new StringBuilder(length);
+    for (int i = 0; contents.length() < length; i++) {
+      contents.append("line ").append(i).append(' ').append(i * 31 % 977).append('\n');
+    }
+    return contents.substring(0, length).getBytes(StandardCharsets.UTF_8);
+  }
+
+}
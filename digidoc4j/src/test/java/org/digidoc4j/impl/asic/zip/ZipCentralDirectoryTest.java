@@ -0,0 +1,91 @@
+package org.digidoc4j.impl.asic.zip;
+
+import eu.europa.esig.dss.model.MimeType;
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.AbstractTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+public class ZipCentralDirectoryTest extends AbstractTest {
+
+  private static final File CONTAINER = new File("src/test/resources/testFiles/valid-containers/compression-ratio-46.55-with-8-datafiles.asice");
+
+  @Test
+  public void readCentralDirectory_entriesMatchZipFile() throws IOException {
+    ZipCentralDirectory centralDirectory = ZipCentralDirectory.read(CONTAINER);
+    try (ZipFile zipFile = new ZipFile(CONTAINER)) {
+      List<? extends ZipEntry> expectedEntries = Collections.list(zipFile.entries());
+      List<ZipCentralDirectoryEntry> entries = centralDirectory.getEntries();
+      Assert.assertEquals(expectedEntries.size(), entries.size());
+      for (int i = 0; i < entries.size(); i++) {
+        ZipEntry expected = expectedEntries.get(i);
+        ZipCentralDirectoryEntry actual = entries.get(i);
+        Assert.assertEquals(expected.getName(), actual.getName());
+        Assert.assertSame(actual, centralDirectory.getEntry(expected.getName()));
+        Assert.assertEquals(expected.getMethod(), actual.getMethod());
+        Assert.assertEquals(expected.getCrc(), actual.getCrc());
+        Assert.assertEquals(expected.getSize(), actual.getSize());
+        Assert.assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+        Assert.assertEquals(expected.getComment(), actual.getComment());
+        Assert.assertArrayEquals(expected.getExtra(), actual.getExtra());
+      }
+      Assert.assertEquals(zipFile.getComment(), centralDirectory.getComment());
+    }
+    Assert.assertNull(centralDirectory.getEntry("missing"));
+  }
+
+  @Test
+  public void zipEntryDocument_contentsMatchZipFile() throws IOException {
+    ZipCentralDirectory centralDirectory = ZipCentralDirectory.read(CONTAINER);
+    try (ZipFile zipFile = new ZipFile(CONTAINER)) {
+      for (ZipCentralDirectoryEntry entry : centralDirectory.getEntries()) {
+        ZipEntryDocument document = new ZipEntryDocument(CONTAINER, entry, MimeType.BINARY);
+        try (InputStream expected = zipFile.getInputStream(zipFile.getEntry(entry.getName()));
+             InputStream actual = document.openStream()) {
+          Assert.assertArrayEquals(IOUtils.toByteArray(expected), IOUtils.toByteArray(actual));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void mappedZipFile_centralDirectoryAndContentsMatchZipFile() throws IOException {
+    MappedZipFile mappedZipFile = MappedZipFile.open(CONTAINER);
+    ZipCentralDirectory centralDirectory = ZipCentralDirectory.read(CONTAINER);
+    Assert.assertEquals(centralDirectory.getEntries().size(), mappedZipFile.getCentralDirectory().getEntries().size());
+    Assert.assertEquals(centralDirectory.getComment(), mappedZipFile.getCentralDirectory().getComment());
+    try (ZipFile zipFile = new ZipFile(CONTAINER)) {
+      for (ZipCentralDirectoryEntry entry : mappedZipFile.getCentralDirectory().getEntries()) {
+        try (InputStream expected = zipFile.getInputStream(zipFile.getEntry(entry.getName()));
+             InputStream actual = mappedZipFile.getInputStream(entry)) {
+          Assert.assertArrayEquals(IOUtils.toByteArray(expected), IOUtils.toByteArray(actual));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void mappedZipFile_storedEntryIsNotCopied() throws IOException {
+    MappedZipFile mappedZipFile = MappedZipFile.open(CONTAINER);
+    ZipCentralDirectoryEntry mimeType = mappedZipFile.getCentralDirectory().getEntry("mimetype");
+    ByteBufferDocument document = new ByteBufferDocument(mappedZipFile.getStoredEntryData(mimeType), "mimetype", MimeType.BINARY);
+    Assert.assertTrue(document.getBuffer().isDirect());
+    Assert.assertEquals(MimeType.ASICE.getMimeTypeString(), new String(IOUtils.toByteArray(document.openStream()), "UTF-8"));
+    Assert.assertEquals(mimeType.getSize(), document.getSize());
+  }
+
+  @Test(expected = ZipException.class)
+  public void readCentralDirectory_notZipFile_throwsException() throws IOException {
+    ZipCentralDirectory.read(new File("src/test/resources/testFiles/helper-files/test.txt"));
+  }
+
+}
@@ -0,0 +1,237 @@
+package org.digidoc4j.impl.asic.zip;
+
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.AbstractTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+public class ZipWriterTest extends AbstractTest {
+
+  private static final File CONTAINER = new File("src/test/resources/testFiles/valid-containers/compression-ratio-46.55-with-8-datafiles.asice");
+  private static final byte[] CONTENTS = "Hello, õäöü world!".getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void writeEntries_readableByZipFileAndZipInputStream() throws IOException {
+    File file = new File(this.getFileBy("zip"));
+    try (ZipWriter writer = new ZipWriter(new FileOutputStream(file))) {
+      writer.setComment("zip comment");
+      writer.putNextEntry(createStoredEntry("mimetype", CONTENTS));
+      writer.write(CONTENTS);
+      writer.closeEntry();
+      ZipEntry deflatedEntry = new ZipEntry("dir/õäöü.txt");
+      deflatedEntry.setComment("entry comment");
+      writer.putNextEntry(deflatedEntry);
+      writer.write(CONTENTS);
+      writer.closeEntry();
+    }
+
+    try (ZipFile zipFile = new ZipFile(file)) {
+      Assert.assertEquals("zip comment", zipFile.getComment());
+      Assert.assertEquals(ZipEntry.STORED, zipFile.getEntry("mimetype").getMethod());
+      Assert.assertArrayEquals(CONTENTS, IOUtils.toByteArray(zipFile.getInputStream(zipFile.getEntry("mimetype"))));
+      ZipEntry entry = zipFile.getEntry("dir/õäöü.txt");
+      Assert.assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+      Assert.assertEquals("entry comment", entry.getComment());
+      Assert.assertEquals(CONTENTS.length, entry.getSize());
+      Assert.assertArrayEquals(CONTENTS, IOUtils.toByteArray(zipFile.getInputStream(entry)));
+    }
+    try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(file.toPath()))) {
+      Assert.assertEquals("mimetype", zipInputStream.getNextEntry().getName());
+      Assert.assertArrayEquals(CONTENTS, IOUtils.toByteArray(zipInputStream));
+      Assert.assertEquals("dir/õäöü.txt", zipInputStream.getNextEntry().getName());
+      Assert.assertArrayEquals(CONTENTS, IOUtils.toByteArray(zipInputStream));
+      Assert.assertNull(zipInputStream.getNextEntry());
+    }
+    ZipCentralDirectory centralDirectory = ZipCentralDirectory.read(file);
+    Assert.assertEquals("zip comment", centralDirectory.getComment());
+    Assert.assertEquals(2, centralDirectory.getEntries().size());
+  }
+
+  @Test
+  public void writeRawEntries_compressedContentsAreCopiedAsTheyAre() throws IOException {
+    File file = new File(this.getFileBy("zip"));
+    try (ZipWriter writer = new ZipWriter(new FileOutputStream(file))) {
+      for (RawZipEntry rawEntry : readRawEntries(CONTAINER)) {
+        Assert.assertTrue(writer.writeRawEntry(rawEntry));
+      }
+    }
+
+    try (ZipFile expectedZipFile = new ZipFile(CONTAINER); ZipFile zipFile = new ZipFile(file)) {
+      List<? extends ZipEntry> expectedEntries = Collections.list(expectedZipFile.entries());
+      List<? extends ZipEntry> entries = Collections.list(zipFile.entries());
+      Assert.assertEquals(expectedEntries.size(), entries.size());
+      for (int i = 0; i < entries.size(); i++) {
+        ZipEntry expected = expectedEntries.get(i);
+        ZipEntry actual = entries.get(i);
+        Assert.assertEquals(expected.getName(), actual.getName());
+        Assert.assertEquals(expected.getMethod(), actual.getMethod());
+        Assert.assertEquals(expected.getCrc(), actual.getCrc());
+        Assert.assertEquals(expected.getSize(), actual.getSize());
+        Assert.assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+        Assert.assertEquals(expected.getTime(), actual.getTime());
+        Assert.assertArrayEquals(IOUtils.toByteArray(expectedZipFile.getInputStream(expected)),
+            IOUtils.toByteArray(zipFile.getInputStream(actual)));
+      }
+    }
+  }
+
+  @Test
+  public void writeRawEntry_sourceFileChanged_entryIsNotWritten() throws IOException {
+    File source = new File(this.getFileBy("zip"));
+    Files.copy(CONTAINER.toPath(), source.toPath());
+    RawZipEntry rawEntry = readRawEntries(source).get(1);
+    try (OutputStream out = new FileOutputStream(source, true)) {
+      out.write(0);
+    }
+
+    File file = new File(this.getFileBy("zip"));
+    try (ZipWriter writer = new ZipWriter(new FileOutputStream(file))) {
+      Assert.assertFalse(writer.writeRawEntry(rawEntry));
+      writer.putNextEntry(new ZipEntry(rawEntry.getEntry().getName()));
+      writer.write(CONTENTS);
+      writer.closeEntry();
+    }
+    try (ZipFile zipFile = new ZipFile(file)) {
+      Assert.assertEquals(1, zipFile.size());
+      Assert.assertArrayEquals(CONTENTS, IOUtils.toByteArray(zipFile.getInputStream(zipFile.getEntry(rawEntry.getEntry().getName()))));
+    }
+  }
+
+  @Test
+  public void writeRawEntries_intoNonFileStream_compressedContentsAreCopied() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ZipWriter writer = new ZipWriter(out)) {
+      for (RawZipEntry rawEntry : readRawEntries(CONTAINER)) {
+        Assert.assertTrue(writer.writeRawEntry(rawEntry));
+      }
+    }
+    File file = new File(this.getFileBy("zip"));
+    Files.write(file.toPath(), out.toByteArray());
+
+    try (ZipFile expectedZipFile = new ZipFile(CONTAINER); ZipFile zipFile = new ZipFile(file)) {
+      for (ZipEntry expected : Collections.list(expectedZipFile.entries())) {
+        ZipEntry actual = zipFile.getEntry(expected.getName());
+        Assert.assertEquals(expected.getCompressedSize(), actual.getCompressedSize());
+        Assert.assertArrayEquals(IOUtils.toByteArray(expectedZipFile.getInputStream(expected)),
+            IOUtils.toByteArray(zipFile.getInputStream(actual)));
+      }
+    }
+  }
+
+  @Test
+  public void transferFrom_storedAndDeflatedEntriesIntoFile_contentsAreWritten() throws IOException {
+    assertTransferredEntries(file -> new FileOutputStream(file));
+  }
+
+  @Test
+  public void transferFrom_storedAndDeflatedEntriesIntoNonFileStream_contentsAreWritten() throws IOException {
+    assertTransferredEntries(file -> new BufferedOutputStream(new FileOutputStream(file)));
+  }
+
+  @Test(expected = ZipException.class)
+  public void transferFrom_sourceShorterThanEntry_throwsException() throws IOException {
+    File source = new File(this.getFileBy("txt"));
+    Files.write(source.toPath(), CONTENTS);
+    try (ZipWriter writer = new ZipWriter(new FileOutputStream(this.getFileBy("zip")));
+         FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+      writer.putNextEntry(createStoredEntry("file.txt", CONTENTS));
+      writer.transferFrom(channel, 1, CONTENTS.length);
+    }
+  }
+
+  @Test(expected = ZipException.class)
+  public void putNextEntry_duplicateName_throwsException() throws IOException {
+    try (ZipWriter writer = new ZipWriter(new ByteArrayOutputStream())) {
+      writer.putNextEntry(new ZipEntry("file.txt"));
+      writer.closeEntry();
+      writer.putNextEntry(new ZipEntry("file.txt"));
+    }
+  }
+
+  @Test(expected = ZipException.class)
+  public void closeEntry_storedEntryWithWrongCrc_throwsException() throws IOException {
+    try (ZipWriter writer = new ZipWriter(new ByteArrayOutputStream())) {
+      ZipEntry entry = createStoredEntry("file.txt", CONTENTS);
+      entry.setCrc(entry.getCrc() + 1);
+      writer.putNextEntry(entry);
+      writer.write(CONTENTS);
+      writer.closeEntry();
+    }
+  }
+
+  private void assertTransferredEntries(OutputStreamFactory outputStreamFactory) throws IOException {
+    File source = new File(this.getFileBy("txt"));
+    byte[] prefix = "prefix".getBytes(StandardCharsets.UTF_8);
+    try (OutputStream out = new FileOutputStream(source)) {
+      out.write(prefix);
+      out.write(CONTENTS);
+    }
+
+    File file = new File(this.getFileBy("zip"));
+    try (ZipWriter writer = new ZipWriter(outputStreamFactory.create(file));
+         FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+      writer.putNextEntry(createStoredEntry("stored.txt", CONTENTS));
+      writer.transferFrom(channel, prefix.length, CONTENTS.length);
+      writer.closeEntry();
+      writer.putNextEntry(new ZipEntry("deflated.txt"));
+      writer.transferFrom(channel, prefix.length, CONTENTS.length);
+      writer.closeEntry();
+    }
+
+    try (ZipFile zipFile = new ZipFile(file)) {
+      Assert.assertEquals(2, zipFile.size());
+      ZipEntry stored = zipFile.getEntry("stored.txt");
+      Assert.assertEquals(ZipEntry.STORED, stored.getMethod());
+      Assert.assertArrayEquals(CONTENTS, IOUtils.toByteArray(zipFile.getInputStream(stored)));
+      ZipEntry deflated = zipFile.getEntry("deflated.txt");
+      Assert.assertEquals(ZipEntry.DEFLATED, deflated.getMethod());
+      Assert.assertArrayEquals(CONTENTS, IOUtils.toByteArray(zipFile.getInputStream(deflated)));
+    }
+  }
+
+  private static List<RawZipEntry> readRawEntries(File zipFile) throws IOException {
+    long size = zipFile.length();
+    long lastModified = zipFile.lastModified();
+    List<RawZipEntry> rawEntries = new ArrayList<>();
+    for (ZipCentralDirectoryEntry entry : ZipCentralDirectory.read(zipFile).getEntries()) {
+      rawEntries.add(new RawZipEntry(zipFile, size, lastModified, entry));
+    }
+    return rawEntries;
+  }
+
+  private static ZipEntry createStoredEntry(String name, byte[] contents) {
+    ZipEntry entry = new ZipEntry(name);
+    entry.setMethod(ZipEntry.STORED);
+    entry.setSize(contents.length);
+    CRC32 crc = new CRC32();
+    crc.update(contents);
+    entry.setCrc(crc.getValue());
+    return entry;
+  }
+
+  private interface OutputStreamFactory {
+
+    OutputStream create(File file) throws IOException;
+
+  }
+
+}
@@ -12,6 +12,7 @@ package org.digidoc4j.impl.bdoc;
 
 import eu.europa.esig.dss.DomUtils;
 import eu.europa.esig.dss.enumerations.ObjectIdentifierQualifier;
+import eu.europa.esig.dss.model.InMemoryDocument;
 import eu.europa.esig.dss.model.Policy;
 import eu.europa.esig.dss.validation.SignaturePolicy;
 import eu.europa.esig.dss.xades.validation.XAdESSignature;
@@ -61,7 +62,11 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipFile;
 
 public class BDocContainerTest extends AbstractTest {
@@ -420,6 +425,163 @@ public class BDocContainerTest extends AbstractTest {
     container.addDataFile(new DataFile("Goodbye world!".getBytes(), "goodbye.txt", "text/plain"));
   }
 
+  @Test
+  public void addDataFiles_addsAllDataFilesInOrder() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    container.addDataFile(new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain"));
+    List<DataFile> dataFiles = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      dataFiles.add(new DataFile(("file " + i).getBytes(), "file-" + i + ".txt", "text/plain"));
+    }
+    container.addDataFiles(dataFiles);
+    Assert.assertEquals(1001, container.getDataFiles().size());
+    Assert.assertSame(dataFiles.get(999), container.getDataFiles().get(1000));
+  }
+
+  @Test
+  public void addDataFiles_duplicateNamesInAddedDataFiles_noDataFileIsAdded() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    try {
+      container.addDataFiles(Arrays.asList(new DataFile("Hello".getBytes(), "hello.txt", "text/plain"),
+          new DataFile("World".getBytes(), "world.txt", "text/plain"),
+          new DataFile("Hello again".getBytes(), "hello.txt", "text/plain")));
+      Assert.fail("Expected exception not thrown");
+    } catch (DuplicateDataFileException e) {
+      Assert.assertEquals("Data file hello.txt already exists", e.getMessage());
+    }
+    Assert.assertTrue(container.getDataFiles().isEmpty());
+    container.addDataFile(new DataFile("Hello".getBytes(), "hello.txt", "text/plain"));
+  }
+
+  @Test(expected = DuplicateDataFileException.class)
+  public void addDataFiles_nameOfExistingDataFile_throwsException() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    container.addDataFile(new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain"));
+    container.addDataFiles(Collections.singletonList(new DataFile("Hello".getBytes(), "hello.txt", "text/plain")));
+  }
+
+  @Test
+  public void addDataFile_nameOfRemovedDataFile_isAdded() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    DataFile dataFile = new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain");
+    container.addDataFile(dataFile);
+    container.removeDataFile(dataFile);
+    container.addDataFile(new DataFile("Hello".getBytes(), "hello.txt", "text/plain"));
+    Assert.assertEquals(1, container.getDataFiles().size());
+  }
+
+  @Test(expected = DuplicateDataFileException.class)
+  public void addDataFile_dataFileAddedDirectlyToDataFileList_throwsException() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    container.addDataFile(new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain"));
+    container.getDataFiles().add(new DataFile("Goodbye world!".getBytes(), "goodbye.txt", "text/plain"));
+    container.addDataFile(new DataFile("Goodbye".getBytes(), "goodbye.txt", "text/plain"));
+  }
+
+  @Test
+  public void addDataFile_manyDataFilesOneAtATime_existingDataFilesAreLookedUpThroughIndex() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    AtomicInteger nameLookups = new AtomicInteger();
+    container.addDataFile(new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain") {
+      @Override
+      public String getName() {
+        nameLookups.incrementAndGet();
+        return super.getName();
+      }
+    });
+    nameLookups.set(0);
+    for (int i = 0; i < 1000; i++) {
+      container.addDataFile(new DataFile(("file " + i).getBytes(), "file-" + i + ".txt", "text/plain"));
+    }
+    Assert.assertEquals(1001, container.getDataFiles().size());
+    Assert.assertTrue("Name of first data file looked up " + nameLookups.get() + " times", nameLookups.get() < 10);
+  }
+
+  @Test
+  public void addDataFile_dataFileRenamedThroughSetDocument_oldNameIsAddedAndNewNameThrowsException() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    DataFile dataFile = new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain");
+    container.addDataFile(dataFile);
+    dataFile.setDocument(new InMemoryDocument("Goodbye world!".getBytes(), "goodbye.txt"));
+    try {
+      container.addDataFile(new DataFile("Goodbye".getBytes(), "goodbye.txt", "text/plain"));
+      Assert.fail("Expected exception not thrown");
+    } catch (DuplicateDataFileException e) {
+      Assert.assertEquals("Data file goodbye.txt already exists", e.getMessage());
+    }
+    container.addDataFile(new DataFile("Hello".getBytes(), "hello.txt", "text/plain"));
+    Assert.assertEquals(2, container.getDataFiles().size());
+  }
+
+  @Test
+  public void removeDataFile_dataFileRenamedThroughSetDocument_newNameIsFreeAgain() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    DataFile dataFile = new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain");
+    container.addDataFile(dataFile);
+    dataFile.setDocument(new InMemoryDocument("Goodbye world!".getBytes(), "goodbye.txt"));
+    container.removeDataFile(dataFile);
+    dataFile.setDocument(new InMemoryDocument("Hello world!".getBytes(), "hello.txt"));
+    container.addDataFile(new DataFile("Goodbye".getBytes(), "goodbye.txt", "text/plain"));
+    container.addDataFile(new DataFile("Hello".getBytes(), "hello.txt", "text/plain"));
+    Assert.assertEquals(2, container.getDataFiles().size());
+  }
+
+  @Test
+  public void addDataFile_previousNameOfDataFileRenamedThroughItsDocument_isAdded() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    DataFile dataFile = new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain");
+    container.addDataFile(dataFile);
+    dataFile.getDocument().setName("goodbye.txt");
+    container.addDataFile(new DataFile("Hello".getBytes(), "hello.txt", "text/plain"));
+    Assert.assertEquals(2, container.getDataFiles().size());
+  }
+
+  @Test
+  public void removeDataFile_duplicateNameAddedDirectlyToDataFileList_remainingDuplicateIsStillDetected() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    DataFile dataFile = new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain");
+    container.addDataFile(dataFile);
+    container.getDataFiles().add(new DataFile("Hello again".getBytes(), "hello.txt", "text/plain"));
+    container.removeDataFile(dataFile);
+    try {
+      container.addDataFile(new DataFile("Hello".getBytes(), "hello.txt", "text/plain"));
+      Assert.fail("Expected exception not thrown");
+    } catch (DuplicateDataFileException e) {
+      Assert.assertEquals("Data file hello.txt already exists", e.getMessage());
+    }
+    Assert.assertEquals(1, container.getDataFiles().size());
+  }
+
+  @Test
+  public void addDataFile_dataFileReplacedDirectlyInDataFileList_replacedNameIsAddedAndNewNameThrowsException() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    container.addDataFile(new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain"));
+    container.getDataFiles().set(0, new DataFile("Goodbye world!".getBytes(), "goodbye.txt", "text/plain"));
+    try {
+      container.addDataFile(new DataFile("Goodbye".getBytes(), "goodbye.txt", "text/plain"));
+      Assert.fail("Expected exception not thrown");
+    } catch (DuplicateDataFileException e) {
+      Assert.assertEquals("Data file goodbye.txt already exists", e.getMessage());
+    }
+    container.addDataFile(new DataFile("Hello".getBytes(), "hello.txt", "text/plain"));
+    Assert.assertEquals(2, container.getDataFiles().size());
+  }
+
+  @Test
+  public void addDataFile_duplicateNamesAddedDirectlyToDataFileList_duplicatesAreStillDetected() {
+    Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
+    container.addDataFile(new DataFile("Hello world!".getBytes(), "hello.txt", "text/plain"));
+    container.getDataFiles().add(new DataFile("Hello again".getBytes(), "hello.txt", "text/plain"));
+    container.addDataFile(new DataFile("Goodbye".getBytes(), "goodbye.txt", "text/plain"));
+    try {
+      container.addDataFile(new DataFile("Goodbye again".getBytes(), "goodbye.txt", "text/plain"));
+      Assert.fail("Expected exception not thrown");
+    } catch (DuplicateDataFileException e) {
+      Assert.assertEquals("Data file goodbye.txt already exists", e.getMessage());
+    }
+    Assert.assertEquals(3, container.getDataFiles().size());
+  }
+
   @Test(expected = DuplicateDataFileException.class)
   public void testAddingSameFileSeveralTimesViaInputStream() {
     Container container = this.createEmptyContainerBy(Container.DocumentType.BDOC);
@@ -1,13 +1,17 @@
 package org.digidoc4j.impl.bdoc.manifest;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
+import org.digidoc4j.exceptions.DuplicateDataFileException;
 import org.digidoc4j.impl.asic.manifest.ManifestEntry;
 import org.digidoc4j.impl.asic.manifest.ManifestParser;
 import org.junit.Assert;
 import org.junit.Test;
 
+import eu.europa.esig.dss.model.DSSException;
 import eu.europa.esig.dss.model.FileDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
 
 public class ManifestParserTest {
 
@@ -33,4 +37,44 @@ public class ManifestParserTest {
     Assert.assertEquals("text/plain", entry.getMimeType());
   }
 
+  @Test
+  public void parseManifestWithNestedFileEntry_onlyDirectChildrenOfRootAreRead() {
+    ManifestParser parser = new ManifestParser(manifest(
+        "<manifest:file-entry manifest:full-path=\"test.txt\" manifest:media-type=\"text/plain\">" +
+        "<manifest:file-entry manifest:full-path=\"nested.txt\" manifest:media-type=\"text/plain\"/>" +
+        "</manifest:file-entry>"));
+    Map<String, ManifestEntry> items = parser.getManifestFileItems();
+    Assert.assertEquals(1, items.size());
+    Assert.assertTrue(items.containsKey("test.txt"));
+  }
+
+  @Test(expected = DuplicateDataFileException.class)
+  public void parseManifestWithDuplicateEntry_throwsException() {
+    new ManifestParser(manifest(
+        "<manifest:file-entry manifest:full-path=\"test.txt\" manifest:media-type=\"text/plain\"/>" +
+        "<manifest:file-entry manifest:full-path=\"test.txt\" manifest:media-type=\"text/xml\"/>"))
+        .getManifestFileItems();
+  }
+
+  @Test(expected = DSSException.class)
+  public void parseMalformedManifest_throwsException() {
+    new ManifestParser(new InMemoryDocument("<manifest:manifest".getBytes(StandardCharsets.UTF_8))).getManifestFileItems();
+  }
+
+  @Test(expected = DSSException.class)
+  public void parseManifestWithExternalEntity_throwsException() {
+    String manifest = "<?xml version=\"1.0\"?><!DOCTYPE manifest [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>" +
+        "<manifest:manifest xmlns:manifest=\"urn:oasis:names:tc:opendocument:xmlns:manifest:1.0\">" +
+        "<manifest:file-entry manifest:full-path=\"&xxe;\" manifest:media-type=\"text/plain\"/></manifest:manifest>";
+    new ManifestParser(new InMemoryDocument(manifest.getBytes(StandardCharsets.UTF_8))).getManifestFileItems();
+  }
+
+  private static InMemoryDocument manifest(String fileEntries) {
+    String manifest = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+        "<manifest:manifest xmlns:manifest=\"urn:oasis:names:tc:opendocument:xmlns:manifest:1.0\">" +
+        "<manifest:file-entry manifest:full-path=\"/\" manifest:media-type=\"application/vnd.etsi.asic-e+zip\"/>" +
+        fileEntries + "</manifest:manifest>";
+    return new InMemoryDocument(manifest.getBytes(StandardCharsets.UTF_8));
+  }
+
 }
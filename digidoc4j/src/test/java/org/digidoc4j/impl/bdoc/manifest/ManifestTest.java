@@ -10,13 +10,25 @@
 
 package org.digidoc4j.impl.bdoc.manifest;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.custommonkey.xmlunit.XMLAssert;
 import org.digidoc4j.DataFile;
+import org.digidoc4j.Constant;
+import org.digidoc4j.exceptions.TechnicalException;
 import org.digidoc4j.impl.asic.manifest.AsicManifest;
+import org.digidoc4j.impl.asic.manifest.ManifestEntry;
+import org.digidoc4j.impl.asic.manifest.ManifestParser;
+import org.junit.Assert;
 import org.junit.Test;
 
+import eu.europa.esig.dss.model.InMemoryDocument;
+
 public class ManifestTest {
 
   @Test
@@ -32,4 +44,52 @@ public class ManifestTest {
     XMLAssert.assertXMLEqual(expectedResult, new String(manifestBytes));
   }
 
+  @Test
+  public void getBytes_outputIsIdenticalToSerializedDom() {
+    String expectedResult = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+        "<manifest:manifest xmlns:manifest=\"urn:oasis:names:tc:opendocument:xmlns:manifest:1.0\">" +
+        "<manifest:file-entry manifest:full-path=\"/\" manifest:media-type=\"application/vnd.etsi.asic-s+zip\"/>" +
+        "<manifest:file-entry manifest:full-path=\"test.txt\" manifest:media-type=\"text/plain\"/>" +
+        "</manifest:manifest>";
+    AsicManifest manifest = new AsicManifest(Constant.ASICS_CONTAINER_TYPE);
+    manifest.addFileEntry(Collections.singletonList(new DataFile(new byte[]{1}, "test.txt", "text/plain")));
+    Assert.assertEquals(expectedResult, new String(manifest.getBytes(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void getBytes_specialCharactersInAttributes_areEscapedAsInSerializedDom() {
+    AsicManifest manifest = new AsicManifest();
+    manifest.addFileEntry(Arrays.asList(
+        new DataFile(new byte[]{1}, "a&b<c>d\"e'f.txt", "text/plain; q=\"1\""),
+        new DataFile(new byte[]{1}, "tab\tnl\ncr\r\u0001.txt", "text/plain"),
+        new DataFile(new byte[]{1}, "\u00e4\u20ac\ud83d\ude00\u0085.txt", "text/plain")));
+    String manifestXml = new String(manifest.getBytes(), StandardCharsets.UTF_8);
+    Assert.assertTrue(manifestXml.endsWith(
+        "<manifest:file-entry manifest:full-path=\"a&amp;b&lt;c&gt;d&quot;e'f.txt\" " +
+        "manifest:media-type=\"text/plain; q=&quot;1&quot;\"/>" +
+        "<manifest:file-entry manifest:full-path=\"tab&#9;nl&#10;cr&#13;&#1;.txt\" manifest:media-type=\"text/plain\"/>" +
+        "<manifest:file-entry manifest:full-path=\"\u00e4\u20ac&#128512;\u0085.txt\" manifest:media-type=\"text/plain\"/>" +
+        "</manifest:manifest>"));
+  }
+
+  @Test(expected = TechnicalException.class)
+  public void getBytes_unpairedSurrogateInFileName_throwsException() {
+    AsicManifest manifest = new AsicManifest();
+    manifest.addFileEntry(Collections.singletonList(new DataFile(new byte[]{1}, "a\ud83d.txt", "text/plain")));
+    manifest.getBytes();
+  }
+
+  @Test
+  public void getBytes_manyDataFiles_entriesAreReadBackByParser() {
+    List<DataFile> dataFiles = new ArrayList<>();
+    for (int i = 0; i < 10000; i++) {
+      dataFiles.add(new DataFile(new byte[]{1}, "invoice-" + i + "&.xml", "application/xml"));
+    }
+    AsicManifest manifest = new AsicManifest();
+    manifest.addFileEntry(dataFiles);
+    Map<String, ManifestEntry> entries = new ManifestParser(new InMemoryDocument(manifest.getBytes())).getManifestFileItems();
+    Assert.assertEquals(10000, entries.size());
+    Assert.assertEquals("application/xml", entries.get("invoice-9999&.xml").getMimeType());
+  }
+
 }
@@ -0,0 +1,74 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.bdoc.xades;
+
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.ContainerMetadata.SignatureMetadata;
+import org.digidoc4j.X509Cert;
+import org.digidoc4j.impl.asic.xades.XadesSignatureHeaderReader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Base64;
+
+public class XadesSignatureHeaderReaderTest extends AbstractTest {
+
+  private static final String SIGNATURE_FILE = "src/test/resources/testFiles/xades/valid-bdoc-tm.xml";
+  private static final String SIGNING_CERTIFICATE_SERIAL_NUMBER = "11404176865";
+
+  @Test
+  public void read_signingCertificateIsOnlyCertificateOfKeyInfo() throws Exception {
+    SignatureMetadata metadata = read(readSignature());
+    Assert.assertEquals(SIGNING_CERTIFICATE_SERIAL_NUMBER,
+        metadata.getSigningCertificate().getSubjectName(X509Cert.SubjectName.SERIALNUMBER));
+  }
+
+  @Test
+  public void read_otherCertificatePrecedesSigningCertificateInKeyInfo_certificateMatchingCertDigestIsReturned()
+      throws Exception {
+    String otherCertificate = Base64.getEncoder().encodeToString(pkcs12SignatureToken.getCertificate().getEncoded());
+    String signature = readSignature().replace("<ds:X509Data><ds:X509Certificate>",
+        "<ds:X509Data><ds:X509Certificate>" + otherCertificate + "</ds:X509Certificate><ds:X509Certificate>");
+
+    SignatureMetadata metadata = read(signature);
+
+    Assert.assertEquals(SIGNING_CERTIFICATE_SERIAL_NUMBER,
+        metadata.getSigningCertificate().getSubjectName(X509Cert.SubjectName.SERIALNUMBER));
+  }
+
+  @Test
+  public void read_noCertificateOfKeyInfoMatchesCertDigest_signingCertificateIsNull() throws Exception {
+    String signature = readSignature().replace("lxzB/OvDmQQFJTyQu2qz1k97hHhYTar2xeGkss8dLEg=",
+        "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA=");
+
+    SignatureMetadata metadata = read(signature);
+
+    Assert.assertNull(metadata.getSigningCertificate());
+    Assert.assertNotNull(metadata.getClaimedSigningTime());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static String readSignature() throws Exception {
+    return new String(Files.readAllBytes(Paths.get(SIGNATURE_FILE)), StandardCharsets.UTF_8);
+  }
+
+  private static SignatureMetadata read(String signature) {
+    return new XadesSignatureHeaderReader().read(new ByteArrayInputStream(signature.getBytes(StandardCharsets.UTF_8)));
+  }
+
+}
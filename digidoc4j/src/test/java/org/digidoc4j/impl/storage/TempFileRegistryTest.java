@@ -0,0 +1,176 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerBuilder;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.LargeDataFile;
+import org.digidoc4j.impl.StreamDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class TempFileRegistryTest extends AbstractTest {
+
+  @Test
+  public void close_fileHeldByRegistry_fileIsDeleted() throws IOException {
+    File file = createTempFile();
+    TempFileRegistry registry = new TempFileRegistry();
+    registry.add(file);
+    registry.close();
+    Assert.assertFalse(file.exists());
+    Assert.assertFalse(registry.contains(file));
+  }
+
+  @Test
+  public void close_fileHeldByAnotherRegistry_fileIsDeletedWhenLastRegistryIsClosed() throws IOException {
+    File file = createTempFile();
+    TempFileRegistry registry = new TempFileRegistry();
+    TempFileRegistry otherRegistry = new TempFileRegistry();
+    registry.add(file);
+    registry.add(file);
+    otherRegistry.add(file);
+
+    registry.close();
+    Assert.assertTrue(file.exists());
+    otherRegistry.close();
+    Assert.assertFalse(file.exists());
+  }
+
+  @Test
+  public void remove_fileIsNotDeleted() throws IOException {
+    File file = createTempFile();
+    TempFileRegistry registry = new TempFileRegistry();
+    registry.add(file);
+    registry.remove(file);
+    registry.close();
+    Assert.assertTrue(file.exists());
+  }
+
+  @Test
+  public void closeContainer_temporaryFilesOfDataFilesAreDeleted() {
+    DataFile dataFile = createLargeDataFile("large.txt");
+    File file = ((StreamDocument) dataFile.getDocument()).getTemporaryFile();
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withDataFile(dataFile).build();
+    Assert.assertTrue(file.exists());
+    container.close();
+    Assert.assertFalse(file.exists());
+  }
+
+  @Test
+  public void closeContainer_dataFileAlsoInAnotherContainer_temporaryFileIsKeptUntilBothAreClosed() {
+    DataFile dataFile = createLargeDataFile("large.txt");
+    File file = ((StreamDocument) dataFile.getDocument()).getTemporaryFile();
+    try (Container otherContainer = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withDataFile(dataFile)
+        .build()) {
+      try (Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withDataFile(dataFile)
+          .build()) {
+        Assert.assertEquals(1, container.getDataFiles().size());
+      }
+      Assert.assertTrue(file.exists());
+      Assert.assertArrayEquals("content".getBytes(StandardCharsets.UTF_8), otherContainer.getDataFiles().get(0).getBytes());
+    }
+    Assert.assertFalse(file.exists());
+  }
+
+  @Test
+  public void closeContainer_removedDataFile_temporaryFileIsNotDeleted() {
+    DataFile dataFile = createLargeDataFile("large.txt");
+    File file = ((StreamDocument) dataFile.getDocument()).getTemporaryFile();
+    Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withDataFile(dataFile).build();
+    container.removeDataFile(dataFile);
+    container.close();
+    Assert.assertTrue(file.exists());
+  }
+
+  @Test
+  public void copy_fileIsDeletedWhenBothRegistriesAreClosed() throws IOException {
+    File file = createTempFile();
+    TempFileRegistry registry = new TempFileRegistry();
+    registry.add(file);
+    TempFileRegistry copy = registry.copy();
+    Assert.assertTrue(copy.contains(file));
+
+    registry.close();
+    Assert.assertTrue(file.exists());
+    copy.close();
+    Assert.assertFalse(file.exists());
+  }
+
+  @Test
+  public void closeContainer_containerStreamNotReadYet_temporaryFilesAreDeletedAfterStreamIsRead() throws IOException {
+    DataFile dataFile = createLargeDataFile("large.txt");
+    File file = ((StreamDocument) dataFile.getDocument()).getTemporaryFile();
+    InputStream stream;
+    try (Container container = ContainerBuilder.aContainer(Container.DocumentType.ASICE).withDataFile(dataFile)
+        .build()) {
+      stream = container.saveAsStream();
+    }
+    Assert.assertTrue(file.exists());
+
+    Container savedContainer;
+    try (InputStream containerStream = stream) {
+      savedContainer = ContainerOpener.open(containerStream, Configuration.of(Configuration.Mode.TEST));
+    }
+    Assert.assertArrayEquals("content".getBytes(StandardCharsets.UTF_8), savedContainer.getDataFiles().get(0).getBytes());
+    Assert.assertFalse(file.exists());
+  }
+
+  @Test
+  public void deleteWhenUnreachable_ownerBecomesUnreachable_fileIsDeletedWhenNextFileIsTied() throws IOException {
+    File file = createTempFile();
+    TempFileRegistry.deleteWhenUnreachable(new Object(), file);
+    File otherFile = createTempFile();
+    TempFileRegistry.enqueueOwnerReference(file);
+    Assert.assertTrue(file.exists());
+    TempFileRegistry.deleteWhenUnreachable(new Object(), otherFile);
+    Assert.assertFalse(file.exists());
+    Assert.assertTrue(otherFile.exists());
+  }
+
+  @Test
+  public void streamDocument_notInAnyContainer_temporaryFileIsDeletedWhenDocumentBecomesUnreachable() {
+    File file = createLargeDataFileDocument().getTemporaryFile();
+    TempFileRegistry.enqueueOwnerReference(file);
+    Assert.assertTrue(file.exists());
+    createLargeDataFileDocument();
+    Assert.assertFalse(file.exists());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private File createTempFile() throws IOException {
+    File file = new File(getFileBy("tmp"));
+    Files.write(file.toPath(), new byte[]{1, 2, 3});
+    return file;
+  }
+
+  private static StreamDocument createLargeDataFileDocument() {
+    return (StreamDocument) createLargeDataFile("large.txt").getDocument();
+  }
+
+  private static DataFile createLargeDataFile(String name) {
+    return new LargeDataFile(new ByteArrayInputStream("content".getBytes(StandardCharsets.UTF_8)), name, "text/plain");
+  }
+
+}
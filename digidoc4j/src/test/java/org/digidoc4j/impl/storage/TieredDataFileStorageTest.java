@@ -0,0 +1,366 @@
+/* DigiDoc4J library
+ *
+ * This software is released under either the GNU Library General Public
+ * License (see LICENSE.LGPL).
+ *
+ * Note that the only valid version of the LGPL license as far as this
+ * project is concerned is the original GNU Library General Public License
+ * Version 2.1, February 1999
+ */
+
+package org.digidoc4j.impl.storage;
+
+import eu.europa.esig.dss.enumerations.DigestAlgorithm;
+import eu.europa.esig.dss.model.DSSDocument;
+import eu.europa.esig.dss.model.InMemoryDocument;
+import eu.europa.esig.dss.model.MimeType;
+import org.apache.commons.io.IOUtils;
+import org.digidoc4j.AbstractTest;
+import org.digidoc4j.Configuration;
+import org.digidoc4j.Constant;
+import org.digidoc4j.Container;
+import org.digidoc4j.ContainerOpener;
+import org.digidoc4j.DataFile;
+import org.digidoc4j.DataFileStorage;
+import org.digidoc4j.impl.StreamDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class TieredDataFileStorageTest extends AbstractTest {
+
+  private static final int BUFFER_SIZE = 1024;
+
+  @Test
+  public void store_cacheAllDataFiles_keepsContentsOnHeap() throws IOException {
+    byte[] contents = createContents(10 * BUFFER_SIZE);
+    DSSDocument document = store(new TieredDataFileStorage(Constant.CACHE_ALL_DATA_FILES, 0, null), contents);
+    Assert.assertTrue(document instanceof InMemoryDocument);
+    assertContents(contents, document);
+  }
+
+  @Test
+  public void store_contentsWithinHeapLimit_keepsContentsOnHeap() throws IOException {
+    byte[] contents = createContents(100);
+    DSSDocument document = store(new TieredDataFileStorage(100, 1000, null), contents);
+    Assert.assertTrue(document instanceof InMemoryDocument);
+    assertContents(contents, document);
+  }
+
+  @Test
+  public void store_contentsOverHeapLimitWithoutOffHeapTier_spoolsContents() throws IOException {
+    byte[] contents = createContents(101);
+    DSSDocument document = store(new TieredDataFileStorage(100, 0, null), contents);
+    Assert.assertTrue(document instanceof StreamDocument);
+    assertContents(contents, document);
+  }
+
+  @Test
+  public void store_contentsWithinOffHeapLimit_keepsContentsInDirectBuffers() throws IOException {
+    byte[] contents = createContents(3 * DirectBufferPool.DEFAULT_BUFFER_SIZE + 1);
+    DSSDocument document = store(new TieredDataFileStorage(100, contents.length, null), contents);
+    Assert.assertTrue(document instanceof DirectBufferDocument);
+    Assert.assertEquals(contents.length, ((DirectBufferDocument) document).getSize());
+    assertContents(contents, document);
+    Assert.assertEquals(new InMemoryDocument(contents).getDigest(DigestAlgorithm.SHA256),
+        document.getDigest(DigestAlgorithm.SHA256));
+  }
+
+  @Test
+  public void store_contentsOfExactBufferMultiple_keepsContentsInDirectBuffers() throws IOException {
+    byte[] contents = createContents(2 * DirectBufferPool.DEFAULT_BUFFER_SIZE);
+    DSSDocument document = store(new TieredDataFileStorage(100, contents.length, null), contents);
+    Assert.assertTrue(document instanceof DirectBufferDocument);
+    assertContents(contents, document);
+  }
+
+  @Test
+  public void store_contentsOverOffHeapLimit_spoolsContentsIntoSpoolDirectory() throws IOException {
+    File spoolDirectory = new File(this.testFolder.getRoot(), "spool");
+    byte[] contents = createContents(DirectBufferPool.DEFAULT_BUFFER_SIZE + 1);
+    DSSDocument document = store(new TieredDataFileStorage(100, DirectBufferPool.DEFAULT_BUFFER_SIZE,
+        spoolDirectory.getPath()), contents);
+    Assert.assertTrue(document instanceof StreamDocument);
+    Assert.assertEquals(1, spoolDirectory.listFiles().length);
+    assertContents(contents, document);
+  }
+
+  @Test
+  public void store_contentsOverOffHeapLimit_buffersAreReturnedToPoolAfterSpooling() {
+    DirectBufferPool pool = DirectBufferPool.getDefault();
+    int idleBufferCount = pool.getIdleBufferCount();
+    store(new TieredDataFileStorage(100, DirectBufferPool.DEFAULT_BUFFER_SIZE, null),
+        createContents(2 * DirectBufferPool.DEFAULT_BUFFER_SIZE + 1));
+    Assert.assertTrue(pool.getIdleBufferCount() > 0);
+    Assert.assertTrue(pool.getIdleBufferCount() >= idleBufferCount);
+  }
+
+  @Test
+  public void directBufferDocument_serializedAsInMemoryDocument() throws IOException {
+    byte[] contents = createContents(BUFFER_SIZE + 1);
+    DirectBufferPool pool = new DirectBufferPool(BUFFER_SIZE, 10);
+    DSSDocument document = new DirectBufferDocument(fill(pool, contents), pool, "test.txt", MimeType.TEXT);
+    String fileName = this.getFileBy("bin");
+    this.serialize(document, fileName);
+    DSSDocument deserializedDocument = this.deserializer(fileName);
+    Assert.assertTrue(deserializedDocument instanceof InMemoryDocument);
+    Assert.assertEquals("test.txt", deserializedDocument.getName());
+    assertContents(contents, deserializedDocument);
+  }
+
+  @Test
+  public void directBufferPool_releasedBuffersAreReused() {
+    DirectBufferPool pool = new DirectBufferPool(BUFFER_SIZE, 1);
+    ByteBuffer first = pool.acquire();
+    ByteBuffer second = pool.acquire();
+    first.put((byte) 1);
+    pool.release(Arrays.asList(first, second));
+    Assert.assertEquals(1, pool.getIdleBufferCount());
+    ByteBuffer reused = pool.acquire();
+    Assert.assertSame(first, reused);
+    Assert.assertEquals(0, reused.position());
+    Assert.assertEquals(BUFFER_SIZE, reused.remaining());
+    Assert.assertTrue(reused.isDirect());
+  }
+
+  @Test
+  public void directBufferPool_buffersOfUnreachableDocumentAreReclaimed() {
+    DirectBufferPool pool = new DirectBufferPool(BUFFER_SIZE, 10);
+    new DirectBufferDocument(fill(pool, createContents(3 * BUFFER_SIZE)), pool, "test.txt", MimeType.TEXT);
+    Assert.assertEquals(0, pool.getIdleBufferCount());
+    pool.enqueueOwnerReferences();
+    Assert.assertEquals(3, pool.getIdleBufferCount());
+  }
+
+  @Test
+  public void store_contentsNotFittingIntoHeapBudget_spoolsContents() throws IOException {
+    HeapBudget budget = new HeapBudget(150);
+    TieredDataFileStorage storage = new TieredDataFileStorage(100, 0, null, budget);
+    byte[] contents = createContents(100);
+    DSSDocument first = store(storage, contents);
+    Assert.assertTrue(first instanceof InMemoryDocument);
+    Assert.assertEquals(100, budget.getReservedSize());
+    DSSDocument second = store(storage, contents);
+    Assert.assertTrue(second instanceof StreamDocument);
+    Assert.assertEquals(100, budget.getReservedSize());
+    assertContents(contents, second);
+  }
+
+  @Test
+  public void store_cacheAllDataFilesWithHeapBudget_storesContentsNotFittingIntoBudgetOffHeap() throws IOException {
+    HeapBudget budget = new HeapBudget(BUFFER_SIZE);
+    TieredDataFileStorage storage = new TieredDataFileStorage(Constant.CACHE_ALL_DATA_FILES, 10 * BUFFER_SIZE, null,
+        budget);
+    byte[] contents = createContents(BUFFER_SIZE + 1);
+    DSSDocument document = store(storage, contents);
+    Assert.assertTrue(document instanceof DirectBufferDocument);
+    Assert.assertEquals(0, budget.getReservedSize());
+    assertContents(contents, document);
+  }
+
+  @Test
+  public void heapBudget_bytesOfUnreachableDocumentAreReleased() {
+    HeapBudget budget = new HeapBudget(BUFFER_SIZE);
+    store(new TieredDataFileStorage(BUFFER_SIZE, 0, null, budget), createContents(BUFFER_SIZE));
+    Assert.assertFalse(budget.tryReserve(1));
+    budget.enqueueOwnerReferences();
+    Assert.assertEquals(0, budget.getReservedSize());
+    Assert.assertTrue(budget.tryReserve(BUFFER_SIZE));
+  }
+
+  @Test
+  public void heapBudget_releaseOwnedBy_bytesOfReachableDocumentAreReleasedAtOnce() {
+    HeapBudget budget = new HeapBudget(BUFFER_SIZE);
+    DSSDocument document = store(new TieredDataFileStorage(BUFFER_SIZE, 0, null, budget), createContents(BUFFER_SIZE));
+    Assert.assertEquals(BUFFER_SIZE, budget.getReservedSize());
+    HeapBudget.releaseOwnedBy(document);
+    Assert.assertEquals(0, budget.getReservedSize());
+    HeapBudget.releaseOwnedBy(document);
+    Assert.assertEquals(0, budget.getReservedSize());
+    Assert.assertTrue(document instanceof InMemoryDocument);
+  }
+
+  @Test
+  public void closeContainer_bytesOfDataFilesAreReleasedFromHeapBudget() throws IOException {
+    Configuration configuration = new Configuration(Configuration.Mode.TEST);
+    configuration.setMaxDataFilesCachedTotalInBytes(1024 * 1024);
+    HeapBudget budget = HeapBudget.of(configuration);
+    Container container = openFromStream(ASIC_WITH_NO_SIG, configuration);
+    Assert.assertTrue(container.getDataFiles().get(0).getDocument() instanceof InMemoryDocument);
+    Assert.assertTrue(budget.getReservedSize() > 0);
+    container.close();
+    Assert.assertEquals(0, budget.getReservedSize());
+  }
+
+  @Test
+  public void removeDataFile_bytesOfDataFileAreReleasedFromHeapBudget() throws IOException {
+    Configuration configuration = new Configuration(Configuration.Mode.TEST);
+    configuration.setMaxDataFilesCachedTotalInBytes(1024 * 1024);
+    HeapBudget budget = HeapBudget.of(configuration);
+    Container container = openFromStream(ASIC_WITH_NO_SIG, configuration);
+    DataFile dataFile = container.getDataFiles().get(0);
+    long reservedSize = budget.getReservedSize();
+    container.removeDataFile(dataFile);
+    Assert.assertEquals(reservedSize - dataFile.getBytes().length, budget.getReservedSize());
+  }
+
+  @Test
+  public void heapBudget_notLimited_doesNotTrackReservations() {
+    HeapBudget budget = new HeapBudget(Constant.CACHE_ALL_DATA_FILES);
+    Assert.assertTrue(budget.tryReserve(Long.MAX_VALUE));
+    Assert.assertEquals(0, budget.getReservedSize());
+    Assert.assertEquals(Long.MAX_VALUE, budget.getAvailableSize());
+  }
+
+  @Test
+  public void openContainer_dataFilesNotFittingIntoHeapBudgetAreNotKeptOnHeap() {
+    Configuration configuration = new Configuration(Configuration.Mode.TEST);
+    configuration.setMaxDataFilesCachedTotalInBytes(0);
+    Container container = ContainerOpener.open(ASIC_WITH_NO_SIG, configuration);
+    DataFile dataFile = container.getDataFiles().get(0);
+    Assert.assertFalse(dataFile.getDocument() instanceof InMemoryDocument);
+    Assert.assertTrue(dataFile.getBytes().length > 0);
+  }
+
+  @Test
+  public void openContainerFromStream_onlyInMemory_dataFileOfUnknownSizeFittingIntoHeapBudgetIsKeptOnHeap()
+      throws IOException {
+    Configuration configuration = new Configuration(Configuration.Mode.TEST);
+    configuration.setMaxDataFilesCachedTotalInBytes(1024 * 1024);
+    List<String> storedNames = new ArrayList<>();
+    configuration.setDataFileStorage(createRecordingStorage(storedNames));
+    Assert.assertTrue(configuration.storeDataFilesOnlyInMemory());
+    byte[] contents = createContents(100);
+
+    Container container = ContainerOpener.open(createContainerWithDataDescriptors(contents), configuration);
+    DataFile dataFile = container.getDataFiles().get(0);
+    Assert.assertTrue(dataFile.getDocument() instanceof InMemoryDocument);
+    Assert.assertArrayEquals(contents, dataFile.getBytes());
+    Assert.assertTrue(storedNames.isEmpty());
+  }
+
+  @Test
+  public void openContainerFromStream_onlyInMemory_dataFileOfUnknownSizeNotFittingIntoHeapBudgetIsStored()
+      throws IOException {
+    Configuration configuration = new Configuration(Configuration.Mode.TEST);
+    configuration.setMaxDataFilesCachedTotalInBytes(10);
+    List<String> storedNames = new ArrayList<>();
+    configuration.setDataFileStorage(createRecordingStorage(storedNames));
+    byte[] contents = createContents(100);
+
+    Container container = ContainerOpener.open(createContainerWithDataDescriptors(contents), configuration);
+    Assert.assertArrayEquals(contents, container.getDataFiles().get(0).getBytes());
+    Assert.assertTrue(storedNames.contains("test.txt"));
+  }
+
+  @Test
+  public void dataFileFromStream_usesConfiguredStorage() {
+    Configuration configuration = new Configuration(Configuration.Mode.TEST);
+    configuration.setMaxFileSizeCachedInMemoryInMB(Constant.CACHE_NO_DATA_FILES);
+    configuration.setMaxDataFileCachedOffHeapInBytes(BUFFER_SIZE);
+    byte[] contents = createContents(100);
+    DataFile dataFile = new DataFile(new ByteArrayInputStream(contents), "test.txt", "text/plain",
+        configuration.getDataFileStorage());
+    Assert.assertTrue(dataFile.getDocument() instanceof DirectBufferDocument);
+    Assert.assertEquals(contents.length, dataFile.getFileSize());
+    Assert.assertArrayEquals(contents, dataFile.getBytes());
+  }
+
+  /*
+   * RESTRICTED METHODS
+   */
+
+  private static Container openFromStream(String path, Configuration configuration) throws IOException {
+    try (InputStream stream = new FileInputStream(path)) {
+      return ContainerOpener.open(stream, configuration);
+    }
+  }
+
+  /**
+   * Creates a container whose deflated entries are followed by data descriptors, so that their sizes are not known
+   * before they have been read from a stream.
+   */
+  private static InputStream createContainerWithDataDescriptors(byte[] dataFileContents) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+      byte[] mimeType = MimeType.ASICE.getMimeTypeString().getBytes(StandardCharsets.UTF_8);
+      ZipEntry mimeTypeEntry = new ZipEntry("mimetype");
+      mimeTypeEntry.setMethod(ZipEntry.STORED);
+      mimeTypeEntry.setSize(mimeType.length);
+      CRC32 crc = new CRC32();
+      crc.update(mimeType);
+      mimeTypeEntry.setCrc(crc.getValue());
+      zipOutputStream.putNextEntry(mimeTypeEntry);
+      zipOutputStream.write(mimeType);
+      zipOutputStream.putNextEntry(new ZipEntry("META-INF/manifest.xml"));
+      zipOutputStream.write(("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\" ?>"
+          + "<manifest:manifest xmlns:manifest=\"urn:oasis:names:tc:opendocument:xmlns:manifest:1.0\" manifest:version=\"1.2\">"
+          + "<manifest:file-entry manifest:full-path=\"/\" manifest:media-type=\"application/vnd.etsi.asic-e+zip\"/>"
+          + "<manifest:file-entry manifest:full-path=\"test.txt\" manifest:media-type=\"text/plain\"/>"
+          + "</manifest:manifest>").getBytes(StandardCharsets.UTF_8));
+      zipOutputStream.putNextEntry(new ZipEntry("test.txt"));
+      zipOutputStream.write(dataFileContents);
+    }
+    return new ByteArrayInputStream(outputStream.toByteArray());
+  }
+
+  private static DataFileStorage createRecordingStorage(List<String> storedNames) {
+    return (stream, name, mimeType) -> {
+      storedNames.add(name);
+      try {
+        return new InMemoryDocument(IOUtils.toByteArray(stream), name, mimeType);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
+  private static DSSDocument store(TieredDataFileStorage storage, byte[] contents) {
+    return storage.store(new ByteArrayInputStream(contents), "test.txt", MimeType.TEXT);
+  }
+
+  private static List<ByteBuffer> fill(DirectBufferPool pool, byte[] contents) {
+    List<ByteBuffer> buffers = new ArrayList<>();
+    for (int offset = 0; offset < contents.length; offset += pool.getBufferSize()) {
+      ByteBuffer buffer = pool.acquire();
+      buffer.put(contents, offset, Math.min(pool.getBufferSize(), contents.length - offset));
+      ((Buffer) buffer).flip();
+      buffers.add(buffer);
+    }
+    return buffers;
+  }
+
+  private static byte[] createContents(int size) {
+    byte[] contents = new byte[size];
+    for (int i = 0; i < size; i++) {
+      contents[i] = (byte) (i * 31);
+    }
+    return contents;
+  }
+
+  private static void assertContents(byte[] expected, DSSDocument document) throws IOException {
+    try (InputStream stream = document.openStream()) {
+      Assert.assertArrayEquals(expected, IOUtils.toByteArray(stream));
+    }
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    document.writeTo(outputStream);
+    Assert.assertArrayEquals(expected, outputStream.toByteArray());
+  }
+
+}